@@ -79,16 +79,39 @@ CREATE TABLE public.feedback (
         FOREIGN KEY (id_abitazione) REFERENCES abitazione(id) 
 );
 
-CREATE VIEW super_host AS
-SELECT 
-    h.id AS host_id,
-    u.nome_user,
-    u.cognome,
-    COUNT(p.id) AS totale_prenotazioni
-FROM host h
-JOIN utente u ON h.id_utente = u.id
-JOIN abitazione a ON a.id_host = h.id
-JOIN prenotazione p ON p.abitazione_id = a.id
-GROUP BY h.id, u.nome_user, u.cognome
-HAVING COUNT(p.id) >= 100;
+-- I super-host (host con almeno 100 prenotazioni) non sono più una vista:
+-- i contatori per host sono tenuti in memoria dall'applicazione (SuperHostRegistry).
+DROP VIEW IF EXISTS super_host;
 
+
+-- Rollup giornaliero delle prenotazioni per le statistiche su intervalli arbitrari
+-- (?from=&to=). Aggiornato dall'applicazione a ogni prenotazione e ricalcolato
+-- periodicamente (rollup.refreshMinutes); host_id è quello dell'abitazione.
+CREATE TABLE IF NOT EXISTS public.prenotazione_rollup (
+    giorno DATE NOT NULL,
+    abitazione_id INTEGER NOT NULL,
+    host_id INTEGER NOT NULL,
+    utente_id INTEGER NOT NULL,
+    prenotazioni INTEGER NOT NULL,
+    notti INTEGER NOT NULL,
+    PRIMARY KEY (giorno, abitazione_id, utente_id),
+    CONSTRAINT fk_rollup_abitazione
+        FOREIGN KEY (abitazione_id)
+        REFERENCES abitazione(id)
+        ON DELETE CASCADE,
+    CONSTRAINT fk_rollup_utente
+        FOREIGN KEY (utente_id)
+        REFERENCES utente(id)
+        ON DELETE CASCADE
+);
+
+CREATE INDEX IF NOT EXISTS idx_rollup_giorno_host ON public.prenotazione_rollup (giorno, host_id);
+CREATE INDEX IF NOT EXISTS idx_rollup_giorno_utente ON public.prenotazione_rollup (giorno, utente_id);
+
+-- I punteggi aggregati dei feedback sono tenuti in memoria (RatingAggregates):
+-- prima di cancellare una prenotazione l'applicazione legge i suoi feedback,
+-- che il DB poi cancella a cascata.
+CREATE INDEX IF NOT EXISTS idx_feedback_prenotazione ON public.feedback (prenotazione_id);
+
+-- Controllo dei periodi sovrapposti per abitazione (import massivo delle prenotazioni)
+CREATE INDEX IF NOT EXISTS idx_prenotazione_abitazione_date ON public.prenotazione (abitazione_id, data_inizio);
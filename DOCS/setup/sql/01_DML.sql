@@ -69,9 +69,13 @@ ORDER BY totale_prenotazioni DESC;
 
 -- 5 Ottenere tutti i super-host
 
-SELECT u.nome_user, u.cognome, sh.totale_prenotazioni
-FROM super_host sh
-JOIN public.utente u ON sh.host_id = u.id;
+SELECT h.id AS host_id, u.nome_user, u.cognome, COUNT(p.id) AS totale_prenotazioni
+FROM public.host h
+JOIN public.utente u ON h.id_utente = u.id
+JOIN public.abitazione a ON a.id_host = h.id
+JOIN public.prenotazione p ON p.abitazione_id = a.id
+GROUP BY h.id, u.nome_user, u.cognome
+HAVING COUNT(p.id) >= 100;
 
 --6 Ottenere i 5 utenti con più giorni prenotati nell'ultimo mese
 SELECT 
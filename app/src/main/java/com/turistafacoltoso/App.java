@@ -1,14 +1,25 @@
 package com.turistafacoltoso;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.turistafacoltoso.controller.AbitazioneController;
+import com.turistafacoltoso.controller.AdminController;
 import com.turistafacoltoso.controller.FeedbackController;
 import com.turistafacoltoso.controller.HostController;
+import com.turistafacoltoso.controller.ImportController;
+import com.turistafacoltoso.controller.MetricsController;
 import com.turistafacoltoso.controller.PrenotazioneController;
 import com.turistafacoltoso.controller.UtenteController;
+import com.turistafacoltoso.service.AbitazioneDAOService;
+import com.turistafacoltoso.service.FeedbackDAOService;
+import com.turistafacoltoso.service.HostDAOService;
+import com.turistafacoltoso.service.PrenotazioneDAOService;
+import com.turistafacoltoso.service.RollupService;
 import com.turistafacoltoso.util.DataBaseConnection;
+import com.turistafacoltoso.util.EntityCaches;
+import com.turistafacoltoso.util.JacksonConfig;
+import com.turistafacoltoso.util.Metrics;
+import com.turistafacoltoso.util.QueryBudget;
+import com.turistafacoltoso.util.RequestContext;
 
 import io.javalin.Javalin;
 import io.javalin.json.JavalinJackson;
@@ -18,12 +29,33 @@ public class App
     public static void main( String[] args )
     {   
         DataBaseConnection.init("config.properties");
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            RollupService.stop();
+            DataBaseConnection.close();
+        }));
+        EntityCaches.configure();
+        QueryBudget.configure(DataBaseConnection.getIntProperty("db.queryBudget.default", 0),
+                Boolean.parseBoolean(DataBaseConnection.getProperty("db.queryBudget.enforce", "false")));
+        Metrics.bindAll();
+        new PrenotazioneDAOService().loadPrenotazioneIndex();
+        new PrenotazioneDAOService().loadLastMonthCounters();
+        new PrenotazioneDAOService().loadPrenotazioneColumns();
+        new HostDAOService().loadSuperHostRegistry();
+        new AbitazioneDAOService().loadInventoryStats();
+        new AbitazioneDAOService().loadSuggestIndex();
+        new AbitazioneDAOService().loadSearchEngine();
+        new AbitazioneDAOService().loadPriceIndex();
+        new FeedbackDAOService().loadRatingAggregates();
+        new FeedbackDAOService().loadSearchIndex();
+        RollupService.start();
 
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.registerModule(new JavaTimeModule());
-        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS); // Per gestire conversioni json data/timestamp 
+        ObjectMapper objectMapper = JacksonConfig.createObjectMapper();
+
+        boolean virtualThreads = Boolean.parseBoolean(DataBaseConnection.getProperty("server.virtualThreads", "true"));
 
         Javalin app = Javalin.create(config -> {
+            // Ogni richiesta gira su un virtual thread: le attese su JDBC non bloccano thread di piattaforma
+            config.useVirtualThreads = virtualThreads;
             config.jsonMapper(new JavalinJackson(objectMapper, true));
             config.http.defaultContentType = "application/json";
             config.bundledPlugins.enableCors(cors -> {
@@ -33,10 +65,18 @@ public class App
             });
         }).start(7001);
         app.before(ctx -> {
+            RequestContext.begin();
             ctx.header("Access-Control-Allow-Origin", "*");
             ctx.header("Access-Control-Allow-Methods", "GET,POST,PUT,DELETE,OPTIONS");
             ctx.header("Access-Control-Allow-Headers", "Content-Type,Authorization");
         });
+        app.after(ctx -> {
+            try {
+                MetricsController.recordRequest(ctx);
+            } finally {
+                RequestContext.end();
+            }
+        });
 
         UtenteController utenteController = new UtenteController();
         utenteController.registerRoutes(app);
@@ -52,5 +92,14 @@ public class App
 
         FeedbackController feedbackController = new FeedbackController();
         feedbackController.registerRoutes(app);
+
+        ImportController importController = new ImportController();
+        importController.registerRoutes(app);
+
+        AdminController adminController = new AdminController();
+        adminController.registerRoutes(app);
+
+        MetricsController metricsController = new MetricsController();
+        metricsController.registerRoutes(app);
     }
 }
@@ -2,13 +2,22 @@ package com.turistafacoltoso.controller;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
 import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.AbitazioneFilter;
+import com.turistafacoltoso.model.BatchResult;
+import com.turistafacoltoso.model.HostInventoryStats;
 import com.turistafacoltoso.service.AbitazioneDAOService;
+import com.turistafacoltoso.util.BatchRequest;
+import com.turistafacoltoso.util.JsonStreamWriter;
+import com.turistafacoltoso.util.Pagination;
+import com.turistafacoltoso.util.StatsRange;
 
 import io.javalin.Javalin;
 import io.javalin.http.Context;
@@ -18,6 +27,9 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class AbitazioneController {
     
+    private static final List<Integer> DEFAULT_PERCENTILI = List.of(50, 90, 95, 99);
+    private static final int MAX_SUGGERIMENTI = 50;
+
     private final AbitazioneDAOService abitazioneService;
 
     public AbitazioneController() {
@@ -27,15 +39,24 @@ public class AbitazioneController {
     public void registerRoutes(Javalin app) {
         // CREATE
         app.post("/api/v1/abitazioni", this::createAbitazione);
+        app.post("/api/v1/abitazioni/batch", this::createAbitazioniBatch);
 
         // READ
         app.get("/api/v1/abitazioni", this::getAllAbitazioni);
+        app.get("/api/v1/abitazioni/export", this::exportAbitazioni);
+        app.get("/api/v1/abitazioni/suggest", this::suggestAbitazioni);
+        app.get("/api/v1/abitazioni/search", this::searchAbitazioni);
         app.get("/api/v1/abitazioni/{id}", this::getAbitazioneById);
         app.get("/api/v1/abitazioni/locali/{n}", this::getAbitazioniByLocali);
         app.get("/api/v1/abitazioni/search/disponibilita", this::getAbitazioniDisponibili);
         app.get("/api/v1/abitazioni/hosts/{id}", this::getAbitazioniByHostId);
         app.get("/api/v1/abitazioni/stats/mostPopular",this::getMostPopularAbitazione);
         app.get("/api/v1/abitazioni/postiletto/media",this::getMediaPostiLettoAbitazione);
+        app.get("/api/v1/abitazioni/stats/summary", this::getInventorySummary);
+        app.get("/api/v1/abitazioni/stats/prezzi", this::getPercentiliPrezzo);
+        app.get("/api/v1/abitazioni/stats/distribuzione", this::getDistribuzioni);
+        app.get("/api/v1/abitazioni/stats/hosts", this::getInventoryStatsPerHost);
+        app.get("/api/v1/abitazioni/stats/hosts/{idHost}", this::getInventoryStatsHost);
 
         // UPDATE
         app.put("/api/v1/abitazioni/{id}", this::updateAbitazione);
@@ -68,9 +89,30 @@ public class AbitazioneController {
         ctx.json(created);
     }
 
+    private void createAbitazioniBatch(Context ctx) {
+        log.info("POST /api/v1/abitazioni/batch - Richiesta inserimento batch");
+        List<Abitazione> items;
+        try {
+            items = BatchRequest.readItems(ctx, Abitazione.class);
+        } catch (IllegalArgumentException ex) {
+            log.warn("Batch abitazioni rifiutato: {}", ex.getMessage());
+            ctx.status(HttpStatus.BAD_REQUEST);
+            ctx.json(buildErrorResponse(ex.getMessage()));
+            return;
+        }
+        BatchResult result = abitazioneService.insertAbitazioniBatch(items);
+        ctx.status(HttpStatus.OK);
+        ctx.json(result);
+    }
+
     // ==================== READ ====================
 
     private void getAllAbitazioni(Context ctx) {
+        if (Pagination.isRequested(ctx)) {
+            log.info("GET /api/v1/abitazioni - Pagina");
+            ctx.json(abitazioneService.getAbitazioniPage(Pagination.after(ctx), Pagination.limit(ctx)));
+            return;
+        }
         log.info("GET /api/v1/abitazioni - Lista completa");
         ctx.json(abitazioneService.getAllAbitazioni());
     }
@@ -83,6 +125,24 @@ public class AbitazioneController {
         
     }
 
+    private void exportAbitazioni(Context ctx) {
+        log.info("GET /api/v1/abitazioni/export - Export completo");
+        JsonStreamWriter.writeArray(ctx, abitazioneService::exportAbitazioni);
+    }
+
+    private void suggestAbitazioni(Context ctx) {
+        String q = ctx.queryParam("q");
+        log.debug("GET /api/v1/abitazioni/suggest - q: {}", q);
+        if (q == null || q.isBlank()) {
+            ctx.json(List.of());
+            return;
+        }
+        int limit = ctx.queryParamAsClass("limit", Integer.class)
+                .check(l -> l > 0 && l <= MAX_SUGGERIMENTI, "limit deve essere compreso tra 1 e " + MAX_SUGGERIMENTI)
+                .getOrDefault(10);
+        ctx.json(abitazioneService.suggestAbitazioni(q, limit));
+    }
+
     private void getAbitazioneById(Context ctx) {
         int id = Integer.parseInt(ctx.pathParam("id"));
         log.info("GET /api/v1/abitazioni/{} - Ricerca per ID", id);
@@ -102,17 +162,53 @@ public class AbitazioneController {
         ctx.json(abitazioneService.getAbitazioniByLocali(nLocali));
     }
 
+    private void searchAbitazioni(Context ctx) {
+        log.debug("GET /api/v1/abitazioni/search - {}", ctx.queryString());
+        try {
+            AbitazioneFilter filter = new AbitazioneFilter(
+                    ctx.queryParamAsClass("nLocali", Integer.class).allowNullable().get(),
+                    ctx.queryParamAsClass("minPostiLetto", Integer.class).allowNullable().get(),
+                    parsePrezzo(ctx.queryParam("prezzoMin")),
+                    parsePrezzo(ctx.queryParam("prezzoMax")),
+                    ctx.queryParamAsClass("idHost", Integer.class).allowNullable().get(),
+                    parseDate(ctx.queryParam("inizio")),
+                    parseDate(ctx.queryParam("fine")));
+            ctx.json(abitazioneService.searchAbitazioni(filter, Pagination.after(ctx), Pagination.limit(ctx)));
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            ctx.status(HttpStatus.BAD_REQUEST);
+            ctx.json(buildErrorResponse(ex.getMessage()));
+        }
+    }
+
     private void getAbitazioniDisponibili(Context ctx) {
         LocalDate inizio = LocalDate.parse(ctx.queryParam("inizio"));
         LocalDate fine = LocalDate.parse(ctx.queryParam("fine"));
-        
+        String sort = ctx.queryParam("sort");
+
         log.info("GET /api/v1/abitazioni/search/disponibilita - Range: {} / {}", inizio, fine);
-        ctx.json(abitazioneService.getAbitazioniDisponibili(inizio, fine));
+        if (sort == null) {
+            ctx.json(abitazioneService.getAbitazioniDisponibili(inizio, fine));
+            return;
+        }
+        if (!sort.equals("price") && !sort.equals("-price")) {
+            ctx.status(HttpStatus.BAD_REQUEST);
+            ctx.json(buildErrorResponse("sort deve essere price o -price"));
+            return;
+        }
+        try {
+            ctx.json(abitazioneService.getAbitazioniDisponibiliPerPrezzo(inizio, fine, sort.equals("-price"),
+                    Pagination.limit(ctx)));
+        } catch (IllegalArgumentException ex) {
+            ctx.status(HttpStatus.BAD_REQUEST);
+            ctx.json(buildErrorResponse(ex.getMessage()));
+        }
     }
 
     private void getMostPopularAbitazione(Context ctx){
         log.info("controller: GET api/v1/abitazioni/most-popular");
-        Optional<Abitazione> a = abitazioneService.getMostPopularAbitazione();
+        Optional<Abitazione> a = StatsRange.isRequested(ctx)
+                ? abitazioneService.getMostPopularAbitazione(StatsRange.from(ctx), StatsRange.to(ctx))
+                : abitazioneService.getMostPopularAbitazione();
         if (a.isPresent()) {
             ctx.json(a.get());
         }else{
@@ -127,6 +223,51 @@ public class AbitazioneController {
         ctx.json(result, getClass());
     }
 
+    private void getInventorySummary(Context ctx) {
+        log.info("GET /api/v1/abitazioni/stats/summary");
+        ctx.status(HttpStatus.OK);
+        ctx.json(abitazioneService.getInventorySummary());
+    }
+
+    private void getPercentiliPrezzo(Context ctx) {
+        log.info("GET /api/v1/abitazioni/stats/prezzi");
+        List<Integer> percentili;
+        try {
+            percentili = parsePercentili(ctx.queryParam("p"));
+        } catch (IllegalArgumentException ex) {
+            ctx.status(HttpStatus.BAD_REQUEST);
+            ctx.json(buildErrorResponse(ex.getMessage()));
+            return;
+        }
+        ctx.status(HttpStatus.OK);
+        ctx.json(abitazioneService.getPercentiliPrezzo(percentili));
+    }
+
+    private void getDistribuzioni(Context ctx) {
+        log.info("GET /api/v1/abitazioni/stats/distribuzione");
+        ctx.status(HttpStatus.OK);
+        ctx.json(abitazioneService.getDistribuzioni());
+    }
+
+    private void getInventoryStatsPerHost(Context ctx) {
+        log.info("GET /api/v1/abitazioni/stats/hosts");
+        ctx.status(HttpStatus.OK);
+        ctx.json(abitazioneService.getInventoryStatsPerHost());
+    }
+
+    private void getInventoryStatsHost(Context ctx) {
+        int idHost = Integer.parseInt(ctx.pathParam("idHost"));
+        log.info("GET /api/v1/abitazioni/stats/hosts/{}", idHost);
+        Optional<HostInventoryStats> stats = abitazioneService.getInventoryStatsHost(idHost);
+        if (stats.isPresent()) {
+            ctx.status(HttpStatus.OK);
+            ctx.json(stats.get());
+        } else {
+            ctx.status(HttpStatus.NOT_FOUND);
+            ctx.json(buildErrorResponse("Nessuna abitazione per l'host " + idHost));
+        }
+    }
+
     // ==================== UPDATE ====================
 
     private void updateAbitazione(Context ctx) {
@@ -162,6 +303,44 @@ public class AbitazioneController {
 
     // ==================== UTILITY ====================
 
+    /**
+     * Percentili da ?p=50,90,99 (interi tra 1 e 100), di default 50, 90, 95, 99.
+     */
+    private static List<Integer> parsePercentili(String param) {
+        if (param == null || param.isBlank()) {
+            return DEFAULT_PERCENTILI;
+        }
+        List<Integer> percentili = new ArrayList<>();
+        for (String s : param.split(",")) {
+            int p;
+            try {
+                p = Integer.parseInt(s.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("percentile non valido: " + s);
+            }
+            if (p < 1 || p > 100) {
+                throw new IllegalArgumentException("i percentili devono essere compresi tra 1 e 100");
+            }
+            percentili.add(p);
+        }
+        return percentili;
+    }
+
+    private static LocalDate parseDate(String value) {
+        return value == null || value.isBlank() ? null : LocalDate.parse(value);
+    }
+
+    private static BigDecimal parsePrezzo(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return new BigDecimal(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("prezzo non valido: " + value);
+        }
+    }
+
     private Map<String, String> buildErrorResponse(String errorMessage) {
         Map<String, String> error = new HashMap<>();
         error.put("error", errorMessage);
@@ -0,0 +1,59 @@
+package com.turistafacoltoso.controller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.turistafacoltoso.util.DataBaseConnection;
+import com.turistafacoltoso.util.DbBulkhead;
+import com.turistafacoltoso.util.EntityCaches;
+import com.turistafacoltoso.util.StatementCacheMirror;
+
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+import io.javalin.http.HttpStatus;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Endpoint di diagnostica: statistiche delle cache e del pool di connessioni.
+ */
+@Slf4j
+public class AdminController {
+
+    public void registerRoutes(Javalin app) {
+        // READ
+        app.get("/api/v1/admin/cache", this::getCacheStats);
+        app.get("/api/v1/admin/db", this::getDbStats);
+
+        // DELETE
+        app.delete("/api/v1/admin/cache", this::clearCaches);
+    }
+
+    // ==================== READ ====================
+
+    private void getCacheStats(Context ctx) {
+        log.info("GET /api/v1/admin/cache");
+        ctx.status(HttpStatus.OK);
+        ctx.json(EntityCaches.getStats());
+    }
+
+    private void getDbStats(Context ctx) {
+        log.info("GET /api/v1/admin/db");
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pool", DataBaseConnection.getPoolStats());
+        stats.put("replicas", DataBaseConnection.getReplicaPoolStats());
+        stats.put("statementCacheMirror", StatementCacheMirror.getStats());
+        stats.put("bulkheadMaxConcurrent", DbBulkhead.getMaxConcurrent());
+        stats.put("bulkheadAvailable", DbBulkhead.availablePermits());
+        stats.put("bulkheadQueue", DbBulkhead.queueLength());
+        ctx.status(HttpStatus.OK);
+        ctx.json(stats);
+    }
+
+    // ==================== DELETE ====================
+
+    private void clearCaches(Context ctx) {
+        log.warn("DELETE /api/v1/admin/cache - Svuotamento cache entità");
+        EntityCaches.invalidateAll();
+        ctx.status(HttpStatus.NO_CONTENT);
+    }
+}
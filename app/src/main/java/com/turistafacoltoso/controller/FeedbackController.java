@@ -1,10 +1,17 @@
 package com.turistafacoltoso.controller;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 import com.turistafacoltoso.exception.FeedbackNotFoundException;
+import com.turistafacoltoso.index.RatingAggregates;
 import com.turistafacoltoso.model.Feedback;
+import com.turistafacoltoso.model.RatingStats;
 import com.turistafacoltoso.service.FeedbackDAOService;
+import com.turistafacoltoso.util.JsonStreamWriter;
+import com.turistafacoltoso.util.Pagination;
+import com.turistafacoltoso.util.StatsRange;
 
 import io.javalin.Javalin;
 import io.javalin.http.Context;
@@ -25,6 +32,11 @@ public class FeedbackController {
 
         // READ
         app.get("/api/v1/feedbacks", this::getAllFeedback);
+        app.get("/api/v1/feedbacks/export", this::exportFeedback);
+        app.get("/api/v1/feedbacks/search", this::searchFeedback);
+        app.get("/api/v1/feedbacks/stats/abitazioni/{idAbitazione}", this::getRatingAbitazione);
+        app.get("/api/v1/feedbacks/stats/hosts/{idHost}", this::getRatingHost);
+        app.get("/api/v1/feedbacks/stats/top", this::getTopRated);
         app.get("/api/v1/feedbacks/{id}", this::getFeedbackById);
         app.get("/api/v1/feedbacks/users/{id}", this::getFeedbackByIdUtente);
         app.get("/api/v1/feedbacks/punteggio/{punteggio}", this::getFeedbackByPunteggio);
@@ -67,9 +79,67 @@ public class FeedbackController {
 
     private void getAllFeedback(Context ctx) {
         log.info("GET api/v1/feedback");
+        if (Pagination.isRequested(ctx)) {
+            ctx.json(feedbackDAOService.getFeedbackPage(Pagination.after(ctx), Pagination.limit(ctx)));
+            return;
+        }
         ctx.json(feedbackDAOService.getAllFeedback());
     }
 
+    private void exportFeedback(Context ctx) {
+        log.info("GET api/v1/feedbacks/export");
+        JsonStreamWriter.writeArray(ctx, feedbackDAOService::exportFeedback);
+    }
+
+    private void searchFeedback(Context ctx) {
+        String q = ctx.queryParam("q");
+        log.info("GET /api/v1/feedbacks/search - q: {}", q);
+        if (q == null || q.isBlank()) {
+            ctx.status(HttpStatus.BAD_REQUEST);
+            ctx.json(buildErrorResponse("Il parametro q è obbligatorio"));
+            return;
+        }
+        ctx.json(feedbackDAOService.searchFeedback(q, Pagination.after(ctx), Pagination.limit(ctx)));
+    }
+
+    private void getRatingAbitazione(Context ctx) {
+        int idAbitazione = Integer.parseInt(ctx.pathParam("idAbitazione"));
+        log.info("GET /api/v1/feedbacks/stats/abitazioni/{}", idAbitazione);
+        Optional<RatingStats> stats = feedbackDAOService.getRatingAbitazione(idAbitazione);
+        if (stats.isPresent()) {
+            ctx.json(stats.get());
+        } else {
+            ctx.status(HttpStatus.NOT_FOUND);
+            ctx.json(buildErrorResponse("Nessun feedback per l'abitazione " + idAbitazione));
+        }
+    }
+
+    private void getRatingHost(Context ctx) {
+        int idHost = Integer.parseInt(ctx.pathParam("idHost"));
+        log.info("GET /api/v1/feedbacks/stats/hosts/{}", idHost);
+        Optional<RatingStats> stats = feedbackDAOService.getRatingHost(idHost);
+        if (stats.isPresent()) {
+            ctx.json(stats.get());
+        } else {
+            ctx.status(HttpStatus.NOT_FOUND);
+            ctx.json(buildErrorResponse("Nessun feedback per l'host " + idHost));
+        }
+    }
+
+    private void getTopRated(Context ctx) {
+        String groupBy = ctx.queryParamAsClass("groupBy", String.class).getOrDefault("abitazione");
+        log.info("GET /api/v1/feedbacks/stats/top - groupBy {}", groupBy);
+        RatingAggregates.GroupBy by;
+        try {
+            by = RatingAggregates.GroupBy.valueOf(groupBy.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            ctx.status(HttpStatus.BAD_REQUEST);
+            ctx.json(buildErrorResponse("groupBy deve essere abitazione o host"));
+            return;
+        }
+        ctx.json(feedbackDAOService.getTopRated(by, StatsRange.limit(ctx, 10)));
+    }
+
     private void getFeedbackById(Context ctx) {
         int id = Integer.parseInt(ctx.pathParam("id"));
         log.info("GET api/v1/feedback/{id} - ricerca per id", id);
@@ -125,4 +195,12 @@ public class FeedbackController {
             ctx.json(("Abitazione non trovata"));
         }
     }
+
+    // --- Metodi Helper ---
+
+    private Map<String, String> buildErrorResponse(String errorMessage) {
+        Map<String, String> response = new HashMap<>();
+        response.put("error", errorMessage);
+        return response;
+    }
 }
@@ -9,6 +9,9 @@ import com.turistafacoltoso.exception.DuplicateHostException;
 import com.turistafacoltoso.exception.HostNotFoundException;
 import com.turistafacoltoso.model.Host;
 import com.turistafacoltoso.service.HostDAOService;
+import com.turistafacoltoso.util.JsonStreamWriter;
+import com.turistafacoltoso.util.Pagination;
+import com.turistafacoltoso.util.StatsRange;
 
 import io.javalin.Javalin;
 import io.javalin.http.Context;
@@ -30,9 +33,12 @@ public class HostController {
 
         // READ
         app.get("/api/v1/hosts", this::getAllHosts);
+        app.get("/api/v1/hosts/export", this::exportHosts);
         app.get("/api/v1/hosts/{id}", this::getHostById);
         app.get("/api/v1/top-hosts",this::getTopHosts);
         app.get("/api/v1/superHosts",this::getSuperHost);
+        app.get("/api/v1/superHosts/verify",this::verifySuperHosts);
+        app.post("/api/v1/superHosts/rebuild",this::rebuildSuperHosts);
 
         // UPDATE
         app.put("/api/v1/hosts/{id}", this::updateHost);
@@ -68,11 +74,20 @@ public class HostController {
 
     private void getAllHosts(Context ctx) {
         log.info("GET /api/v1/hosts - Richiesta lista host");
+        if (Pagination.isRequested(ctx)) {
+            ctx.status(HttpStatus.OK).json(hostService.getHostsPage(Pagination.after(ctx), Pagination.limit(ctx)));
+            return;
+        }
         List<Host> hosts = hostService.getAllHosts();
         ctx.status(HttpStatus.OK);
         ctx.json(hosts);
     }
 
+    private void exportHosts(Context ctx) {
+        log.info("GET /api/v1/hosts/export - Export host");
+        JsonStreamWriter.writeArray(ctx, hostService::exportHosts);
+    }
+
     private void getHostById(Context ctx) {
         Integer id = Integer.parseInt(ctx.pathParam("id"));
         log.info("GET /api/v1/hosts/{} - Richiesta host per ID", id);
@@ -90,7 +105,10 @@ public class HostController {
 
     private void getTopHosts(Context ctx){
         log.info("GET /api/v1/top-hosts");
-        Map<String,Integer> hosts = hostService.findTopHostsLastMonthS();
+        int limit = StatsRange.limit(ctx, Integer.MAX_VALUE);
+        Map<String,Integer> hosts = StatsRange.isRequested(ctx)
+                ? hostService.findTopHosts(StatsRange.from(ctx), StatsRange.to(ctx), limit)
+                : hostService.findTopHostsLastMonthS(limit);
         if (hosts.isEmpty()) {
             log.warn("nessun host trovato");
         }
@@ -108,6 +126,19 @@ public class HostController {
         ctx.json(hosts);
     }
 
+    private void verifySuperHosts(Context ctx){
+        log.info("GET /api/v1/superHosts/verify");
+        ctx.status(HttpStatus.OK);
+        ctx.json(hostService.verifySuperHosts());
+    }
+
+    private void rebuildSuperHosts(Context ctx){
+        log.info("POST /api/v1/superHosts/rebuild");
+        hostService.rebuildSuperHosts();
+        ctx.status(HttpStatus.OK);
+        ctx.json(hostService.findAllSuperHosts());
+    }
+
     // ==================== UPDATE ====================
 
     private void updateHost(Context ctx) {
@@ -0,0 +1,134 @@
+package com.turistafacoltoso.controller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import com.turistafacoltoso.model.ImportJob;
+import com.turistafacoltoso.model.ImportTipo;
+import com.turistafacoltoso.service.ImportService;
+
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+import io.javalin.http.HttpStatus;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Import in blocco: il corpo della richiesta (CSV con header o NDJSON) viene
+ * copiato su un file temporaneo senza caricarlo in memoria e importato in
+ * background; la risposta 202 contiene il job da interrogare per
+ * l'avanzamento e gli scarti.
+ */
+@Slf4j
+public class ImportController {
+    private final ImportService importService;
+
+    public ImportController() {
+        this.importService = new ImportService();
+    }
+
+    public void registerRoutes(Javalin app) {
+        // CREATE
+        app.post("/api/v1/import/{tipo}", this::startImport);
+
+        // READ
+        app.get("/api/v1/import", this::getJobs);
+        app.get("/api/v1/import/{id}", this::getJob);
+    }
+
+    // ==================== CREATE ====================
+
+    private void startImport(Context ctx) {
+        log.info("POST /api/v1/import/{}", ctx.pathParam("tipo"));
+        ImportTipo tipo;
+        try {
+            tipo = ImportTipo.fromPath(ctx.pathParam("tipo"));
+        } catch (IllegalArgumentException ex) {
+            ctx.status(HttpStatus.BAD_REQUEST);
+            ctx.json(buildErrorResponse(ex.getMessage()));
+            return;
+        }
+        String formato = formato(ctx);
+
+        Path file = null;
+        try {
+            file = Files.createTempFile("import-" + tipo.name().toLowerCase() + "-", "." + formato);
+            try (InputStream body = ctx.bodyInputStream()) {
+                Files.copy(body, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            ImportJob job = importService.submit(tipo, formato, file);
+            ctx.header("Location", "/api/v1/import/" + job.getId());
+            ctx.status(HttpStatus.ACCEPTED);
+            ctx.json(job);
+        } catch (IllegalArgumentException ex) {
+            deleteQuietly(file);
+            ctx.status(HttpStatus.BAD_REQUEST);
+            ctx.json(buildErrorResponse(ex.getMessage()));
+        } catch (IOException ex) {
+            deleteQuietly(file);
+            log.error("Errore nella ricezione del file di import", ex);
+            ctx.status(HttpStatus.INTERNAL_SERVER_ERROR);
+            ctx.json(buildErrorResponse("Errore nella ricezione del file: " + ex.getMessage()));
+        }
+    }
+
+    // ==================== READ ====================
+
+    private void getJobs(Context ctx) {
+        log.info("GET /api/v1/import");
+        ctx.status(HttpStatus.OK);
+        ctx.json(importService.getJobs());
+    }
+
+    private void getJob(Context ctx) {
+        String id = ctx.pathParam("id");
+        log.info("GET /api/v1/import/{}", id);
+        Optional<ImportJob> job = importService.getJob(id);
+        if (job.isEmpty()) {
+            ctx.status(HttpStatus.NOT_FOUND);
+            ctx.json(buildErrorResponse("Import non trovato: " + id));
+            return;
+        }
+        ctx.status(HttpStatus.OK);
+        ctx.json(job.get());
+    }
+
+    // --- Metodi Helper ---
+
+    /**
+     * ?format=csv|ndjson, altrimenti dal Content-Type (default csv).
+     */
+    private static String formato(Context ctx) {
+        String format = ctx.queryParam("format");
+        if (format != null) {
+            return format.toLowerCase();
+        }
+        String contentType = ctx.contentType();
+        if (contentType != null && contentType.contains("ndjson")) {
+            return ImportService.FORMATO_NDJSON;
+        }
+        return ImportService.FORMATO_CSV;
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            log.warn("Impossibile cancellare il file temporaneo {}", file, ex);
+        }
+    }
+
+    private Map<String, String> buildErrorResponse(String errorMessage) {
+        Map<String, String> response = new HashMap<>();
+        response.put("error", errorMessage);
+        return response;
+    }
+}
@@ -0,0 +1,78 @@
+package com.turistafacoltoso.controller;
+
+import java.util.Map;
+
+import com.turistafacoltoso.util.Metrics;
+import com.turistafacoltoso.util.QueryBudget;
+import com.turistafacoltoso.util.RequestContext;
+
+import io.javalin.Javalin;
+import io.javalin.http.Context;
+import io.javalin.http.HttpStatus;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Espone le metriche in formato Prometheus su /metrics e registra la durata
+ * di ogni richiesta HTTP, raggruppata per route (path con i parametri),
+ * insieme alle query SQL e alle connessioni usate dalla richiesta.
+ */
+@Slf4j
+public class MetricsController {
+    private static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    public static final String SQL_QUERIES_HEADER = RequestContext.SQL_QUERIES_HEADER;
+    public static final String DB_CONNECTIONS_HEADER = RequestContext.DB_CONNECTIONS_HEADER;
+
+    public void registerRoutes(Javalin app) {
+        // READ
+        app.get("/metrics", this::scrape);
+    }
+
+    /**
+     * Da chiamare nel filtro after, prima di RequestContext.end(). In modalità
+     * enforce lancia IllegalStateException se la route supera il budget di
+     * query (vedi QueryBudget); se la risposta è già partita (streaming)
+     * l'eccezione non arriverebbe al client, quindi il superamento resta nel
+     * log come errore e nella metrica http.server.requests.db.budget.exceeded.
+     */
+    public static void recordRequest(Context ctx) {
+        RequestContext rc = RequestContext.current();
+        if (rc == null) {
+            return;
+        }
+        String route = ctx.endpointHandlerPath();
+        if (route == null || route.isEmpty()) {
+            // richieste senza route (404) in un'unica serie, per non moltiplicare le etichette
+            route = "NOT_FOUND";
+        }
+        Metrics.recordRequest(ctx.method(), route, ctx.statusCode(), rc.elapsedNanos());
+        Metrics.recordRequestDb(route, rc.getQueries(), rc.getConnections());
+        boolean committed = ctx.res().isCommitted();
+        if (!committed) {
+            // con la risposta già partita i contatori viaggiano come trailer (vedi JsonStreamWriter)
+            ctx.header(SQL_QUERIES_HEADER, String.valueOf(rc.getQueries()));
+            ctx.header(DB_CONNECTIONS_HEADER, String.valueOf(rc.getConnections()));
+        }
+        for (Map.Entry<String, Integer> e : rc.repeatedQueries().entrySet()) {
+            log.warn("Possibile N+1 su {} {}: query eseguita {} volte nella stessa richiesta: {}", ctx.method(),
+                    route, e.getValue(), e.getKey());
+        }
+        if (!QueryBudget.exceeded(route, rc.getQueries())) {
+            return;
+        }
+        Metrics.recordQueryBudgetExceeded(route);
+        if (committed && QueryBudget.isEnforced()) {
+            log.error("Budget di query superato su {} {} a risposta già inviata: {} query", ctx.method(), route,
+                    rc.getQueries());
+            return;
+        }
+        QueryBudget.check(route, rc.getQueries());
+    }
+
+    // ==================== READ ====================
+
+    private void scrape(Context ctx) {
+        ctx.status(HttpStatus.OK);
+        ctx.contentType(PROMETHEUS_CONTENT_TYPE);
+        ctx.result(Metrics.scrape());
+    }
+}
@@ -5,8 +5,16 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import com.turistafacoltoso.exception.DuplicatePrenotazioneException;
+import com.turistafacoltoso.index.PrenotazioneColumns;
+import com.turistafacoltoso.model.AnalyticsRow;
+import com.turistafacoltoso.model.BatchResult;
 import com.turistafacoltoso.model.Prenotazione;
 import com.turistafacoltoso.service.PrenotazioneDAOService;
+import com.turistafacoltoso.util.BatchRequest;
+import com.turistafacoltoso.util.JsonStreamWriter;
+import com.turistafacoltoso.util.Pagination;
+import com.turistafacoltoso.util.StatsRange;
 
 import io.javalin.Javalin;
 import io.javalin.http.Context;
@@ -25,9 +33,12 @@ public class PrenotazioneController {
     public void registerRoutes(Javalin app) {
         // CREATE
         app.post("/api/v1/prenotazioni", this::createPrenotazione);
+        app.post("/api/v1/prenotazioni/batch", this::createPrenotazioniBatch);
 
         // READ
         app.get("/api/v1/prenotazioni", this::getAllPrenotazioni);
+        app.get("/api/v1/prenotazioni/export", this::exportPrenotazioni);
+        app.get("/api/v1/prenotazioni/analytics", this::getAnalytics);
         app.get("/api/v1/prenotazioni/{id}", this::getPrenotazioneById);
         app.get("/api/v1/prenotazioni/utente/{idUtente}", this::getPrenotazioniByUtente);
         app.get("/api/v1/prenotazioni/latest/utente/{id}", this::getLatestReservationByUtenteId);
@@ -57,6 +68,10 @@ public class PrenotazioneController {
             log.info("Prenotazione creata con successo - ID: {}", created.getId());
             ctx.status(HttpStatus.CREATED).json(created);
 
+        } catch (DuplicatePrenotazioneException ex) {
+            // Periodo già occupato da un'altra prenotazione
+            log.warn("Prenotazione rifiutata: {}", ex.getMessage());
+            ctx.status(HttpStatus.CONFLICT).json(buildErrorResponse(ex.getMessage()));
         } catch (IllegalArgumentException ex) {
             // Gestisce errori di validazione (date errate, abitazione non disponibile nel range)
             log.warn("Validazione fallita in creazione: {}", ex.getMessage());
@@ -68,14 +83,56 @@ public class PrenotazioneController {
         }
     }
 
+    private void createPrenotazioniBatch(Context ctx) {
+        log.info("POST /api/v1/prenotazioni/batch - Richiesta inserimento batch");
+        List<Prenotazione> items;
+        try {
+            items = BatchRequest.readItems(ctx, Prenotazione.class);
+        } catch (IllegalArgumentException ex) {
+            log.warn("Batch prenotazioni rifiutato: {}", ex.getMessage());
+            ctx.status(HttpStatus.BAD_REQUEST).json(buildErrorResponse(ex.getMessage()));
+            return;
+        }
+        BatchResult result = prenotazioneService.insertPrenotazioniBatch(items);
+        ctx.status(HttpStatus.OK).json(result);
+    }
+
     // ==================== READ ====================
 
     private void getAllPrenotazioni(Context ctx) {
+        if (Pagination.isRequested(ctx)) {
+            log.info("GET /api/v1/prenotazioni - Recupero pagina prenotazioni");
+            ctx.status(HttpStatus.OK)
+                    .json(prenotazioneService.getPrenotazioniPage(Pagination.after(ctx), Pagination.limit(ctx)));
+            return;
+        }
         log.info("GET /api/v1/prenotazioni - Recupero tutte le prenotazioni");
         List<Prenotazione> list = prenotazioneService.getAllPrenotazioni();
         ctx.status(HttpStatus.OK).json(list);
     }
 
+    private void exportPrenotazioni(Context ctx) {
+        log.info("GET /api/v1/prenotazioni/export - Export prenotazioni");
+        JsonStreamWriter.writeArray(ctx, prenotazioneService::exportPrenotazioni);
+    }
+
+    private void getAnalytics(Context ctx) {
+        String groupBy = ctx.queryParamAsClass("groupBy", String.class).getOrDefault("abitazione");
+        log.info("GET /api/v1/prenotazioni/analytics - groupBy {}", groupBy);
+        PrenotazioneColumns.GroupBy by;
+        try {
+            by = PrenotazioneColumns.GroupBy.valueOf(groupBy.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            ctx.status(HttpStatus.BAD_REQUEST);
+            ctx.json(buildErrorResponse("groupBy deve essere abitazione, host o utente"));
+            return;
+        }
+        List<AnalyticsRow> rows = prenotazioneService.getAnalytics(by, StatsRange.from(ctx), StatsRange.to(ctx),
+                StatsRange.limit(ctx, StatsRange.MAX_LIMIT));
+        ctx.status(HttpStatus.OK);
+        ctx.json(rows);
+    }
+
     private void getPrenotazioneById(Context ctx) {
         log.info("GET /api/v1/prenotazioni/{} - Ricerca per ID");
         int id = Integer.parseInt(ctx.pathParam("id"));
@@ -115,7 +172,22 @@ public class PrenotazioneController {
 
         log.info("PUT /api/v1/prenotazioni/{} - Aggiornamento", id);
 
-        Optional<Prenotazione> updated = prenotazioneService.updatePrenotazione(p);
+        Optional<Prenotazione> updated;
+        try {
+            updated = prenotazioneService.updatePrenotazione(p);
+        } catch (DuplicatePrenotazioneException ex) {
+            log.warn("Update prenotazione {} rifiutato: {}", id, ex.getMessage());
+            ctx.status(HttpStatus.CONFLICT).json(buildErrorResponse(ex.getMessage()));
+            return;
+        } catch (IllegalArgumentException ex) {
+            log.warn("Validazione fallita in aggiornamento: {}", ex.getMessage());
+            ctx.status(HttpStatus.BAD_REQUEST).json(buildErrorResponse(ex.getMessage()));
+            return;
+        } catch (RuntimeException ex) {
+            log.error("Errore durante l'aggiornamento: {}", ex.getMessage());
+            ctx.status(HttpStatus.NOT_FOUND).json(buildErrorResponse(ex.getMessage()));
+            return;
+        }
         if (updated.isPresent()) {
             ctx.status(HttpStatus.OK).json(updated.get());
         } else {
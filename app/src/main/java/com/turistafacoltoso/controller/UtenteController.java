@@ -8,6 +8,9 @@ import com.turistafacoltoso.exception.DuplicateUtenteException;
 import com.turistafacoltoso.exception.UtenteNotFoundException;
 import com.turistafacoltoso.model.Utente;
 import com.turistafacoltoso.service.UtenteDAOService;
+import com.turistafacoltoso.util.JsonStreamWriter;
+import com.turistafacoltoso.util.Pagination;
+import com.turistafacoltoso.util.StatsRange;
 
 import io.javalin.Javalin;
 import io.javalin.http.Context;
@@ -30,6 +33,8 @@ public class UtenteController {
 
         // READ
         app.get("/api/v1/users", this::getAllUsers);
+        app.get("/api/v1/users/export", this::exportUsers);
+        app.get("/api/v1/users/stats/topTravelers", this::getTopTravelers);
         app.get("/api/v1/users/{id}", this::getUserById);
         app.get("/api/v1/users/email/{email}", this::getUserByEmail);
         app.get("/api/v1/users/username/{username}", this::getUserByName);
@@ -72,11 +77,33 @@ public class UtenteController {
 
     private void getAllUsers(Context ctx) {
         log.info("GET /api/v1/users - Richiesta lista utenti");
+        if (Pagination.isRequested(ctx)) {
+            ctx.status(HttpStatus.OK).json(utenteDAOService.getUserPage(Pagination.after(ctx), Pagination.limit(ctx)));
+            return;
+        }
         List<Utente> users = utenteDAOService.getAllUser();
         ctx.status(HttpStatus.OK);
         ctx.json(users);
     }
 
+    private void exportUsers(Context ctx) {
+        log.info("GET /api/v1/users/export - Export utenti");
+        JsonStreamWriter.writeArray(ctx, utenteDAOService::exportUsers);
+    }
+
+    private void getTopTravelers(Context ctx) {
+        log.info("GET /api/v1/users/stats/topTravelers");
+        int limit = StatsRange.limit(ctx, UtenteDAOService.TOP_TRAVELERS);
+        Map<String, Integer> travelers = StatsRange.isRequested(ctx)
+                ? utenteDAOService.getTopTravelers(StatsRange.from(ctx), StatsRange.to(ctx), limit)
+                : utenteDAOService.getTopTravelersLastMonth(limit);
+        if (travelers.isEmpty()) {
+            log.warn("nessun utente con prenotazioni nell'ultimo mese");
+        }
+        ctx.status(HttpStatus.OK);
+        ctx.json(travelers);
+    }
+
     private void getUserById(Context ctx) {
         Integer id = Integer.parseInt(ctx.pathParam("id"));
         log.info("GET /api/v1/users/{} - Richiesta utente per ID", id);
@@ -0,0 +1,58 @@
+package com.turistafacoltoso.index;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.turistafacoltoso.model.Abitazione;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Registro statico degli AbitazioneListener: i service notificano qui le
+ * scritture dopo che sono andate a buon fine sul database.
+ */
+@Slf4j
+public class AbitazioneEvents {
+    private static final CopyOnWriteArrayList<AbitazioneListener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private AbitazioneEvents() {
+
+    }
+
+    public static void register(AbitazioneListener listener) {
+        LISTENERS.addIfAbsent(listener);
+    }
+
+    public static void unregister(AbitazioneListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    public static void created(Abitazione a) {
+        for (AbitazioneListener l : LISTENERS) {
+            try {
+                l.onCreated(a);
+            } catch (RuntimeException e) {
+                log.error("Listener {} fallito su creazione abitazione {}", l.getClass().getSimpleName(), a.getId(), e);
+            }
+        }
+    }
+
+    public static void deleted(Abitazione a) {
+        for (AbitazioneListener l : LISTENERS) {
+            try {
+                l.onDeleted(a);
+            } catch (RuntimeException e) {
+                log.error("Listener {} fallito su cancellazione abitazione {}", l.getClass().getSimpleName(), a.getId(), e);
+            }
+        }
+    }
+
+    public static void reload() {
+        for (AbitazioneListener l : LISTENERS) {
+            try {
+                l.reload();
+            } catch (RuntimeException e) {
+                log.error("Ricaricamento listener {} fallito", l.getClass().getSimpleName(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.turistafacoltoso.index;
+
+import com.turistafacoltoso.model.Abitazione;
+
+/**
+ * Struttura in memoria tenuta aggiornata a ogni scrittura sulle abitazioni.
+ * Un update arriva come onDeleted della versione precedente seguito da
+ * onCreated della nuova.
+ */
+public interface AbitazioneListener {
+
+    void onCreated(Abitazione a);
+
+    void onDeleted(Abitazione a);
+
+    /**
+     * Ricostruzione completa dal database, usata dopo le cancellazioni massive
+     * (utenti, host).
+     */
+    void reload();
+}
@@ -0,0 +1,224 @@
+package com.turistafacoltoso.index;
+
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import com.turistafacoltoso.model.Abitazione;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Abitazioni ordinate per prezzo per notte (in centesimi, poi per id) in
+ * array paralleli di primitivi: prezzo, id e finestra di disponibilità in
+ * epoch day. Le ricerche "le K più economiche libere nelle date" scorrono
+ * l'ordine di prezzo e si fermano alla K-esima abitazione disponibile, senza
+ * ordinare tutti i candidati.
+ *
+ * Inserimenti e cancellazioni spostano la coda degli array (arraycopy); le
+ * ricerche prendono il lock in lettura e procedono in parallelo.
+ */
+@Slf4j
+public class AbitazionePriceIndex implements AbitazioneListener {
+    private static final AbitazionePriceIndex INSTANCE = new AbitazionePriceIndex();
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private long[] prezzi = new long[INITIAL_CAPACITY];
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int[] inizi = new int[INITIAL_CAPACITY];
+    private int[] fini = new int[INITIAL_CAPACITY];
+    private Abitazione[] abitazioni = new Abitazione[INITIAL_CAPACITY];
+    private int size;
+    private Consumer<Consumer<Abitazione>> loader = c -> {
+    };
+
+    private AbitazionePriceIndex() {
+
+    }
+
+    public static AbitazionePriceIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Sorgente usata da reload() (tipicamente AbitazioneDAO::streamAll).
+     */
+    public void setLoader(Consumer<Consumer<Abitazione>> loader) {
+        lock.writeLock().lock();
+        try {
+            this.loader = loader;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            List<Abitazione> tutte = new ArrayList<>();
+            loader.accept(a -> {
+                if (indicizzabile(a)) {
+                    tutte.add(a);
+                }
+            });
+            tutte.sort((a, b) -> compare(centesimi(a), a.getId(), centesimi(b), b.getId()));
+            int capacity = Math.max(INITIAL_CAPACITY, tutte.size());
+            prezzi = new long[capacity];
+            ids = new int[capacity];
+            inizi = new int[capacity];
+            fini = new int[capacity];
+            abitazioni = new Abitazione[capacity];
+            size = 0;
+            for (Abitazione a : tutte) {
+                set(size++, a);
+            }
+            log.info("Indice prezzi abitazioni caricato: {} abitazioni", size);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onCreated(Abitazione a) {
+        if (!indicizzabile(a)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int i = position(centesimi(a), a.getId());
+            if (i < size && ids[i] == a.getId() && prezzi[i] == centesimi(a)) {
+                set(i, a);
+                return;
+            }
+            if (size == ids.length) {
+                grow();
+            }
+            shift(i, i + 1, size - i);
+            set(i, a);
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onDeleted(Abitazione a) {
+        if (!indicizzabile(a)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int i = position(centesimi(a), a.getId());
+            if (i >= size || ids[i] != a.getId()) {
+                // prezzo diverso da quello indicizzato: si cerca per id
+                i = 0;
+                while (i < size && ids[i] != a.getId()) {
+                    i++;
+                }
+            }
+            if (i < size) {
+                shift(i + 1, i, size - i - 1);
+                size--;
+                abitazioni[size] = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Le prime limit abitazioni per prezzo (crescente, o decrescente se
+     * desc) disponibili da inizio a fine: finestra dell'abitazione che copre
+     * il periodo e nessuna prenotazione sovrapposta.
+     */
+    public List<Abitazione> findDisponibili(LocalDate inizio, LocalDate fine, boolean desc, int limit) {
+        int da = (int) inizio.toEpochDay();
+        int a = (int) fine.toEpochDay();
+        PrenotazioneIndex prenotazioni = PrenotazioneIndex.getInstance();
+        List<Abitazione> result = new ArrayList<>(limit);
+        lock.readLock().lock();
+        try {
+            for (int k = 0; k < size && result.size() < limit; k++) {
+                int i = desc ? size - 1 - k : k;
+                if (inizi[i] <= da && fini[i] >= a && prenotazioni.isFree(ids[i], inizio, fine)) {
+                    result.add(abitazioni[i]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- Metodi Helper ---
+
+    private static boolean indicizzabile(Abitazione a) {
+        return a.getPrezzoPerNotte() != null && a.getDisponibilitaInizio() != null && a.getDisponibilitaFine() != null;
+    }
+
+    private static long centesimi(Abitazione a) {
+        return a.getPrezzoPerNotte().setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    private static int compare(long prezzoA, int idA, long prezzoB, int idB) {
+        int c = Long.compare(prezzoA, prezzoB);
+        return c != 0 ? c : Integer.compare(idA, idB);
+    }
+
+    /**
+     * Prima posizione con (prezzo, id) maggiore o uguale a quello dato.
+     */
+    private int position(long prezzo, int id) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(prezzi[mid], ids[mid], prezzo, id) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private void set(int i, Abitazione a) {
+        prezzi[i] = centesimi(a);
+        ids[i] = a.getId();
+        inizi[i] = (int) a.getDisponibilitaInizio().toEpochDay();
+        fini[i] = (int) a.getDisponibilitaFine().toEpochDay();
+        abitazioni[i] = a;
+    }
+
+    private void shift(int from, int to, int length) {
+        System.arraycopy(prezzi, from, prezzi, to, length);
+        System.arraycopy(ids, from, ids, to, length);
+        System.arraycopy(inizi, from, inizi, to, length);
+        System.arraycopy(fini, from, fini, to, length);
+        System.arraycopy(abitazioni, from, abitazioni, to, length);
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        prezzi = Arrays.copyOf(prezzi, capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        inizi = Arrays.copyOf(inizi, capacity);
+        fini = Arrays.copyOf(fini, capacity);
+        abitazioni = Arrays.copyOf(abitazioni, capacity);
+    }
+}
@@ -0,0 +1,387 @@
+package com.turistafacoltoso.index;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.AbitazioneFilter;
+import com.turistafacoltoso.model.AbitazioneSearchResult;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Motore di ricerca a faccette sulle abitazioni. Ogni abitazione occupa una
+ * riga, assegnata in ordine di id; per ogni numero di locali, numero di posti
+ * letto, host e fascia di prezzo c'è una CompressedBitmap delle righe.
+ *
+ * Una ricerca parte da tutte le righe in una bitmap densa, la interseca con
+ * l'unione delle bitmap di ogni criterio e solo sulle righe rimaste verifica
+ * il prezzo esatto e la disponibilità nelle date (finestra dell'abitazione e
+ * PrenotazioneIndex). I conteggi per faccetta sono intersezioni con le
+ * bitmap di ogni valore.
+ *
+ * Le righe delle abitazioni cancellate restano vuote e vengono recuperate
+ * ricostruendo l'indice quando superano un quarto del totale.
+ */
+@Slf4j
+public class AbitazioneSearchEngine implements AbitazioneListener {
+    private static final int INITIAL_CAPACITY = 1024;
+    // limiti inferiori delle fasce di prezzo, in euro
+    private static final int[] FASCE = { 0, 50, 100, 150, 200, 300, 500, 1000 };
+    private static final AbitazioneSearchEngine INSTANCE = new AbitazioneSearchEngine();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Abitazione[] righe = new Abitazione[INITIAL_CAPACITY];
+    private int[] idByRiga = new int[INITIAL_CAPACITY];
+    private int size;
+    private int vuote;
+    private final Map<Integer, Integer> rigaById = new HashMap<>();
+    private final CompressedBitmap tutte = new CompressedBitmap();
+    private final TreeMap<Integer, CompressedBitmap> perLocali = new TreeMap<>();
+    private final TreeMap<Integer, CompressedBitmap> perPostiLetto = new TreeMap<>();
+    private final Map<Integer, CompressedBitmap> perHost = new HashMap<>();
+    private final CompressedBitmap[] perFascia = new CompressedBitmap[FASCE.length];
+    private Consumer<Consumer<Abitazione>> loader = c -> {
+    };
+
+    private AbitazioneSearchEngine() {
+        for (int i = 0; i < FASCE.length; i++) {
+            perFascia[i] = new CompressedBitmap();
+        }
+    }
+
+    public static AbitazioneSearchEngine getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Sorgente usata da reload() (tipicamente AbitazioneDAO::streamAll).
+     */
+    public void setLoader(Consumer<Consumer<Abitazione>> loader) {
+        lock.writeLock().lock();
+        try {
+            this.loader = loader;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            List<Abitazione> abitazioni = new ArrayList<>();
+            loader.accept(abitazioni::add);
+            rebuild(abitazioni);
+            log.info("Motore di ricerca abitazioni caricato: {} abitazioni", tutte.cardinality());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onCreated(Abitazione a) {
+        lock.writeLock().lock();
+        try {
+            Integer riga = rigaById.get(a.getId());
+            if (riga != null) {
+                if (righe[riga] != null) {
+                    index(riga, righe[riga], false);
+                } else {
+                    vuote--;
+                }
+                righe[riga] = a;
+                index(riga, a, true);
+            } else if (size > 0 && a.getId() < idByRiga[size - 1]) {
+                // le righe devono restare in ordine di id per la paginazione
+                List<Abitazione> abitazioni = live();
+                abitazioni.add(a);
+                rebuild(abitazioni);
+            } else {
+                append(a);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onDeleted(Abitazione a) {
+        lock.writeLock().lock();
+        try {
+            Integer riga = rigaById.get(a.getId());
+            if (riga == null || righe[riga] == null) {
+                return;
+            }
+            index(riga, righe[riga], false);
+            righe[riga] = null;
+            vuote++;
+            if (vuote > INITIAL_CAPACITY && vuote > size / 4) {
+                rebuild(live());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Abitazioni che soddisfano tutti i criteri, in ordine di id a partire
+     * dal primo id maggiore di after, con il totale e le faccette.
+     */
+    public AbitazioneSearchResult search(AbitazioneFilter filter, int after, int limit) {
+        lock.readLock().lock();
+        try {
+            int words = CompressedBitmap.denseWords(size);
+            long[] set = new long[words];
+            tutte.orInto(set);
+            if (filter.getNLocali() != null) {
+                and(set, union(words, List.of(bitmapOrEmpty(perLocali, filter.getNLocali()))));
+            }
+            if (filter.getMinPostiLetto() != null) {
+                and(set, union(words, perPostiLetto.tailMap(filter.getMinPostiLetto(), true).values()));
+            }
+            if (filter.getIdHost() != null) {
+                and(set, union(words, List.of(bitmapOrEmpty(perHost, filter.getIdHost()))));
+            }
+            boolean prezzo = filter.getPrezzoMin() != null || filter.getPrezzoMax() != null;
+            if (prezzo) {
+                and(set, union(words, fasce(filter.getPrezzoMin(), filter.getPrezzoMax())));
+            }
+            boolean date = filter.getInizio() != null && filter.getFine() != null;
+            if (prezzo || date) {
+                refine(set, filter, prezzo, date);
+            }
+
+            int totale = 0;
+            for (long w : set) {
+                totale += Long.bitCount(w);
+            }
+            Map<String, Map<String, Integer>> facets = new LinkedHashMap<>();
+            facets.put("nLocali", counts(perLocali, set));
+            facets.put("nPostiLetto", counts(perPostiLetto, set));
+            Map<String, Integer> fasce = new LinkedHashMap<>();
+            for (int i = 0; i < FASCE.length; i++) {
+                int n = perFascia[i].andCardinality(set);
+                if (n > 0) {
+                    fasce.put(etichettaFascia(i), n);
+                }
+            }
+            facets.put("fasciaPrezzo", fasce);
+
+            List<Abitazione> items = new ArrayList<>(Math.min(limit, totale));
+            Integer nextCursor = null;
+            int start = firstRigaAfter(after);
+            for (int riga = nextSetBit(set, start); riga >= 0 && riga < size; riga = nextSetBit(set, riga + 1)) {
+                if (items.size() == limit) {
+                    nextCursor = items.get(limit - 1).getId();
+                    break;
+                }
+                items.add(righe[riga]);
+            }
+            return new AbitazioneSearchResult(totale, items, nextCursor, facets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- Metodi Helper ---
+
+    private void rebuild(List<Abitazione> abitazioni) {
+        abitazioni.sort(Comparator.comparingInt(Abitazione::getId));
+        int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, abitazioni.size())) * 2);
+        righe = new Abitazione[capacity];
+        idByRiga = new int[capacity];
+        size = 0;
+        vuote = 0;
+        rigaById.clear();
+        tutte.clear();
+        perLocali.clear();
+        perPostiLetto.clear();
+        perHost.clear();
+        for (CompressedBitmap b : perFascia) {
+            b.clear();
+        }
+        for (Abitazione a : abitazioni) {
+            append(a);
+        }
+    }
+
+    private List<Abitazione> live() {
+        List<Abitazione> abitazioni = new ArrayList<>(size - vuote);
+        for (int i = 0; i < size; i++) {
+            if (righe[i] != null) {
+                abitazioni.add(righe[i]);
+            }
+        }
+        return abitazioni;
+    }
+
+    private void append(Abitazione a) {
+        if (size == righe.length) {
+            righe = Arrays.copyOf(righe, size * 2);
+            idByRiga = Arrays.copyOf(idByRiga, size * 2);
+        }
+        int riga = size++;
+        righe[riga] = a;
+        idByRiga[riga] = a.getId();
+        rigaById.put(a.getId(), riga);
+        index(riga, a, true);
+    }
+
+    private void index(int riga, Abitazione a, boolean add) {
+        update(tutte, riga, add);
+        update(perLocali.computeIfAbsent(a.getNLocali(), k -> new CompressedBitmap()), riga, add);
+        update(perPostiLetto.computeIfAbsent(a.getNPostiLetto(), k -> new CompressedBitmap()), riga, add);
+        update(perHost.computeIfAbsent(a.getIdHost(), k -> new CompressedBitmap()), riga, add);
+        update(perFascia[fascia(a.getPrezzoPerNotte())], riga, add);
+        if (!add) {
+            removeIfEmpty(perLocali, a.getNLocali());
+            removeIfEmpty(perPostiLetto, a.getNPostiLetto());
+            removeIfEmpty(perHost, a.getIdHost());
+        }
+    }
+
+    private static void removeIfEmpty(Map<Integer, CompressedBitmap> bitmaps, int key) {
+        CompressedBitmap b = bitmaps.get(key);
+        if (b != null && b.cardinality() == 0) {
+            bitmaps.remove(key);
+        }
+    }
+
+    private static void update(CompressedBitmap b, int riga, boolean add) {
+        if (add) {
+            b.add(riga);
+        } else {
+            b.remove(riga);
+        }
+    }
+
+    private static CompressedBitmap bitmapOrEmpty(Map<Integer, CompressedBitmap> bitmaps, int key) {
+        CompressedBitmap b = bitmaps.get(key);
+        return b == null ? new CompressedBitmap() : b;
+    }
+
+    private static long[] union(int words, Iterable<CompressedBitmap> bitmaps) {
+        long[] result = new long[words];
+        for (CompressedBitmap b : bitmaps) {
+            b.orInto(result);
+        }
+        return result;
+    }
+
+    private static void and(long[] set, long[] other) {
+        for (int i = 0; i < set.length; i++) {
+            set[i] &= other[i];
+        }
+    }
+
+    /**
+     * Fasce che si sovrappongono a [min, max].
+     */
+    private List<CompressedBitmap> fasce(BigDecimal min, BigDecimal max) {
+        int da = min == null ? 0 : fascia(min);
+        int a = max == null ? FASCE.length - 1 : fascia(max);
+        List<CompressedBitmap> result = new ArrayList<>();
+        for (int i = da; i <= a; i++) {
+            result.add(perFascia[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Toglie da set le righe fuori dal prezzo esatto o non disponibili nelle
+     * date richieste.
+     */
+    private void refine(long[] set, AbitazioneFilter filter, boolean prezzo, boolean date) {
+        PrenotazioneIndex prenotazioni = PrenotazioneIndex.getInstance();
+        for (int riga = nextSetBit(set, 0); riga >= 0 && riga < size; riga = nextSetBit(set, riga + 1)) {
+            Abitazione a = righe[riga];
+            boolean ok = !prezzo || inPrezzo(a.getPrezzoPerNotte(), filter.getPrezzoMin(), filter.getPrezzoMax());
+            if (ok && date) {
+                ok = a.getDisponibilitaInizio() != null && a.getDisponibilitaFine() != null
+                        && !a.getDisponibilitaInizio().isAfter(filter.getInizio())
+                        && !a.getDisponibilitaFine().isBefore(filter.getFine())
+                        && prenotazioni.isFree(a.getId(), filter.getInizio(), filter.getFine());
+            }
+            if (!ok) {
+                set[riga >>> 6] &= ~(1L << riga);
+            }
+        }
+    }
+
+    private static boolean inPrezzo(BigDecimal prezzo, BigDecimal min, BigDecimal max) {
+        if (prezzo == null) {
+            return false;
+        }
+        return (min == null || prezzo.compareTo(min) >= 0) && (max == null || prezzo.compareTo(max) <= 0);
+    }
+
+    private static int fascia(BigDecimal prezzo) {
+        if (prezzo == null) {
+            return 0;
+        }
+        int i = FASCE.length - 1;
+        while (i > 0 && prezzo.compareTo(BigDecimal.valueOf(FASCE[i])) < 0) {
+            i--;
+        }
+        return i;
+    }
+
+    private static String etichettaFascia(int i) {
+        return i == FASCE.length - 1 ? FASCE[i] + "+" : FASCE[i] + "-" + FASCE[i + 1];
+    }
+
+    private static Map<String, Integer> counts(TreeMap<Integer, CompressedBitmap> bitmaps, long[] set) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (Map.Entry<Integer, CompressedBitmap> e : bitmaps.entrySet()) {
+            int n = e.getValue().andCardinality(set);
+            if (n > 0) {
+                counts.put(String.valueOf(e.getKey()), n);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Prima riga con id maggiore di after (le righe sono in ordine di id).
+     */
+    private int firstRigaAfter(int after) {
+        int lo = 0;
+        int hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (idByRiga[mid] <= after) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static int nextSetBit(long[] set, int from) {
+        int w = from >>> 6;
+        if (w >= set.length) {
+            return -1;
+        }
+        long word = set[w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return w * 64 + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == set.length) {
+                return -1;
+            }
+            word = set[w];
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package com.turistafacoltoso.index;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.AbitazioneSuggestion;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Indice per l'autocompletamento su nome e indirizzo delle abitazioni. Le
+ * parole (vedi ItalianAnalyzer.words) stanno in un trie che porta agli id
+ * delle abitazioni; un secondo indice trigramma -> parole trova le parole
+ * simili a quella digitata, confermate poi con la distanza di edit, così
+ * anche "colosseo" scritto "colloseo" dà risultati.
+ *
+ * Ogni parola della query deve trovare corrispondenza; l'ultima può essere
+ * ancora incompleta e vale anche come prefisso.
+ */
+@Slf4j
+public class AbitazioneSuggestIndex implements AbitazioneListener {
+    private static final AbitazioneSuggestIndex INSTANCE = new AbitazioneSuggestIndex();
+    // id raccolti al massimo sotto un prefisso, per tenere basso il costo delle query corte
+    private static final int MAX_CANDIDATI = 256;
+    private static final int PUNTI_ESATTA = 3;
+    private static final int PUNTI_PREFISSO = 2;
+    private static final int PUNTI_SIMILE = 1;
+
+    private static final class Node {
+        final Map<Character, Node> figli = new HashMap<>(4);
+        // abitazioni che contengono la parola che termina qui
+        Set<Integer> ids;
+    }
+
+    private static final class Voce {
+        final String nome;
+        final String indirizzo;
+        final Set<String> parole;
+
+        Voce(Abitazione a) {
+            nome = a.getNomeAbitazione();
+            indirizzo = a.getIndirizzoAbitazione();
+            parole = new LinkedHashSet<>(ItalianAnalyzer.words(nome));
+            parole.addAll(ItalianAnalyzer.words(indirizzo));
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Node root = new Node();
+    private final Map<Integer, Voce> voci = new HashMap<>();
+    private final Map<String, Set<String>> paroleByTrigramma = new HashMap<>();
+    private Consumer<Consumer<Abitazione>> loader = c -> {
+    };
+
+    private AbitazioneSuggestIndex() {
+
+    }
+
+    public static AbitazioneSuggestIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Sorgente usata da reload() (tipicamente AbitazioneDAO::streamAll).
+     */
+    public void setLoader(Consumer<Consumer<Abitazione>> loader) {
+        lock.writeLock().lock();
+        try {
+            this.loader = loader;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            root = new Node();
+            voci.clear();
+            paroleByTrigramma.clear();
+            loader.accept(this::add);
+            log.info("Indice suggerimenti abitazioni caricato: {} abitazioni, {} parole", voci.size(),
+                    paroleByTrigramma.values().stream().mapToInt(Set::size).sum());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onCreated(Abitazione a) {
+        lock.writeLock().lock();
+        try {
+            remove(a.getId());
+            add(a);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onDeleted(Abitazione a) {
+        lock.writeLock().lock();
+        try {
+            remove(a.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Abitazioni il cui nome o indirizzo corrisponde alla query, le migliori
+     * prima: parola esatta, poi prefisso, poi parola simile; a parità il nome
+     * più corto e l'id più basso.
+     */
+    public List<AbitazioneSuggestion> suggest(String query, int limit) {
+        List<String> tokens = ItalianAnalyzer.words(query);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Map<Integer, Integer> punti = null;
+            for (int i = 0; i < tokens.size(); i++) {
+                Map<Integer, Integer> match = match(tokens.get(i), i == tokens.size() - 1);
+                if (punti == null) {
+                    punti = match;
+                } else {
+                    punti.keySet().retainAll(match.keySet());
+                    punti.replaceAll((id, p) -> p + match.get(id));
+                }
+                if (punti.isEmpty()) {
+                    return List.of();
+                }
+            }
+            List<Map.Entry<Integer, Integer>> ordinati = new ArrayList<>(punti.entrySet());
+            ordinati.sort(Comparator.<Map.Entry<Integer, Integer>>comparingInt(e -> -e.getValue())
+                    .thenComparingInt(e -> lunghezza(voci.get(e.getKey()).nome))
+                    .thenComparingInt(Map.Entry::getKey));
+            List<AbitazioneSuggestion> result = new ArrayList<>(Math.min(limit, ordinati.size()));
+            for (Map.Entry<Integer, Integer> e : ordinati.subList(0, Math.min(limit, ordinati.size()))) {
+                Voce v = voci.get(e.getKey());
+                result.add(new AbitazioneSuggestion(e.getKey(), v.nome, v.indirizzo));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- Metodi Helper ---
+
+    private void add(Abitazione a) {
+        Voce v = new Voce(a);
+        voci.put(a.getId(), v);
+        for (String parola : v.parole) {
+            Node node = root;
+            for (int i = 0; i < parola.length(); i++) {
+                node = node.figli.computeIfAbsent(parola.charAt(i), k -> new Node());
+            }
+            if (node.ids == null) {
+                node.ids = new HashSet<>(4);
+                for (String t : trigrammi(parola, true)) {
+                    paroleByTrigramma.computeIfAbsent(t, k -> new HashSet<>()).add(parola);
+                }
+            }
+            node.ids.add(a.getId());
+        }
+    }
+
+    private void remove(int id) {
+        Voce v = voci.remove(id);
+        if (v == null) {
+            return;
+        }
+        for (String parola : v.parole) {
+            if (remove(root, parola, 0, id)) {
+                for (String t : trigrammi(parola, true)) {
+                    Set<String> parole = paroleByTrigramma.get(t);
+                    if (parole != null) {
+                        parole.remove(parola);
+                        if (parole.isEmpty()) {
+                            paroleByTrigramma.remove(t);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Toglie id dalla parola e pota i nodi rimasti vuoti; true se la parola
+     * non appartiene più a nessuna abitazione.
+     */
+    private static boolean remove(Node node, String parola, int depth, int id) {
+        if (depth == parola.length()) {
+            if (node.ids == null || !node.ids.remove(id) || !node.ids.isEmpty()) {
+                return false;
+            }
+            node.ids = null;
+            return true;
+        }
+        Node figlio = node.figli.get(parola.charAt(depth));
+        if (figlio == null) {
+            return false;
+        }
+        boolean sparita = remove(figlio, parola, depth + 1, id);
+        if (figlio.ids == null && figlio.figli.isEmpty()) {
+            node.figli.remove(parola.charAt(depth));
+        }
+        return sparita;
+    }
+
+    /**
+     * Abitazioni che contengono token (esatto, come prefisso se ultimo, o a
+     * distanza di edit ridotta) con i relativi punti.
+     */
+    private Map<Integer, Integer> match(String token, boolean ultimo) {
+        Map<Integer, Integer> punti = new HashMap<>();
+        Node node = find(token);
+        if (node != null && node.ids != null) {
+            node.ids.forEach(id -> punti.put(id, PUNTI_ESATTA));
+        }
+        if (ultimo && node != null) {
+            collect(node, punti);
+        }
+        int maxEdit = maxEdit(token);
+        if (maxEdit == 0 || punti.size() >= MAX_CANDIDATI) {
+            return punti;
+        }
+        for (String parola : simili(token, ultimo, maxEdit)) {
+            Node n = find(parola);
+            if (n != null && n.ids != null) {
+                n.ids.forEach(id -> punti.putIfAbsent(id, PUNTI_SIMILE));
+            }
+        }
+        return punti;
+    }
+
+    private Node find(String parola) {
+        Node node = root;
+        for (int i = 0; i < parola.length() && node != null; i++) {
+            node = node.figli.get(parola.charAt(i));
+        }
+        return node;
+    }
+
+    private static void collect(Node node, Map<Integer, Integer> punti) {
+        if (punti.size() >= MAX_CANDIDATI) {
+            return;
+        }
+        if (node.ids != null) {
+            node.ids.forEach(id -> punti.putIfAbsent(id, PUNTI_PREFISSO));
+        }
+        for (Node figlio : node.figli.values()) {
+            collect(figlio, punti);
+        }
+    }
+
+    /**
+     * Parole che condividono abbastanza trigrammi con token (ogni edit ne
+     * cambia al massimo tre) e sono entro maxEdit; se prefisso, il confronto è
+     * con l'inizio della parola.
+     */
+    private List<String> simili(String token, boolean prefisso, int maxEdit) {
+        List<String> trigrammi = trigrammi(token, !prefisso);
+        Map<String, Integer> comuni = new HashMap<>();
+        for (String t : trigrammi) {
+            Set<String> parole = paroleByTrigramma.get(t);
+            if (parole != null) {
+                for (String parola : parole) {
+                    comuni.merge(parola, 1, Integer::sum);
+                }
+            }
+        }
+        int soglia = Math.max(1, trigrammi.size() - 3 * maxEdit);
+        List<String> simili = new ArrayList<>();
+        for (Map.Entry<String, Integer> e : comuni.entrySet()) {
+            String parola = e.getKey();
+            if (e.getValue() < soglia) {
+                continue;
+            }
+            if (distanza(token, parola, maxEdit) <= maxEdit || (prefisso && parola.length() > token.length()
+                    && distanza(token, parola.substring(0, token.length()), maxEdit) <= maxEdit)) {
+                simili.add(parola);
+            }
+        }
+        return simili;
+    }
+
+    /**
+     * Trigrammi della parola con "$" come bordo; senza il bordo finale se la
+     * parola può essere ancora incompleta.
+     */
+    private static List<String> trigrammi(String parola, boolean chiusa) {
+        String s = "$" + parola + (chiusa ? "$" : "");
+        List<String> trigrammi = new ArrayList<>(Math.max(1, s.length() - 2));
+        if (s.length() < 3) {
+            trigrammi.add(s);
+            return trigrammi;
+        }
+        for (int i = 0; i + 3 <= s.length(); i++) {
+            trigrammi.add(s.substring(i, i + 3));
+        }
+        return trigrammi;
+    }
+
+    private static int maxEdit(String token) {
+        if (token.length() < 3) {
+            return 0;
+        }
+        return token.length() <= 5 ? 1 : 2;
+    }
+
+    /**
+     * Distanza di Damerau-Levenshtein (con trasposizioni adiacenti), fermata
+     * appena supera max.
+     */
+    static int distanza(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int[] prev2 = new int[b.length() + 1];
+        int[] prev = new int[b.length() + 1];
+        int[] cur = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            prev[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            cur[0] = i;
+            int minRiga = cur[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int costo = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                cur[j] = Math.min(Math.min(prev[j] + 1, cur[j - 1] + 1), prev[j - 1] + costo);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    cur[j] = Math.min(cur[j], prev2[j - 2] + 1);
+                }
+                minRiga = Math.min(minRiga, cur[j]);
+            }
+            if (minRiga > max) {
+                return max + 1;
+            }
+            int[] tmp = prev2;
+            prev2 = prev;
+            prev = cur;
+            cur = tmp;
+        }
+        return prev[b.length()];
+    }
+
+    private static int lunghezza(String s) {
+        return s == null ? 0 : s.length();
+    }
+}
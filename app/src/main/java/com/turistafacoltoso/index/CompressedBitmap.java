@@ -0,0 +1,269 @@
+package com.turistafacoltoso.index;
+
+import java.util.Arrays;
+
+/**
+ * Bitmap compressa di interi non negativi, organizzata come Roaring: i 16 bit
+ * alti scelgono un blocco da 65536 valori, e ogni blocco è un array ordinato
+ * di char finché ha al massimo 4096 elementi, poi una bitmap da 1024 long.
+ * I pochi elementi costano 2 byte l'uno, i blocchi densi 8 KB.
+ *
+ * Le operazioni tra insiemi lavorano su una bitmap densa (long[]) fornita dal
+ * chiamante: orInto() per le unioni, andCardinality() per i conteggi.
+ *
+ * Non è thread-safe: la sincronizzazione è a carico del chiamante.
+ */
+public class CompressedBitmap {
+    private static final int MAX_ARRAY = 4096;
+    private static final int WORDS = 1024;
+
+    private char[] keys = new char[0];
+    private Object[] containers = new Object[0];
+    private int cardinality;
+
+    public boolean add(int x) {
+        char key = (char) (x >>> 16);
+        char low = (char) x;
+        int i = Arrays.binarySearch(keys, key);
+        if (i < 0) {
+            i = -i - 1;
+            keys = insert(keys, i, key);
+            containers = insert(containers, i, new ArrayContainer());
+        }
+        Object c = containers[i];
+        boolean added;
+        if (c instanceof ArrayContainer a) {
+            added = a.add(low);
+            if (a.size > MAX_ARRAY) {
+                containers[i] = a.toBitmap();
+            }
+        } else {
+            added = ((BitmapContainer) c).add(low);
+        }
+        if (added) {
+            cardinality++;
+        }
+        return added;
+    }
+
+    public boolean remove(int x) {
+        int i = Arrays.binarySearch(keys, (char) (x >>> 16));
+        if (i < 0) {
+            return false;
+        }
+        char low = (char) x;
+        Object c = containers[i];
+        boolean removed;
+        int size;
+        if (c instanceof ArrayContainer a) {
+            removed = a.remove(low);
+            size = a.size;
+        } else {
+            BitmapContainer b = (BitmapContainer) c;
+            removed = b.remove(low);
+            size = b.size;
+            if (size <= MAX_ARRAY / 2) {
+                containers[i] = b.toArray();
+            }
+        }
+        if (removed) {
+            cardinality--;
+        }
+        if (size == 0) {
+            keys = delete(keys, i);
+            containers = delete(containers, i);
+        }
+        return removed;
+    }
+
+    public boolean contains(int x) {
+        int i = Arrays.binarySearch(keys, (char) (x >>> 16));
+        if (i < 0) {
+            return false;
+        }
+        char low = (char) x;
+        Object c = containers[i];
+        if (c instanceof ArrayContainer a) {
+            return Arrays.binarySearch(a.values, 0, a.size, low) >= 0;
+        }
+        return (((BitmapContainer) c).words[low >>> 6] & (1L << low)) != 0;
+    }
+
+    public void clear() {
+        keys = new char[0];
+        containers = new Object[0];
+        cardinality = 0;
+    }
+
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * dense |= this; i valori oltre la lunghezza di dense sono ignorati.
+     */
+    public void orInto(long[] dense) {
+        for (int i = 0; i < keys.length; i++) {
+            int base = keys[i] * WORDS;
+            if (base >= dense.length) {
+                break;
+            }
+            Object c = containers[i];
+            if (c instanceof ArrayContainer a) {
+                for (int j = 0; j < a.size; j++) {
+                    int v = a.values[j];
+                    dense[base + (v >>> 6)] |= 1L << v;
+                }
+            } else {
+                long[] words = ((BitmapContainer) c).words;
+                for (int w = 0; w < WORDS; w++) {
+                    dense[base + w] |= words[w];
+                }
+            }
+        }
+    }
+
+    /**
+     * Numero di elementi comuni con dense, senza modificarla.
+     */
+    public int andCardinality(long[] dense) {
+        int count = 0;
+        for (int i = 0; i < keys.length; i++) {
+            int base = keys[i] * WORDS;
+            if (base >= dense.length) {
+                break;
+            }
+            Object c = containers[i];
+            if (c instanceof ArrayContainer a) {
+                for (int j = 0; j < a.size; j++) {
+                    int v = a.values[j];
+                    if ((dense[base + (v >>> 6)] & (1L << v)) != 0) {
+                        count++;
+                    }
+                }
+            } else {
+                long[] words = ((BitmapContainer) c).words;
+                for (int w = 0; w < WORDS; w++) {
+                    count += Long.bitCount(dense[base + w] & words[w]);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Numero di long necessari a una bitmap densa per contenere i valori fino
+     * a max (escluso), arrotondato a blocchi interi.
+     */
+    public static int denseWords(int max) {
+        return ((max + 0xFFFF) >>> 16) * WORDS;
+    }
+
+    // --- Metodi Helper ---
+
+    private static char[] insert(char[] array, int i, char value) {
+        char[] result = new char[array.length + 1];
+        System.arraycopy(array, 0, result, 0, i);
+        result[i] = value;
+        System.arraycopy(array, i, result, i + 1, array.length - i);
+        return result;
+    }
+
+    private static Object[] insert(Object[] array, int i, Object value) {
+        Object[] result = new Object[array.length + 1];
+        System.arraycopy(array, 0, result, 0, i);
+        result[i] = value;
+        System.arraycopy(array, i, result, i + 1, array.length - i);
+        return result;
+    }
+
+    private static char[] delete(char[] array, int i) {
+        char[] result = new char[array.length - 1];
+        System.arraycopy(array, 0, result, 0, i);
+        System.arraycopy(array, i + 1, result, i, array.length - i - 1);
+        return result;
+    }
+
+    private static Object[] delete(Object[] array, int i) {
+        Object[] result = new Object[array.length - 1];
+        System.arraycopy(array, 0, result, 0, i);
+        System.arraycopy(array, i + 1, result, i, array.length - i - 1);
+        return result;
+    }
+
+    private static final class ArrayContainer {
+        char[] values = new char[4];
+        int size;
+
+        boolean add(char v) {
+            int i = Arrays.binarySearch(values, 0, size, v);
+            if (i >= 0) {
+                return false;
+            }
+            i = -i - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(size * 2, MAX_ARRAY + 1));
+            }
+            System.arraycopy(values, i, values, i + 1, size - i);
+            values[i] = v;
+            size++;
+            return true;
+        }
+
+        boolean remove(char v) {
+            int i = Arrays.binarySearch(values, 0, size, v);
+            if (i < 0) {
+                return false;
+            }
+            System.arraycopy(values, i + 1, values, i, size - i - 1);
+            size--;
+            return true;
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer b = new BitmapContainer();
+            for (int i = 0; i < size; i++) {
+                b.add(values[i]);
+            }
+            return b;
+        }
+    }
+
+    private static final class BitmapContainer {
+        final long[] words = new long[WORDS];
+        int size;
+
+        boolean add(char v) {
+            long bit = 1L << v;
+            if ((words[v >>> 6] & bit) != 0) {
+                return false;
+            }
+            words[v >>> 6] |= bit;
+            size++;
+            return true;
+        }
+
+        boolean remove(char v) {
+            long bit = 1L << v;
+            if ((words[v >>> 6] & bit) == 0) {
+                return false;
+            }
+            words[v >>> 6] &= ~bit;
+            size--;
+            return true;
+        }
+
+        ArrayContainer toArray() {
+            ArrayContainer a = new ArrayContainer();
+            a.values = new char[Math.max(4, size)];
+            for (int w = 0; w < WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    a.values[a.size++] = (char) (w * 64 + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return a;
+        }
+    }
+}
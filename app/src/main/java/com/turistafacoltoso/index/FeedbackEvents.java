@@ -0,0 +1,58 @@
+package com.turistafacoltoso.index;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.turistafacoltoso.model.Feedback;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Registro statico dei FeedbackListener: i service notificano qui le
+ * scritture dopo che sono andate a buon fine sul database.
+ */
+@Slf4j
+public class FeedbackEvents {
+    private static final CopyOnWriteArrayList<FeedbackListener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private FeedbackEvents() {
+
+    }
+
+    public static void register(FeedbackListener listener) {
+        LISTENERS.addIfAbsent(listener);
+    }
+
+    public static void unregister(FeedbackListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    public static void created(Feedback f) {
+        for (FeedbackListener l : LISTENERS) {
+            try {
+                l.onCreated(f);
+            } catch (RuntimeException e) {
+                log.error("Listener {} fallito su creazione feedback {}", l.getClass().getSimpleName(), f.getId(), e);
+            }
+        }
+    }
+
+    public static void deleted(Feedback f) {
+        for (FeedbackListener l : LISTENERS) {
+            try {
+                l.onDeleted(f);
+            } catch (RuntimeException e) {
+                log.error("Listener {} fallito su cancellazione feedback {}", l.getClass().getSimpleName(), f.getId(), e);
+            }
+        }
+    }
+
+    public static void reload() {
+        for (FeedbackListener l : LISTENERS) {
+            try {
+                l.reload();
+            } catch (RuntimeException e) {
+                log.error("Ricaricamento listener {} fallito", l.getClass().getSimpleName(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.turistafacoltoso.index;
+
+import com.turistafacoltoso.model.Feedback;
+
+/**
+ * Struttura in memoria tenuta aggiornata a ogni scrittura sui feedback.
+ * Un update arriva come onDeleted della versione precedente seguito da
+ * onCreated della nuova.
+ */
+public interface FeedbackListener {
+
+    void onCreated(Feedback f);
+
+    void onDeleted(Feedback f);
+
+    /**
+     * Ricostruzione completa dal database, usata dopo le cancellazioni massive
+     * (prenotazioni, utenti, host).
+     */
+    void reload();
+}
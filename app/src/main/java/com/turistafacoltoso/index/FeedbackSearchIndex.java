@@ -0,0 +1,234 @@
+package com.turistafacoltoso.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+import com.turistafacoltoso.model.Feedback;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Indice invertito su titolo e testo dei feedback: per ogni termine (vedi
+ * ItalianAnalyzer) la lista degli id dei feedback che lo contengono con la
+ * frequenza. Le ricerche sono ordinate con BM25; i termini del titolo valgono
+ * il doppio di quelli del testo.
+ *
+ * Le ricerche prendono il lock in lettura e possono procedere in parallelo,
+ * le scritture quello in scrittura.
+ */
+@Slf4j
+public class FeedbackSearchIndex implements FeedbackListener {
+    private static final FeedbackSearchIndex INSTANCE = new FeedbackSearchIndex();
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int PESO_TITOLO = 2;
+
+    /**
+     * Risultato di una ricerca: id del feedback e punteggio BM25.
+     */
+    public record Hit(int idFeedback, double rilevanza) {
+    }
+
+    /**
+     * Posting list di un termine, in ordine di inserimento.
+     */
+    private static final class Postings {
+        int[] ids = new int[4];
+        int[] tf = new int[4];
+        int size;
+
+        void add(int id, int frequenza) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                tf = Arrays.copyOf(tf, size * 2);
+            }
+            ids[size] = id;
+            tf[size] = frequenza;
+            size++;
+        }
+
+        void remove(int id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    size--;
+                    ids[i] = ids[size];
+                    tf[i] = tf[size];
+                    return;
+                }
+            }
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postings = new HashMap<>();
+    // id feedback -> lunghezza (in termini pesati)
+    private final Map<Integer, Integer> lunghezze = new HashMap<>();
+    private long lunghezzaTotale;
+    private Consumer<Consumer<Feedback>> loader = c -> {
+    };
+
+    private FeedbackSearchIndex() {
+
+    }
+
+    public static FeedbackSearchIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Sorgente usata da reload() (tipicamente FeedbackDAO::streamAll).
+     */
+    public void setLoader(Consumer<Consumer<Feedback>> loader) {
+        lock.writeLock().lock();
+        try {
+            this.loader = loader;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            lunghezze.clear();
+            lunghezzaTotale = 0;
+            loader.accept(this::add);
+            log.info("Indice di ricerca feedback caricato: {} feedback, {} termini", lunghezze.size(), postings.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onCreated(Feedback f) {
+        lock.writeLock().lock();
+        try {
+            add(f);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onDeleted(Feedback f) {
+        lock.writeLock().lock();
+        try {
+            Integer lunghezza = lunghezze.remove(f.getId());
+            if (lunghezza == null) {
+                return;
+            }
+            lunghezzaTotale -= lunghezza;
+            for (String term : frequenze(f).keySet()) {
+                Postings p = postings.get(term);
+                if (p != null) {
+                    p.remove(f.getId());
+                    if (p.size == 0) {
+                        postings.remove(term);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return lunghezze.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Feedback che contengono almeno uno dei termini della query, ordinati per
+     * rilevanza decrescente e poi per id. Restituisce al massimo limit + 1
+     * risultati a partire dalla posizione offset: quello in più indica che
+     * esiste una pagina successiva.
+     */
+    public List<Hit> search(String query, int offset, int limit) {
+        Set<String> terms = new LinkedHashSet<>(ItalianAnalyzer.terms(query));
+        lock.readLock().lock();
+        try {
+            int n = lunghezze.size();
+            if (terms.isEmpty() || n == 0) {
+                return List.of();
+            }
+            double lunghezzaMedia = (double) lunghezzaTotale / n;
+            Map<Integer, Double> punteggi = new HashMap<>();
+            for (String term : terms) {
+                Postings p = postings.get(term);
+                if (p == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (n - p.size + 0.5) / (p.size + 0.5));
+                for (int i = 0; i < p.size; i++) {
+                    double tf = p.tf[i];
+                    double norm = K1 * (1 - B + B * lunghezze.get(p.ids[i]) / lunghezzaMedia);
+                    punteggi.merge(p.ids[i], idf * tf * (K1 + 1) / (tf + norm), Double::sum);
+                }
+            }
+            return top(punteggi, offset + limit + 1, offset);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // --- Metodi Helper ---
+
+    private void add(Feedback f) {
+        if (lunghezze.containsKey(f.getId())) {
+            return;
+        }
+        Map<String, Integer> frequenze = frequenze(f);
+        int lunghezza = 0;
+        for (Map.Entry<String, Integer> e : frequenze.entrySet()) {
+            postings.computeIfAbsent(e.getKey(), k -> new Postings()).add(f.getId(), e.getValue());
+            lunghezza += e.getValue();
+        }
+        lunghezze.put(f.getId(), lunghezza);
+        lunghezzaTotale += lunghezza;
+    }
+
+    private static Map<String, Integer> frequenze(Feedback f) {
+        Map<String, Integer> frequenze = new HashMap<>();
+        for (String term : ItalianAnalyzer.terms(f.getTitolo())) {
+            frequenze.merge(term, PESO_TITOLO, Integer::sum);
+        }
+        for (String term : ItalianAnalyzer.terms(f.getTesto())) {
+            frequenze.merge(term, 1, Integer::sum);
+        }
+        return frequenze;
+    }
+
+    /**
+     * I primi k risultati con un heap di dimensione k, poi saltati i primi
+     * offset.
+     */
+    private static List<Hit> top(Map<Integer, Double> punteggi, int k, int offset) {
+        Comparator<Hit> ordine = Comparator.comparingDouble(Hit::rilevanza).reversed()
+                .thenComparingInt(Hit::idFeedback);
+        PriorityQueue<Hit> heap = new PriorityQueue<>(ordine.reversed());
+        for (Map.Entry<Integer, Double> e : punteggi.entrySet()) {
+            heap.add(new Hit(e.getKey(), e.getValue()));
+            if (heap.size() > k) {
+                heap.poll();
+            }
+        }
+        List<Hit> hits = new ArrayList<>(heap);
+        hits.sort(ordine);
+        return offset >= hits.size() ? List.of() : hits.subList(offset, hits.size());
+    }
+}
@@ -0,0 +1,194 @@
+package com.turistafacoltoso.index;
+
+/**
+ * Interval tree (AVL aumentato con il massimo estremo destro del sottoalbero)
+ * su intervalli semiaperti [start, end) di giorni epoch. Ogni intervallo ha
+ * un id; la chiave di ordinamento è (start, id).
+ *
+ * Non è thread-safe: la sincronizzazione è a carico del chiamante.
+ */
+public class IntervalTree {
+
+    private static final class Node {
+        final int start;
+        final int end;
+        final int id;
+        int maxEnd;
+        int height = 1;
+        Node left;
+        Node right;
+
+        Node(int id, int start, int end) {
+            this.id = id;
+            this.start = start;
+            this.end = end;
+            this.maxEnd = end;
+        }
+    }
+
+    private Node root;
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void insert(int id, int start, int end) {
+        if (end <= start) {
+            throw new IllegalArgumentException("Intervallo non valido: [" + start + ", " + end + ")");
+        }
+        root = insert(root, new Node(id, start, end));
+        size++;
+    }
+
+    /**
+     * Rimuove l'intervallo con l'id e l'inizio indicati.
+     */
+    public boolean remove(int id, int start) {
+        int before = size;
+        root = remove(root, id, start);
+        return size < before;
+    }
+
+    /**
+     * Id di un intervallo che si sovrappone a [start, end), -1 se non ce ne sono.
+     * L'intervallo con id excludeId viene ignorato (utile negli update).
+     */
+    public int findOverlap(int start, int end, int excludeId) {
+        return findOverlap(root, start, end, excludeId);
+    }
+
+    public boolean overlaps(int start, int end) {
+        return findOverlap(root, start, end, Integer.MIN_VALUE) != -1;
+    }
+
+    // --- Metodi Helper ---
+
+    private static int findOverlap(Node node, int start, int end, int excludeId) {
+        if (node == null || node.maxEnd <= start) {
+            return -1;
+        }
+        int found = findOverlap(node.left, start, end, excludeId);
+        if (found != -1) {
+            return found;
+        }
+        if (node.start >= end) {
+            // tutto il sottoalbero destro inizia dopo la fine della richiesta
+            return -1;
+        }
+        if (node.end > start && node.id != excludeId) {
+            return node.id;
+        }
+        return findOverlap(node.right, start, end, excludeId);
+    }
+
+    private static int compare(int start, int id, Node node) {
+        int c = Integer.compare(start, node.start);
+        return c != 0 ? c : Integer.compare(id, node.id);
+    }
+
+    private static Node insert(Node node, Node fresh) {
+        if (node == null) {
+            return fresh;
+        }
+        if (compare(fresh.start, fresh.id, node) < 0) {
+            node.left = insert(node.left, fresh);
+        } else {
+            node.right = insert(node.right, fresh);
+        }
+        return balance(node);
+    }
+
+    private Node remove(Node node, int id, int start) {
+        if (node == null) {
+            return null;
+        }
+        int c = compare(start, id, node);
+        if (c < 0) {
+            node.left = remove(node.left, id, start);
+        } else if (c > 0) {
+            node.right = remove(node.right, id, start);
+        } else {
+            size--;
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            Node min = node.right;
+            while (min.left != null) {
+                min = min.left;
+            }
+            Node replacement = new Node(min.id, min.start, min.end);
+            replacement.right = removeMin(node.right);
+            replacement.left = node.left;
+            return balance(replacement);
+        }
+        return balance(node);
+    }
+
+    private static Node removeMin(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = removeMin(node.left);
+        return balance(node);
+    }
+
+    private static int height(Node n) {
+        return n == null ? 0 : n.height;
+    }
+
+    private static void update(Node n) {
+        n.height = 1 + Math.max(height(n.left), height(n.right));
+        int max = n.end;
+        if (n.left != null && n.left.maxEnd > max) {
+            max = n.left.maxEnd;
+        }
+        if (n.right != null && n.right.maxEnd > max) {
+            max = n.right.maxEnd;
+        }
+        n.maxEnd = max;
+    }
+
+    private static Node balance(Node n) {
+        update(n);
+        int bf = height(n.left) - height(n.right);
+        if (bf > 1) {
+            if (height(n.left.left) < height(n.left.right)) {
+                n.left = rotateLeft(n.left);
+            }
+            return rotateRight(n);
+        }
+        if (bf < -1) {
+            if (height(n.right.right) < height(n.right.left)) {
+                n.right = rotateRight(n.right);
+            }
+            return rotateLeft(n);
+        }
+        return n;
+    }
+
+    private static Node rotateRight(Node n) {
+        Node l = n.left;
+        n.left = l.right;
+        l.right = n;
+        update(n);
+        update(l);
+        return l;
+    }
+
+    private static Node rotateLeft(Node n) {
+        Node r = n.right;
+        n.right = r.left;
+        r.left = n;
+        update(n);
+        update(r);
+        return r;
+    }
+}
@@ -0,0 +1,214 @@
+package com.turistafacoltoso.index;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.HostInventoryStats;
+import com.turistafacoltoso.model.InventorySummary;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Statistiche dell'inventario delle abitazioni mantenute in modo incrementale:
+ * somme per le medie (totali e per host), istogrammi di locali e posti letto
+ * e uno sketch dei quantili del prezzo per notte. Ogni create/delete aggiorna
+ * i contatori, le letture non toccano il database.
+ *
+ * I contributi sono tenuti per id: una notifica che arriva dopo un reload che
+ * ha già letto (o non ha più trovato) la stessa abitazione sostituisce il
+ * contributo invece di sommarlo una seconda volta.
+ */
+@Slf4j
+public class InventoryStats implements AbitazioneListener {
+    private static final InventoryStats INSTANCE = new InventoryStats();
+
+    /**
+     * Somme su un gruppo di abitazioni.
+     */
+    private static final class Totali {
+        long abitazioni;
+        long locali;
+        long postiLetto;
+        long prezzoCentesimi;
+
+        void add(Abitazione a, int sign) {
+            abitazioni += sign;
+            locali += (long) sign * a.getNLocali();
+            postiLetto += (long) sign * a.getNPostiLetto();
+            prezzoCentesimi += sign * centesimi(a);
+        }
+    }
+
+    private final Totali totali = new Totali();
+    private final Map<Integer, Totali> perHost = new HashMap<>();
+    private final TreeMap<Integer, Integer> istogrammaLocali = new TreeMap<>();
+    private final TreeMap<Integer, Integer> istogrammaPostiLetto = new TreeMap<>();
+    private final PriceSketch prezzi = new PriceSketch();
+    // versione contata di ogni abitazione, per togliere esattamente quello che è stato sommato
+    private final Map<Integer, Abitazione> contate = new HashMap<>();
+    private Consumer<Consumer<Abitazione>> loader = c -> {
+    };
+
+    private InventoryStats() {
+
+    }
+
+    public static InventoryStats getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Sorgente usata da reload() (tipicamente AbitazioneDAO::streamAll).
+     */
+    public synchronized void setLoader(Consumer<Consumer<Abitazione>> loader) {
+        this.loader = loader;
+    }
+
+    @Override
+    public synchronized void reload() {
+        totali.abitazioni = 0;
+        totali.locali = 0;
+        totali.postiLetto = 0;
+        totali.prezzoCentesimi = 0;
+        perHost.clear();
+        istogrammaLocali.clear();
+        istogrammaPostiLetto.clear();
+        prezzi.clear();
+        contate.clear();
+        loader.accept(this::put);
+        log.info("Statistiche inventario caricate: {} abitazioni, {} host", totali.abitazioni, perHost.size());
+    }
+
+    @Override
+    public synchronized void onCreated(Abitazione a) {
+        put(a);
+    }
+
+    @Override
+    public synchronized void onDeleted(Abitazione a) {
+        Abitazione contata = contate.remove(a.getId());
+        if (contata != null) {
+            apply(contata, -1);
+        }
+    }
+
+    public synchronized InventorySummary getSummary() {
+        return new InventorySummary(totali.abitazioni, media(totali.locali, totali.abitazioni),
+                media(totali.postiLetto, totali.abitazioni), mediaPrezzo(totali));
+    }
+
+    /**
+     * Media dei posti letto con due decimali (0 se non ci sono abitazioni),
+     * come AVG(n_posti_letto)::NUMERIC(10,2).
+     */
+    public synchronized BigDecimal getMediaPostiLetto() {
+        return media(totali.postiLetto, totali.abitazioni);
+    }
+
+    /**
+     * Prezzo per notte ai percentili richiesti (1-100), con chiavi "p50",
+     * "p90"...; vuoto se non ci sono abitazioni.
+     */
+    public synchronized Map<String, BigDecimal> getPercentiliPrezzo(List<Integer> percentili) {
+        Map<String, BigDecimal> result = new LinkedHashMap<>();
+        if (prezzi.count() == 0) {
+            return result;
+        }
+        for (int p : percentili) {
+            result.put("p" + p, BigDecimal.valueOf(prezzi.quantile(p / 100.0), 2));
+        }
+        return result;
+    }
+
+    /**
+     * Numero di abitazioni per numero di locali (chiave) in ordine crescente.
+     */
+    public synchronized Map<Integer, Integer> getDistribuzioneLocali() {
+        return Collections.unmodifiableMap(new TreeMap<>(istogrammaLocali));
+    }
+
+    public synchronized Map<Integer, Integer> getDistribuzionePostiLetto() {
+        return Collections.unmodifiableMap(new TreeMap<>(istogrammaPostiLetto));
+    }
+
+    public synchronized Optional<HostInventoryStats> getHost(int idHost) {
+        Totali t = perHost.get(idHost);
+        return t == null ? Optional.empty() : Optional.of(toHostStats(idHost, t));
+    }
+
+    public synchronized List<HostInventoryStats> getHosts() {
+        List<HostInventoryStats> result = new ArrayList<>(perHost.size());
+        for (Map.Entry<Integer, Totali> e : new TreeMap<>(perHost).entrySet()) {
+            result.add(toHostStats(e.getKey(), e.getValue()));
+        }
+        return result;
+    }
+
+    // --- Metodi Helper ---
+
+    private void put(Abitazione a) {
+        Abitazione precedente = contate.put(a.getId(), a);
+        if (precedente != null) {
+            apply(precedente, -1);
+        }
+        apply(a, 1);
+    }
+
+    private void apply(Abitazione a, int sign) {
+        totali.add(a, sign);
+        Totali host = perHost.computeIfAbsent(a.getIdHost(), k -> new Totali());
+        host.add(a, sign);
+        if (host.abitazioni <= 0) {
+            perHost.remove(a.getIdHost());
+        }
+        count(istogrammaLocali, a.getNLocali(), sign);
+        count(istogrammaPostiLetto, a.getNPostiLetto(), sign);
+        if (sign > 0) {
+            prezzi.add(centesimi(a));
+        } else {
+            prezzi.remove(centesimi(a));
+        }
+    }
+
+    private static void count(Map<Integer, Integer> istogramma, int key, int sign) {
+        istogramma.compute(key, (k, v) -> {
+            int n = (v == null ? 0 : v) + sign;
+            return n <= 0 ? null : n;
+        });
+    }
+
+    private static long centesimi(Abitazione a) {
+        return a.getPrezzoPerNotte() == null ? 0
+                : a.getPrezzoPerNotte().setScale(2, RoundingMode.HALF_UP).unscaledValue().longValue();
+    }
+
+    private static BigDecimal media(long somma, long n) {
+        if (n <= 0) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(somma).divide(BigDecimal.valueOf(n), 2, RoundingMode.HALF_UP);
+    }
+
+    private static BigDecimal mediaPrezzo(Totali t) {
+        if (t.abitazioni <= 0) {
+            return BigDecimal.ZERO;
+        }
+        return BigDecimal.valueOf(t.prezzoCentesimi, 2).divide(BigDecimal.valueOf(t.abitazioni), 2,
+                RoundingMode.HALF_UP);
+    }
+
+    private static HostInventoryStats toHostStats(int idHost, Totali t) {
+        return new HostInventoryStats(idHost, t.abitazioni, media(t.locali, t.abitazioni),
+                media(t.postiLetto, t.abitazioni), mediaPrezzo(t));
+    }
+}
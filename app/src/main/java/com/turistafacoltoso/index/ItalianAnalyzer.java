@@ -0,0 +1,102 @@
+package com.turistafacoltoso.index;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Analisi del testo italiano per gli indici di ricerca: minuscole, accenti
+ * rimossi (è -> e, perché -> perche), separazione su tutto ciò che non è
+ * lettera o cifra (quindi anche sugli apostrofi: "dell'acqua" -> "dell",
+ * "acqua"), stopword e uno stemming leggero che toglie la vocale finale, così
+ * "sporco", "sporca" e "sporchi" finiscono sullo stesso termine.
+ */
+public class ItalianAnalyzer {
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "ad", "agli", "ai", "al", "alla", "alle", "allo", "anche", "c", "che", "ci", "come", "con", "d",
+            "da", "dagli", "dai", "dal", "dalla", "dalle", "dallo", "degli", "dei", "del", "dell", "della", "delle",
+            "dello", "di", "e", "ed", "gli", "ha", "hanno", "i", "il", "in", "l", "la", "le", "lo", "ma", "mi", "ne",
+            "negli", "nei", "nel", "nell", "nella", "nelle", "nello", "o", "per", "si", "sono", "su", "sugli", "sui",
+            "sul", "sull", "sulla", "sulle", "sullo", "ti", "tra", "fra", "un", "una", "uno", "vi");
+
+    private ItalianAnalyzer() {
+
+    }
+
+    /**
+     * Minuscole e accenti rimossi, senza altre trasformazioni.
+     */
+    public static String fold(String text) {
+        String decomposed = Normalizer.normalize(text.toLowerCase(Locale.ITALIAN), Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Parole del testo dopo fold(), separate su tutto ciò che non è lettera o
+     * cifra, senza stopword né stemming; vuoto se text è null.
+     */
+    public static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        String folded = fold(text);
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean word = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                words.add(folded.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Termini indicizzabili del testo, nell'ordine in cui compaiono (con
+     * ripetizioni); vuoto se text è null.
+     */
+    public static List<String> terms(String text) {
+        List<String> terms = new ArrayList<>();
+        for (String word : words(text)) {
+            if (!STOPWORDS.contains(word)) {
+                terms.add(stem(word));
+            }
+        }
+        return terms;
+    }
+
+    // --- Metodi Helper ---
+
+    /**
+     * Toglie la vocale finale delle parole di almeno 4 lettere; "chi"/"che"
+     * e "ghi"/"ghe" perdono anche la h, come "co"/"ca" e "go"/"ga".
+     */
+    private static String stem(String token) {
+        int len = token.length();
+        if (len < 4 || !isVowel(token.charAt(len - 1)) || Character.isDigit(token.charAt(0))) {
+            return token;
+        }
+        len--;
+        char last = token.charAt(len - 1);
+        if (last == 'h' && len >= 4 && (token.charAt(len - 2) == 'c' || token.charAt(len - 2) == 'g')) {
+            len--;
+        }
+        return token.substring(0, len);
+    }
+
+    private static boolean isVowel(char c) {
+        return c == 'a' || c == 'e' || c == 'i' || c == 'o';
+    }
+}
@@ -0,0 +1,228 @@
+package com.turistafacoltoso.index;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.Prenotazione;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Contatori a finestra scorrevole per le statistiche "ultimo mese": numero di
+ * prenotazioni per abitazione e per host e giorni prenotati per utente,
+ * considerando le prenotazioni con data_inizio >= oggi - 1 mese (come
+ * CURRENT_DATE - INTERVAL '1 month' nelle query SQL).
+ *
+ * Le prenotazioni sono raggruppate in bucket giornalieri per data di inizio.
+ * Quando cambia il giorno i bucket usciti dalla finestra vengono sottratti dai
+ * totali, quindi le letture non devono mai riscorrere lo storico. Le
+ * prenotazioni future restano nei loro bucket finché non escono dalla finestra.
+ */
+@Slf4j
+public class LastMonthCounters implements PrenotazioneListener {
+    private static final LastMonthCounters INSTANCE = new LastMonthCounters();
+
+    /**
+     * Contributi delle prenotazioni che iniziano in un certo giorno.
+     */
+    private static final class DayBucket {
+        final Map<Integer, Integer> abitazioni = new HashMap<>();
+        final Map<Integer, Integer> hosts = new HashMap<>();
+        final Map<Integer, Integer> giorniUtenti = new HashMap<>();
+
+        boolean isEmpty() {
+            return abitazioni.isEmpty() && hosts.isEmpty() && giorniUtenti.isEmpty();
+        }
+    }
+
+    // epoch day della data di inizio -> bucket
+    private final TreeMap<Integer, DayBucket> buckets = new TreeMap<>();
+    private final Map<Integer, Integer> totaleAbitazioni = new HashMap<>();
+    private final Map<Integer, Integer> totaleHosts = new HashMap<>();
+    private final Map<Integer, Integer> totaleGiorniUtenti = new HashMap<>();
+    private int inizioFinestra = Integer.MIN_VALUE;
+    private Clock clock = Clock.systemDefaultZone();
+    private Supplier<List<Prenotazione>> loader = List::of;
+    private Consumer<Consumer<Abitazione>> abitazioniLoader = c -> {
+    };
+
+    private LastMonthCounters() {
+
+    }
+
+    public static LastMonthCounters getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Sorgenti usate da reload(): le prenotazioni e le abitazioni lette una
+     * alla volta (es. AbitazioneDAO::streamAll), da cui si ricava l'host di
+     * ciascuna prenotazione.
+     */
+    public synchronized void setLoader(Supplier<List<Prenotazione>> loader,
+            Consumer<Consumer<Abitazione>> abitazioniLoader) {
+        this.loader = loader;
+        this.abitazioniLoader = abitazioniLoader;
+    }
+
+    synchronized void setClock(Clock clock) {
+        this.clock = clock;
+        advance();
+    }
+
+    @Override
+    public synchronized void reload() {
+        Map<Integer, Integer> hostByAbitazione = new HashMap<>();
+        abitazioniLoader.accept(a -> hostByAbitazione.put(a.getId(), a.getIdHost()));
+        buckets.clear();
+        totaleAbitazioni.clear();
+        totaleHosts.clear();
+        totaleGiorniUtenti.clear();
+        inizioFinestra = windowStart();
+        for (Prenotazione p : loader.get()) {
+            Integer idHost = hostByAbitazione.get(p.getAbitazioneId());
+            if (idHost != null) {
+                apply(p, idHost, 1);
+            }
+        }
+        log.info("Contatori ultimo mese caricati: {} abitazioni, {} host, {} utenti", totaleAbitazioni.size(),
+                totaleHosts.size(), totaleGiorniUtenti.size());
+    }
+
+    @Override
+    public synchronized void onCreated(Prenotazione p, Abitazione a) {
+        advance();
+        apply(p, a.getIdHost(), 1);
+    }
+
+    @Override
+    public synchronized void onDeleted(Prenotazione p, Abitazione a) {
+        advance();
+        apply(p, a.getIdHost(), -1);
+    }
+
+    /**
+     * Id dell'abitazione con più prenotazioni nella finestra (a parità,
+     * quella con id minore).
+     */
+    public synchronized Optional<Integer> getAbitazionePiuPrenotata() {
+        advance();
+        Integer best = null;
+        int bestCount = 0;
+        for (Map.Entry<Integer, Integer> e : totaleAbitazioni.entrySet()) {
+            int c = e.getValue();
+            if (c > bestCount || (c == bestCount && best != null && e.getKey() < best)) {
+                best = e.getKey();
+                bestCount = c;
+            }
+        }
+        return Optional.ofNullable(best);
+    }
+
+    /**
+     * Host con almeno una prenotazione nella finestra, ordinati per numero di
+     * prenotazioni decrescente (id host -> totale).
+     */
+    public synchronized Map<Integer, Integer> getClassificaHosts() {
+        advance();
+        return sorted(totaleHosts, Integer.MAX_VALUE);
+    }
+
+    /**
+     * I primi "limit" utenti per giorni prenotati nella finestra
+     * (id utente -> giorni).
+     */
+    public synchronized Map<Integer, Integer> getTopUtentiPerGiorni(int limit) {
+        advance();
+        return sorted(totaleGiorniUtenti, limit);
+    }
+
+    public synchronized LocalDate getInizioFinestra() {
+        advance();
+        return LocalDate.ofEpochDay(inizioFinestra);
+    }
+
+    // --- Metodi Helper ---
+
+    private int windowStart() {
+        return (int) LocalDate.now(clock).minusMonths(1).toEpochDay();
+    }
+
+    /**
+     * Fa scorrere la finestra al giorno corrente togliendo dai totali i
+     * bucket rimasti fuori.
+     */
+    private void advance() {
+        int start = windowStart();
+        if (start <= inizioFinestra) {
+            return;
+        }
+        Map<Integer, DayBucket> usciti = buckets.headMap(start);
+        for (DayBucket b : usciti.values()) {
+            subtract(totaleAbitazioni, b.abitazioni);
+            subtract(totaleHosts, b.hosts);
+            subtract(totaleGiorniUtenti, b.giorniUtenti);
+        }
+        usciti.clear();
+        inizioFinestra = start;
+    }
+
+    private void apply(Prenotazione p, int idHost, int sign) {
+        if (p.getDataInizio() == null || p.getDataFine() == null) {
+            return;
+        }
+        int day = (int) p.getDataInizio().toEpochDay();
+        if (day < inizioFinestra) {
+            return;
+        }
+        int giorni = (int) (p.getDataFine().toEpochDay() - day);
+        DayBucket bucket = buckets.computeIfAbsent(day, k -> new DayBucket());
+        add(bucket.abitazioni, p.getAbitazioneId(), sign);
+        add(bucket.hosts, idHost, sign);
+        add(bucket.giorniUtenti, p.getUtenteId(), sign * giorni);
+        add(totaleAbitazioni, p.getAbitazioneId(), sign);
+        add(totaleHosts, idHost, sign);
+        add(totaleGiorniUtenti, p.getUtenteId(), sign * giorni);
+        if (bucket.isEmpty()) {
+            buckets.remove(day);
+        }
+    }
+
+    private static void add(Map<Integer, Integer> counts, int key, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        counts.merge(key, delta, (a, b) -> a + b == 0 ? null : a + b);
+    }
+
+    private static void subtract(Map<Integer, Integer> totals, Map<Integer, Integer> bucket) {
+        for (Map.Entry<Integer, Integer> e : bucket.entrySet()) {
+            add(totals, e.getKey(), -e.getValue());
+        }
+    }
+
+    private static Map<Integer, Integer> sorted(Map<Integer, Integer> totals, int limit) {
+        List<Map.Entry<Integer, Integer>> entries = new ArrayList<>(totals.entrySet());
+        entries.sort(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey()));
+        Map<Integer, Integer> result = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Integer> e : entries) {
+            if (result.size() == limit) {
+                break;
+            }
+            result.put(e.getKey(), e.getValue());
+        }
+        return Collections.unmodifiableMap(result);
+    }
+}
@@ -0,0 +1,349 @@
+package com.turistafacoltoso.index;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.AnalyticsRow;
+import com.turistafacoltoso.model.Prenotazione;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Copia colonnare della tabella prenotazione per le analisi: una colonna di
+ * interi primitivi per id, utente, abitazione, host, inizio e fine (epoch day)
+ * e una di long per created_at (epoch millis), senza oggetti per riga.
+ *
+ * Le nuove prenotazioni vengono accodate e quelle cancellate solo marcate;
+ * quando le righe marcate superano un quarto del totale le colonne vengono
+ * compattate. Le letture lavorano su una vista pubblicata dopo ogni scrittura
+ * e aggregano in parallelo sul ForkJoinPool comune.
+ */
+@Slf4j
+public class PrenotazioneColumns implements PrenotazioneListener {
+    public enum GroupBy {
+        ABITAZIONE, HOST, UTENTE
+    }
+
+    private static final PrenotazioneColumns INSTANCE = new PrenotazioneColumns();
+    private static final int INITIAL_CAPACITY = 1024;
+    // righe sotto le quali un task aggrega senza dividersi
+    private static final int SPLIT_THRESHOLD = 1 << 15;
+
+    /**
+     * Vista in sola lettura: le righe oltre size non sono visibili.
+     */
+    private static final class Columns {
+        final int[] id;
+        final int[] utente;
+        final int[] abitazione;
+        final int[] host;
+        final int[] inizio;
+        final int[] fine;
+        final long[] createdAt;
+        final boolean[] cancellata;
+        final int size;
+
+        Columns(int capacity) {
+            this(new int[capacity], new int[capacity], new int[capacity], new int[capacity], new int[capacity],
+                    new int[capacity], new long[capacity], new boolean[capacity], 0);
+        }
+
+        Columns(int[] id, int[] utente, int[] abitazione, int[] host, int[] inizio, int[] fine, long[] createdAt,
+                boolean[] cancellata, int size) {
+            this.id = id;
+            this.utente = utente;
+            this.abitazione = abitazione;
+            this.host = host;
+            this.inizio = inizio;
+            this.fine = fine;
+            this.createdAt = createdAt;
+            this.cancellata = cancellata;
+            this.size = size;
+        }
+
+        Columns withSize(int newSize) {
+            return new Columns(id, utente, abitazione, host, inizio, fine, createdAt, cancellata, newSize);
+        }
+
+        Columns copy(int capacity) {
+            return new Columns(Arrays.copyOf(id, capacity), Arrays.copyOf(utente, capacity),
+                    Arrays.copyOf(abitazione, capacity), Arrays.copyOf(host, capacity), Arrays.copyOf(inizio, capacity),
+                    Arrays.copyOf(fine, capacity), Arrays.copyOf(createdAt, capacity),
+                    Arrays.copyOf(cancellata, capacity), size);
+        }
+
+        int[] keys(GroupBy by) {
+            return switch (by) {
+                case ABITAZIONE -> abitazione;
+                case HOST -> host;
+                case UTENTE -> utente;
+            };
+        }
+    }
+
+    private volatile Columns columns = new Columns(INITIAL_CAPACITY);
+    // id prenotazione -> riga, usata solo dalle scritture
+    private final Map<Integer, Integer> rigaById = new HashMap<>();
+    private int cancellate = 0;
+    private Consumer<Consumer<Prenotazione>> loader = c -> {
+    };
+    private Consumer<Consumer<Abitazione>> abitazioniLoader = c -> {
+    };
+
+    private PrenotazioneColumns() {
+
+    }
+
+    public static PrenotazioneColumns getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Sorgenti usate da reload(), entrambe lette una alla volta: le
+     * prenotazioni (es. PrenotazioneDAO::streamAll) e le abitazioni (es.
+     * AbitazioneDAO::streamAll), da cui si ricava l'host.
+     */
+    public synchronized void setLoader(Consumer<Consumer<Prenotazione>> loader,
+            Consumer<Consumer<Abitazione>> abitazioniLoader) {
+        this.loader = loader;
+        this.abitazioniLoader = abitazioniLoader;
+    }
+
+    @Override
+    public synchronized void reload() {
+        Map<Integer, Integer> hostByAbitazione = new HashMap<>();
+        abitazioniLoader.accept(a -> hostByAbitazione.put(a.getId(), a.getIdHost()));
+        columns = new Columns(INITIAL_CAPACITY);
+        rigaById.clear();
+        cancellate = 0;
+        loader.accept(p -> {
+            Integer idHost = hostByAbitazione.get(p.getAbitazioneId());
+            if (idHost != null) {
+                append(p, idHost);
+            }
+        });
+        log.info("Colonne prenotazioni caricate: {} righe", columns.size);
+    }
+
+    @Override
+    public synchronized void onCreated(Prenotazione p, Abitazione a) {
+        append(p, a.getIdHost());
+    }
+
+    @Override
+    public synchronized void onDeleted(Prenotazione p, Abitazione a) {
+        Integer riga = rigaById.remove(p.getId());
+        if (riga == null) {
+            return;
+        }
+        Columns c = columns;
+        c.cancellata[riga] = true;
+        cancellate++;
+        if (cancellate > INITIAL_CAPACITY && cancellate > c.size / 4) {
+            compact();
+        }
+    }
+
+    public synchronized int size() {
+        return columns.size - cancellate;
+    }
+
+    /**
+     * Prenotazioni e notti per abitazione, host o utente, considerando le
+     * prenotazioni con inizio tra from e to (inclusi). I gruppi sono ordinati
+     * per numero di prenotazioni decrescente e poi per id.
+     */
+    public List<AnalyticsRow> aggregate(GroupBy by, LocalDate from, LocalDate to, int limit) {
+        Columns c = columns;
+        GroupTable table = ForkJoinPool.commonPool()
+                .invoke(new AggregateTask(c, c.keys(by), (int) from.toEpochDay(), (int) to.toEpochDay(), 0, c.size));
+        List<AnalyticsRow> rows = table.toRows();
+        rows.sort(Comparator.comparingLong(AnalyticsRow::getPrenotazioni).reversed()
+                .thenComparingInt(AnalyticsRow::getChiave));
+        return rows.size() > limit ? new ArrayList<>(rows.subList(0, limit)) : rows;
+    }
+
+    // --- Metodi Helper ---
+
+    private void append(Prenotazione p, int idHost) {
+        if (p.getDataInizio() == null || p.getDataFine() == null) {
+            return;
+        }
+        Integer previous = rigaById.remove(p.getId());
+        Columns c = columns;
+        if (previous != null) {
+            c.cancellata[previous] = true;
+            cancellate++;
+        }
+        if (c.size == c.id.length) {
+            c = c.copy(c.size * 2);
+        }
+        int riga = c.size;
+        c.id[riga] = p.getId();
+        c.utente[riga] = p.getUtenteId();
+        c.abitazione[riga] = p.getAbitazioneId();
+        c.host[riga] = idHost;
+        c.inizio[riga] = (int) p.getDataInizio().toEpochDay();
+        c.fine[riga] = (int) p.getDataFine().toEpochDay();
+        c.createdAt[riga] = p.getCreatedAt() == null ? 0
+                : p.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        c.cancellata[riga] = false;
+        rigaById.put(p.getId(), riga);
+        // pubblica la nuova riga dopo averla scritta per intero
+        columns = c.withSize(riga + 1);
+    }
+
+    /**
+     * Riscrive le colonne senza le righe cancellate. Le viste già lette dai
+     * task in corso restano valide perché si lavora su array nuovi.
+     */
+    private void compact() {
+        Columns c = columns;
+        Columns compatte = new Columns(Math.max(INITIAL_CAPACITY, Integer.highestOneBit(c.size - cancellate) * 2));
+        int n = 0;
+        rigaById.clear();
+        for (int i = 0; i < c.size; i++) {
+            if (c.cancellata[i]) {
+                continue;
+            }
+            compatte.id[n] = c.id[i];
+            compatte.utente[n] = c.utente[i];
+            compatte.abitazione[n] = c.abitazione[i];
+            compatte.host[n] = c.host[i];
+            compatte.inizio[n] = c.inizio[i];
+            compatte.fine[n] = c.fine[i];
+            compatte.createdAt[n] = c.createdAt[i];
+            rigaById.put(c.id[i], n);
+            n++;
+        }
+        cancellate = 0;
+        columns = compatte.withSize(n);
+        log.debug("Colonne prenotazioni compattate: {} righe", n);
+    }
+
+    /**
+     * Aggrega le righe [lo, hi) dividendo a metà finché il blocco supera
+     * SPLIT_THRESHOLD, poi unisce le tabelle parziali.
+     */
+    private static final class AggregateTask extends RecursiveTask<GroupTable> {
+        private final Columns c;
+        private final int[] keys;
+        private final int from;
+        private final int to;
+        private final int lo;
+        private final int hi;
+
+        AggregateTask(Columns c, int[] keys, int from, int to, int lo, int hi) {
+            this.c = c;
+            this.keys = keys;
+            this.from = from;
+            this.to = to;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected GroupTable compute() {
+            if (hi - lo <= SPLIT_THRESHOLD) {
+                GroupTable table = new GroupTable(64);
+                for (int i = lo; i < hi; i++) {
+                    int inizio = c.inizio[i];
+                    if (inizio >= from && inizio <= to && !c.cancellata[i]) {
+                        table.add(keys[i], 1, c.fine[i] - inizio);
+                    }
+                }
+                return table;
+            }
+            int mid = (lo + hi) >>> 1;
+            AggregateTask left = new AggregateTask(c, keys, from, to, lo, mid);
+            left.fork();
+            GroupTable right = new AggregateTask(c, keys, from, to, mid, hi).compute();
+            GroupTable leftTable = left.join();
+            if (leftTable.size < right.size) {
+                right.addAll(leftTable);
+                return right;
+            }
+            leftTable.addAll(right);
+            return leftTable;
+        }
+    }
+
+    /**
+     * Tabella hash a indirizzamento aperto chiave int -> (prenotazioni, notti),
+     * senza boxing per riga.
+     */
+    private static final class GroupTable {
+        private int[] keys;
+        private long[] prenotazioni;
+        private long[] notti;
+        private boolean[] used;
+        private int size;
+
+        GroupTable(int capacity) {
+            keys = new int[capacity];
+            prenotazioni = new long[capacity];
+            notti = new long[capacity];
+            used = new boolean[capacity];
+        }
+
+        void add(int key, long nPrenotazioni, long nNotti) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (used[slot] && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (!used[slot]) {
+                used[slot] = true;
+                keys[slot] = key;
+                size++;
+            }
+            prenotazioni[slot] += nPrenotazioni;
+            notti[slot] += nNotti;
+        }
+
+        void addAll(GroupTable other) {
+            for (int i = 0; i < other.keys.length; i++) {
+                if (other.used[i]) {
+                    add(other.keys[i], other.prenotazioni[i], other.notti[i]);
+                }
+            }
+        }
+
+        List<AnalyticsRow> toRows() {
+            List<AnalyticsRow> rows = new ArrayList<>(size);
+            for (int i = 0; i < keys.length; i++) {
+                if (used[i]) {
+                    rows.add(new AnalyticsRow(keys[i], prenotazioni[i], notti[i]));
+                }
+            }
+            return rows;
+        }
+
+        private void resize() {
+            GroupTable bigger = new GroupTable(keys.length * 2);
+            bigger.addAll(this);
+            keys = bigger.keys;
+            prenotazioni = bigger.prenotazioni;
+            notti = bigger.notti;
+            used = bigger.used;
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
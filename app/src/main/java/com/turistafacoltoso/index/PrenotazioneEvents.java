@@ -0,0 +1,59 @@
+package com.turistafacoltoso.index;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.Prenotazione;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Registro statico dei PrenotazioneListener: i service notificano qui le
+ * scritture dopo che sono andate a buon fine sul database.
+ */
+@Slf4j
+public class PrenotazioneEvents {
+    private static final CopyOnWriteArrayList<PrenotazioneListener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private PrenotazioneEvents() {
+
+    }
+
+    public static void register(PrenotazioneListener listener) {
+        LISTENERS.addIfAbsent(listener);
+    }
+
+    public static void unregister(PrenotazioneListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    public static void created(Prenotazione p, Abitazione a) {
+        for (PrenotazioneListener l : LISTENERS) {
+            try {
+                l.onCreated(p, a);
+            } catch (RuntimeException e) {
+                log.error("Listener {} fallito su creazione prenotazione {}", l.getClass().getSimpleName(), p.getId(), e);
+            }
+        }
+    }
+
+    public static void deleted(Prenotazione p, Abitazione a) {
+        for (PrenotazioneListener l : LISTENERS) {
+            try {
+                l.onDeleted(p, a);
+            } catch (RuntimeException e) {
+                log.error("Listener {} fallito su cancellazione prenotazione {}", l.getClass().getSimpleName(), p.getId(), e);
+            }
+        }
+    }
+
+    public static void reload() {
+        for (PrenotazioneListener l : LISTENERS) {
+            try {
+                l.reload();
+            } catch (RuntimeException e) {
+                log.error("Ricaricamento listener {} fallito", l.getClass().getSimpleName(), e);
+            }
+        }
+    }
+}
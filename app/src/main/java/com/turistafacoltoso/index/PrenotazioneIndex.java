@@ -0,0 +1,171 @@
+package com.turistafacoltoso.index;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import com.turistafacoltoso.model.Prenotazione;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Indice in memoria delle prenotazioni: per ogni abitazione un interval tree
+ * dei periodi prenotati [dataInizio, dataFine), così il controllo di
+ * sovrapposizione costa O(log n) senza query al database.
+ *
+ * Caricato all'avvio e aggiornato da PrenotazioneDAOService a ogni
+ * create/update/delete.
+ */
+@Slf4j
+public class PrenotazioneIndex {
+    private static final PrenotazioneIndex INSTANCE = new PrenotazioneIndex();
+
+    // le due mappe sono sostituite insieme da reload()/clear(): chi legge
+    // prende il riferimento una volta e non vede mai un indice a metà
+    private volatile Stato stato = new Stato();
+    private volatile Supplier<List<Prenotazione>> loader = List::of;
+
+    private PrenotazioneIndex() {
+
+    }
+
+    public static PrenotazioneIndex getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Sorgente usata da reload() (tipicamente PrenotazioneDAO::findAll).
+     */
+    public void setLoader(Supplier<List<Prenotazione>> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Ricostruisce l'indice dalla sorgente configurata, es. dopo una
+     * cancellazione a cascata fatta dal database. Il nuovo indice è costruito
+     * a parte e sostituito in un colpo solo; le scritture fatte durante il
+     * caricamento andrebbero perse, quindi il chiamante deve tenere i lock
+     * delle prenotazioni (PrenotazioneDAOService.withAllBookingLocks).
+     */
+    public synchronized void reload() {
+        Stato nuovo = new Stato();
+        for (Prenotazione p : loader.get()) {
+            add(nuovo, p);
+        }
+        stato = nuovo;
+        log.info("Indice prenotazioni caricato: {} prenotazioni su {} abitazioni", nuovo.byId.size(),
+                nuovo.byAbitazione.size());
+    }
+
+    public void add(Prenotazione p) {
+        add(stato, p);
+    }
+
+    public void remove(int idPrenotazione) {
+        Stato s = stato;
+        Prenotazione previous = s.byId.remove(idPrenotazione);
+        if (previous != null) {
+            removeFromTree(s, previous);
+        }
+    }
+
+    public void removeByAbitazione(int idAbitazione) {
+        Stato s = stato;
+        s.byAbitazione.remove(idAbitazione);
+        s.byId.values().removeIf(p -> p.getAbitazioneId() == idAbitazione);
+    }
+
+    public void removeByUtente(int idUtente) {
+        for (Prenotazione p : stato.byId.values()) {
+            if (p.getUtenteId() == idUtente) {
+                remove(p.getId());
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        stato = new Stato();
+    }
+
+    /**
+     * Copia delle prenotazioni che soddisfano filtro (scansione completa, in
+     * memoria): es. quelle che il DB cancellerà a cascata.
+     */
+    public List<Prenotazione> find(Predicate<Prenotazione> filtro) {
+        return stato.byId.values().stream().filter(filtro).map(PrenotazioneIndex::copyOf).toList();
+    }
+
+    public Optional<Prenotazione> get(int idPrenotazione) {
+        Prenotazione p = stato.byId.get(idPrenotazione);
+        return p == null ? Optional.empty() : Optional.of(copyOf(p));
+    }
+
+    /**
+     * true se l'abitazione non ha prenotazioni che si sovrappongono a [inizio, fine).
+     */
+    public boolean isFree(int idAbitazione, LocalDate inizio, LocalDate fine) {
+        return findConflict(idAbitazione, inizio, fine, Integer.MIN_VALUE) == -1;
+    }
+
+    /**
+     * Id della prenotazione in conflitto con [inizio, fine) sull'abitazione,
+     * ignorando quella con id excludeId; -1 se il periodo è libero.
+     */
+    public int findConflict(int idAbitazione, LocalDate inizio, LocalDate fine, int excludeId) {
+        IntervalTree tree = stato.byAbitazione.get(idAbitazione);
+        if (tree == null) {
+            return -1;
+        }
+        synchronized (tree) {
+            return tree.findOverlap(toDay(inizio), toDay(fine), excludeId);
+        }
+    }
+
+    public int size() {
+        return stato.byId.size();
+    }
+
+    // --- Metodi Helper ---
+
+    private static void add(Stato s, Prenotazione p) {
+        Prenotazione copy = copyOf(p);
+        Prenotazione previous = s.byId.put(copy.getId(), copy);
+        if (previous != null) {
+            removeFromTree(s, previous);
+        }
+        IntervalTree tree = s.byAbitazione.computeIfAbsent(copy.getAbitazioneId(), k -> new IntervalTree());
+        synchronized (tree) {
+            tree.insert(copy.getId(), toDay(copy.getDataInizio()), toDay(copy.getDataFine()));
+        }
+    }
+
+    private static void removeFromTree(Stato s, Prenotazione p) {
+        IntervalTree tree = s.byAbitazione.get(p.getAbitazioneId());
+        if (tree != null) {
+            synchronized (tree) {
+                tree.remove(p.getId(), toDay(p.getDataInizio()));
+            }
+        }
+    }
+
+    private static int toDay(LocalDate date) {
+        return (int) date.toEpochDay();
+    }
+
+    private static Prenotazione copyOf(Prenotazione p) {
+        Prenotazione copy = new Prenotazione(p.getDataInizio(), p.getDataFine(), p.getUtenteId(), p.getAbitazioneId(),
+                p.getCreatedAt());
+        copy.setId(p.getId());
+        return copy;
+    }
+
+    private record Stato(Map<Integer, IntervalTree> byAbitazione, Map<Integer, Prenotazione> byId) {
+        Stato() {
+            this(new ConcurrentHashMap<>(), new ConcurrentHashMap<>());
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.turistafacoltoso.index;
+
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.Prenotazione;
+
+/**
+ * Struttura in memoria tenuta aggiornata a ogni scrittura sulle prenotazioni.
+ * Un update arriva come onDeleted della versione precedente seguito da
+ * onCreated della nuova.
+ */
+public interface PrenotazioneListener {
+
+    void onCreated(Prenotazione p, Abitazione a);
+
+    void onDeleted(Prenotazione p, Abitazione a);
+
+    /**
+     * Ricostruzione completa dal database, usata dopo le cancellazioni massive
+     * e le cascate che il servizio non riesce a notificare riga per riga.
+     */
+    void reload();
+}
@@ -0,0 +1,82 @@
+package com.turistafacoltoso.index;
+
+import java.util.Arrays;
+
+/**
+ * Sketch dei quantili a bucket logaritmici (come DDSketch): il bucket i
+ * contiene i valori in (GAMMA^(i-1), GAMMA^i], quindi il quantile restituito
+ * ha un errore relativo di circa 0,5%. A differenza dei sketch a campioni
+ * supporta anche la rimozione di un valore, e la memoria è fissa.
+ *
+ * I valori sono in centesimi, fino a 999999.99 (NUMERIC(8,2)).
+ *
+ * Non è thread-safe: la sincronizzazione è a carico del chiamante.
+ */
+public class PriceSketch {
+    private static final double GAMMA = 1.01;
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final long MAX_CENTESIMI = 99_999_999L;
+    private static final int BUCKETS = index(MAX_CENTESIMI) + 1;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+
+    public void add(long centesimi) {
+        counts[index(centesimi)]++;
+        count++;
+    }
+
+    public void remove(long centesimi) {
+        int i = index(centesimi);
+        if (counts[i] > 0) {
+            counts[i]--;
+            count--;
+        }
+    }
+
+    public void clear() {
+        Arrays.fill(counts, 0);
+        count = 0;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    /**
+     * Valore (in centesimi) al quantile q in [0, 1], -1 se lo sketch è vuoto.
+     */
+    public long quantile(double q) {
+        if (count == 0) {
+            return -1;
+        }
+        long rank = Math.max(1, (long) Math.ceil(q * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return value(i);
+            }
+        }
+        return value(BUCKETS - 1);
+    }
+
+    // --- Metodi Helper ---
+
+    private static int index(long centesimi) {
+        if (centesimi <= 1) {
+            return 0;
+        }
+        return (int) Math.ceil(Math.log(Math.min(centesimi, MAX_CENTESIMI)) / LOG_GAMMA);
+    }
+
+    /**
+     * Punto del bucket con lo stesso errore relativo verso i due estremi.
+     */
+    private static long value(int i) {
+        if (i == 0) {
+            return 1;
+        }
+        return Math.round(2 * Math.pow(GAMMA, i) / (GAMMA + 1));
+    }
+}
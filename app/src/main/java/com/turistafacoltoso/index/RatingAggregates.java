@@ -0,0 +1,273 @@
+package com.turistafacoltoso.index;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.Feedback;
+import com.turistafacoltoso.model.RatingStats;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Punteggi dei feedback aggregati per abitazione e per host: numero, somma e
+ * istogramma 1-5, aggiornati a ogni create/update/delete. La media bayesiana
+ * avvicina alla media globale i gruppi con pochi feedback, come se ognuno
+ * avesse PESO_PRIOR feedback in più pari alla media di tutti.
+ *
+ * L'host di ogni abitazione è tenuto aggiornato dal listener restituito da
+ * abitazioni(), così un cambio di host sposta i punteggi dell'abitazione.
+ *
+ * Abitazione e punteggio contati sono tenuti per id del feedback: una
+ * notifica che arriva dopo un reload che ha già letto (o non ha più trovato)
+ * lo stesso feedback non lo conta una seconda volta.
+ */
+@Slf4j
+public class RatingAggregates implements FeedbackListener {
+    public enum GroupBy {
+        ABITAZIONE, HOST
+    }
+
+    private static final RatingAggregates INSTANCE = new RatingAggregates();
+    private static final int PESO_PRIOR = 10;
+
+    /**
+     * Feedback per punteggio (indice 1-5) con numero e somma.
+     */
+    private static final class Punteggi {
+        final long[] perPunteggio = new long[6];
+        long feedback;
+        long somma;
+
+        void add(int punteggio, long n) {
+            perPunteggio[punteggio] += n;
+            feedback += n;
+            somma += n * punteggio;
+        }
+
+        void addAll(Punteggi other, int sign) {
+            for (int p = 1; p <= 5; p++) {
+                add(p, sign * other.perPunteggio[p]);
+            }
+        }
+
+        double media() {
+            return feedback == 0 ? 0 : (double) somma / feedback;
+        }
+    }
+
+    /**
+     * Contributo di un feedback, per togliere esattamente quello che è stato sommato.
+     */
+    private record Contato(int idAbitazione, int punteggio) {
+    }
+
+    private Punteggi totali = new Punteggi();
+    private final Map<Integer, Contato> contati = new HashMap<>();
+    private final Map<Integer, Punteggi> perAbitazione = new HashMap<>();
+    private final Map<Integer, Punteggi> perHost = new HashMap<>();
+    private final Map<Integer, Integer> hostByAbitazione = new HashMap<>();
+    private final AbitazioneListener abitazioni = new HostMapping();
+    private Consumer<Consumer<Feedback>> loader = c -> {
+    };
+    private Consumer<Consumer<Abitazione>> abitazioniLoader = c -> {
+    };
+
+    private RatingAggregates() {
+
+    }
+
+    public static RatingAggregates getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Listener da registrare su AbitazioneEvents per seguire l'host di ogni
+     * abitazione.
+     */
+    public AbitazioneListener abitazioni() {
+        return abitazioni;
+    }
+
+    /**
+     * Sorgenti usate da reload(): i feedback e le abitazioni letti una riga
+     * alla volta (es. FeedbackDAO::streamAll e AbitazioneDAO::streamAll).
+     */
+    public synchronized void setLoader(Consumer<Consumer<Feedback>> loader,
+            Consumer<Consumer<Abitazione>> abitazioniLoader) {
+        this.loader = loader;
+        this.abitazioniLoader = abitazioniLoader;
+    }
+
+    @Override
+    public synchronized void reload() {
+        hostByAbitazione.clear();
+        abitazioniLoader.accept(a -> hostByAbitazione.put(a.getId(), a.getIdHost()));
+        perAbitazione.clear();
+        perHost.clear();
+        totali = new Punteggi();
+        contati.clear();
+        loader.accept(this::put);
+        log.info("Punteggi feedback caricati: {} feedback su {} abitazioni", totali.feedback, perAbitazione.size());
+    }
+
+    @Override
+    public synchronized void onCreated(Feedback f) {
+        put(f);
+    }
+
+    @Override
+    public synchronized void onDeleted(Feedback f) {
+        Contato contato = contati.remove(f.getId());
+        if (contato != null) {
+            apply(contato, -1);
+        }
+    }
+
+    public synchronized Optional<RatingStats> getAbitazione(int idAbitazione) {
+        return Optional.ofNullable(perAbitazione.get(idAbitazione)).map(p -> toStats(idAbitazione, p));
+    }
+
+    public synchronized Optional<RatingStats> getHost(int idHost) {
+        return Optional.ofNullable(perHost.get(idHost)).map(p -> toStats(idHost, p));
+    }
+
+    /**
+     * Media di tutti i feedback, con due decimali (0 se non ce ne sono).
+     */
+    public synchronized BigDecimal getMediaGlobale() {
+        return scale(totali.media());
+    }
+
+    /**
+     * Le abitazioni o gli host con la media bayesiana più alta; a parità
+     * prima chi ha più feedback, poi l'id più basso.
+     */
+    public synchronized List<RatingStats> getClassifica(GroupBy by, int limit) {
+        Map<Integer, Punteggi> gruppi = by == GroupBy.HOST ? perHost : perAbitazione;
+        double prior = totali.media();
+        List<Map.Entry<Integer, Punteggi>> entries = new ArrayList<>(gruppi.entrySet());
+        entries.sort(Comparator.<Map.Entry<Integer, Punteggi>>comparingDouble(e -> -bayes(e.getValue(), prior))
+                .thenComparingLong(e -> -e.getValue().feedback)
+                .thenComparingInt(Map.Entry::getKey));
+        List<RatingStats> result = new ArrayList<>(Math.min(limit, entries.size()));
+        for (Map.Entry<Integer, Punteggi> e : entries.subList(0, Math.min(limit, entries.size()))) {
+            result.add(toStats(e.getKey(), e.getValue()));
+        }
+        return result;
+    }
+
+    // --- Metodi Helper ---
+
+    private void put(Feedback f) {
+        if (f.getPunteggio() < 1 || f.getPunteggio() > 5) {
+            return;
+        }
+        Contato contato = new Contato(f.getIdAbitazione(), f.getPunteggio());
+        Contato precedente = contati.put(f.getId(), contato);
+        if (precedente != null) {
+            apply(precedente, -1);
+        }
+        apply(contato, 1);
+    }
+
+    private void apply(Contato c, int sign) {
+        int punteggio = c.punteggio();
+        totali.add(punteggio, sign);
+        add(perAbitazione, c.idAbitazione(), punteggio, sign);
+        Integer idHost = hostByAbitazione.get(c.idAbitazione());
+        if (idHost != null) {
+            add(perHost, idHost, punteggio, sign);
+        }
+    }
+
+    private static void add(Map<Integer, Punteggi> gruppi, int id, int punteggio, int sign) {
+        Punteggi p = gruppi.computeIfAbsent(id, k -> new Punteggi());
+        p.add(punteggio, sign);
+        if (p.feedback <= 0) {
+            gruppi.remove(id);
+        }
+    }
+
+    /**
+     * Sposta i punteggi di un'abitazione sull'host indicato (sign 1) o li
+     * toglie dall'host (sign -1).
+     */
+    private void moveHost(int idAbitazione, int idHost, int sign) {
+        Punteggi p = perAbitazione.get(idAbitazione);
+        if (p == null) {
+            return;
+        }
+        Punteggi host = perHost.computeIfAbsent(idHost, k -> new Punteggi());
+        host.addAll(p, sign);
+        if (host.feedback <= 0) {
+            perHost.remove(idHost);
+        }
+    }
+
+    private static double bayes(Punteggi p, double prior) {
+        return (PESO_PRIOR * prior + p.somma) / (PESO_PRIOR + p.feedback);
+    }
+
+    private RatingStats toStats(int id, Punteggi p) {
+        Map<Integer, Long> distribuzione = new LinkedHashMap<>();
+        for (int i = 1; i <= 5; i++) {
+            distribuzione.put(i, p.perPunteggio[i]);
+        }
+        return new RatingStats(id, p.feedback, scale(p.media()), scale(bayes(p, totali.media())), distribuzione);
+    }
+
+    private static BigDecimal scale(double value) {
+        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Segue l'host di ogni abitazione: un update arriva come onDeleted +
+     * onCreated, quindi i punteggi passano dal vecchio al nuovo host.
+     */
+    private final class HostMapping implements AbitazioneListener {
+
+        @Override
+        public void onCreated(Abitazione a) {
+            synchronized (RatingAggregates.this) {
+                hostByAbitazione.put(a.getId(), a.getIdHost());
+                moveHost(a.getId(), a.getIdHost(), 1);
+            }
+        }
+
+        @Override
+        public void onDeleted(Abitazione a) {
+            synchronized (RatingAggregates.this) {
+                Integer idHost = hostByAbitazione.remove(a.getId());
+                if (idHost != null) {
+                    moveHost(a.getId(), idHost, -1);
+                }
+            }
+        }
+
+        /**
+         * Ricarica solo le abitazioni e ricalcola i totali per host da quelli
+         * per abitazione: i feedback cancellati a cascata arrivano con
+         * FeedbackEvents.reload().
+         */
+        @Override
+        public void reload() {
+            synchronized (RatingAggregates.this) {
+                hostByAbitazione.clear();
+                abitazioniLoader.accept(a -> hostByAbitazione.put(a.getId(), a.getIdHost()));
+                perHost.clear();
+                for (Map.Entry<Integer, Integer> e : hostByAbitazione.entrySet()) {
+                    moveHost(e.getKey(), e.getValue(), 1);
+                }
+            }
+        }
+    }
+}
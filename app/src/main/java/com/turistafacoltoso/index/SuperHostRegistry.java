@@ -0,0 +1,183 @@
+package com.turistafacoltoso.index;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.HostStats;
+import com.turistafacoltoso.model.Prenotazione;
+import com.turistafacoltoso.model.ReconcileReport;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Contatori delle prenotazioni per host e insieme dei super-host (host con
+ * almeno "soglia" prenotazioni), aggiornati a ogni create/delete invece di
+ * ricalcolare la GROUP BY su tutto lo storico a ogni lettura.
+ *
+ * La classifica restituita da getSuperHosts() viene ricostruita solo quando
+ * cambia qualcosa tra i super-host; le altre letture sono a costo costante.
+ */
+@Slf4j
+public class SuperHostRegistry implements PrenotazioneListener {
+    public static final int DEFAULT_SOGLIA = 100;
+
+    private static final SuperHostRegistry INSTANCE = new SuperHostRegistry();
+
+    private final Map<Integer, Integer> conteggi = new HashMap<>();
+    private final Map<Integer, String> nomi = new HashMap<>();
+    private final Set<Integer> superHosts = new HashSet<>();
+    private Map<String, Integer> classifica = Map.of();
+    private boolean classificaValida = true;
+    private int soglia = DEFAULT_SOGLIA;
+    private Supplier<List<HostStats>> loader = List::of;
+    private IntFunction<Optional<String>> nameResolver = id -> Optional.empty();
+
+    private SuperHostRegistry() {
+
+    }
+
+    public static SuperHostRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized void setSoglia(int soglia) {
+        if (soglia <= 0) {
+            throw new IllegalArgumentException("superhost.threshold deve essere maggiore di 0");
+        }
+        this.soglia = soglia;
+    }
+
+    /**
+     * Sorgente dei conteggi per host calcolati sulle tabelle (reload e verify).
+     */
+    public synchronized void setLoader(Supplier<List<HostStats>> loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Nome da mostrare per un host non presente all'ultimo reload
+     * (es. registrato dopo l'avvio).
+     */
+    public synchronized void setNameResolver(IntFunction<Optional<String>> nameResolver) {
+        this.nameResolver = nameResolver;
+    }
+
+    @Override
+    public synchronized void reload() {
+        List<HostStats> stats = loader.get();
+        conteggi.clear();
+        nomi.clear();
+        superHosts.clear();
+        for (HostStats s : stats) {
+            conteggi.put(s.getHostId(), s.getTotalePrenotazioni());
+            nomi.put(s.getHostId(), s.getNomeUser() + " " + s.getCognome());
+            if (s.getTotalePrenotazioni() >= soglia) {
+                superHosts.add(s.getHostId());
+            }
+        }
+        classificaValida = false;
+        log.info("Contatori host caricati: {} host, {} super-host (soglia {})", conteggi.size(), superHosts.size(),
+                soglia);
+    }
+
+    @Override
+    public void onCreated(Prenotazione p, Abitazione a) {
+        add(a.getIdHost(), 1);
+    }
+
+    @Override
+    public void onDeleted(Prenotazione p, Abitazione a) {
+        add(a.getIdHost(), -1);
+    }
+
+    /**
+     * Aggiorna il nome mostrato per l'host (dopo un update dei suoi dati).
+     */
+    public synchronized void rename(int hostId, String nomeCompleto) {
+        nomi.put(hostId, nomeCompleto);
+        if (superHosts.contains(hostId)) {
+            classificaValida = false;
+        }
+    }
+
+    public synchronized int getConteggio(int hostId) {
+        return conteggi.getOrDefault(hostId, 0);
+    }
+
+    public synchronized boolean isSuperHost(int hostId) {
+        return superHosts.contains(hostId);
+    }
+
+    /**
+     * Super-host ordinati per numero di prenotazioni (nome completo -> totale).
+     */
+    public synchronized Map<String, Integer> getSuperHosts() {
+        if (!classificaValida) {
+            classifica = buildClassifica();
+            classificaValida = true;
+        }
+        return classifica;
+    }
+
+    /**
+     * Confronta i contatori con i conteggi calcolati sulle tabelle senza
+     * modificarli; per riallinearli usare reload().
+     */
+    public synchronized ReconcileReport verify() {
+        List<HostStats> stats = loader.get();
+        List<Integer> disallineati = new ArrayList<>();
+        Set<Integer> visti = new HashSet<>();
+        for (HostStats s : stats) {
+            visti.add(s.getHostId());
+            if (conteggi.getOrDefault(s.getHostId(), 0) != s.getTotalePrenotazioni()) {
+                disallineati.add(s.getHostId());
+            }
+        }
+        for (Map.Entry<Integer, Integer> e : conteggi.entrySet()) {
+            if (!visti.contains(e.getKey()) && e.getValue() != 0) {
+                disallineati.add(e.getKey());
+            }
+        }
+        if (!disallineati.isEmpty()) {
+            log.warn("Contatori host disallineati per {} host: {}", disallineati.size(), disallineati);
+        }
+        return new ReconcileReport(stats.size(), disallineati, disallineati.isEmpty());
+    }
+
+    // --- Metodi Helper ---
+
+    private synchronized void add(int hostId, int delta) {
+        int count = conteggi.merge(hostId, delta, Integer::sum);
+        if (count < 0) {
+            log.warn("Contatore host {} negativo, riportato a 0", hostId);
+            conteggi.put(hostId, 0);
+            count = 0;
+        }
+        boolean changed = count >= soglia ? superHosts.add(hostId) : superHosts.remove(hostId);
+        if (changed || superHosts.contains(hostId)) {
+            classificaValida = false;
+        }
+    }
+
+    private Map<String, Integer> buildClassifica() {
+        List<Integer> ids = new ArrayList<>(superHosts);
+        ids.sort(Comparator.comparingInt((Integer id) -> conteggi.getOrDefault(id, 0)).reversed());
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (Integer id : ids) {
+            String nome = nomi.computeIfAbsent(id, k -> nameResolver.apply(k).orElse("Host " + k));
+            result.put(nome, conteggi.get(id));
+        }
+        return Collections.unmodifiableMap(result);
+    }
+}
@@ -0,0 +1,25 @@
+package com.turistafacoltoso.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Criteri di /abitazioni/search: i campi null non filtrano. inizio e fine
+ * vanno indicati insieme.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AbitazioneFilter {
+    private Integer nLocali;
+    private Integer minPostiLetto;
+    private BigDecimal prezzoMin;
+    private BigDecimal prezzoMax;
+    private Integer idHost;
+    private LocalDate inizio;
+    private LocalDate fine;
+}
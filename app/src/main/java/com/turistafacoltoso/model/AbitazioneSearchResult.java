@@ -0,0 +1,23 @@
+package com.turistafacoltoso.model;
+
+import java.util.List;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Risposta di /abitazioni/search: il numero totale di abitazioni trovate, la
+ * pagina richiesta (nextCursor come in Page) e i conteggi per faccetta
+ * (nLocali, nPostiLetto, fasciaPrezzo) calcolati su tutti i risultati.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AbitazioneSearchResult {
+    private int totale;
+    private List<Abitazione> items;
+    private Integer nextCursor;
+    private Map<String, Map<String, Integer>> facets;
+}
@@ -0,0 +1,18 @@
+package com.turistafacoltoso.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Un suggerimento di /abitazioni/suggest: solo i campi mostrati nella
+ * casella di ricerca.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AbitazioneSuggestion {
+    private int id;
+    private String nomeAbitazione;
+    private String indirizzoAbitazione;
+}
@@ -0,0 +1,18 @@
+package com.turistafacoltoso.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Un gruppo del risultato di /prenotazioni/analytics: id dell'abitazione,
+ * dell'host o dell'utente, numero di prenotazioni e notti prenotate.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AnalyticsRow {
+    private int chiave;
+    private long prenotazioni;
+    private long notti;
+}
@@ -0,0 +1,27 @@
+package com.turistafacoltoso.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Esito di un singolo elemento di una richiesta batch; index è la posizione
+ * dell'elemento nella richiesta.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchItemResult {
+    private int index;
+    private boolean success;
+    private Integer id;
+    private String error;
+
+    public static BatchItemResult ok(int index, int id) {
+        return new BatchItemResult(index, true, id, null);
+    }
+
+    public static BatchItemResult failed(int index, String error) {
+        return new BatchItemResult(index, false, null, error);
+    }
+}
@@ -0,0 +1,26 @@
+package com.turistafacoltoso.model;
+
+import java.util.Arrays;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Risposta delle richieste batch: totali ed esito per ogni elemento.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchResult {
+    private int totale;
+    private int inseriti;
+    private int falliti;
+    private List<BatchItemResult> risultati;
+
+    public static BatchResult of(BatchItemResult[] risultati) {
+        int inseriti = (int) Arrays.stream(risultati).filter(BatchItemResult::isSuccess).count();
+        return new BatchResult(risultati.length, inseriti, risultati.length - inseriti, Arrays.asList(risultati));
+    }
+}
@@ -0,0 +1,16 @@
+package com.turistafacoltoso.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Un risultato di /feedbacks/search: il feedback e la sua rilevanza (BM25).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class FeedbackSearchHit {
+    private Feedback feedback;
+    private double rilevanza;
+}
@@ -0,0 +1,21 @@
+package com.turistafacoltoso.model;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Medie sulle abitazioni di un host.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class HostInventoryStats {
+    private int idHost;
+    private long abitazioni;
+    private BigDecimal mediaLocali;
+    private BigDecimal mediaPostiLetto;
+    private BigDecimal mediaPrezzoPerNotte;
+}
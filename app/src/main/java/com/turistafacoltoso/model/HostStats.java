@@ -0,0 +1,18 @@
+package com.turistafacoltoso.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Numero di prenotazioni ricevute da un host su tutte le sue abitazioni.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class HostStats {
+    private int hostId;
+    private String nomeUser;
+    private String cognome;
+    private int totalePrenotazioni;
+}
@@ -0,0 +1,40 @@
+package com.turistafacoltoso.model;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Stato di un import in blocco. Aggiornato dal worker durante l'esecuzione e
+ * letto dalle richieste di avanzamento (GET /api/v1/import/{id}).
+ */
+@Data
+@NoArgsConstructor
+public class ImportJob {
+    public enum Stato {
+        IN_CODA, IN_CORSO, COMPLETATO, FALLITO
+    }
+
+    public enum Fase {
+        CARICAMENTO, VALIDAZIONE, MERGE, AGGIORNAMENTO_INDICI
+    }
+
+    private String id;
+    private ImportTipo tipo;
+    private String formato;
+    private volatile Stato stato;
+    private volatile Fase fase;
+    private long byteTotali;
+    private volatile long byteLetti;
+    private volatile long righeLette;
+    private volatile long righeImportate;
+    private volatile long righeScartate;
+    // al massimo i primi ImportDAOImpl.MAX_SCARTI, in ordine di riga
+    private volatile List<ImportScarto> scarti = List.of();
+    private LocalDateTime creatoIl;
+    private volatile LocalDateTime avviatoIl;
+    private volatile LocalDateTime completatoIl;
+    private volatile String errore;
+}
@@ -0,0 +1,17 @@
+package com.turistafacoltoso.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Record scartato da un import: posizione tra i record del file (dalla 1,
+ * header escluso) e motivo.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportScarto {
+    private long riga;
+    private String motivo;
+}
@@ -0,0 +1,67 @@
+package com.turistafacoltoso.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Entità importabili in blocco, con la tabella di destinazione e le colonne
+ * accettate nei file (stessi nomi delle colonne del DB).
+ */
+public enum ImportTipo {
+    UTENTI("utente", List.of("nome_user", "cognome", "email", "indirizzo_user")),
+    ABITAZIONI("abitazione", List.of("nome_abitazione", "indirizzo_abitazione", "n_locali", "n_posti_letto",
+            "prezzo_per_notte", "disponibilita_inizio", "disponibilita_fine", "id_host")),
+    PRENOTAZIONI("prenotazione", List.of("utente_id", "abitazione_id", "data_inizio", "data_fine"));
+
+    private final String tabella;
+    private final List<String> colonne;
+
+    ImportTipo(String tabella, List<String> colonne) {
+        this.tabella = tabella;
+        this.colonne = colonne;
+    }
+
+    public String getTabella() {
+        return tabella;
+    }
+
+    public List<String> getColonne() {
+        return colonne;
+    }
+
+    /**
+     * Tipo dal parametro di path (es. "abitazioni").
+     */
+    public static ImportTipo fromPath(String value) {
+        try {
+            return valueOf(value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Tipo di import non valido: " + value
+                    + " (ammessi: utenti, abitazioni, prenotazioni)");
+        }
+    }
+
+    /**
+     * Colonne nell'ordine dell'header CSV; quelle mancanti resteranno vuote e
+     * le righe saranno scartate dalla validazione.
+     */
+    public List<String> colonneDaHeader(String header) {
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1);
+        }
+        List<String> result = new ArrayList<>();
+        for (String campo : header.split(",", -1)) {
+            String nome = campo.trim().replace("\"", "").toLowerCase(Locale.ROOT);
+            if (!colonne.contains(nome)) {
+                throw new IllegalArgumentException("Colonna sconosciuta nell'header: '" + nome + "' (ammesse: "
+                        + String.join(", ", colonne) + ")");
+            }
+            if (result.contains(nome)) {
+                throw new IllegalArgumentException("Colonna ripetuta nell'header: " + nome);
+            }
+            result.add(nome);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,20 @@
+package com.turistafacoltoso.model;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Medie sull'intero inventario delle abitazioni.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class InventorySummary {
+    private long totaleAbitazioni;
+    private BigDecimal mediaLocali;
+    private BigDecimal mediaPostiLetto;
+    private BigDecimal mediaPrezzoPerNotte;
+}
@@ -0,0 +1,32 @@
+package com.turistafacoltoso.model;
+
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Pagina di risultati per la paginazione keyset: nextCursor è l'id da
+ * passare come ?after= per la pagina successiva (null se non ce ne sono altre).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class Page<T> {
+    private List<T> items;
+    private Integer nextCursor;
+
+    /**
+     * Costruisce la pagina a partire da limit + 1 righe lette dal DAO:
+     * la riga in più serve solo a sapere se esiste una pagina successiva.
+     */
+    public static <T> Page<T> of(List<T> rows, int limit, ToIntFunction<T> idOf) {
+        if (rows.size() <= limit) {
+            return new Page<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new Page<>(items, idOf.applyAsInt(items.get(limit - 1)));
+    }
+}
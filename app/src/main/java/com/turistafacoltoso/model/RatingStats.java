@@ -0,0 +1,24 @@
+package com.turistafacoltoso.model;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Punteggi dei feedback di un'abitazione o di un host: numero, media,
+ * media bayesiana (usata per la classifica) e quanti feedback per ogni
+ * punteggio da 1 a 5.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RatingStats {
+    private int id;
+    private long feedback;
+    private BigDecimal media;
+    private BigDecimal mediaBayesiana;
+    private Map<Integer, Long> distribuzione;
+}
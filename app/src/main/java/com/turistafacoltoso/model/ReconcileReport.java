@@ -0,0 +1,19 @@
+package com.turistafacoltoso.model;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Esito del confronto tra i contatori in memoria e le tabelle del database.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReconcileReport {
+    private int entitaVerificate;
+    private List<Integer> idDisallineati;
+    private boolean allineato;
+}
@@ -0,0 +1,23 @@
+package com.turistafacoltoso.model;
+
+import java.time.LocalDate;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Variazione da sommare alla riga (giorno, abitazione, utente) di
+ * prenotazione_rollup: +1/-1 prenotazioni e le relative notti.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RollupDelta {
+    private LocalDate giorno;
+    private int abitazioneId;
+    private int hostId;
+    private int utenteId;
+    private int prenotazioni;
+    private int notti;
+}
@@ -11,9 +11,11 @@ import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import com.turistafacoltoso.model.Abitazione;
 import com.turistafacoltoso.repository.dao.AbitazioneDAO;
+import com.turistafacoltoso.util.DBHelper;
 import com.turistafacoltoso.util.DataBaseConnection;
 
 import lombok.extern.slf4j.Slf4j;
@@ -22,7 +24,9 @@ import lombok.extern.slf4j.Slf4j;
 public class AbitazioneDAOImpl implements AbitazioneDAO {
 
     private static final String INSERT_QUERY = "INSERT INTO abitazione (nome_abitazione, indirizzo_abitazione, n_locali, n_posti_letto, prezzo_per_notte, disponibilita_inizio, disponibilita_fine, id_host) VALUES (?, ?, ?, ?, ?, ?, ?, ?) RETURNING id";
+    private static final String INSERT_BATCH = "INSERT INTO abitazione (nome_abitazione, indirizzo_abitazione, n_locali, n_posti_letto, prezzo_per_notte, disponibilita_inizio, disponibilita_fine, id_host) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
     private static final String SELECT_ALL = "SELECT * FROM abitazione";
+    private static final String SELECT_PAGE = "SELECT * FROM abitazione WHERE id > ? ORDER BY id LIMIT ?";
     private static final String SELECT_BY_ID = "SELECT * FROM abitazione WHERE id = ?";
     private static final String SELECT_BY_N_LOCALI = "SELECT * FROM abitazione WHERE n_locali = ?";
     private static final String SELECT_BY_NOME = "SELECT * FROM abitazione WHERE nome_abitazione = ?";
@@ -54,18 +58,33 @@ public class AbitazioneDAOImpl implements AbitazioneDAO {
         }
     }
 
+    @Override
+    public List<Abitazione> createBatch(List<Abitazione> abitazioni) {
+        log.info("Inserimento batch di {} abitazioni", abitazioni.size());
+        try {
+            int[] ids = DBHelper.insertBatch(INSERT_BATCH, abitazioni, this::mapAbitazioneToStatement);
+            for (int i = 0; i < ids.length; i++) {
+                abitazioni.get(i).setId(ids[i]);
+            }
+            return abitazioni;
+        } catch (SQLException e) {
+            log.error("Errore durante l'inserimento batch delle abitazioni: ", e);
+            throw new RuntimeException("Errore Database (createBatch)", e);
+        }
+    }
+
     @Override
     public List<Abitazione> findAll() {
-        log.info("Recupero lista completa abitazioni");
+        log.debug("Recupero lista completa abitazioni");
         List<Abitazione> lista = new ArrayList<>();
-        try (Connection conn = DataBaseConnection.getConnection();
+        try (Connection conn = DataBaseConnection.getReadConnection();
                 Statement st = conn.createStatement();
                 ResultSet rs = st.executeQuery(SELECT_ALL)) {
 
             while (rs.next()) {
                 lista.add(mapResultSetToAbitazione(rs));
             }
-            log.info("Trovate {} abitazioni", lista.size());
+            log.debug("Trovate {} abitazioni", lista.size());
         } catch (SQLException e) {
             log.error("Errore findAll: ", e);
             throw new RuntimeException(e);
@@ -73,11 +92,42 @@ public class AbitazioneDAOImpl implements AbitazioneDAO {
         return lista;
     }
 
+    @Override
+    public List<Abitazione> findPage(int afterId, int limit) {
+        log.debug("Recupero pagina abitazioni dopo ID {} (limit {})", afterId, limit);
+        List<Abitazione> lista = new ArrayList<>();
+        try (Connection conn = DataBaseConnection.getReadConnection();
+                PreparedStatement ps = conn.prepareStatement(SELECT_PAGE)) {
+            ps.setInt(1, afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    lista.add(mapResultSetToAbitazione(rs));
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Errore findPage: ", e);
+            throw new RuntimeException(e);
+        }
+        return lista;
+    }
+
+    @Override
+    public void streamAll(Consumer<Abitazione> consumer) {
+        try {
+            long rows = DBHelper.stream(SELECT_ALL, AbitazioneDAOImpl::mapResultSetToAbitazione, consumer);
+            log.info("Export abitazioni completato: {} righe", rows);
+        } catch (SQLException e) {
+            log.error("Errore durante l'export abitazioni: ", e);
+            throw new RuntimeException("Errore nell'export abitazioni", e);
+        }
+    }
+
     @Override
     public List<Abitazione> findByHostId(int idHost) {
-        log.info("Ricerca abitazioni per HostID: {}", idHost);
+        log.debug("Ricerca abitazioni per HostID: {}", idHost);
         List<Abitazione> result = new ArrayList<>();
-        try (Connection conn = DataBaseConnection.getConnection();
+        try (Connection conn = DataBaseConnection.getReadConnection();
                 PreparedStatement ps = conn.prepareStatement(FIND_QUERY_BY_HOST_ID)) {
             ps.setInt(1, idHost);
             try (ResultSet rs = ps.executeQuery()) {
@@ -99,9 +149,9 @@ public class AbitazioneDAOImpl implements AbitazioneDAO {
 
     @Override
     public List<Abitazione> findByNLocali(Integer number) {
-        log.info("Ricerca abitazioni con {} locali", number);
+        log.debug("Ricerca abitazioni con {} locali", number);
         List<Abitazione> result = new ArrayList<>();
-        try (Connection conn = DataBaseConnection.getConnection();
+        try (Connection conn = DataBaseConnection.getReadConnection();
                 PreparedStatement ps = conn.prepareStatement(SELECT_BY_N_LOCALI)) {
             ps.setInt(1, number);
             try (ResultSet rs = ps.executeQuery()) {
@@ -117,10 +167,10 @@ public class AbitazioneDAOImpl implements AbitazioneDAO {
 
     @Override
     public List<Abitazione> findByNomeAbitazione(String name) {
-        log.info("ricerca abitazioni per nome {}", name);
+        log.debug("ricerca abitazioni per nome {}", name);
         List<Abitazione> lA = new ArrayList<>();
 
-        try (Connection conn = DataBaseConnection.getConnection();
+        try (Connection conn = DataBaseConnection.getReadConnection();
                 PreparedStatement ps = conn.prepareStatement(SELECT_BY_NOME)) {
             ps.setString(1, name);
             try (ResultSet rs = ps.executeQuery()) {
@@ -136,9 +186,9 @@ public class AbitazioneDAOImpl implements AbitazioneDAO {
 
     @Override
     public List<Abitazione> findByDataDisponibilita(LocalDate dataInizio, LocalDate dataFine) {
-        log.info("Ricerca abitazioni disponibili tra {} e {}", dataInizio, dataFine);
+        log.debug("Ricerca abitazioni disponibili tra {} e {}", dataInizio, dataFine);
         List<Abitazione> result = new ArrayList<>();
-        try (Connection conn = DataBaseConnection.getConnection();
+        try (Connection conn = DataBaseConnection.getReadConnection();
                 PreparedStatement ps = conn.prepareStatement(SELECT_BY_DISPONIBILITA)) {
 
             ps.setDate(1, Date.valueOf(dataInizio));
@@ -165,7 +215,7 @@ public class AbitazioneDAOImpl implements AbitazioneDAO {
                 "ORDER BY num_prenotazioni DESC " +
                 "LIMIT 1";
 
-        try (Connection conn = DataBaseConnection.getConnection();
+        try (Connection conn = DataBaseConnection.getReadConnection();
                 PreparedStatement ps = conn.prepareStatement(sql);
                 ResultSet rs = ps.executeQuery()) {
 
@@ -184,15 +234,15 @@ public class AbitazioneDAOImpl implements AbitazioneDAO {
     public BigDecimal getMediaPostiLetto() {
         String sql = "SELECT AVG(n_posti_letto)::NUMERIC(10,2) AS media_posti_letto FROM public.abitazione";
 
-        log.info("Calcolo media posti letto su tutte le abitazioni");
+        log.debug("Calcolo media posti letto su tutte le abitazioni");
 
-        try (Connection conn = DataBaseConnection.getConnection();
+        try (Connection conn = DataBaseConnection.getReadConnection();
                 Statement st = conn.createStatement();
                 ResultSet rs = st.executeQuery(sql)) {
 
             if (rs.next()) {
                 BigDecimal media = rs.getBigDecimal("media_posti_letto");
-                log.info("Media calcolata: {}", media);
+                log.debug("Media calcolata: {}", media);
                 return media != null ? media : BigDecimal.ZERO;
             }
         } catch (SQLException e) {
@@ -275,7 +325,7 @@ public class AbitazioneDAOImpl implements AbitazioneDAO {
         ps.setInt(8, a.getIdHost());
     }
 
-    private Abitazione mapResultSetToAbitazione(ResultSet rs) throws SQLException {
+    static Abitazione mapResultSetToAbitazione(ResultSet rs) throws SQLException {
         Abitazione a = new Abitazione();
         a.setId(rs.getInt("id"));
         a.setNomeAbitazione(rs.getString("nome_abitazione"));
@@ -290,7 +340,7 @@ public class AbitazioneDAOImpl implements AbitazioneDAO {
     }
 
     private Optional<Abitazione> findSingleByParam(String query, Object param) {
-        try (Connection conn = DataBaseConnection.getConnection();
+        try (Connection conn = DataBaseConnection.getReadConnection();
                 PreparedStatement ps = conn.prepareStatement(query)) {
             ps.setObject(1, param);
             try (ResultSet rs = ps.executeQuery()) {
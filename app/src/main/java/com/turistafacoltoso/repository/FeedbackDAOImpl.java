@@ -8,9 +8,11 @@ import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import com.turistafacoltoso.model.Feedback;
 import com.turistafacoltoso.repository.dao.FeedbackDAO;
+import com.turistafacoltoso.util.DBHelper;
 import com.turistafacoltoso.util.DataBaseConnection;
 
 import lombok.extern.slf4j.Slf4j;
@@ -18,12 +20,17 @@ import lombok.extern.slf4j.Slf4j;
 public class FeedbackDAOImpl implements FeedbackDAO {
     private static final String INSERT_QUERY = "INSERT INTO feedback (id_utente,id_abitazione, titolo, testo, punteggio, prenotazione_id) VALUES (?,?, ?, ?, ?, ?) RETURNING id";
     private static final String SELECT_ALL = "SELECT * FROM feedback";
+    private static final String SELECT_PAGE = "SELECT * FROM feedback WHERE id > ? ORDER BY id LIMIT ?";
     private static final String SELECT_BY_ID = "SELECT * FROM feedback WHERE id = ?";
+    private static final String SELECT_BY_IDS = "SELECT * FROM feedback WHERE id = ANY(?)";
     private static final String SELECT_BY_ABITAZIONE = "SELECT * FROM feedback WHERE id_abitazione = ?";
     private static final String SELECT_BY_PUNTEGGIO = "SELECT * FROM feedback WHERE punteggio = ?";
+    private static final String SELECT_BY_PRENOTAZIONE = "SELECT * FROM feedback WHERE prenotazione_id = ?";
+    private static final String SELECT_BY_PRENOTAZIONI = "SELECT * FROM feedback WHERE prenotazione_id = ANY(?)";
     private static final String UPDATE_QUERY = "UPDATE feedback SET id_utente = ?, id_abitazione = ?, titolo = ?, testo = ?, punteggio = ?, prenotazione_id = ? WHERE id = ?";
     private static final String DELETE_ALL = "DELETE FROM feedback";
     private static final String DELETE_BY_ID = "DELETE FROM feedback WHERE id = ?";
+    private static final String DELETE_RETURNING = "DELETE FROM feedback WHERE id = ? RETURNING *";
 
     @Override
     public Feedback create(Feedback f) {
@@ -54,7 +61,7 @@ public class FeedbackDAOImpl implements FeedbackDAO {
     @Override
     public List<Feedback> findAll() {
         List<Feedback> list = new ArrayList<>();
-        try (Connection conn = DataBaseConnection.getConnection();
+        try (Connection conn = DataBaseConnection.getReadConnection();
              Statement st = conn.createStatement();
              ResultSet rs = st.executeQuery(SELECT_ALL)) {
             while (rs.next()) {
@@ -66,9 +73,38 @@ public class FeedbackDAOImpl implements FeedbackDAO {
         return list;
     }
 
+    @Override
+    public List<Feedback> findPage(int afterId, int limit) {
+        List<Feedback> list = new ArrayList<>();
+        try (Connection conn = DataBaseConnection.getReadConnection();
+             PreparedStatement ps = conn.prepareStatement(SELECT_PAGE)) {
+            ps.setInt(1, afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    list.add(mapResultSetToFeedback(rs));
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Errore findPage feedback dopo id {}: ", afterId, e);
+        }
+        return list;
+    }
+
+    @Override
+    public void streamAll(Consumer<Feedback> consumer) {
+        try {
+            long rows = DBHelper.stream(SELECT_ALL, this::mapResultSetToFeedback, consumer);
+            log.info("Export feedback completato: {} righe", rows);
+        } catch (SQLException e) {
+            log.error("Errore durante l'export feedback: ", e);
+            throw new RuntimeException("Errore nell'export feedback", e);
+        }
+    }
+
     @Override
     public Optional<Feedback> findById(Integer id) {
-        try (Connection conn = DataBaseConnection.getConnection();
+        try (Connection conn = DataBaseConnection.getReadConnection();
              PreparedStatement ps = conn.prepareStatement(SELECT_BY_ID)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
@@ -82,11 +118,31 @@ public class FeedbackDAOImpl implements FeedbackDAO {
         return Optional.empty();
     }
 
+    @Override
+    public List<Feedback> findByIds(List<Integer> ids) {
+        List<Feedback> list = new ArrayList<>();
+        if (ids.isEmpty()) {
+            return list;
+        }
+        try (Connection conn = DataBaseConnection.getReadConnection();
+             PreparedStatement ps = conn.prepareStatement(SELECT_BY_IDS)) {
+            ps.setArray(1, conn.createArrayOf("integer", ids.toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    list.add(mapResultSetToFeedback(rs));
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Errore findByIds feedback: ", e);
+        }
+        return list;
+    }
+
     @Override
     public List<Feedback> findByIdHost(Integer idAbitazione) {
-        log.info("Recupero feedback per abitazione id: {}", idAbitazione);
+        log.debug("Recupero feedback per abitazione id: {}", idAbitazione);
         List<Feedback> list = new ArrayList<>();
-        try (Connection conn = DataBaseConnection.getConnection();
+        try (Connection conn = DataBaseConnection.getReadConnection();
              PreparedStatement ps = conn.prepareStatement(SELECT_BY_ABITAZIONE)) {
             ps.setInt(1, idAbitazione);
             try (ResultSet rs = ps.executeQuery()) {
@@ -103,7 +159,7 @@ public class FeedbackDAOImpl implements FeedbackDAO {
     @Override
     public List<Feedback> findByPunteggio(Integer number) {
         List<Feedback> list = new ArrayList<>();
-        try (Connection conn = DataBaseConnection.getConnection();
+        try (Connection conn = DataBaseConnection.getReadConnection();
              PreparedStatement ps = conn.prepareStatement(SELECT_BY_PUNTEGGIO)) {
             ps.setInt(1, number);
             try (ResultSet rs = ps.executeQuery()) {
@@ -117,6 +173,43 @@ public class FeedbackDAOImpl implements FeedbackDAO {
         return list;
     }
 
+    @Override
+    public List<Feedback> findByPrenotazione(Integer prenotazioneId) {
+        List<Feedback> list = new ArrayList<>();
+        try (Connection conn = DataBaseConnection.getReadConnection();
+             PreparedStatement ps = conn.prepareStatement(SELECT_BY_PRENOTAZIONE)) {
+            ps.setInt(1, prenotazioneId);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    list.add(mapResultSetToFeedback(rs));
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Errore findByPrenotazione {}: ", prenotazioneId, e);
+        }
+        return list;
+    }
+
+    @Override
+    public List<Feedback> findByPrenotazioni(List<Integer> prenotazioneIds) {
+        List<Feedback> list = new ArrayList<>();
+        if (prenotazioneIds.isEmpty()) {
+            return list;
+        }
+        try (Connection conn = DataBaseConnection.getReadConnection();
+             PreparedStatement ps = conn.prepareStatement(SELECT_BY_PRENOTAZIONI)) {
+            ps.setArray(1, conn.createArrayOf("integer", prenotazioneIds.toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    list.add(mapResultSetToFeedback(rs));
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Errore findByPrenotazioni feedback: ", e);
+        }
+        return list;
+    }
+
     @Override
     public Optional<Feedback> update(Feedback f) {
         try (Connection conn = DataBaseConnection.getConnection();
@@ -160,6 +253,20 @@ public class FeedbackDAOImpl implements FeedbackDAO {
         }
     }
 
+    @Override
+    public Optional<Feedback> deleteReturning(Integer id) {
+        try (Connection conn = DataBaseConnection.getConnection();
+             PreparedStatement ps = conn.prepareStatement(DELETE_RETURNING)) {
+            ps.setInt(1, id);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? Optional.of(mapResultSetToFeedback(rs)) : Optional.empty();
+            }
+        } catch (SQLException e) {
+            log.error("Errore deleteReturning feedback {}: ", id, e);
+            return Optional.empty();
+        }
+    }
+
     private Feedback mapResultSetToFeedback(ResultSet rs) throws SQLException {
         Feedback f = new Feedback();
         f.setId(rs.getInt("id"));
@@ -9,9 +9,13 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import com.turistafacoltoso.exception.DuplicateHostException;
 import com.turistafacoltoso.model.Host;
+import com.turistafacoltoso.model.HostStats;
 import com.turistafacoltoso.repository.dao.HostDAO;
+import com.turistafacoltoso.util.DBHelper;
 import com.turistafacoltoso.util.DataBaseConnection;
 import com.turistafacoltoso.util.DataConverter;
 
@@ -19,26 +23,30 @@ import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class HostDAOImpl implements HostDAO {
+    private static final String SELECT_ALL = "SELECT h.id AS host_id,h.id_utente,h.data_registrazione_host,u.nome_user,u.cognome,u.email,u.indirizzo_user FROM host h JOIN utente u ON h.id_utente = u.id";
 
     @Override
     public Host create(Host h) {
-        String sql = "INSERT INTO host(id_utente) VALUES(?) RETURNING id, data_registrazione_host";
+        String sql = "INSERT INTO host(id_utente) VALUES(?) ON CONFLICT (id_utente) DO NOTHING "
+                + "RETURNING id, data_registrazione_host";
 
         try (Connection conn = DataBaseConnection.getConnection();
                 PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, h.getIdUtente());
 
             ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                h.setId(rs.getInt("id"));
-                h.setDataRegistrazione(
-                        DataConverter.convertLocalDateTimeFromTimestamp(rs.getTimestamp("data_registrazione_host")));
+            if (!rs.next()) {
+                // nessuna riga inserita: esiste già un host per l'utente
+                throw new DuplicateHostException(h.getIdUtente());
             }
+            h.setId(rs.getInt("id"));
+            h.setDataRegistrazione(
+                    DataConverter.convertLocalDateTimeFromTimestamp(rs.getTimestamp("data_registrazione_host")));
         } catch (SQLException ex) {
-            log.error("Errore creazione host: {}", ex);
+            log.error("Errore creazione host: ", ex);
             throw new RuntimeException("SQLException", ex);
         }
-        log.info("host : {} creato con successo", h.toString());
+        log.info("host : {} creato con successo", h);
         return h;
     }
 
@@ -46,7 +54,7 @@ public class HostDAOImpl implements HostDAO {
     public Map<String, Integer> findTopHostsLastMonth() {
         String sql = "SELECT u.nome_user, u.cognome, COUNT(p.id) as totale_prenotazioni " +
                 "FROM public.host h " +
-                "JOIN public.utente u ON h.id = u.id " + 
+                "JOIN public.utente u ON h.id_utente = u.id " +
                 "JOIN public.abitazione a ON h.id = a.id_host " +
                 "JOIN public.prenotazione p ON a.id = p.abitazione_id " +
                 "WHERE p.data_inizio >= CURRENT_DATE - INTERVAL '1 month' " +
@@ -55,7 +63,7 @@ public class HostDAOImpl implements HostDAO {
 
         Map<String, Integer> ranking = new LinkedHashMap<>();
 
-        try (Connection conn = DataBaseConnection.getConnection();
+        try (Connection conn = DataBaseConnection.getReadConnection();
                 PreparedStatement ps = conn.prepareStatement(sql);
                 ResultSet rs = ps.executeQuery()) {
 
@@ -64,7 +72,7 @@ public class HostDAOImpl implements HostDAO {
                 int prenotazioni = rs.getInt("totale_prenotazioni");
 
                 ranking.put(nomeCompleto, prenotazioni);
-                log.info("Host in classifica: {} - Prenotazioni: {}", nomeCompleto, prenotazioni);
+                log.trace("Host in classifica: {} - Prenotazioni: {}", nomeCompleto, prenotazioni);
             }
 
         } catch (SQLException ex) {
@@ -76,41 +84,39 @@ public class HostDAOImpl implements HostDAO {
     }
 
     @Override
-    public Map<String, Integer> findAllSuperHosts() {
-        String sql = "SELECT u.nome_user, u.cognome, sh.totale_prenotazioni " +
-                "FROM super_host sh " +
-                "JOIN public.utente u ON sh.host_id = u.id " +
-                "ORDER BY sh.totale_prenotazioni DESC";
+    public List<HostStats> countPrenotazioniPerHost() {
+        String sql = "SELECT h.id AS host_id, u.nome_user, u.cognome, COUNT(p.id) AS totale_prenotazioni " +
+                "FROM host h " +
+                "JOIN utente u ON h.id_utente = u.id " +
+                "LEFT JOIN abitazione a ON a.id_host = h.id " +
+                "LEFT JOIN prenotazione p ON p.abitazione_id = a.id " +
+                "GROUP BY h.id, u.nome_user, u.cognome";
 
-        Map<String, Integer> superHostStats = new LinkedHashMap<>();
+        List<HostStats> stats = new ArrayList<>();
 
-        try (Connection conn = DataBaseConnection.getConnection();
+        try (Connection conn = DataBaseConnection.getReadConnection();
                 PreparedStatement ps = conn.prepareStatement(sql);
                 ResultSet rs = ps.executeQuery()) {
 
             while (rs.next()) {
-                String nomeUser = rs.getString("nome_user") + " " + rs.getString("cognome");
-                int totale = rs.getInt("totale_prenotazioni");
-
-                superHostStats.put(nomeUser, totale);
-                log.info("SuperHost caricato: {} con {} prenotazioni", nomeUser, totale);
+                stats.add(new HostStats(rs.getInt("host_id"), rs.getString("nome_user"), rs.getString("cognome"),
+                        rs.getInt("totale_prenotazioni")));
             }
 
         } catch (SQLException e) {
-            log.error("Errore durante il recupero dei SuperHost: ", e);
-            throw new RuntimeException("Errore SQL vista super_host", e);
+            log.error("Errore nel conteggio prenotazioni per host: ", e);
+            throw new RuntimeException("Errore SQL (countPrenotazioniPerHost)", e);
         }
 
-        return superHostStats;
+        return stats;
     }
 
     @Override
     public List<Host> findAll() {
         List<Host> listaHost = new ArrayList<>();
-        String sql = "SELECT h.id AS host_id,h.id_utente,h.data_registrazione_host,u.nome_user,u.cognome,u.email,u.indirizzo_user FROM host h JOIN utente u ON h.id_utente = u.id";
 
-        try (Connection conn = DataBaseConnection.getConnection();
-                PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (Connection conn = DataBaseConnection.getReadConnection();
+                PreparedStatement ps = conn.prepareStatement(SELECT_ALL)) {
 
             ResultSet rs = ps.executeQuery();
             while (rs.next()) {
@@ -132,14 +138,46 @@ public class HostDAOImpl implements HostDAO {
             throw new RuntimeException("SQLException", ex);
         }
 
-        log.info("Lista host trovata: {}", listaHost.size());
+        log.debug("Lista host trovata: {}", listaHost.size());
+        return listaHost;
+    }
+
+    @Override
+    public List<Host> findPage(int afterId, int limit) {
+        List<Host> listaHost = new ArrayList<>();
+        String sql = "SELECT h.id AS host_id,h.id_utente,h.data_registrazione_host,u.nome_user,u.cognome,u.email,u.indirizzo_user FROM host h JOIN utente u ON h.id_utente = u.id WHERE h.id > ? ORDER BY h.id LIMIT ?";
+
+        try (Connection conn = DataBaseConnection.getReadConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    listaHost.add(mapResultSetToHost(rs));
+                }
+            }
+        } catch (SQLException ex) {
+            log.error("Errore nel recupero pagina host dopo id {}", afterId, ex);
+            throw new RuntimeException("SQLException", ex);
+        }
         return listaHost;
     }
 
+    @Override
+    public void streamAll(Consumer<Host> consumer) {
+        try {
+            long rows = DBHelper.stream(SELECT_ALL, HostDAOImpl::mapResultSetToHost, consumer);
+            log.info("Export host completato: {} righe", rows);
+        } catch (SQLException e) {
+            log.error("Errore durante l'export host: ", e);
+            throw new RuntimeException("Errore nell'export host", e);
+        }
+    }
+
     @Override
     public Optional<Host> findById(Integer id) {
         String sql = "SELECT h.id AS host_id,h.id_utente,h.data_registrazione_host,u.nome_user,u.cognome,u.email,u.indirizzo_user FROM host h JOIN utente u ON h.id_utente = u.id WHERE h.id = ? LIMIT 1 ";
-        try (Connection conn = DataBaseConnection.getConnection();
+        try (Connection conn = DataBaseConnection.getReadConnection();
                 PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, id);
             ResultSet rs = ps.executeQuery();
@@ -153,11 +191,29 @@ public class HostDAOImpl implements HostDAO {
                 h.setCognome(rs.getString("cognome"));
                 h.setEmail(rs.getString("email"));
                 h.setIndirizzoUser(rs.getString("indirizzo_user"));
-                log.info("Utente trovato: {}", h.toString());
+                log.debug("Host trovato: {}", h);
                 return Optional.of(h);
             }
         } catch (SQLException ex) {
-            log.error("Errore durante il findById di Utente: {} ", ex);
+            log.error("Errore durante il findById di Host: ", ex);
+            throw new RuntimeException("SQLException: ", ex);
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<Host> findByIdUtente(int idUtente) {
+        String sql = SELECT_ALL + " WHERE h.id_utente = ?";
+        try (Connection conn = DataBaseConnection.getReadConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, idUtente);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return Optional.of(mapResultSetToHost(rs));
+                }
+            }
+        } catch (SQLException ex) {
+            log.error("Errore durante il findByIdUtente di Host: ", ex);
             throw new RuntimeException("SQLException: ", ex);
         }
         return Optional.empty();
@@ -205,7 +261,7 @@ public class HostDAOImpl implements HostDAO {
 
     @Override
     public boolean deleteById(Integer id) {
-        String sql = "DELETE FROM utente WHERE id = ?";
+        String sql = "DELETE FROM host WHERE id = ?";
 
         try (Connection conn = DataBaseConnection.getConnection();
                 PreparedStatement ps = conn.prepareStatement(sql)) {
@@ -225,4 +281,19 @@ public class HostDAOImpl implements HostDAO {
         }
     }
 
+    // --- Metodi Helper ---
+
+    static Host mapResultSetToHost(ResultSet rs) throws SQLException {
+        Host h = new Host();
+        h.setId(rs.getInt("host_id"));
+        h.setIdUtente(rs.getInt("id_utente"));
+        h.setDataRegistrazione(
+                DataConverter.convertLocalDateTimeFromTimestamp(rs.getTimestamp("data_registrazione_host")));
+        h.setNomeUser(rs.getString("nome_user"));
+        h.setCognome(rs.getString("cognome"));
+        h.setEmail(rs.getString("email"));
+        h.setIndirizzoUser(rs.getString("indirizzo_user"));
+        return h;
+    }
+
 }
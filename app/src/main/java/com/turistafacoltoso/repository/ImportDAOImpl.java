@@ -0,0 +1,352 @@
+package com.turistafacoltoso.repository;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import com.turistafacoltoso.model.ImportJob;
+import com.turistafacoltoso.model.ImportScarto;
+import com.turistafacoltoso.model.ImportTipo;
+import com.turistafacoltoso.repository.dao.ImportDAO;
+import com.turistafacoltoso.util.DataBaseConnection;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Import in blocco via COPY FROM STDIN. I record arrivano come testo in
+ * import_raw (tabella temporanea, numerati nell'ordine del file), vengono
+ * convertiti e validati in import_righe con poche istruzioni set-based (la
+ * prima regola violata diventa il motivo dello scarto) e i validi sono
+ * inseriti nella tabella di destinazione con un solo INSERT ... SELECT.
+ *
+ * Il lato Java tiene in memoria solo le prenotazioni del file in conflitto
+ * tra loro, risolte in ordine di riga: il costo dipende dal DB, non dalla
+ * dimensione del file. Le tabelle temporanee spariscono al commit.
+ */
+@Slf4j
+public class ImportDAOImpl implements ImportDAO {
+    public static final int MAX_SCARTI = 100;
+
+    private static final String SELECT_SCARTI = "SELECT riga, motivo FROM import_righe WHERE motivo IS NOT NULL ORDER BY riga LIMIT "
+            + MAX_SCARTI;
+
+    private static final String UTENTE_INESISTENTE = "UPDATE import_righe r SET motivo = 'utente inesistente' "
+            + "WHERE r.motivo IS NULL AND NOT EXISTS (SELECT 1 FROM utente u WHERE u.id = r.utente_id)";
+
+    private static final String ABITAZIONE_INESISTENTE = "UPDATE import_righe r SET motivo = 'abitazione inesistente' "
+            + "WHERE r.motivo IS NULL AND NOT EXISTS (SELECT 1 FROM abitazione a WHERE a.id = r.abitazione_id)";
+
+    // prenotazioni ancora valide che si sovrappongono ad almeno un'altra riga del file
+    private static final String SELECT_CONFLITTI = "SELECT r.riga, r.abitazione_id, r.data_inizio, r.data_fine "
+            + "FROM import_righe r WHERE r.motivo IS NULL AND EXISTS (SELECT 1 FROM import_righe o "
+            + "WHERE o.motivo IS NULL AND o.abitazione_id = r.abitazione_id AND o.riga <> r.riga "
+            + "AND o.data_inizio < r.data_fine AND r.data_inizio < o.data_fine) ORDER BY r.abitazione_id, r.riga";
+
+    private static final String UPDATE_CONFLITTI = "UPDATE import_righe r SET motivo = 'periodo in conflitto con la riga ' "
+            + "|| c.prima || ' del file' FROM unnest(?::bigint[], ?::bigint[]) AS c(riga, prima) WHERE r.riga = c.riga";
+
+    /**
+     * SQL di un tipo: espressioni di conversione (alias = nome colonna),
+     * regole sulle colonne convertite (condizione -> motivo), istruzioni
+     * sulle altre tabelle (prima e dentro la guard) e INSERT finale.
+     */
+    private record Spec(String conversione, List<String[]> regole, List<String> controlli,
+            List<String> controlliSottoGuard, String merge) {
+    }
+
+    @Override
+    public void importa(ImportTipo tipo, Reader source, ImportJob job, Consumer<Runnable> guard) {
+        Spec spec = spec(tipo);
+        try (Connection conn = DataBaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                try (Statement st = conn.createStatement()) {
+                    st.execute(createRaw(tipo));
+                }
+                CopyManager copy = conn.unwrap(PGConnection.class).getCopyAPI();
+                // colonne fisse per tipo: un testo SQL per tipo nelle metriche per query
+                long righe = copy.copyIn("COPY import_raw (" + String.join(", ", tipo.getColonne())
+                        + ", errore_parsing) FROM STDIN WITH (FORMAT csv)", source);
+                job.setRigheLette(righe);
+                log.info("Import {} {}: {} righe caricate in staging", job.getId(), tipo, righe);
+
+                valida(conn, spec, job);
+                guard.accept(() -> {
+                    try {
+                        verificaEInserisci(conn, tipo, spec, job);
+                    } catch (SQLException e) {
+                        throw new ImportException(e);
+                    }
+                });
+            } catch (SQLException | IOException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (ImportException e) {
+            log.error("Errore import {} {}: ", job.getId(), tipo, e.getCause());
+            throw new RuntimeException(e.getCause().getMessage(), e.getCause());
+        } catch (SQLException | IOException e) {
+            log.error("Errore import {} {}: ", job.getId(), tipo, e);
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Conversione e controlli che non dipendono dalle righe protette dalla
+     * guard: girano prima, senza bloccare nessuno.
+     */
+    private void valida(Connection conn, Spec spec, ImportJob job) throws SQLException {
+        job.setFase(ImportJob.Fase.VALIDAZIONE);
+        try (Statement st = conn.createStatement()) {
+            st.execute(createRighe(spec));
+            st.execute("ANALYZE import_righe");
+            for (String controllo : spec.controlli()) {
+                st.executeUpdate(controllo);
+            }
+        }
+    }
+
+    /**
+     * Parte eseguita dentro la guard: controlli sulle righe che possono
+     * cambiare nel frattempo, merge e commit.
+     */
+    private void verificaEInserisci(Connection conn, ImportTipo tipo, Spec spec, ImportJob job) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            for (String controllo : spec.controlliSottoGuard()) {
+                st.executeUpdate(controllo);
+            }
+            if (tipo == ImportTipo.PRENOTAZIONI) {
+                risolviConflittiNelFile(conn);
+            }
+
+            List<ImportScarto> scarti = new ArrayList<>();
+            try (ResultSet rs = st.executeQuery(SELECT_SCARTI)) {
+                while (rs.next()) {
+                    scarti.add(new ImportScarto(rs.getLong("riga"), rs.getString("motivo")));
+                }
+            }
+            job.setScarti(scarti);
+
+            job.setFase(ImportJob.Fase.MERGE);
+            int inserite = st.executeUpdate(spec.merge());
+            job.setRigheImportate(inserite);
+            job.setRigheScartate(job.getRigheLette() - inserite);
+        }
+        conn.commit();
+        log.info("Import {} {}: {} righe inserite, {} scartate", job.getId(), tipo, job.getRigheImportate(),
+                job.getRigheScartate());
+    }
+
+    /**
+     * Tra prenotazioni del file in conflitto vince la prima valida in ordine
+     * di riga: una riga scartata non esclude quelle che si sovrappongono solo
+     * a lei (con A-B-C a catena restano A e C). Le righe sono lette per
+     * abitazione e riga, tenendo i periodi già accettati dell'abitazione
+     * corrente (disgiunti, ordinati per inizio).
+     */
+    private static void risolviConflittiNelFile(Connection conn) throws SQLException {
+        List<Long> righe = new ArrayList<>();
+        List<Long> prime = new ArrayList<>();
+        try (Statement st = conn.createStatement()) {
+            st.setFetchSize(1000);
+            try (ResultSet rs = st.executeQuery(SELECT_CONFLITTI)) {
+                TreeMap<LocalDate, Accettata> accettate = new TreeMap<>();
+                int abitazione = 0;
+                while (rs.next()) {
+                    if (rs.getInt("abitazione_id") != abitazione) {
+                        abitazione = rs.getInt("abitazione_id");
+                        accettate.clear();
+                    }
+                    long riga = rs.getLong("riga");
+                    LocalDate inizio = rs.getObject("data_inizio", LocalDate.class);
+                    LocalDate fine = rs.getObject("data_fine", LocalDate.class);
+                    // si sovrappongono quella che inizia prima (se finisce dopo inizio) e quelle che iniziano entro fine
+                    LocalDate da = accettate.floorKey(inizio);
+                    if (da == null || !accettate.get(da).fine().isAfter(inizio)) {
+                        da = inizio;
+                    }
+                    Long prima = accettate.subMap(da, true, fine, false).values().stream()
+                            .map(Accettata::riga).min(Long::compare).orElse(null);
+                    if (prima == null) {
+                        accettate.put(inizio, new Accettata(riga, fine));
+                    } else {
+                        righe.add(riga);
+                        prime.add(prima);
+                    }
+                }
+            }
+        }
+        if (righe.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement ps = conn.prepareStatement(UPDATE_CONFLITTI)) {
+            ps.setArray(1, conn.createArrayOf("bigint", righe.toArray()));
+            ps.setArray(2, conn.createArrayOf("bigint", prime.toArray()));
+            ps.executeUpdate();
+        }
+    }
+
+    // --- Metodi Helper ---
+
+    private static String createRaw(ImportTipo tipo) {
+        StringBuilder sql = new StringBuilder("CREATE TEMP TABLE import_raw (riga bigint GENERATED ALWAYS AS IDENTITY");
+        for (String colonna : tipo.getColonne()) {
+            sql.append(", ").append(colonna).append(" text");
+        }
+        return sql.append(", errore_parsing text) ON COMMIT DROP").toString();
+    }
+
+    private static String createRighe(Spec spec) {
+        StringBuilder motivo = new StringBuilder("CASE WHEN errore_parsing IS NOT NULL THEN errore_parsing");
+        for (String[] regola : spec.regole()) {
+            motivo.append(" WHEN ").append(regola[0]).append(" THEN '").append(regola[1].replace("'", "''"))
+                    .append('\'');
+        }
+        motivo.append(" END");
+        return "CREATE TEMP TABLE import_righe ON COMMIT DROP AS SELECT t.*, " + motivo + " AS motivo FROM "
+                + "(SELECT riga, errore_parsing, " + spec.conversione() + " FROM import_raw) t";
+    }
+
+    private static Spec spec(ImportTipo tipo) {
+        switch (tipo) {
+            case UTENTI:
+                return new Spec(
+                        testo("nome_user") + ", " + testo("cognome") + ", " + testo("email") + ", "
+                                + testo("indirizzo_user"),
+                        List.of(
+                                regola("nome_user IS NULL OR length(nome_user) NOT BETWEEN 2 AND 50",
+                                        "nome_user obbligatorio (da 2 a 50 caratteri)"),
+                                regola("cognome IS NULL OR length(cognome) > 50",
+                                        "cognome obbligatorio (massimo 50 caratteri)"),
+                                regola("email IS NULL OR length(email) > 100 OR email NOT LIKE '%@%.%'",
+                                        "email non valida"),
+                                regola("indirizzo_user IS NULL OR length(indirizzo_user) > 50",
+                                        "indirizzo_user obbligatorio (massimo 50 caratteri)")),
+                        List.of(
+                                "UPDATE import_righe r SET motivo = 'email già presente alla riga ' || d.prima || ' del file' "
+                                        + "FROM (SELECT email, min(riga) AS prima FROM import_righe WHERE motivo IS NULL "
+                                        + "GROUP BY email HAVING count(*) > 1) d "
+                                        + "WHERE r.motivo IS NULL AND r.email = d.email AND r.riga > d.prima",
+                                "UPDATE import_righe r SET motivo = 'email già registrata' WHERE r.motivo IS NULL "
+                                        + "AND EXISTS (SELECT 1 FROM utente u WHERE u.email = r.email)"),
+                        List.of(),
+                        "INSERT INTO utente (nome_user, cognome, email, indirizzo_user) "
+                                + "SELECT nome_user, cognome, email, indirizzo_user FROM import_righe "
+                                + "WHERE motivo IS NULL ORDER BY riga ON CONFLICT (email) DO NOTHING");
+            case ABITAZIONI:
+                return new Spec(
+                        testo("nome_abitazione") + ", " + testo("indirizzo_abitazione") + ", " + intero("n_locali")
+                                + ", " + intero("n_posti_letto") + ", " + importo("prezzo_per_notte") + ", "
+                                + data("disponibilita_inizio") + ", " + data("disponibilita_fine") + ", "
+                                + intero("id_host"),
+                        List.of(
+                                regola("nome_abitazione IS NULL OR length(nome_abitazione) > 100",
+                                        "nome_abitazione obbligatorio (massimo 100 caratteri)"),
+                                regola("indirizzo_abitazione IS NULL OR length(indirizzo_abitazione) > 50",
+                                        "indirizzo_abitazione obbligatorio (massimo 50 caratteri)"),
+                                regola("n_locali IS NULL OR n_locali <= 0", "n_locali deve essere un intero positivo"),
+                                regola("n_posti_letto IS NULL OR n_posti_letto <= 0",
+                                        "n_posti_letto deve essere un intero positivo"),
+                                regola("prezzo_per_notte IS NULL OR prezzo_per_notte <= 0",
+                                        "prezzo_per_notte deve essere positivo (al massimo 2 decimali)"),
+                                regola("disponibilita_inizio IS NULL OR disponibilita_fine IS NULL",
+                                        "date di disponibilità non valide (formato AAAA-MM-GG)"),
+                                regola("disponibilita_fine <= disponibilita_inizio",
+                                        "disponibilita_fine deve essere successiva a disponibilita_inizio"),
+                                regola("id_host IS NULL", "id_host non valido")),
+                        List.of(
+                                "UPDATE import_righe r SET motivo = 'host inesistente' WHERE r.motivo IS NULL "
+                                        + "AND NOT EXISTS (SELECT 1 FROM host h WHERE h.id = r.id_host)"),
+                        List.of(),
+                        "INSERT INTO abitazione (nome_abitazione, indirizzo_abitazione, n_locali, n_posti_letto, "
+                                + "prezzo_per_notte, disponibilita_inizio, disponibilita_fine, id_host) "
+                                + "SELECT nome_abitazione, indirizzo_abitazione, n_locali, n_posti_letto, "
+                                + "prezzo_per_notte, disponibilita_inizio, disponibilita_fine, id_host "
+                                + "FROM import_righe WHERE motivo IS NULL ORDER BY riga");
+            case PRENOTAZIONI:
+                return new Spec(
+                        intero("utente_id") + ", " + intero("abitazione_id") + ", " + data("data_inizio") + ", "
+                                + data("data_fine"),
+                        List.of(
+                                regola("utente_id IS NULL", "utente_id non valido"),
+                                regola("abitazione_id IS NULL", "abitazione_id non valido"),
+                                regola("data_inizio IS NULL OR data_fine IS NULL",
+                                        "date non valide (formato AAAA-MM-GG)"),
+                                regola("data_fine <= data_inizio", "data_fine deve essere successiva a data_inizio")),
+                        List.of(
+                                "CREATE INDEX ON import_righe (abitazione_id, data_inizio)",
+                                UTENTE_INESISTENTE,
+                                ABITAZIONE_INESISTENTE,
+                                "UPDATE import_righe r SET motivo = 'fuori dal periodo di disponibilità dell''abitazione' "
+                                        + "FROM abitazione a WHERE r.motivo IS NULL AND a.id = r.abitazione_id "
+                                        + "AND (r.data_inizio < a.disponibilita_inizio OR r.data_fine > a.disponibilita_fine)"),
+                        List.of(
+                                // ripetuti: una cancellazione nel frattempo farebbe fallire il merge sulla foreign key
+                                UTENTE_INESISTENTE,
+                                ABITAZIONE_INESISTENTE,
+                                "UPDATE import_righe r SET motivo = 'periodo già prenotato' WHERE r.motivo IS NULL "
+                                        + "AND EXISTS (SELECT 1 FROM prenotazione p WHERE p.abitazione_id = r.abitazione_id "
+                                        + "AND p.data_inizio < r.data_fine AND r.data_inizio < p.data_fine)"),
+                        "INSERT INTO prenotazione (utente_id, abitazione_id, data_inizio, data_fine) "
+                                + "SELECT utente_id, abitazione_id, data_inizio, data_fine FROM import_righe "
+                                + "WHERE motivo IS NULL ORDER BY riga");
+            default:
+                throw new IllegalArgumentException("Tipo di import non gestito: " + tipo);
+        }
+    }
+
+    private static String[] regola(String condizione, String motivo) {
+        return new String[] { condizione, motivo };
+    }
+
+    private static String testo(String colonna) {
+        return "NULLIF(btrim(" + colonna + "), '') AS " + colonna;
+    }
+
+    private static String intero(String colonna) {
+        String v = "btrim(" + colonna + ")";
+        return "CASE WHEN " + v + " ~ '^[0-9]{1,9}$' THEN " + v + "::integer END AS " + colonna;
+    }
+
+    private static String importo(String colonna) {
+        String v = "btrim(" + colonna + ")";
+        return "CASE WHEN " + v + " ~ '^[0-9]{1,6}([.][0-9]{1,2})?$' THEN " + v + "::numeric(8,2) END AS " + colonna;
+    }
+
+    /**
+     * Data AAAA-MM-GG senza eccezioni sui valori impossibili (es. 2025-02-30):
+     * il giorno è confrontato con l'ultimo del mese prima del cast.
+     */
+    private static String data(String colonna) {
+        String v = "btrim(" + colonna + ")";
+        return "CASE WHEN " + v + " ~ '^[1-9][0-9]{3}-(0[1-9]|1[0-2])-(0[1-9]|[12][0-9]|3[01])$' THEN "
+                + "CASE WHEN substr(" + v + ", 9, 2)::integer <= extract(day from date_trunc('month', (substr(" + v
+                + ", 1, 7) || '-01')::date) + interval '1 month - 1 day') THEN " + v + "::date END END AS " + colonna;
+    }
+
+    private record Accettata(long riga, LocalDate fine) {
+    }
+
+    /**
+     * Trasporta la SQLException fuori dal Runnable eseguito dalla guard.
+     */
+    private static final class ImportException extends RuntimeException {
+        ImportException(SQLException cause) {
+            super(cause);
+        }
+    }
+}
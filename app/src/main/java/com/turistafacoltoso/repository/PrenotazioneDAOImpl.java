@@ -11,9 +11,11 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import com.turistafacoltoso.model.Prenotazione;
 import com.turistafacoltoso.repository.dao.PrenotazioneDAO;
+import com.turistafacoltoso.util.DBHelper;
 import com.turistafacoltoso.util.DataBaseConnection;
 
 import lombok.extern.slf4j.Slf4j;
@@ -21,7 +23,9 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class PrenotazioneDAOImpl implements PrenotazioneDAO {
     private static final String INSERT_QUERY = "INSERT INTO prenotazione (utente_id, data_inizio, data_fine, abitazione_id, created_at) VALUES (?, ?, ?, ?, ?) RETURNING id";
+    private static final String INSERT_BATCH = "INSERT INTO prenotazione (utente_id, data_inizio, data_fine, abitazione_id, created_at) VALUES (?, ?, ?, ?, ?)";
     private static final String SELECT_ALL = "SELECT * FROM prenotazione";
+    private static final String SELECT_PAGE = "SELECT * FROM prenotazione WHERE id > ? ORDER BY id LIMIT ?";
     private static final String SELECT_BY_ID = "SELECT * FROM prenotazione WHERE id = ?";
     private static final String SELECT_BY_DATA_CREAZIONE = "SELECT * FROM prenotazione WHERE created_at = ?";
     private static final String SELECT_BY_UTENTE = "SELECT * FROM prenotazione WHERE utente_id = ?";
@@ -73,7 +77,7 @@ public class PrenotazioneDAOImpl implements PrenotazioneDAO {
                         "WHERE utente_id = ?\r\n" + //
                         "ORDER BY created_at DESC\r\n" + //
                         "LIMIT 1";
-        try (Connection conn = DataBaseConnection.getConnection();
+        try (Connection conn = DataBaseConnection.getReadConnection();
                 PreparedStatement ps = conn.prepareStatement(sql)) {
             ps.setInt(1, utenteId);
             try (ResultSet rs = ps.executeQuery()) {
@@ -90,10 +94,35 @@ public class PrenotazioneDAOImpl implements PrenotazioneDAO {
     }
 
 
+    @Override
+    public List<Prenotazione> createBatch(List<Prenotazione> prenotazioni) {
+        for (Prenotazione p : prenotazioni) {
+            if (p.getCreatedAt() == null) {
+                p.setCreatedAt(LocalDateTime.now());
+            }
+        }
+        try {
+            int[] ids = DBHelper.insertBatch(INSERT_BATCH, prenotazioni, (ps, p) -> {
+                ps.setInt(1, p.getUtenteId());
+                ps.setDate(2, Date.valueOf(p.getDataInizio()));
+                ps.setDate(3, Date.valueOf(p.getDataFine()));
+                ps.setInt(4, p.getAbitazioneId());
+                ps.setTimestamp(5, Timestamp.valueOf(p.getCreatedAt()));
+            });
+            for (int i = 0; i < ids.length; i++) {
+                prenotazioni.get(i).setId(ids[i]);
+            }
+            return prenotazioni;
+        } catch (SQLException e) {
+            log.error("Errore nell'inserimento batch di {} prenotazioni: ", prenotazioni.size(), e);
+            throw new RuntimeException("Errore nell'inserimento delle prenotazioni", e);
+        }
+    }
+
     @Override
     public List<Prenotazione> findAll() {
         List<Prenotazione> list = new ArrayList<>();
-        try (Connection conn = DataBaseConnection.getConnection();
+        try (Connection conn = DataBaseConnection.getReadConnection();
                 Statement st = conn.createStatement();
                 ResultSet rs = st.executeQuery(SELECT_ALL)) {
             while (rs.next()) {
@@ -106,9 +135,39 @@ public class PrenotazioneDAOImpl implements PrenotazioneDAO {
         return list;
     }
 
+    @Override
+    public List<Prenotazione> findPage(int afterId, int limit) {
+        List<Prenotazione> list = new ArrayList<>();
+        try (Connection conn = DataBaseConnection.getReadConnection();
+                PreparedStatement ps = conn.prepareStatement(SELECT_PAGE)) {
+            ps.setInt(1, afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    list.add(mapResultSetToPrenotazione(rs));
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Errore nel recupero pagina prenotazioni dopo id {}: ", afterId, e);
+            throw new RuntimeException("Errore nel recupero delle prenotazioni", e);
+        }
+        return list;
+    }
+
+    @Override
+    public void streamAll(Consumer<Prenotazione> consumer) {
+        try {
+            long rows = DBHelper.stream(SELECT_ALL, PrenotazioneDAOImpl::mapResultSetToPrenotazione, consumer);
+            log.info("Export prenotazioni completato: {} righe", rows);
+        } catch (SQLException e) {
+            log.error("Errore durante l'export prenotazioni: ", e);
+            throw new RuntimeException("Errore nell'export prenotazioni", e);
+        }
+    }
+
     @Override
     public Optional<Prenotazione> findById(Integer id) {
-        try (Connection conn = DataBaseConnection.getConnection();
+        try (Connection conn = DataBaseConnection.getReadConnection();
                 PreparedStatement ps = conn.prepareStatement(SELECT_BY_ID)) {
             ps.setInt(1, id);
             try (ResultSet rs = ps.executeQuery()) {
@@ -125,7 +184,7 @@ public class PrenotazioneDAOImpl implements PrenotazioneDAO {
 
     @Override
     public Optional<Prenotazione> findByDataCreazione(LocalDateTime localDateTime) {
-        try (Connection conn = DataBaseConnection.getConnection();
+        try (Connection conn = DataBaseConnection.getReadConnection();
                 PreparedStatement ps = conn.prepareStatement(SELECT_BY_DATA_CREAZIONE)) {
             ps.setTimestamp(1, Timestamp.valueOf(localDateTime));
             try (ResultSet rs = ps.executeQuery()) {
@@ -143,7 +202,7 @@ public class PrenotazioneDAOImpl implements PrenotazioneDAO {
     @Override
     public List<Prenotazione> findByUtenteId(Integer idUtente) {
         List<Prenotazione> lp = new ArrayList<>();
-        try (Connection conn = DataBaseConnection.getConnection();
+        try (Connection conn = DataBaseConnection.getReadConnection();
                 PreparedStatement ps = conn.prepareStatement(SELECT_BY_UTENTE)) {
 
             ps.setInt(1, idUtente);
@@ -204,7 +263,7 @@ public class PrenotazioneDAOImpl implements PrenotazioneDAO {
     }
 
     // Metodo helper per evitare ripetizioni
-    private Prenotazione mapResultSetToPrenotazione(ResultSet rs) throws SQLException {
+    static Prenotazione mapResultSetToPrenotazione(ResultSet rs) throws SQLException {
         Prenotazione p = new Prenotazione();
         p.setId(rs.getInt("id"));
         p.setUtenteId(rs.getInt("utente_id"));
@@ -0,0 +1,132 @@
+package com.turistafacoltoso.repository;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.turistafacoltoso.model.RollupDelta;
+import com.turistafacoltoso.repository.dao.RollupDAO;
+import com.turistafacoltoso.util.DataBaseConnection;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+public class RollupDAOImpl implements RollupDAO {
+    private static final String REBUILD = "INSERT INTO prenotazione_rollup(giorno, abitazione_id, host_id, utente_id, prenotazioni, notti) "
+            + "SELECT p.data_inizio, p.abitazione_id, a.id_host, p.utente_id, COUNT(*), SUM(p.data_fine - p.data_inizio) "
+            + "FROM prenotazione p JOIN abitazione a ON a.id = p.abitazione_id "
+            + "GROUP BY p.data_inizio, p.abitazione_id, a.id_host, p.utente_id";
+
+    // la SELECT sui genitori salta i delta arrivati dopo la cancellazione
+    // dell'abitazione o dell'utente, invece di fallire sulle foreign key
+    private static final String UPSERT = "INSERT INTO prenotazione_rollup(giorno, abitazione_id, host_id, utente_id, prenotazioni, notti) "
+            + "SELECT ?, a.id, ?, u.id, ?, ? FROM abitazione a JOIN utente u ON u.id = ? WHERE a.id = ? "
+            + "ON CONFLICT (giorno, abitazione_id, utente_id) DO UPDATE SET "
+            + "host_id = EXCLUDED.host_id, "
+            + "prenotazioni = prenotazione_rollup.prenotazioni + EXCLUDED.prenotazioni, "
+            + "notti = prenotazione_rollup.notti + EXCLUDED.notti";
+
+    @Override
+    public int rebuild() {
+        try (Connection conn = DataBaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement st = conn.createStatement()) {
+                // blocca gli aggiornamenti incrementali finché la ricostruzione non è confermata
+                st.execute("LOCK TABLE prenotazione_rollup IN EXCLUSIVE MODE");
+                st.executeUpdate("DELETE FROM prenotazione_rollup");
+                int rows = st.executeUpdate(REBUILD);
+                conn.commit();
+                return rows;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            log.error("Errore nella ricostruzione del rollup prenotazioni: ", e);
+            throw new RuntimeException("Errore SQL (rebuild rollup)", e);
+        }
+    }
+
+    @Override
+    public void addAll(List<RollupDelta> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try (Connection conn = DataBaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(UPSERT)) {
+                for (RollupDelta d : deltas) {
+                    ps.setDate(1, Date.valueOf(d.getGiorno()));
+                    ps.setInt(2, d.getHostId());
+                    ps.setInt(3, d.getPrenotazioni());
+                    ps.setInt(4, d.getNotti());
+                    ps.setInt(5, d.getUtenteId());
+                    ps.setInt(6, d.getAbitazioneId());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            log.error("Errore nell'aggiornamento del rollup ({} righe): ", deltas.size(), e);
+            throw new RuntimeException("Errore SQL (add rollup)", e);
+        }
+    }
+
+    @Override
+    public Map<Integer, Integer> sumPrenotazioniPerAbitazione(LocalDate from, LocalDate to, int limit) {
+        return sum("abitazione_id", "prenotazioni", from, to, limit);
+    }
+
+    @Override
+    public Map<Integer, Integer> sumPrenotazioniPerHost(LocalDate from, LocalDate to, int limit) {
+        return sum("host_id", "prenotazioni", from, to, limit);
+    }
+
+    @Override
+    public Map<Integer, Integer> sumNottiPerUtente(LocalDate from, LocalDate to, int limit) {
+        return sum("utente_id", "notti", from, to, limit);
+    }
+
+    // --- Metodi Helper ---
+
+    /**
+     * chiave e valore sono nomi di colonna fissi (mai input dell'utente)
+     */
+    private Map<Integer, Integer> sum(String chiave, String valore, LocalDate from, LocalDate to, int limit) {
+        String sql = "SELECT " + chiave + " AS chiave, SUM(" + valore + ") AS totale "
+                + "FROM prenotazione_rollup WHERE giorno BETWEEN ? AND ? "
+                + "GROUP BY " + chiave + " HAVING SUM(" + valore + ") > 0 "
+                + "ORDER BY totale DESC, chiave LIMIT ?";
+        Map<Integer, Integer> result = new LinkedHashMap<>();
+        try (Connection conn = DataBaseConnection.getReadConnection();
+                PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setDate(1, Date.valueOf(from));
+            ps.setDate(2, Date.valueOf(to));
+            ps.setInt(3, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    result.put(rs.getInt("chiave"), rs.getInt("totale"));
+                }
+            }
+        } catch (SQLException e) {
+            log.error("Errore nella lettura del rollup per {} tra {} e {}: ", chiave, from, to, e);
+            throw new RuntimeException("Errore SQL (sum rollup)", e);
+        }
+        return result;
+    }
+}
@@ -9,6 +9,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 import com.turistafacoltoso.model.Utente;
 import com.turistafacoltoso.repository.dao.UtenteDAO;
 import com.turistafacoltoso.util.DBHelper;
@@ -22,6 +23,7 @@ public class UtenteDAOImpl implements UtenteDAO {
 
     private static final String CREATE_QUERY = "INSERT INTO utente(nome_user,cognome,email,indirizzo_user) VALUES (?,?,?,?) RETURNING id, data_registrazione";
     private static final String FIND_QUERY = "SELECT * FROM utente";
+    private static final String FIND_QUERY_PAGE = "SELECT * FROM utente WHERE id > ? ORDER BY id LIMIT ?";
     private static final String FIND_QUERY_BY_ID = "SELECT * FROM utente WHERE id = ? LIMIT 1 ";
     private static final String FIND_QUERY_BY_NAME = "SELECT * FROM utente WHERE nome_user = ? ";
     private static final String FIND_QUERY_BY_EMAIL = "SELECT * FROM utente WHERE email = ? LIMIT 1 ";
@@ -47,10 +49,10 @@ public class UtenteDAOImpl implements UtenteDAO {
                         DataConverter.convertLocalDateTimeFromTimestamp(rs.getTimestamp("data_registrazione")));
             }
         } catch (SQLException ex) {
-            log.error("Errore creazione utente: {}", ex);
+            log.error("Errore creazione utente: ", ex);
             throw new RuntimeException("SQLException", ex);
         }
-        log.info("utente : {} creato con successo", u.toString());
+        log.info("utente : {} creato con successo", u);
         return u;
     }
 
@@ -59,7 +61,7 @@ public class UtenteDAOImpl implements UtenteDAO {
     public List<Utente> findAll() {
 
         List<Utente> listUtenti = new ArrayList<>();
-        try (Connection conn = DataBaseConnection.getConnection();
+        try (Connection conn = DataBaseConnection.getReadConnection();
                 PreparedStatement ps = conn.prepareStatement(FIND_QUERY)) {
             ResultSet rs = ps.executeQuery();
             while (rs.next()) {
@@ -74,14 +76,43 @@ public class UtenteDAOImpl implements UtenteDAO {
                 listUtenti.add(u);
             }
         } catch (SQLException ex) {
-            log.error("errore utenti non trovati: {}" + ex);
+            log.error("errore utenti non trovati: ", ex);
             throw new RuntimeException("SQLException:" + ex);
         }
-        log.info("lista utenti trovata:" + listUtenti.size());
-        System.out.print(listUtenti);
+        log.debug("lista utenti trovata: {}", listUtenti.size());
         return listUtenti;
     }
 
+    @Override
+    public List<Utente> findPage(int afterId, int limit) {
+        List<Utente> listUtenti = new ArrayList<>();
+        try (Connection conn = DataBaseConnection.getReadConnection();
+                PreparedStatement ps = conn.prepareStatement(FIND_QUERY_PAGE)) {
+            ps.setInt(1, afterId);
+            ps.setInt(2, limit);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    listUtenti.add(mapResultSetToUtente(rs));
+                }
+            }
+        } catch (SQLException ex) {
+            log.error("Errore nel recupero pagina utenti dopo id {}", afterId, ex);
+            throw new RuntimeException("SQLException", ex);
+        }
+        return listUtenti;
+    }
+
+    @Override
+    public void streamAll(Consumer<Utente> consumer) {
+        try {
+            long rows = DBHelper.stream(FIND_QUERY, UtenteDAOImpl::mapResultSetToUtente, consumer);
+            log.info("Export utenti completato: {} righe", rows);
+        } catch (SQLException e) {
+            log.error("Errore durante l'export utenti: ", e);
+            throw new RuntimeException("Errore nell'export utenti", e);
+        }
+    }
+
     @Override
     public Map<String, Integer> findTopUsersByDaysLastMonth() {
         String sql = "SELECT u.id, u.nome_user, u.cognome, " +
@@ -95,7 +126,7 @@ public class UtenteDAOImpl implements UtenteDAO {
 
         Map<String, Integer> topTravelers = new LinkedHashMap<>();
 
-        try (Connection conn = DataBaseConnection.getConnection();
+        try (Connection conn = DataBaseConnection.getReadConnection();
                 PreparedStatement ps = conn.prepareStatement(sql);
                 ResultSet rs = ps.executeQuery()) {
 
@@ -104,7 +135,7 @@ public class UtenteDAOImpl implements UtenteDAO {
                 int giorni = rs.getInt("totale_giorni");
 
                 topTravelers.put(utente, giorni);
-                log.info("Top Traveler trovato: {} con {} giorni prenotati", utente, giorni);
+                log.trace("Top Traveler trovato: {} con {} giorni prenotati", utente, giorni);
             }
 
         } catch (SQLException e) {
@@ -117,7 +148,7 @@ public class UtenteDAOImpl implements UtenteDAO {
 
     public Optional<Utente> findById(Integer id) {
         Utente u = new Utente();
-        try (Connection conn = DataBaseConnection.getConnection();
+        try (Connection conn = DataBaseConnection.getReadConnection();
                 PreparedStatement ps = conn.prepareStatement(FIND_QUERY_BY_ID)) {
             ps.setInt(1, id);
             ResultSet rs = ps.executeQuery();
@@ -132,16 +163,16 @@ public class UtenteDAOImpl implements UtenteDAO {
                 return Optional.of(u);
             }
         } catch (SQLException ex) {
-            log.error("Errore durante il findById di Utente: {} " + ex);
+            log.error("Errore durante il findById di Utente: ", ex);
             throw new RuntimeException("SQLException: " + ex);
         }
-        log.info("Utente trovato: {}" + u.toString());
+        log.debug("Nessun utente trovato con id {}", id);
         return Optional.empty();
     }
 
     public Optional<Utente> findByEmail(String email) {
         Utente u = new Utente();
-        try (Connection conn = DataBaseConnection.getConnection();
+        try (Connection conn = DataBaseConnection.getReadConnection();
                 PreparedStatement ps = conn.prepareStatement(FIND_QUERY_BY_EMAIL)) {
             ps.setString(1, email);
             ResultSet rs = ps.executeQuery();
@@ -156,16 +187,16 @@ public class UtenteDAOImpl implements UtenteDAO {
                 return Optional.of(u);
             }
         } catch (SQLException ex) {
-            log.error("Errore durante il findByEmail di Utente: {} " + ex);
+            log.error("Errore durante il findByEmail di Utente: ", ex);
             throw new RuntimeException("SQLException: " + ex);
         }
-        log.info("Utente trovato: {} " + u.getClass().toString());
+        log.debug("Nessun utente trovato con email {}", email);
         return Optional.empty();
     }
 
     public Optional<Utente> findByUsername(String name) {
         Utente u = new Utente();
-        try (Connection conn = DataBaseConnection.getConnection();
+        try (Connection conn = DataBaseConnection.getReadConnection();
                 PreparedStatement ps = conn.prepareStatement(FIND_QUERY_BY_NAME)) {
             ps.setString(1, name);
             ResultSet rs = ps.executeQuery();
@@ -180,24 +211,48 @@ public class UtenteDAOImpl implements UtenteDAO {
                 return Optional.of(u);
             }
         } catch (SQLException ex) {
-            log.error("Errore durante il findById: {} ", ex);
+            log.error("Errore durante il findByUsername: ", ex);
             throw new RuntimeException("SQLException: " + ex);
         }
-        log.info("Utente trovato: {} " + u.getClass().toString());
+        log.debug("Nessun utente trovato con nome {}", name);
         return Optional.empty();
     }
 
+    @Override
+    public List<Utente> findAllByUsername(String name) {
+        List<Utente> listUtenti = new ArrayList<>();
+        try (Connection conn = DataBaseConnection.getReadConnection();
+                PreparedStatement ps = conn.prepareStatement(FIND_QUERY_BY_NAME)) {
+            ps.setString(1, name);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    listUtenti.add(mapResultSetToUtente(rs));
+                }
+            }
+        } catch (SQLException ex) {
+            log.error("Errore durante il findAllByUsername: ", ex);
+            throw new RuntimeException("SQLException", ex);
+        }
+        return listUtenti;
+    }
+
     // UPDATE
 
-    public Utente update(Utente u) {
-        DBHelper.executeUpdate(UPDATE_QUERY, ps -> {
+    public Optional<Utente> update(Utente u) {
+        try (Connection conn = DataBaseConnection.getConnection();
+                PreparedStatement ps = conn.prepareStatement(UPDATE_QUERY)) {
             ps.setString(1, u.getNomeUser());
             ps.setString(2, u.getCognome());
             ps.setString(3, u.getIndirizzoUser());
             ps.setInt(4, u.getId());
-        });
-        log.info("utente update {} : ", u.toString());
-        return u;
+
+            int affectedRows = ps.executeUpdate();
+            log.info("utente update: {} ({} righe)", u, affectedRows);
+            return affectedRows > 0 ? Optional.of(u) : Optional.empty();
+        } catch (SQLException ex) {
+            log.error("Errore durante l'update dell'utente {}", u.getId(), ex);
+            throw new RuntimeException("SQLException: ", ex);
+        }
     }
 
     // DELETE
@@ -255,4 +310,18 @@ public class UtenteDAOImpl implements UtenteDAO {
             throw new RuntimeException("SQLException: ", ex);
         }
     }
+
+    // --- Metodi Helper ---
+
+    static Utente mapResultSetToUtente(ResultSet rs) throws SQLException {
+        Utente u = new Utente();
+        u.setId(rs.getInt("id"));
+        u.setNomeUser(rs.getString("nome_user"));
+        u.setCognome(rs.getString("cognome"));
+        u.setEmail(rs.getString("email"));
+        u.setIndirizzoUser(rs.getString("indirizzo_user"));
+        u.setDataRegistrazione(
+                DataConverter.convertLocalDateTimeFromTimestamp(rs.getTimestamp("data_registrazione")));
+        return u;
+    }
 }
@@ -4,6 +4,7 @@ import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import com.turistafacoltoso.model.Abitazione;
 
@@ -21,6 +22,27 @@ public interface AbitazioneDAO {
      */
     List<Abitazione> findAll();
 
+    /**
+     * insert of all Abitations in a single transaction, ids are set on the objects
+     * @param abitazioni
+     * @return
+     */
+    List<Abitazione> createBatch(List<Abitazione> abitazioni);
+
+    /**
+     * find a page of Abitations ordered by 'id' (keyset pagination)
+     * @param afterId last id of the previous page (0 for the first page)
+     * @param limit
+     * @return
+     */
+    List<Abitazione> findPage(int afterId, int limit);
+
+    /**
+     * passa al consumer tutte le righe della tabella man mano che vengono lette,
+     * senza caricarle in memoria (export)
+     */
+    void streamAll(Consumer<Abitazione> consumer);
+
     /**
      * Find abitation by 'id'
      * @param id
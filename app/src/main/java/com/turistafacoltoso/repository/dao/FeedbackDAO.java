@@ -2,6 +2,7 @@ package com.turistafacoltoso.repository.dao;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import com.turistafacoltoso.model.Feedback;
 
@@ -15,12 +16,32 @@ public interface FeedbackDAO {
 
     List<Feedback> findAll();
 
+    List<Feedback> findPage(int afterId, int limit);
+
+    /**
+     * passa al consumer tutte le righe della tabella man mano che vengono lette,
+     * senza caricarle in memoria (export)
+     */
+    void streamAll(Consumer<Feedback> consumer);
+
     Optional<Feedback> findById(Integer id);
 
+    /**
+     * feedback con gli id indicati, in una sola query (ordine non garantito)
+     */
+    List<Feedback> findByIds(List<Integer> ids);
+
     List<Feedback> findByIdHost(Integer idHost);
 
     List<Feedback> findByPunteggio(Integer number);
 
+    List<Feedback> findByPrenotazione(Integer prenotazioneId);
+
+    /**
+     * feedback delle prenotazioni indicate, in una sola query (ordine non garantito)
+     */
+    List<Feedback> findByPrenotazioni(List<Integer> prenotazioneIds);
+
     // UPDATE
 
     Optional<Feedback> update(Feedback a);
@@ -31,4 +52,10 @@ public interface FeedbackDAO {
 
     boolean deleteById(Integer id);
 
+    /**
+     * cancella il feedback e restituisce la riga cancellata (DELETE ... RETURNING),
+     * vuoto se non esisteva
+     */
+    Optional<Feedback> deleteReturning(Integer id);
+
 }
@@ -3,8 +3,10 @@ package com.turistafacoltoso.repository.dao;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import com.turistafacoltoso.model.Host;
+import com.turistafacoltoso.model.HostStats;
 
 public interface HostDAO {
     
@@ -16,11 +18,28 @@ public interface HostDAO {
 
     List<Host> findAll();
 
+    List<Host> findPage(int afterId, int limit);
+
+    /**
+     * passa al consumer tutte le righe della tabella man mano che vengono lette,
+     * senza caricarle in memoria (export)
+     */
+    void streamAll(Consumer<Host> consumer);
+
     Optional<Host> findById(Integer id);
 
+    /**
+     * host corrispondente all'utente, se l'utente è anche host
+     */
+    Optional<Host> findByIdUtente(int idUtente);
+
     Map<String, Integer> findTopHostsLastMonth();
 
-    Map<String, Integer> findAllSuperHosts();
+    /**
+     * numero di prenotazioni di ogni host su tutte le sue abitazioni
+     * (anche 0), usato per caricare e verificare SuperHostRegistry
+     */
+    List<HostStats> countPrenotazioniPerHost();
 
     // UPDATE
 
@@ -0,0 +1,22 @@
+package com.turistafacoltoso.repository.dao;
+
+import java.io.Reader;
+import java.util.function.Consumer;
+
+import com.turistafacoltoso.model.ImportJob;
+import com.turistafacoltoso.model.ImportTipo;
+
+public interface ImportDAO {
+
+    /**
+     * Carica i record di source (CSV senza header, campi nell'ordine di
+     * tipo.getColonne() più la colonna dell'errore di parsing, vedi
+     * CsvParsingReader e NdjsonCsvReader) in una tabella di staging con COPY, li valida e inserisce i validi nella
+     * tabella di tipo, tutto in una transazione. Conversione e controlli che
+     * non dipendono da scritture concorrenti girano prima; dentro guard (che
+     * deve eseguire il Runnable ricevuto) restano solo i controlli sulle
+     * prenotazioni esistenti, i conflitti interni al file, merge e commit.
+     * Conteggi, fase e scarti sono aggiornati su job.
+     */
+    void importa(ImportTipo tipo, Reader source, ImportJob job, Consumer<Runnable> guard);
+}
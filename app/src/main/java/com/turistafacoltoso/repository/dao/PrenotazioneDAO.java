@@ -3,6 +3,7 @@ package com.turistafacoltoso.repository.dao;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import com.turistafacoltoso.model.Prenotazione;
 
@@ -16,6 +17,19 @@ public interface PrenotazioneDAO {
 
     List<Prenotazione> findAll();
 
+    /**
+     * inserisce tutte le prenotazioni in un'unica transazione (tutte o nessuna)
+     */
+    List<Prenotazione> createBatch(List<Prenotazione> prenotazioni);
+
+    List<Prenotazione> findPage(int afterId, int limit);
+
+    /**
+     * passa al consumer tutte le righe della tabella man mano che vengono lette,
+     * senza caricarle in memoria (export)
+     */
+    void streamAll(Consumer<Prenotazione> consumer);
+
     Optional<Prenotazione> findById(Integer id);
 
     Optional<Prenotazione> findByDataCreazione(LocalDateTime localDateTime);
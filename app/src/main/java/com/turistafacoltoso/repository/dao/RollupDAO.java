@@ -0,0 +1,41 @@
+package com.turistafacoltoso.repository.dao;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import com.turistafacoltoso.model.RollupDelta;
+
+/**
+ * Tabella prenotazione_rollup: prenotazioni e notti prenotate per giorno di
+ * inizio, abitazione (con il suo host) e utente.
+ */
+public interface RollupDAO {
+
+    // CREATE / UPDATE
+
+    /**
+     * ricalcola tutta la tabella dalle prenotazioni
+     *
+     * @return righe scritte
+     */
+    int rebuild();
+
+    /**
+     * somma ogni delta alla sua riga (giorno, abitazione, utente), creandola se
+     * manca, in un'unica transazione; i delta di abitazioni o utenti non più
+     * presenti sono ignorati (le loro righe sono già state cancellate a cascata)
+     */
+    void addAll(List<RollupDelta> deltas);
+
+    // READ
+
+    /**
+     * prenotazioni per abitazione con inizio in [from, to], ordinate per totale decrescente
+     */
+    Map<Integer, Integer> sumPrenotazioniPerAbitazione(LocalDate from, LocalDate to, int limit);
+
+    Map<Integer, Integer> sumPrenotazioniPerHost(LocalDate from, LocalDate to, int limit);
+
+    Map<Integer, Integer> sumNottiPerUtente(LocalDate from, LocalDate to, int limit);
+}
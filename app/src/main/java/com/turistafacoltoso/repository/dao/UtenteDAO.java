@@ -3,6 +3,7 @@ package com.turistafacoltoso.repository.dao;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import com.turistafacoltoso.model.Utente;
 
@@ -16,17 +17,30 @@ public interface UtenteDAO {
 
     List<Utente> findAll();
 
+    List<Utente> findPage(int afterId, int limit);
+
+    /**
+     * passa al consumer tutte le righe della tabella man mano che vengono lette,
+     * senza caricarle in memoria (export)
+     */
+    void streamAll(Consumer<Utente> consumer);
+
     Optional<Utente> findById(Integer id);
 
     Optional<Utente> findByEmail(String email);
 
     Optional<Utente> findByUsername(String name);
 
+    /**
+     * tutti gli utenti con il nome indicato (il nome non è univoco)
+     */
+    List<Utente> findAllByUsername(String name);
+
     Map<String,Integer> findTopUsersByDaysLastMonth();
 
     // UPDATE
 
-    Utente update(Utente u);
+    Optional<Utente> update(Utente u);
 
     // DELETE
 
@@ -2,13 +2,37 @@ package com.turistafacoltoso.service;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import com.turistafacoltoso.exception.AbitazioneNotFoundException;
+import com.turistafacoltoso.index.AbitazioneEvents;
+import com.turistafacoltoso.index.AbitazionePriceIndex;
+import com.turistafacoltoso.index.AbitazioneSearchEngine;
+import com.turistafacoltoso.index.AbitazioneSuggestIndex;
+import com.turistafacoltoso.index.FeedbackEvents;
+import com.turistafacoltoso.index.InventoryStats;
+import com.turistafacoltoso.index.LastMonthCounters;
+import com.turistafacoltoso.index.PrenotazioneEvents;
+import com.turistafacoltoso.index.PrenotazioneIndex;
 import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.AbitazioneFilter;
+import com.turistafacoltoso.model.AbitazioneSearchResult;
+import com.turistafacoltoso.model.AbitazioneSuggestion;
+import com.turistafacoltoso.model.BatchItemResult;
+import com.turistafacoltoso.model.BatchResult;
+import com.turistafacoltoso.model.HostInventoryStats;
+import com.turistafacoltoso.model.InventorySummary;
+import com.turistafacoltoso.model.Page;
 import com.turistafacoltoso.repository.AbitazioneDAOImpl;
+import com.turistafacoltoso.repository.FeedbackDAOImpl;
 import com.turistafacoltoso.repository.dao.AbitazioneDAO;
+import com.turistafacoltoso.repository.dao.FeedbackDAO;
+import com.turistafacoltoso.util.EntityCaches;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -16,10 +40,61 @@ import lombok.extern.slf4j.Slf4j;
 public class AbitazioneDAOService {
     private final AbitazioneDAO abitazioneDAO;
     private final HostDAOService hostDAOService;
+    private final FeedbackDAO feedbackDAO;
+    private final RollupService rollupService = new RollupService();
 
     public AbitazioneDAOService() {
-        this.abitazioneDAO = new AbitazioneDAOImpl();
-        this.hostDAOService = new HostDAOService();
+        this(new AbitazioneDAOImpl(), new HostDAOService(), new FeedbackDAOImpl());
+    }
+
+    public AbitazioneDAOService(AbitazioneDAO abitazioneDAO, HostDAOService hostDAOService, FeedbackDAO feedbackDAO) {
+        this.abitazioneDAO = abitazioneDAO;
+        this.hostDAOService = hostDAOService;
+        this.feedbackDAO = feedbackDAO;
+    }
+
+    /**
+     * Carica le statistiche dell'inventario e le registra tra i listener delle
+     * abitazioni (da chiamare all'avvio).
+     */
+    public void loadInventoryStats() {
+        InventoryStats stats = InventoryStats.getInstance();
+        stats.setLoader(abitazioneDAO::streamAll);
+        stats.reload();
+        AbitazioneEvents.register(stats);
+    }
+
+    /**
+     * Carica l'indice dei suggerimenti su nome e indirizzo e lo registra tra i
+     * listener delle abitazioni (da chiamare all'avvio).
+     */
+    public void loadSuggestIndex() {
+        AbitazioneSuggestIndex index = AbitazioneSuggestIndex.getInstance();
+        index.setLoader(abitazioneDAO::streamAll);
+        index.reload();
+        AbitazioneEvents.register(index);
+    }
+
+    /**
+     * Carica il motore di ricerca a faccette e lo registra tra i listener
+     * delle abitazioni (da chiamare all'avvio).
+     */
+    public void loadSearchEngine() {
+        AbitazioneSearchEngine engine = AbitazioneSearchEngine.getInstance();
+        engine.setLoader(abitazioneDAO::streamAll);
+        engine.reload();
+        AbitazioneEvents.register(engine);
+    }
+
+    /**
+     * Carica l'indice delle abitazioni ordinate per prezzo e lo registra tra i
+     * listener (da chiamare all'avvio).
+     */
+    public void loadPriceIndex() {
+        AbitazionePriceIndex index = AbitazionePriceIndex.getInstance();
+        index.setLoader(abitazioneDAO::streamAll);
+        index.reload();
+        AbitazioneEvents.register(index);
     }
 
     /**
@@ -35,7 +110,44 @@ public class AbitazioneDAOService {
         validaDate(disponibilitaInizio, disponibilitaFine);
         Abitazione a = new Abitazione(nomeAbitazione, indirizzoAbitazione, nLocali, nPostiLetto, prezzoPerNotte,
                 disponibilitaInizio, disponibilitaFine, idHost);
-        return abitazioneDAO.create(a);
+        Abitazione created = abitazioneDAO.create(a);
+        AbitazioneEvents.created(created);
+        return created;
+    }
+
+    /**
+     * Inserimento di più abitazioni in una sola richiesta: tutte vengono
+     * validate prima di scrivere, le valide sono inserite a blocchi.
+     */
+    public BatchResult insertAbitazioniBatch(List<Abitazione> items) {
+        log.info("Richiesta batch di {} abitazioni", items.size());
+        BatchItemResult[] results = new BatchItemResult[items.size()];
+        List<Integer> valid = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            Abitazione a = items.get(i);
+            try {
+                if (a == null) {
+                    throw new IllegalArgumentException("Elemento nullo");
+                }
+                if (a.getNomeAbitazione() == null || a.getIndirizzoAbitazione() == null || a.getPrezzoPerNotte() == null) {
+                    throw new IllegalArgumentException("Nome, indirizzo e prezzo per notte sono obbligatori");
+                }
+                validaDate(a.getDisponibilitaInizio(), a.getDisponibilitaFine());
+                if (!checkHostExists(a.getIdHost())) {
+                    throw new IllegalArgumentException("Host non trovato con ID: " + a.getIdHost());
+                }
+                a.setId(0);
+                valid.add(i);
+            } catch (RuntimeException e) {
+                results[i] = BatchItemResult.failed(i, e.getMessage());
+            }
+        }
+
+        new BatchInsert<Abitazione>(abitazioneDAO::createBatch, abitazioneDAO::create, Abitazione::getId,
+                AbitazioneEvents::created).run(items, valid, results);
+        BatchResult result = BatchResult.of(results);
+        log.info("Batch abitazioni completato: {} inserite, {} fallite", result.getInseriti(), result.getFalliti());
+        return result;
     }
 
     /**
@@ -43,32 +155,60 @@ public class AbitazioneDAOService {
      * Ricerca di tutte le abitazioni presenti
      */
     public List<Abitazione> getAllAbitazioni() {
-        log.info("Recupero di tutte le abitazioni");
-        if (abitazioneDAO.findAll().isEmpty()) {
+        log.debug("Recupero di tutte le abitazioni");
+        List<Abitazione> abitazioni = abitazioneDAO.findAll();
+        if (abitazioni.isEmpty()) {
             log.error("Error method getAllAbitazioni");
             throw new AbitazioneNotFoundException("abitazioni non trovate {}");
         }
-        return abitazioneDAO.findAll();
+        return abitazioni;
+    }
+
+    /**
+     * Pagina di abitazioni con id maggiore di afterId, ordinate per id.
+     */
+    public Page<Abitazione> getAbitazioniPage(int afterId, int limit) {
+        log.debug("Recupero pagina abitazioni dopo ID {} (limit {})", afterId, limit);
+        return Page.of(abitazioneDAO.findPage(afterId, limit + 1), limit, Abitazione::getId);
+    }
+
+    /**
+     * Export di tutte le abitazioni, una riga alla volta.
+     */
+    public void exportAbitazioni(Consumer<Abitazione> consumer) {
+        abitazioneDAO.streamAll(consumer);
     }
 
     /**
      * Ricerca un'abitazione per ID.
      */
     public Optional<Abitazione> getAbitazioneById(int id) {
-        log.info("Ricerca abitazione con ID: {}", id);
-        return abitazioneDAO.findById(id);
+        log.debug("Ricerca abitazione con ID: {}", id);
+        return EntityCaches.ABITAZIONI.get(id, abitazioneDAO::findById);
     }
 
+    /**
+     * Abitazione più prenotata nell'ultimo mese, dai contatori in memoria.
+     */
     public Optional<Abitazione> getMostPopularAbitazione(){
-        log.info("Service: ricerca abitazione più popoloare dell'ultimo mese");
-        return abitazioneDAO.findMostPopularLastMonth();
+        log.debug("Service: ricerca abitazione più popoloare dell'ultimo mese");
+        return LastMonthCounters.getInstance().getAbitazionePiuPrenotata().flatMap(this::getAbitazioneById);
+    }
+
+    /**
+     * Abitazione più prenotata con inizio tra from e to (inclusi), dal rollup giornaliero.
+     */
+    public Optional<Abitazione> getMostPopularAbitazione(LocalDate from, LocalDate to) {
+        return rollupService.getPrenotazioniPerAbitazione(from, to, 1).keySet().stream()
+                .findFirst()
+                .flatMap(this::getAbitazioneById);
     }
 
     /**
      * Ricerca abitazioni per numero di locali.
      */
     public List<Abitazione> getAbitazioniByLocali(int nLocali) {
-        log.info("Ricerca abitazioni con {} locali", nLocali);
+        log.debug("Ricerca abitazioni con {} locali", nLocali);
         if (nLocali <= 0) {
             log.error("non ci sono abitazioni con 0 posti");
             throw new AbitazioneNotFoundException("le abitazioni non possono avere 0 posti");
@@ -77,11 +217,43 @@ public class AbitazioneDAOService {
     }
 
     /**
-     * Ricerca abitazioni disponibili in un determinato range temporale.
+     * Ricerca abitazioni disponibili in un determinato range temporale:
+     * finestra di disponibilità dal DB, prenotazioni esistenti escluse
+     * tramite l'indice in memoria (nessuna query per singola abitazione).
      */
     public List<Abitazione> getAbitazioniDisponibili(LocalDate inizio, LocalDate fine) {
-        log.info("Ricerca disponibilità tra {} e {}", inizio, fine);
-        return abitazioneDAO.findByDataDisponibilita(inizio, fine);
+        log.debug("Ricerca disponibilità tra {} e {}", inizio, fine);
+        PrenotazioneIndex index = PrenotazioneIndex.getInstance();
+        return abitazioneDAO.findByDataDisponibilita(inizio, fine).stream()
+                .filter(a -> index.isFree(a.getId(), inizio, fine))
+                .toList();
+    }
+
+    /**
+     * Ricerca con più criteri insieme (locali, posti letto, prezzo, host,
+     * date) e conteggi per faccetta, servita dall'indice in memoria.
+     */
+    public AbitazioneSearchResult searchAbitazioni(AbitazioneFilter filter, int after, int limit) {
+        if ((filter.getInizio() == null) != (filter.getFine() == null)) {
+            throw new IllegalArgumentException("inizio e fine vanno indicati insieme");
+        }
+        if (filter.getInizio() != null && !filter.getFine().isAfter(filter.getInizio())) {
+            throw new IllegalArgumentException("fine deve essere successiva a inizio");
+        }
+        return AbitazioneSearchEngine.getInstance().search(filter, after, limit);
+    }
+
+    /**
+     * Le limit abitazioni più economiche (o più care se desc) disponibili nel
+     * periodo, dall'indice dei prezzi: la scansione si ferma alla limit-esima.
+     */
+    public List<Abitazione> getAbitazioniDisponibiliPerPrezzo(LocalDate inizio, LocalDate fine, boolean desc,
+            int limit) {
+        log.debug("Ricerca disponibilità per prezzo tra {} e {}, limit {}", inizio, fine, limit);
+        if (!fine.isAfter(inizio)) {
+            throw new IllegalArgumentException("fine deve essere successiva a inizio");
+        }
+        return AbitazionePriceIndex.getInstance().findDisponibili(inizio, fine, desc, limit);
     }
 
     public List<Abitazione> findByIdHost(int idHost){
@@ -89,7 +261,41 @@ public class AbitazioneDAOService {
     }
 
     public BigDecimal getMediaPostiLettoAbitazione(){
-        return abitazioneDAO.getMediaPostiLetto();
+        return InventoryStats.getInstance().getMediaPostiLetto();
+    }
+
+    public InventorySummary getInventorySummary() {
+        return InventoryStats.getInstance().getSummary();
+    }
+
+    public Map<String, BigDecimal> getPercentiliPrezzo(List<Integer> percentili) {
+        return InventoryStats.getInstance().getPercentiliPrezzo(percentili);
+    }
+
+    /**
+     * Istogrammi del numero di locali e di posti letto (valore -> abitazioni).
+     */
+    public Map<String, Map<Integer, Integer>> getDistribuzioni() {
+        Map<String, Map<Integer, Integer>> result = new LinkedHashMap<>();
+        result.put("nLocali", InventoryStats.getInstance().getDistribuzioneLocali());
+        result.put("nPostiLetto", InventoryStats.getInstance().getDistribuzionePostiLetto());
+        return result;
+    }
+
+    public List<HostInventoryStats> getInventoryStatsPerHost() {
+        return InventoryStats.getInstance().getHosts();
+    }
+
+    /**
+     * Autocompletamento su nome e indirizzo, tollerante agli errori di
+     * battitura, senza accedere al database.
+     */
+    public List<AbitazioneSuggestion> suggestAbitazioni(String query, int limit) {
+        return AbitazioneSuggestIndex.getInstance().suggest(query, limit);
+    }
+
+    public Optional<HostInventoryStats> getInventoryStatsHost(int idHost) {
+        return InventoryStats.getInstance().getHost(idHost);
     }
 
     /**
@@ -101,7 +307,20 @@ public class AbitazioneDAOService {
             return Optional.empty();
         }
         log.info("Aggiornamento abitazione ID: {}", a.getId());
-        return abitazioneDAO.update(a);
+        Optional<Abitazione> old = getAbitazioneById(a.getId());
+        Optional<Abitazione> updated = abitazioneDAO.update(a);
+        EntityCaches.ABITAZIONI.invalidate(a.getId());
+        if (updated.isPresent() && old.isPresent()) {
+            AbitazioneEvents.deleted(old.get());
+            AbitazioneEvents.created(updated.get());
+        } else if (updated.isPresent()) {
+            AbitazioneEvents.reload();
+        }
+        if (updated.isPresent() && old.isPresent() && old.get().getIdHost() != a.getIdHost()) {
+            // le prenotazioni passano a un altro host: i contatori per host vanno ricalcolati
+            PrenotazioneDAOService.withAllBookingLocks(PrenotazioneEvents::reload);
+        }
+        return updated;
     }
 
     /**
@@ -109,7 +328,31 @@ public class AbitazioneDAOService {
      */
     public boolean deleteAbitazione(int id) {
         log.info("Richiesta cancellazione abitazione ID: {}", id);
-        return abitazioneDAO.deleteById(id);
+        Optional<Abitazione> old = getAbitazioneById(id);
+        if (old.isEmpty()) {
+            // non in cache né sul DB: niente da notificare, ma si allinea comunque
+            boolean deleted = abitazioneDAO.deleteById(id);
+            if (deleted) {
+                EntityCaches.ABITAZIONI.invalidate(id);
+                AbitazioneEvents.reload();
+                PrenotazioneDAOService.withAllBookingLocks(() -> {
+                    PrenotazioneIndex.getInstance().removeByAbitazione(id);
+                    PrenotazioneEvents.reload();
+                });
+                FeedbackEvents.reload();
+            }
+            return deleted;
+        }
+        // le prenotazioni dell'abitazione (e i loro feedback) sono cancellate a
+        // cascata dal DB: si leggono prima e si notificano una per una
+        return PrenotazioneDAOService.withBookingLock(id, () -> {
+            Cascata cascata = Cascata.raccogli(List.of(old.get()), null, idAbitazione -> Optional.empty(), feedbackDAO);
+            boolean deleted = abitazioneDAO.deleteById(id);
+            if (deleted) {
+                cascata.pubblica();
+            }
+            return deleted;
+        });
     }
 
     /**
@@ -0,0 +1,77 @@
+package com.turistafacoltoso.service;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+
+import com.turistafacoltoso.model.BatchItemResult;
+import com.turistafacoltoso.util.DataBaseConnection;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Inserimento a blocchi (db.batch.size righe per transazione) degli elementi
+ * già validati di una richiesta batch. Se un blocco fallisce le sue righe
+ * vengono reinserite una alla volta, così l'errore resta sulla sola riga
+ * che lo ha causato.
+ */
+@Slf4j
+class BatchInsert<T> {
+    static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final UnaryOperator<List<T>> batchInsert;
+    private final UnaryOperator<T> singleInsert;
+    private final ToIntFunction<T> idOf;
+    private final Consumer<T> afterInsert;
+
+    BatchInsert(UnaryOperator<List<T>> batchInsert, UnaryOperator<T> singleInsert, ToIntFunction<T> idOf,
+            Consumer<T> afterInsert) {
+        this.batchInsert = batchInsert;
+        this.singleInsert = singleInsert;
+        this.idOf = idOf;
+        this.afterInsert = afterInsert;
+    }
+
+    /**
+     * Inserisce gli elementi items[i] per ogni i in valid e scrive l'esito in results[i].
+     */
+    void run(List<T> items, List<Integer> valid, BatchItemResult[] results) {
+        int size = DataBaseConnection.getIntProperty("db.batch.size", DEFAULT_BATCH_SIZE);
+        for (int from = 0; from < valid.size(); from += size) {
+            List<Integer> chunk = valid.subList(from, Math.min(from + size, valid.size()));
+            List<T> rows = chunk.stream().map(items::get).toList();
+            try {
+                batchInsert.apply(rows);
+                for (int k = 0; k < rows.size(); k++) {
+                    done(chunk.get(k), rows.get(k), results);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Blocco di {} righe fallito, inserimento riga per riga", rows.size(), e);
+                for (int index : chunk) {
+                    try {
+                        done(index, singleInsert.apply(items.get(index)), results);
+                    } catch (RuntimeException ex) {
+                        results[index] = BatchItemResult.failed(index, errorMessage(ex));
+                    }
+                }
+            }
+        }
+    }
+
+    private void done(int index, T created, BatchItemResult[] results) {
+        results[index] = BatchItemResult.ok(index, idOf.applyAsInt(created));
+        afterInsert.accept(created);
+    }
+
+    /**
+     * Messaggio più specifico disponibile (es. il vincolo violato riportato dal database).
+     */
+    static String errorMessage(Throwable e) {
+        Throwable t = e;
+        while (t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t.getMessage() != null ? t.getMessage() : e.getMessage();
+    }
+}
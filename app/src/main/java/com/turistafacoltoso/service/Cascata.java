@@ -0,0 +1,84 @@
+package com.turistafacoltoso.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.IntFunction;
+
+import com.turistafacoltoso.index.AbitazioneEvents;
+import com.turistafacoltoso.index.FeedbackEvents;
+import com.turistafacoltoso.index.PrenotazioneEvents;
+import com.turistafacoltoso.index.PrenotazioneIndex;
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.Feedback;
+import com.turistafacoltoso.model.Prenotazione;
+import com.turistafacoltoso.repository.dao.FeedbackDAO;
+import com.turistafacoltoso.util.EntityCaches;
+
+/**
+ * Righe che il DB cancella a cascata insieme a un utente, a un host o a
+ * un'abitazione. Vanno raccolte prima della delete e pubblicate dopo come
+ * eventi deleted mirati, al posto del reload completo di indice e listener.
+ * Il chiamante tiene i lock delle prenotazioni per tutta l'operazione.
+ */
+class Cascata {
+    private final List<Abitazione> abitazioni;
+    private final List<Prenotazione> prenotazioni;
+    private final Map<Integer, Abitazione> abitazioniPrenotate;
+    private final List<Feedback> feedbacks;
+    // false se l'abitazione di qualche prenotazione non si trova più
+    private final boolean completa;
+
+    private Cascata(List<Abitazione> abitazioni, List<Prenotazione> prenotazioni,
+            Map<Integer, Abitazione> abitazioniPrenotate, List<Feedback> feedbacks) {
+        this.abitazioni = abitazioni;
+        this.prenotazioni = prenotazioni;
+        this.abitazioniPrenotate = abitazioniPrenotate;
+        this.feedbacks = feedbacks;
+        this.completa = prenotazioni.stream().allMatch(p -> abitazioniPrenotate.containsKey(p.getAbitazioneId()));
+    }
+
+    /**
+     * Raccoglie le prenotazioni delle abitazioni indicate e, se idUtente non
+     * è null, quelle fatte dall'utente su altre abitazioni (risolte con
+     * resolver), con i rispettivi feedback.
+     */
+    static Cascata raccogli(List<Abitazione> abitazioni, Integer idUtente,
+            IntFunction<Optional<Abitazione>> resolver, FeedbackDAO feedbackDAO) {
+        Map<Integer, Abitazione> abitazioniPrenotate = new HashMap<>();
+        abitazioni.forEach(a -> abitazioniPrenotate.put(a.getId(), a));
+        List<Prenotazione> prenotazioni = PrenotazioneIndex.getInstance()
+                .find(p -> abitazioniPrenotate.containsKey(p.getAbitazioneId())
+                        || (idUtente != null && p.getUtenteId() == idUtente));
+        for (Prenotazione p : prenotazioni) {
+            // se l'abitazione non si trova, in pubblica() si ripiega sul reload
+            if (!abitazioniPrenotate.containsKey(p.getAbitazioneId())) {
+                resolver.apply(p.getAbitazioneId()).ifPresent(a -> abitazioniPrenotate.put(a.getId(), a));
+            }
+        }
+        List<Feedback> feedbacks = feedbackDAO.findByPrenotazioni(prenotazioni.stream().map(Prenotazione::getId).toList());
+        return new Cascata(abitazioni, prenotazioni, abitazioniPrenotate, feedbacks);
+    }
+
+    /**
+     * Da chiamare dopo la delete andata a buon fine.
+     */
+    void pubblica() {
+        PrenotazioneIndex index = PrenotazioneIndex.getInstance();
+        for (Prenotazione p : prenotazioni) {
+            index.remove(p.getId());
+            if (completa) {
+                PrenotazioneEvents.deleted(p, abitazioniPrenotate.get(p.getAbitazioneId()));
+            }
+        }
+        if (!completa) {
+            PrenotazioneEvents.reload();
+        }
+        feedbacks.forEach(FeedbackEvents::deleted);
+        for (Abitazione a : abitazioni) {
+            EntityCaches.ABITAZIONI.invalidate(a.getId());
+            AbitazioneEvents.deleted(a);
+        }
+    }
+}
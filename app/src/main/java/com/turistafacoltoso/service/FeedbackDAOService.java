@@ -1,10 +1,22 @@
 package com.turistafacoltoso.service;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import com.turistafacoltoso.exception.FeedbackNotFoundException;
+import com.turistafacoltoso.index.AbitazioneEvents;
+import com.turistafacoltoso.index.FeedbackEvents;
+import com.turistafacoltoso.index.FeedbackSearchIndex;
+import com.turistafacoltoso.index.RatingAggregates;
 import com.turistafacoltoso.model.Feedback;
+import com.turistafacoltoso.model.FeedbackSearchHit;
+import com.turistafacoltoso.model.Page;
+import com.turistafacoltoso.model.RatingStats;
+import com.turistafacoltoso.repository.AbitazioneDAOImpl;
 import com.turistafacoltoso.repository.FeedbackDAOImpl;
 import com.turistafacoltoso.repository.dao.FeedbackDAO;
 
@@ -18,6 +30,29 @@ public class FeedbackDAOService {
         this.feedbackDAO = new FeedbackDAOImpl();
     }
 
+    /**
+     * Carica i punteggi aggregati per abitazione e host e li registra tra i
+     * listener dei feedback e delle abitazioni (da chiamare all'avvio).
+     */
+    public void loadRatingAggregates() {
+        RatingAggregates ratings = RatingAggregates.getInstance();
+        ratings.setLoader(feedbackDAO::streamAll, new AbitazioneDAOImpl()::streamAll);
+        ratings.reload();
+        FeedbackEvents.register(ratings);
+        AbitazioneEvents.register(ratings.abitazioni());
+    }
+
+    /**
+     * Carica l'indice di ricerca su titolo e testo dei feedback e lo registra
+     * tra i listener (da chiamare all'avvio).
+     */
+    public void loadSearchIndex() {
+        FeedbackSearchIndex index = FeedbackSearchIndex.getInstance();
+        index.setLoader(feedbackDAO::streamAll);
+        index.reload();
+        FeedbackEvents.register(index);
+    }
+
     /**
      * inserimento di un feedback
      * 
@@ -28,7 +63,9 @@ public class FeedbackDAOService {
             ,titolo,testo,punteggio,prenotazioneId,idUtente);
         if (punteggio < 1 || punteggio > 5) throw new IllegalArgumentException("Punteggio non valido");
         Feedback f = new Feedback(titolo,testo,punteggio,prenotazioneId,idUtente,idAbitazione);
-        return feedbackDAO.create(f);
+        Feedback created = feedbackDAO.create(f);
+        FeedbackEvents.created(created);
+        return created;
     }
 
     /**
@@ -36,15 +73,26 @@ public class FeedbackDAOService {
      * ricerca di tutti i feedback
      */
     public List<Feedback> getAllFeedback(){
-        log.info("ricerca tutti i feedback nel sistema");
+        log.debug("ricerca tutti i feedback nel sistema");
         return feedbackDAO.findAll();
     }
 
+    /**
+     * pagina di feedback con id maggiore di afterId
+     */
+    public Page<Feedback> getFeedbackPage(int afterId, int limit){
+        return Page.of(feedbackDAO.findPage(afterId, limit + 1), limit, Feedback::getId);
+    }
+
+    public void exportFeedback(Consumer<Feedback> consumer){
+        feedbackDAO.streamAll(consumer);
+    }
+
     /**
      * ricerca di un feedback per id
      */
     public Optional<Feedback> getFeedbackById(int id){
-        log.info("ricerca feedback by id");
+        log.debug("ricerca feedback by id");
         if (id <= 0) {
             log.error("l'id non può essere 0 o null");
             throw new FeedbackNotFoundException("feedback non trovato con id: "+id);
@@ -57,7 +105,7 @@ public class FeedbackDAOService {
      *  ricerca feedback by idHost
      */
     public List<Feedback> getFeedbackByIdUtente(int idUtente){
-        log.info("ricerca feedback by idUtente");
+        log.debug("ricerca feedback by idUtente");
         if (idUtente <= 0) {
             log.error("l'id non può essere 0 o null");
             throw new FeedbackNotFoundException("feedback non trovato: "+idUtente);
@@ -79,6 +127,50 @@ public class FeedbackDAOService {
         return feedbackDAO.findByPunteggio(punteggio);
     }
 
+    /**
+     * ricerca full-text su titolo e testo, ordinata per rilevanza. La
+     * paginazione è per posizione: nextCursor è il numero di risultati già
+     * restituiti, da passare come ?after= per la pagina successiva.
+     */
+    public Page<FeedbackSearchHit> searchFeedback(String query, int offset, int limit) {
+        List<FeedbackSearchIndex.Hit> hits = FeedbackSearchIndex.getInstance().search(query, offset, limit);
+        List<FeedbackSearchIndex.Hit> pagina = hits.subList(0, Math.min(limit, hits.size()));
+        List<Integer> ids = new ArrayList<>(pagina.size());
+        for (FeedbackSearchIndex.Hit hit : pagina) {
+            ids.add(hit.idFeedback());
+        }
+        Map<Integer, Feedback> byId = new HashMap<>();
+        for (Feedback f : feedbackDAO.findByIds(ids)) {
+            byId.put(f.getId(), f);
+        }
+        List<FeedbackSearchHit> items = new ArrayList<>(pagina.size());
+        for (FeedbackSearchIndex.Hit hit : pagina) {
+            Feedback f = byId.get(hit.idFeedback());
+            if (f != null) {
+                items.add(new FeedbackSearchHit(f, hit.rilevanza()));
+            }
+        }
+        return new Page<>(items, hits.size() > limit ? offset + limit : null);
+    }
+
+    /**
+     * punteggi aggregati di un'abitazione, senza leggere la tabella feedback
+     */
+    public Optional<RatingStats> getRatingAbitazione(int idAbitazione) {
+        return RatingAggregates.getInstance().getAbitazione(idAbitazione);
+    }
+
+    public Optional<RatingStats> getRatingHost(int idHost) {
+        return RatingAggregates.getInstance().getHost(idHost);
+    }
+
+    /**
+     * classifica delle abitazioni o degli host per media bayesiana
+     */
+    public List<RatingStats> getTopRated(RatingAggregates.GroupBy by, int limit) {
+        return RatingAggregates.getInstance().getClassifica(by, limit);
+    }
+
     /**
      * 
      * update di un feedback
@@ -90,7 +182,16 @@ public class FeedbackDAOService {
             log.error("l'id non può essere 0: ",f.getId());
             throw new IllegalArgumentException("errore update feedback per id");
         }
-        return feedbackDAO.update(f);
+        if (f.getPunteggio() < 1 || f.getPunteggio() > 5) throw new IllegalArgumentException("Punteggio non valido");
+        Optional<Feedback> old = feedbackDAO.findById(f.getId());
+        Optional<Feedback> updated = feedbackDAO.update(f);
+        if (updated.isPresent() && old.isPresent()) {
+            FeedbackEvents.deleted(old.get());
+            FeedbackEvents.created(updated.get());
+        } else if (updated.isPresent()) {
+            FeedbackEvents.reload();
+        }
+        return updated;
     }
 
 
@@ -102,12 +203,14 @@ public class FeedbackDAOService {
     public boolean deleteFeedbackById(int id){
         log.info("delete di un feedback per id");
 
-        Optional<Feedback> feedback = feedbackDAO.findById(id);
+        // una sola query: la riga cancellata serve agli indici
+        Optional<Feedback> feedback = feedbackDAO.deleteReturning(id);
         if (feedback.isEmpty()) {
             log.warn("Impossibile eliminare: feedback {} non trovato", id);
             return false;
         }
-        return feedbackDAO.deleteById(id);
+        FeedbackEvents.deleted(feedback.get());
+        return true;
     }
 
 }
@@ -1,21 +1,62 @@
 package com.turistafacoltoso.service;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
-import com.turistafacoltoso.exception.DuplicateHostException;
 import com.turistafacoltoso.exception.HostNotFoundException;
+import com.turistafacoltoso.index.AbitazioneEvents;
+import com.turistafacoltoso.index.FeedbackEvents;
+import com.turistafacoltoso.index.LastMonthCounters;
+import com.turistafacoltoso.index.PrenotazioneEvents;
+import com.turistafacoltoso.index.PrenotazioneIndex;
+import com.turistafacoltoso.index.SuperHostRegistry;
 import com.turistafacoltoso.model.Host;
+import com.turistafacoltoso.model.Page;
+import com.turistafacoltoso.model.ReconcileReport;
+import com.turistafacoltoso.repository.AbitazioneDAOImpl;
+import com.turistafacoltoso.repository.FeedbackDAOImpl;
 import com.turistafacoltoso.repository.HostDAOImpl;
+import com.turistafacoltoso.repository.dao.AbitazioneDAO;
+import com.turistafacoltoso.repository.dao.FeedbackDAO;
 import com.turistafacoltoso.repository.dao.HostDAO;
+import com.turistafacoltoso.util.DataBaseConnection;
+import com.turistafacoltoso.util.EntityCaches;
+
 public class HostDAOService {
     private final HostDAO hostDAO;
     private final UtenteDAOService utenteService;
+    private final AbitazioneDAO abitazioneDAO;
+    private final FeedbackDAO feedbackDAO;
+    private final RollupService rollupService = new RollupService();
 
     public HostDAOService() {
-        hostDAO = new HostDAOImpl();
-        utenteService = new UtenteDAOService();
+        this(new HostDAOImpl(), new UtenteDAOService(), new AbitazioneDAOImpl(), new FeedbackDAOImpl());
+    }
+
+    public HostDAOService(HostDAO hostDAO, UtenteDAOService utenteService, AbitazioneDAO abitazioneDAO,
+            FeedbackDAO feedbackDAO) {
+        this.hostDAO = hostDAO;
+        this.utenteService = utenteService;
+        this.abitazioneDAO = abitazioneDAO;
+        this.feedbackDAO = feedbackDAO;
+    }
+
+    /**
+     * Carica i contatori dei super-host e li registra tra i listener delle
+     * prenotazioni (da chiamare all'avvio).
+     */
+    public void loadSuperHostRegistry() {
+        SuperHostRegistry registry = SuperHostRegistry.getInstance();
+        registry.setSoglia(DataBaseConnection.getIntProperty("superhost.threshold", SuperHostRegistry.DEFAULT_SOGLIA));
+        registry.setLoader(hostDAO::countPrenotazioniPerHost);
+        registry.setNameResolver(id -> getHostById(id).map(h -> h.getNomeUser() + " " + h.getCognome()));
+        registry.reload();
+        PrenotazioneEvents.register(registry);
     }
 
     // ==================== CREATE ====================
@@ -28,12 +69,8 @@ public class HostDAOService {
             throw new IllegalArgumentException("ID utente non valido");
         }
 
-        // Controllo duplicato: un utente può essere host una sola volta
-        Optional<Host> existingHost = hostDAO.findById(host.getIdUtente());
-        if (existingHost.isPresent()) {
-            throw new DuplicateHostException(host.getIdUtente());
-        }
-
+        // un utente può essere host una sola volta: il duplicato è rilevato
+        // dall'insert stesso (vincolo UNIQUE su id_utente), senza lookup preventivo
         return hostDAO.create(host);
     }
 
@@ -43,16 +80,68 @@ public class HostDAOService {
         return hostDAO.findAll();
     }
 
+    public Page<Host> getHostsPage(int afterId, int limit) {
+        return Page.of(hostDAO.findPage(afterId, limit + 1), limit, Host::getId);
+    }
+
+    public void exportHosts(Consumer<Host> consumer) {
+        hostDAO.streamAll(consumer);
+    }
+
     public Optional<Host> getHostById(int id) {
-        return hostDAO.findById(id); // Assumendo che il DAO dell'Host restituisca un Optional
+        return EntityCaches.HOSTS.get(id, hostDAO::findById);
+    }
+
+    /**
+     * Host per numero di prenotazioni nell'ultimo mese (nome completo -> totale),
+     * dai contatori in memoria. Host con lo stesso nome vengono sommati, come
+     * nella GROUP BY per nome della query originale.
+     */
+    public Map<String, Integer> findTopHostsLastMonthS(int limit){
+        return rankByName(LastMonthCounters.getInstance().getClassificaHosts(), limit);
     }
 
-    public Map<String, Integer> findTopHostsLastMonthS(){
-        return hostDAO.findTopHostsLastMonth();
+    /**
+     * Host per numero di prenotazioni con inizio tra from e to (inclusi), dal rollup giornaliero.
+     */
+    public Map<String, Integer> findTopHosts(LocalDate from, LocalDate to, int limit){
+        return rankByName(rollupService.getPrenotazioniPerHost(from, to, limit), limit);
     }
 
     public Map<String,Integer> findAllSuperHosts(){
-        return hostDAO.findAllSuperHosts();
+        return SuperHostRegistry.getInstance().getSuperHosts();
+    }
+
+    /**
+     * Ricalcola i contatori dei super-host dalle tabelle, bloccando le
+     * prenotazioni come gli altri reload dei listener.
+     */
+    public void rebuildSuperHosts() {
+        PrenotazioneDAOService.withAllBookingLocks(SuperHostRegistry.getInstance()::reload);
+    }
+
+    public ReconcileReport verifySuperHosts() {
+        return SuperHostRegistry.getInstance().verify();
+    }
+
+    // --- Metodi Helper ---
+
+    private Map<String, Integer> rankByName(Map<Integer, Integer> perHost, int limit) {
+        Map<String, Integer> perNome = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Integer> e : perHost.entrySet()) {
+            getHostById(e.getKey()).ifPresent(
+                    h -> perNome.merge(h.getNomeUser() + " " + h.getCognome(), e.getValue(), Integer::sum));
+        }
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(perNome.entrySet());
+        entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+        Map<String, Integer> ranking = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> e : entries) {
+            if (ranking.size() == limit) {
+                break;
+            }
+            ranking.put(e.getKey(), e.getValue());
+        }
+        return ranking;
     }
 
     // ==================== UPDATE ====================
@@ -66,14 +155,29 @@ public class HostDAOService {
         utenteService.updateUtente(host);
 
         // Aggiorno la tabella host
-        return hostDAO.update(host)
+        Host updated = hostDAO.update(host)
                 .orElseThrow(() -> new HostNotFoundException(host.getId()));
+        EntityCaches.HOSTS.invalidate(host.getId());
+        SuperHostRegistry.getInstance().rename(updated.getId(), host.getNomeUser() + " " + host.getCognome());
+        return updated;
     }
 
     // ==================== DELETE ====================
 
+    // Abitazioni e prenotazioni dell'host sono cancellate a cascata dal DB
+
     public int deleteAllHosts() {
-        return hostDAO.deleteAll();
+        int deleted = hostDAO.deleteAll();
+        // con gli host spariscono anche le loro abitazioni
+        EntityCaches.HOSTS.invalidateAll();
+        EntityCaches.ABITAZIONI.invalidateAll();
+        PrenotazioneDAOService.withAllBookingLocks(() -> {
+            PrenotazioneIndex.getInstance().reload();
+            PrenotazioneEvents.reload();
+        });
+        AbitazioneEvents.reload();
+        FeedbackEvents.reload();
+        return deleted;
     }
 
     public void deleteHostById(Integer id) {
@@ -81,9 +185,16 @@ public class HostDAOService {
             throw new IllegalArgumentException("ID non valido");
         }
 
-        boolean deleted = hostDAO.deleteById(id);
-        if (!deleted) {
-            throw new HostNotFoundException(id);
-        }
+        // le righe a cascata si leggono prima della delete e si notificano una
+        // per una: i lock impediscono nuove prenotazioni sulle abitazioni nel frattempo
+        PrenotazioneDAOService.withAllBookingLocks(() -> {
+            Cascata cascata = Cascata.raccogli(abitazioneDAO.findByHostId(id), null,
+                    idAbitazione -> EntityCaches.ABITAZIONI.get(idAbitazione, abitazioneDAO::findById), feedbackDAO);
+            if (!hostDAO.deleteById(id)) {
+                throw new HostNotFoundException(id);
+            }
+            EntityCaches.HOSTS.invalidate(id);
+            cascata.pubblica();
+        });
     }
 }
@@ -0,0 +1,226 @@
+package com.turistafacoltoso.service;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import com.turistafacoltoso.index.AbitazioneEvents;
+import com.turistafacoltoso.index.PrenotazioneEvents;
+import com.turistafacoltoso.index.PrenotazioneIndex;
+import com.turistafacoltoso.model.ImportJob;
+import com.turistafacoltoso.model.ImportTipo;
+import com.turistafacoltoso.repository.ImportDAOImpl;
+import com.turistafacoltoso.repository.dao.ImportDAO;
+import com.turistafacoltoso.util.CsvParsingReader;
+import com.turistafacoltoso.util.EntityCaches;
+import com.turistafacoltoso.util.NdjsonCsvReader;
+import com.turistafacoltoso.util.RequestContext;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Import in blocco di utenti, abitazioni e prenotazioni da file CSV (con
+ * header) o NDJSON. Il file ricevuto è salvato su disco e accodato: un solo
+ * worker esegue gli import uno alla volta, mentre lo stato dei job resta
+ * consultabile (gli ultimi MAX_JOBS).
+ *
+ * Dopo il merge vengono allineati cache e indici in memoria; per le
+ * prenotazioni i controlli sulle sovrapposizioni, merge e reload di indice e
+ * listener avvengono bloccando le prenotazioni singole, così nessuna insert
+ * concorrente usa un indice che non contiene ancora le righe importate. Il
+ * CSV è riletto riga per riga: un record malformato viene scartato con il
+ * suo motivo invece di far fallire il COPY.
+ */
+@Slf4j
+public class ImportService {
+    public static final String FORMATO_CSV = "csv";
+    public static final String FORMATO_NDJSON = "ndjson";
+    private static final int MAX_JOBS = 50;
+
+    private static final Map<String, ImportJob> JOBS = new LinkedHashMap<>();
+    private static ExecutorService worker;
+
+    private final ImportDAO importDAO;
+
+    public ImportService() {
+        this(new ImportDAOImpl());
+    }
+
+    public ImportService(ImportDAO importDAO) {
+        this.importDAO = importDAO;
+    }
+
+    /**
+     * Accoda l'import del file (che verrà cancellato a fine job) e restituisce
+     * il job appena creato.
+     */
+    public ImportJob submit(ImportTipo tipo, String formato, Path file) throws IOException {
+        if (!FORMATO_CSV.equals(formato) && !FORMATO_NDJSON.equals(formato)) {
+            throw new IllegalArgumentException("format deve essere csv o ndjson");
+        }
+        ImportJob job = new ImportJob();
+        job.setId(UUID.randomUUID().toString());
+        job.setTipo(tipo);
+        job.setFormato(formato);
+        job.setStato(ImportJob.Stato.IN_CODA);
+        job.setByteTotali(Files.size(file));
+        job.setCreatoIl(LocalDateTime.now());
+        register(job);
+        log.info("Import {} accodato: {} {} ({} byte)", job.getId(), tipo, formato, job.getByteTotali());
+        worker().execute(() -> run(job, file));
+        return job;
+    }
+
+    public List<ImportJob> getJobs() {
+        synchronized (JOBS) {
+            List<ImportJob> jobs = new ArrayList<>(JOBS.values());
+            Collections.reverse(jobs);
+            return jobs;
+        }
+    }
+
+    public Optional<ImportJob> getJob(String id) {
+        synchronized (JOBS) {
+            return Optional.ofNullable(JOBS.get(id));
+        }
+    }
+
+    // --- Metodi Helper ---
+
+    private void run(ImportJob job, Path file) {
+        // contesto proprio del job: le letture dei reload dopo il merge vanno
+        // sul primario (read-your-writes) anche con le repliche attive
+        RequestContext.begin();
+        job.setStato(ImportJob.Stato.IN_CORSO);
+        job.setFase(ImportJob.Fase.CARICAMENTO);
+        job.setAvviatoIl(LocalDateTime.now());
+        try (InputStream in = new Conteggio(Files.newInputStream(file), job);
+                BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            ImportTipo tipo = job.getTipo();
+            if (FORMATO_CSV.equals(job.getFormato())) {
+                String header = reader.readLine();
+                if (header == null) {
+                    throw new IllegalArgumentException("File vuoto: manca l'header");
+                }
+                Reader csv = new CsvParsingReader(reader, tipo.colonneDaHeader(header), tipo.getColonne());
+                importDAO.importa(tipo, csv, job, guard(tipo));
+            } else {
+                Reader csv = new NdjsonCsvReader(reader, tipo.getColonne());
+                importDAO.importa(tipo, csv, job, guard(tipo));
+            }
+            job.setFase(ImportJob.Fase.AGGIORNAMENTO_INDICI);
+            afterImport(tipo);
+            job.setStato(ImportJob.Stato.COMPLETATO);
+        } catch (IOException | RuntimeException e) {
+            log.error("Import {} fallito: {}", job.getId(), e.getMessage());
+            job.setErrore(e.getMessage());
+            job.setStato(ImportJob.Stato.FALLITO);
+        } finally {
+            job.setCompletatoIl(LocalDateTime.now());
+            RequestContext.end();
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Impossibile cancellare il file temporaneo {}", file, e);
+            }
+        }
+    }
+
+    private static Consumer<Runnable> guard(ImportTipo tipo) {
+        if (tipo != ImportTipo.PRENOTAZIONI) {
+            return Runnable::run;
+        }
+        return merge -> PrenotazioneDAOService.withAllBookingLocks(() -> {
+            merge.run();
+            PrenotazioneIndex.getInstance().reload();
+            PrenotazioneEvents.reload();
+        });
+    }
+
+    private static void afterImport(ImportTipo tipo) {
+        switch (tipo) {
+            case UTENTI:
+                EntityCaches.UTENTI.invalidateAll();
+                break;
+            case ABITAZIONI:
+                EntityCaches.ABITAZIONI.invalidateAll();
+                AbitazioneEvents.reload();
+                break;
+        }
+    }
+
+    private static void register(ImportJob job) {
+        synchronized (JOBS) {
+            JOBS.put(job.getId(), job);
+            // oltre MAX_JOBS si tolgono i più vecchi tra quelli conclusi
+            Iterator<ImportJob> it = JOBS.values().iterator();
+            while (JOBS.size() > MAX_JOBS && it.hasNext()) {
+                ImportJob.Stato stato = it.next().getStato();
+                if (stato == ImportJob.Stato.COMPLETATO || stato == ImportJob.Stato.FALLITO) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    private static synchronized ExecutorService worker() {
+        if (worker == null) {
+            worker = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "import-worker");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return worker;
+    }
+
+    /**
+     * Aggiorna i byte letti del job man mano che COPY consuma il file.
+     */
+    private static final class Conteggio extends FilterInputStream {
+        private final ImportJob job;
+        private long letti;
+
+        Conteggio(InputStream in, ImportJob job) {
+            super(in);
+            this.job = job;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                job.setByteLetti(++letti);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                letti += n;
+                job.setByteLetti(letti);
+            }
+            return n;
+        }
+    }
+}
@@ -2,34 +2,201 @@ package com.turistafacoltoso.service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+import com.turistafacoltoso.exception.DuplicatePrenotazioneException;
 import com.turistafacoltoso.exception.PrenotazioneNotFoundException;
+import com.turistafacoltoso.index.FeedbackEvents;
+import com.turistafacoltoso.index.IntervalTree;
+import com.turistafacoltoso.index.LastMonthCounters;
+import com.turistafacoltoso.index.PrenotazioneColumns;
+import com.turistafacoltoso.index.PrenotazioneEvents;
+import com.turistafacoltoso.index.PrenotazioneIndex;
 import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.AnalyticsRow;
+import com.turistafacoltoso.model.BatchItemResult;
+import com.turistafacoltoso.model.BatchResult;
+import com.turistafacoltoso.model.Feedback;
+import com.turistafacoltoso.model.Page;
 import com.turistafacoltoso.model.Prenotazione;
+import com.turistafacoltoso.repository.FeedbackDAOImpl;
 import com.turistafacoltoso.repository.PrenotazioneDAOImpl;
+import com.turistafacoltoso.repository.dao.FeedbackDAO;
 import com.turistafacoltoso.repository.dao.PrenotazioneDAO;
+import com.turistafacoltoso.util.StripedLock;
 
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class PrenotazioneDAOService {
+    // serializza controllo di disponibilità e insert per la stessa abitazione
+    private static final StripedLock BOOKING_LOCKS = new StripedLock(256);
+
     private final PrenotazioneDAO prenotazioneDAO;
     private final AbitazioneDAOService abitazioneService;
+    private final PrenotazioneIndex prenotazioneIndex = PrenotazioneIndex.getInstance();
+    private final FeedbackDAO feedbackDAO;
 
     public PrenotazioneDAOService() {
-        this.prenotazioneDAO = new PrenotazioneDAOImpl();
-        this.abitazioneService = new AbitazioneDAOService();
+        this(new PrenotazioneDAOImpl(), new AbitazioneDAOService(), new FeedbackDAOImpl());
+    }
+
+    public PrenotazioneDAOService(PrenotazioneDAO prenotazioneDAO, AbitazioneDAOService abitazioneService,
+            FeedbackDAO feedbackDAO) {
+        this.prenotazioneDAO = prenotazioneDAO;
+        this.abitazioneService = abitazioneService;
+        this.feedbackDAO = feedbackDAO;
+    }
+
+    /**
+     * Esegue action bloccando le prenotazioni di tutte le abitazioni, per
+     * scritture massive e cascate che devono essere seguite dal reload
+     * dell'indice e dei listener prima che riprendano le scritture singole:
+     * una notifica che cade durante il reload verrebbe contata due volte o persa.
+     * Non va chiamato tenendo già il lock di una singola abitazione.
+     */
+    public static void withAllBookingLocks(Runnable action) {
+        BOOKING_LOCKS.withAll(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Esegue action tenendo il lock delle prenotazioni di una sola abitazione
+     * (es. cancellazione dell'abitazione con le sue prenotazioni).
+     */
+    public static <T> T withBookingLock(int idAbitazione, Supplier<T> action) {
+        return BOOKING_LOCKS.withLock(idAbitazione, action);
+    }
+
+    /**
+     * Carica in memoria l'indice delle prenotazioni (da chiamare all'avvio).
+     */
+    public void loadPrenotazioneIndex() {
+        prenotazioneIndex.setLoader(prenotazioneDAO::findAll);
+        prenotazioneIndex.reload();
+    }
+
+    /**
+     * Carica la copia colonnare delle prenotazioni per /prenotazioni/analytics
+     * e la registra tra i listener (da chiamare all'avvio).
+     */
+    public void loadPrenotazioneColumns() {
+        PrenotazioneColumns columns = PrenotazioneColumns.getInstance();
+        columns.setLoader(prenotazioneDAO::streamAll, abitazioneService::exportAbitazioni);
+        columns.reload();
+        PrenotazioneEvents.register(columns);
+    }
+
+    /**
+     * Carica i contatori dell'ultimo mese e li registra tra i listener delle
+     * prenotazioni (da chiamare all'avvio).
+     */
+    public void loadLastMonthCounters() {
+        LastMonthCounters counters = LastMonthCounters.getInstance();
+        // non getAllAbitazioni: lancia eccezione con la tabella vuota
+        counters.setLoader(prenotazioneDAO::findAll, abitazioneService::exportAbitazioni);
+        counters.reload();
+        PrenotazioneEvents.register(counters);
     }
 
     public Prenotazione insertPrenotazione(int idUtente, int idAbitazione, LocalDate dataInizio, LocalDate dataFine) {
         log.info("Richiesta prenotazione: Utente {} per Abitazione {} [{} / {}]", idUtente, idAbitazione, dataInizio, dataFine);
 
+        Prenotazione p = new Prenotazione();
+        p.setUtenteId(idUtente);
+        p.setAbitazioneId(idAbitazione);
+        p.setDataInizio(dataInizio);
+        p.setDataFine(dataFine);
+
+        // l'indice va aggiornato prima di rilasciare il lock, altrimenti una
+        // richiesta concorrente non vedrebbe la prenotazione appena creata
+        return BOOKING_LOCKS.withLock(idAbitazione, () -> {
+            Abitazione ab = validaPrenotazione(idAbitazione, dataInizio, dataFine);
+            p.setCreatedAt(LocalDateTime.now());
+            Prenotazione created = prenotazioneDAO.create(p);
+            afterInsert(created, ab);
+            return created;
+        });
+    }
+
+    /**
+     * Inserisce più prenotazioni in una sola richiesta: la validazione è fatta
+     * su tutte prima di scrivere (compresi i conflitti tra elementi dello
+     * stesso batch), poi le valide vengono inserite a blocchi.
+     */
+    public BatchResult insertPrenotazioniBatch(List<Prenotazione> items) {
+        log.info("Richiesta batch di {} prenotazioni", items.size());
+        List<Integer> ids = items.stream().filter(p -> p != null).map(Prenotazione::getAbitazioneId).toList();
+        return BOOKING_LOCKS.withLocks(ids, () -> insertBatchLocked(items));
+    }
+
+    private BatchResult insertBatchLocked(List<Prenotazione> items) {
+        BatchItemResult[] results = new BatchItemResult[items.size()];
+        List<Integer> valid = new ArrayList<>();
+        Map<Integer, Abitazione> abitazioni = new HashMap<>();
+        // periodi già accettati in questo batch, per abitazione
+        Map<Integer, IntervalTree> accettate = new HashMap<>();
+
+        for (int i = 0; i < items.size(); i++) {
+            Prenotazione p = items.get(i);
+            try {
+                if (p == null) {
+                    throw new IllegalArgumentException("Elemento nullo.");
+                }
+                Abitazione ab = validaPrenotazione(p.getAbitazioneId(), p.getDataInizio(), p.getDataFine());
+                IntervalTree tree = accettate.computeIfAbsent(ab.getId(), k -> new IntervalTree());
+                int start = (int) p.getDataInizio().toEpochDay();
+                int end = (int) p.getDataFine().toEpochDay();
+                if (tree.overlaps(start, end)) {
+                    throw new DuplicatePrenotazioneException("Periodo in conflitto con un'altra prenotazione dello stesso batch.");
+                }
+                tree.insert(i, start, end);
+                abitazioni.put(ab.getId(), ab);
+                p.setId(0);
+                p.setCreatedAt(LocalDateTime.now());
+                valid.add(i);
+            } catch (RuntimeException e) {
+                results[i] = BatchItemResult.failed(i, e.getMessage());
+            }
+        }
+
+        new BatchInsert<Prenotazione>(prenotazioneDAO::createBatch, prenotazioneDAO::create, Prenotazione::getId,
+                created -> afterInsert(created, abitazioni.get(created.getAbitazioneId())))
+                .run(items, valid, results);
+        BatchResult result = BatchResult.of(results);
+        log.info("Batch prenotazioni completato: {} inserite, {} fallite", result.getInseriti(), result.getFalliti());
+        return result;
+    }
+
+    /**
+     * Controlli comuni a insert singola e batch; restituisce l'abitazione da prenotare.
+     */
+    private Abitazione validaPrenotazione(int idAbitazione, LocalDate dataInizio, LocalDate dataFine) {
+        return validaPrenotazione(idAbitazione, dataInizio, dataFine, Integer.MIN_VALUE, null);
+    }
+
+    /**
+     * Come sopra per l'update della prenotazione excludeId, che non è in
+     * conflitto con sé stessa; se la data di inizio resta inizioAttuale una
+     * prenotazione già iniziata può ancora cambiare la data di fine.
+     */
+    private Abitazione validaPrenotazione(int idAbitazione, LocalDate dataInizio, LocalDate dataFine, int excludeId,
+            LocalDate inizioAttuale) {
+        if (dataInizio == null || dataFine == null) {
+            throw new IllegalArgumentException("Le date di inizio e fine sono obbligatorie.");
+        }
         if (dataFine.isBefore(dataInizio) || dataFine.isEqual(dataInizio)) {
             throw new IllegalArgumentException("La data di fine deve essere successiva a quella di inizio.");
         }
-        if (dataInizio.isBefore(LocalDate.now())) {
+        if (dataInizio.isBefore(LocalDate.now()) && !dataInizio.equals(inizioAttuale)) {
             throw new IllegalArgumentException("Non è possibile prenotare una data nel passato.");
         }
 
@@ -43,24 +210,45 @@ public class PrenotazioneDAOService {
             throw new IllegalArgumentException("L'abitazione non è disponibile nel periodo richiesto. Disponibilità: " 
                     + ab.getDisponibilitaInizio() + " - " + ab.getDisponibilitaFine());
         }
-        Prenotazione p = new Prenotazione();
-        p.setUtenteId(idUtente);
-        p.setAbitazioneId(idAbitazione);
-        p.setDataInizio(dataInizio);
-        p.setDataFine(dataFine);
-        p.setCreatedAt(LocalDateTime.now());
+        int conflict = prenotazioneIndex.findConflict(idAbitazione, dataInizio, dataFine, excludeId);
+        if (conflict != -1) {
+            log.warn("Abitazione {} già prenotata nel periodo {} / {} (prenotazione {})", idAbitazione, dataInizio,
+                    dataFine, conflict);
+            throw new DuplicatePrenotazioneException("L'abitazione è già prenotata nel periodo richiesto.");
+        }
+        return ab;
+    }
 
-        return prenotazioneDAO.create(p);
+    private void afterInsert(Prenotazione created, Abitazione ab) {
+        prenotazioneIndex.add(created);
+        PrenotazioneEvents.created(created, ab);
     }
 
     // ==================== READ ====================
 
     public List<Prenotazione> getAllPrenotazioni() {
-        if (prenotazioneDAO.findAll().isEmpty()) {
+        List<Prenotazione> prenotazioni = prenotazioneDAO.findAll();
+        if (prenotazioni.isEmpty()) {
             log.error("Error method getAllPrenotazioni");
             throw new PrenotazioneNotFoundException("Prenotazione non trovata");
         }
-        return prenotazioneDAO.findAll();
+        return prenotazioni;
+    }
+
+    public Page<Prenotazione> getPrenotazioniPage(int afterId, int limit) {
+        return Page.of(prenotazioneDAO.findPage(afterId, limit + 1), limit, Prenotazione::getId);
+    }
+
+    public void exportPrenotazioni(Consumer<Prenotazione> consumer) {
+        prenotazioneDAO.streamAll(consumer);
+    }
+
+    /**
+     * Prenotazioni e notti per abitazione, host o utente con inizio tra from e
+     * to (inclusi), calcolate sulla copia colonnare in memoria.
+     */
+    public List<AnalyticsRow> getAnalytics(PrenotazioneColumns.GroupBy groupBy, LocalDate from, LocalDate to, int limit) {
+        return PrenotazioneColumns.getInstance().aggregate(groupBy, from, to, limit);
     }
 
     public Optional<Prenotazione> getPrenotazioneById(int id) {
@@ -93,18 +281,99 @@ public class PrenotazioneDAOService {
             log.warn("Tentativo di update su prenotazione senza ID valido");
             return Optional.empty();
         }
-        return prenotazioneDAO.update(p);
+        Optional<Prenotazione> previous = prenotazioneIndex.get(p.getId());
+        Optional<Abitazione> oldAb = previous.flatMap(old -> abitazioneService.getAbitazioneById(old.getAbitazioneId()));
+        Optional<Abitazione> newAb = abitazioneService.getAbitazioneById(p.getAbitazioneId());
+        if (oldAb.isEmpty() || newAb.isEmpty()) {
+            // senza la riga precedente non si sa quali contatori correggere:
+            // update e reload dei listener bloccando tutte le abitazioni
+            return BOOKING_LOCKS.withAll(() -> updateLocked(p, null, null));
+        }
+        // lock della vecchia e della nuova abitazione, così le notifiche ai
+        // listener non si incrociano mai con un reload
+        Optional<Prenotazione> updated = BOOKING_LOCKS.withLocks(List.of(oldAb.get().getId(), newAb.get().getId()),
+                () -> stessaAbitazione(p.getId(), oldAb.get()) ? updateLocked(p, oldAb.get(), newAb.get()) : null);
+        // null: spostata o cancellata da una richiesta concorrente, si riprova
+        return updated != null ? updated : updatePrenotazione(p);
+    }
+
+    /**
+     * Va chiamato tenendo i lock delle abitazioni coinvolte; con oldAb e newAb
+     * null il chiamante tiene tutti i lock e i listener vengono ricaricati.
+     */
+    private Optional<Prenotazione> updateLocked(Prenotazione p, Abitazione oldAb, Abitazione newAb) {
+        Optional<Prenotazione> previous = prenotazioneIndex.get(p.getId());
+        // stessi controlli dell'insert prima di scrivere: DB e indice non devono divergere
+        validaPrenotazione(p.getAbitazioneId(), p.getDataInizio(), p.getDataFine(), p.getId(),
+                previous.map(Prenotazione::getDataInizio).orElse(null));
+        Optional<Prenotazione> updated = prenotazioneDAO.update(p);
+        updated.ifPresent(u -> {
+            if (u.getCreatedAt() == null) {
+                previous.ifPresent(old -> u.setCreatedAt(old.getCreatedAt()));
+            }
+            prenotazioneIndex.add(u);
+            if (oldAb == null || newAb == null) {
+                PrenotazioneEvents.reload();
+                return;
+            }
+            PrenotazioneEvents.deleted(previous.get(), oldAb);
+            PrenotazioneEvents.created(u, newAb);
+        });
+        return updated;
     }
 
     // ==================== DELETE ====================
 
     public boolean deletePrenotazione(int id) {
         log.info("Eliminazione prenotazione ID: {}", id);
-        return prenotazioneDAO.deleteById(id);
+        Optional<Abitazione> ab = prenotazioneIndex.get(id)
+                .flatMap(old -> abitazioneService.getAbitazioneById(old.getAbitazioneId()));
+        if (ab.isEmpty()) {
+            return BOOKING_LOCKS.withAll(() -> deleteLocked(id, null));
+        }
+        Boolean deleted = BOOKING_LOCKS.withLock(ab.get().getId(),
+                () -> stessaAbitazione(id, ab.get()) ? deleteLocked(id, ab.get()) : null);
+        return deleted != null ? deleted : deletePrenotazione(id);
+    }
+
+    /**
+     * Come updateLocked: con ab null il chiamante tiene tutti i lock.
+     */
+    private boolean deleteLocked(int id, Abitazione ab) {
+        Optional<Prenotazione> previous = prenotazioneIndex.get(id);
+        // i feedback della prenotazione sono cancellati a cascata dal DB
+        List<Feedback> feedbacks = feedbackDAO.findByPrenotazione(id);
+        boolean deleted = prenotazioneDAO.deleteById(id);
+        if (deleted) {
+            prenotazioneIndex.remove(id);
+            feedbacks.forEach(FeedbackEvents::deleted);
+            if (ab != null) {
+                PrenotazioneEvents.deleted(previous.get(), ab);
+            } else {
+                PrenotazioneEvents.reload();
+            }
+        }
+        return deleted;
     }
 
     public int deleteAllPrenotazioni() {
         log.warn("Cancellazione di tutte le prenotazioni in corso!");
-        return prenotazioneDAO.deleteAll();
+        return BOOKING_LOCKS.withAll(() -> {
+            int deleted = prenotazioneDAO.deleteAll();
+            prenotazioneIndex.clear();
+            PrenotazioneEvents.reload();
+            FeedbackEvents.reload();
+            return deleted;
+        });
+    }
+
+    // --- Metodi Helper ---
+
+    /**
+     * true se, sotto lock, la prenotazione è ancora nell'indice e sulla stessa
+     * abitazione letta prima di prendere il lock.
+     */
+    private boolean stessaAbitazione(int idPrenotazione, Abitazione ab) {
+        return prenotazioneIndex.get(idPrenotazione).map(x -> x.getAbitazioneId() == ab.getId()).orElse(false);
     }
 }
@@ -0,0 +1,206 @@
+package com.turistafacoltoso.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.turistafacoltoso.index.PrenotazioneEvents;
+import com.turistafacoltoso.index.PrenotazioneListener;
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.Prenotazione;
+import com.turistafacoltoso.model.RollupDelta;
+import com.turistafacoltoso.repository.RollupDAOImpl;
+import com.turistafacoltoso.repository.dao.RollupDAO;
+import com.turistafacoltoso.util.DataBaseConnection;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Mantiene la tabella prenotazione_rollup: ogni create/delete di una
+ * prenotazione accoda il delta della riga del suo giorno, e il thread
+ * rollup-refresh scrive i delta accumulati con un solo batch per
+ * transazione, fuori dal lock e dalla connessione della richiesta. Lo stesso
+ * thread ricalcola la tabella per intero ogni rollup.refreshMinutes (e dopo i
+ * cambi di host), correggendo eventuali aggiornamenti persi.
+ *
+ * Le statistiche su intervalli arbitrari sommano le righe giornaliere invece
+ * di aggregare le prenotazioni.
+ */
+@Slf4j
+public class RollupService implements PrenotazioneListener {
+    private static ScheduledExecutorService scheduler;
+
+    private final RollupDAO rollupDAO;
+    private final Executor executor;
+    // delta non ancora scritti, sommati per riga
+    private final Map<Chiave, RollupDelta> pending = new LinkedHashMap<>();
+    private boolean flushInCoda;
+
+    public RollupService() {
+        this(new RollupDAOImpl());
+    }
+
+    public RollupService(RollupDAO rollupDAO) {
+        this(rollupDAO, Runnable::run);
+    }
+
+    /**
+     * executor esegue la scrittura dei delta e i ricalcoli chiesti da reload().
+     */
+    public RollupService(RollupDAO rollupDAO, Executor executor) {
+        this.rollupDAO = rollupDAO;
+        this.executor = executor;
+    }
+
+    /**
+     * Ricalcola il rollup, avvia il job periodico e registra gli aggiornamenti
+     * incrementali (da chiamare all'avvio).
+     */
+    public static synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "rollup-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        RollupService service = new RollupService(new RollupDAOImpl(), scheduler);
+        service.rebuild();
+        PrenotazioneEvents.register(service);
+
+        long minutes = DataBaseConnection.getLongProperty("rollup.refreshMinutes", 60);
+        if (minutes > 0) {
+            scheduler.scheduleWithFixedDelay(service::rebuildQuietly, minutes, minutes, TimeUnit.MINUTES);
+        }
+    }
+
+    public static synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Ricalcola la tabella bloccando le prenotazioni, che notificano dentro il
+     * lock: i delta scartati sono tutti di prenotazioni lette dal ricalcolo e
+     * quelli accodati dopo di prenotazioni che non ha visto. Le nuove
+     * prenotazioni attendono la fine del ricalcolo. Non va chiamato tenendo
+     * il lock di una singola abitazione.
+     */
+    public int rebuild() {
+        int[] rows = new int[1];
+        long start = System.nanoTime();
+        PrenotazioneDAOService.withAllBookingLocks(() -> {
+            synchronized (pending) {
+                pending.clear();
+            }
+            rows[0] = rollupDAO.rebuild();
+        });
+        log.info("Rollup prenotazioni ricalcolato: {} righe in {} ms", rows[0], (System.nanoTime() - start) / 1_000_000);
+        return rows[0];
+    }
+
+    @Override
+    public void onCreated(Prenotazione p, Abitazione a) {
+        accoda(p, a, 1);
+    }
+
+    @Override
+    public void onDeleted(Prenotazione p, Abitazione a) {
+        accoda(p, a, -1);
+    }
+
+    /**
+     * Le cascate sulle prenotazioni sono già applicate dalle foreign key del
+     * rollup; il ricalcolo serve per i cambi di host delle abitazioni e viene
+     * fatto in background per non rallentare la richiesta.
+     */
+    @Override
+    public void reload() {
+        executor.execute(this::rebuildQuietly);
+    }
+
+    /**
+     * Scrive i delta accumulati; normalmente lo chiama l'executor subito dopo
+     * il primo delta accodato.
+     */
+    public void flush() {
+        List<RollupDelta> deltas = new ArrayList<>();
+        synchronized (pending) {
+            for (RollupDelta d : pending.values()) {
+                // create e delete della stessa riga si annullano (es. update delle date)
+                if (d.getPrenotazioni() != 0 || d.getNotti() != 0) {
+                    deltas.add(d);
+                }
+            }
+            pending.clear();
+            flushInCoda = false;
+        }
+        rollupDAO.addAll(deltas);
+    }
+
+    // ==================== READ ====================
+
+    public Map<Integer, Integer> getPrenotazioniPerAbitazione(LocalDate from, LocalDate to, int limit) {
+        return rollupDAO.sumPrenotazioniPerAbitazione(from, to, limit);
+    }
+
+    public Map<Integer, Integer> getPrenotazioniPerHost(LocalDate from, LocalDate to, int limit) {
+        return rollupDAO.sumPrenotazioniPerHost(from, to, limit);
+    }
+
+    public Map<Integer, Integer> getNottiPerUtente(LocalDate from, LocalDate to, int limit) {
+        return rollupDAO.sumNottiPerUtente(from, to, limit);
+    }
+
+    // --- Metodi Helper ---
+
+    private void accoda(Prenotazione p, Abitazione a, int segno) {
+        RollupDelta delta = new RollupDelta(p.getDataInizio(), p.getAbitazioneId(), a.getIdHost(), p.getUtenteId(),
+                segno, segno * notti(p));
+        boolean avvia;
+        synchronized (pending) {
+            pending.merge(new Chiave(delta.getGiorno(), delta.getAbitazioneId(), delta.getUtenteId()), delta,
+                    (vecchio, nuovo) -> new RollupDelta(nuovo.getGiorno(), nuovo.getAbitazioneId(), nuovo.getHostId(),
+                            nuovo.getUtenteId(), vecchio.getPrenotazioni() + nuovo.getPrenotazioni(),
+                            vecchio.getNotti() + nuovo.getNotti()));
+            avvia = !flushInCoda;
+            flushInCoda = true;
+        }
+        if (avvia) {
+            executor.execute(this::flushQuietly);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // il prossimo ricalcolo completo riallinea le righe perse
+            log.error("Aggiornamento del rollup prenotazioni fallito", e);
+        }
+    }
+
+    private void rebuildQuietly() {
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.error("Ricalcolo del rollup prenotazioni fallito", e);
+        }
+    }
+
+    private static int notti(Prenotazione p) {
+        return (int) (p.getDataFine().toEpochDay() - p.getDataInizio().toEpochDay());
+    }
+
+    private record Chiave(LocalDate giorno, int abitazioneId, int utenteId) {
+    }
+}
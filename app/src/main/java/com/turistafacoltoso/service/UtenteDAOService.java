@@ -1,22 +1,55 @@
 package com.turistafacoltoso.service;
 
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 import com.turistafacoltoso.exception.DuplicateUtenteException;
 import com.turistafacoltoso.exception.UtenteNotFoundException;
+import com.turistafacoltoso.index.AbitazioneEvents;
+import com.turistafacoltoso.index.FeedbackEvents;
+import com.turistafacoltoso.index.LastMonthCounters;
+import com.turistafacoltoso.index.PrenotazioneEvents;
+import com.turistafacoltoso.index.PrenotazioneIndex;
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.Host;
+import com.turistafacoltoso.model.Page;
 import com.turistafacoltoso.model.Utente;
+import com.turistafacoltoso.repository.AbitazioneDAOImpl;
+import com.turistafacoltoso.repository.FeedbackDAOImpl;
+import com.turistafacoltoso.repository.HostDAOImpl;
 import com.turistafacoltoso.repository.UtenteDAOImpl;
+import com.turistafacoltoso.repository.dao.AbitazioneDAO;
+import com.turistafacoltoso.repository.dao.FeedbackDAO;
+import com.turistafacoltoso.repository.dao.HostDAO;
 import com.turistafacoltoso.repository.dao.UtenteDAO;
+import com.turistafacoltoso.util.EntityCaches;
 
 import lombok.extern.slf4j.Slf4j;
 
 @Slf4j
 public class UtenteDAOService {
+    public static final int TOP_TRAVELERS = 5;
+
     // Uso l'interfaccia DAO (non l'implementazione concreta) con Dependency Inversion
     private final UtenteDAO userDAO;
+    private final HostDAO hostDAO;
+    private final AbitazioneDAO abitazioneDAO;
+    private final FeedbackDAO feedbackDAO;
+    private final RollupService rollupService = new RollupService();
 
     public UtenteDAOService() {
-        userDAO = new UtenteDAOImpl();
+        this(new UtenteDAOImpl(), new HostDAOImpl(), new AbitazioneDAOImpl(), new FeedbackDAOImpl());
+    }
+
+    public UtenteDAOService(UtenteDAO userDAO, HostDAO hostDAO, AbitazioneDAO abitazioneDAO, FeedbackDAO feedbackDAO) {
+        this.userDAO = userDAO;
+        this.hostDAO = hostDAO;
+        this.abitazioneDAO = abitazioneDAO;
+        this.feedbackDAO = feedbackDAO;
     }
 
     // CREATE
@@ -39,8 +72,31 @@ public class UtenteDAOService {
         return userDAO.findAll();
     }
 
+    public Page<Utente> getUserPage(int afterId, int limit){
+        return Page.of(userDAO.findPage(afterId, limit + 1), limit, Utente::getId);
+    }
+
+    public void exportUsers(Consumer<Utente> consumer){
+        userDAO.streamAll(consumer);
+    }
+
     public Utente getUtenteById(Integer id){
-        return userDAO.findById(id).orElseThrow(()->new UtenteNotFoundException(id));
+        return EntityCaches.UTENTI.get(id, userDAO::findById).orElseThrow(()->new UtenteNotFoundException(id));
+    }
+
+    /**
+     * Gli utenti con più giorni prenotati nell'ultimo mese (nome completo -> giorni),
+     * dai contatori in memoria.
+     */
+    public Map<String, Integer> getTopTravelersLastMonth(int limit){
+        return withNames(LastMonthCounters.getInstance().getTopUtentiPerGiorni(limit));
+    }
+
+    /**
+     * Gli utenti con più notti prenotate con inizio tra from e to (inclusi), dal rollup giornaliero.
+     */
+    public Map<String, Integer> getTopTravelers(LocalDate from, LocalDate to, int limit){
+        return withNames(rollupService.getNottiPerUtente(from, to, limit));
     }
 
     public Utente getUtenteByName(String nameUser){
@@ -51,30 +107,79 @@ public class UtenteDAOService {
         return userDAO.findByEmail(email).orElseThrow(()-> new UtenteNotFoundException("email:",email));
     }
     
+    private Map<String, Integer> withNames(Map<Integer, Integer> perUtente){
+        Map<String, Integer> topTravelers = new LinkedHashMap<>();
+        for (Map.Entry<Integer, Integer> e : perUtente.entrySet()) {
+            EntityCaches.UTENTI.get(e.getKey(), userDAO::findById)
+                    .ifPresent(u -> topTravelers.put(u.getNomeUser() + " " + u.getCognome(), e.getValue()));
+        }
+        return topTravelers;
+    }
+
     // UPDATE
 
     public Utente updateUtente(Utente u){
-        if (userDAO.findById(u.getId()).isEmpty()) {
-            throw new UtenteNotFoundException(u.getId());
-        }
-        return userDAO.update(u);
+        // nessuna lettura preventiva: l'utente non esiste se l'update non tocca righe
+        Utente updated = userDAO.update(u).orElseThrow(() -> new UtenteNotFoundException(u.getId()));
+        EntityCaches.UTENTI.invalidate(u.getId());
+        // gli host in cache riportano nome ed email dell'utente
+        EntityCaches.HOSTS.invalidateAll();
+        return updated;
     }
 
     // DELETE
 
+    // Le prenotazioni dell'utente sono cancellate a cascata dal DB, come l'eventuale
+    // host con le sue abitazioni e le prenotazioni fatte da altri utenti su quelle
+
     public int deleteAllUsers(){
-        return userDAO.deleteAll();
+        int deleted = userDAO.deleteAll();
+        EntityCaches.invalidateAll();
+        PrenotazioneDAOService.withAllBookingLocks(() -> {
+            PrenotazioneIndex.getInstance().clear();
+            PrenotazioneEvents.reload();
+        });
+        AbitazioneEvents.reload();
+        FeedbackEvents.reload();
+        return deleted;
     }
 
     public void deleteById(int id){
-        if (!userDAO.deleteById(id)) {
-            throw new UtenteNotFoundException(id);
-        }
+        PrenotazioneDAOService.withAllBookingLocks(() -> {
+            if (!deleteLocked(id)) {
+                throw new UtenteNotFoundException(id);
+            }
+        });
     }
 
     public void deleteByNameUser(String nameUser){
-        if (!userDAO.deleteByUsername(nameUser)) {
-            throw new UtenteNotFoundException("nameUser", nameUser);
+        // il nome non è univoco: si cancellano tutti gli utenti che lo portano
+        PrenotazioneDAOService.withAllBookingLocks(() -> {
+            boolean deleted = false;
+            for (Utente u : userDAO.findAllByUsername(nameUser)) {
+                deleted |= deleteLocked(u.getId());
+            }
+            if (!deleted) {
+                throw new UtenteNotFoundException("nameUser", nameUser);
+            }
+        });
+    }
+
+    /**
+     * Cancella l'utente e notifica le righe cancellate a cascata; il chiamante
+     * tiene tutti i lock delle prenotazioni.
+     */
+    private boolean deleteLocked(int id){
+        Optional<Host> host = hostDAO.findByIdUtente(id);
+        List<Abitazione> abitazioni = host.map(h -> abitazioneDAO.findByHostId(h.getId())).orElse(List.of());
+        Cascata cascata = Cascata.raccogli(abitazioni, id,
+                idAbitazione -> EntityCaches.ABITAZIONI.get(idAbitazione, abitazioneDAO::findById), feedbackDAO);
+        if (!userDAO.deleteById(id)) {
+            return false;
         }
+        EntityCaches.UTENTI.invalidate(id);
+        host.ifPresent(h -> EntityCaches.HOSTS.invalidate(h.getId()));
+        cascata.pubblica();
+        return true;
     }
 }
@@ -0,0 +1,86 @@
+package com.turistafacoltoso.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.javalin.http.Context;
+
+/**
+ * Lettura del corpo delle richieste batch: array JSON oppure NDJSON
+ * (Content-Type application/x-ndjson, un oggetto per riga). Il numero di
+ * elementi è limitato da batch.maxItems.
+ */
+public class BatchRequest {
+    public static final String NDJSON = "application/x-ndjson";
+    public static final int DEFAULT_MAX_ITEMS = 10_000;
+
+    private static final ObjectMapper MAPPER = JacksonConfig.createObjectMapper();
+
+    private BatchRequest() {
+
+    }
+
+    /**
+     * @throws IllegalArgumentException se il corpo non è valido o supera il limite di elementi
+     */
+    public static <T> List<T> readItems(Context ctx, Class<T> type) {
+        int maxItems = DataBaseConnection.getIntProperty("batch.maxItems", DEFAULT_MAX_ITEMS);
+        String contentType = ctx.contentType();
+        try {
+            if (contentType != null && contentType.startsWith(NDJSON)) {
+                return readNdjson(ctx, type, maxItems);
+            }
+            return readArray(ctx, type, maxItems);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Corpo della richiesta non valido: " + e.getOriginalMessage());
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Errore nella lettura della richiesta: " + e.getMessage());
+        }
+    }
+
+    private static <T> List<T> readArray(Context ctx, Class<T> type, int maxItems) throws IOException {
+        List<T> items = new ArrayList<>();
+        try (MappingIterator<T> it = MAPPER.readerFor(type).readValues(ctx.bodyInputStream())) {
+            while (it.hasNextValue()) {
+                items.add(it.nextValue());
+                checkLimit(items, maxItems);
+            }
+        }
+        return items;
+    }
+
+    private static <T> List<T> readNdjson(Context ctx, Class<T> type, int maxItems) throws IOException {
+        List<T> items = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(ctx.bodyInputStream(), StandardCharsets.UTF_8));
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                items.add(MAPPER.readValue(line, type));
+            } catch (JsonProcessingException e) {
+                throw new IllegalArgumentException("Riga " + lineNumber + " non valida: " + e.getOriginalMessage());
+            }
+            checkLimit(items, maxItems);
+        }
+        return items;
+    }
+
+    private static void checkLimit(List<?> items, int maxItems) {
+        if (items.size() > maxItems) {
+            throw new IllegalArgumentException("Troppi elementi nella richiesta (massimo " + maxItems + ")");
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.turistafacoltoso.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rilegge un CSV (senza header) e lo riscrive nel CSV letto da COPY ...
+ * FORMAT csv, con i campi nell'ordine di colonne (quelli assenti dal file
+ * restano vuoti) e un'ultima colonna per l'errore di parsing: un record
+ * malformato diventa una riga con i campi vuoti e il motivo, invece di far
+ * fallire l'intero COPY. Così il COPY ha sempre le stesse colonne qualunque
+ * sia l'header. Tiene in memoria una sola riga alla volta.
+ *
+ * Ogni riga del file è un record: un campo tra virgolette non può andare a
+ * capo. I campi vuoti diventano NULL; le righe vuote sono ignorate.
+ */
+public class CsvParsingReader extends Reader {
+    private final BufferedReader source;
+    private final int nCampi;
+    // per ogni colonna di output, la posizione del campo nel file (-1 se assente)
+    private final int[] posizioni;
+    private final StringBuilder buffer = new StringBuilder();
+    private int pos;
+
+    /**
+     * header: colonne del file nel loro ordine; colonne: quelle da scrivere.
+     */
+    public CsvParsingReader(Reader source, List<String> header, List<String> colonne) {
+        this.source = source instanceof BufferedReader b ? b : new BufferedReader(source);
+        this.nCampi = header.size();
+        this.posizioni = new int[colonne.size()];
+        for (int i = 0; i < posizioni.length; i++) {
+            posizioni[i] = header.indexOf(colonne.get(i));
+        }
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (pos == buffer.length()) {
+            String line = source.readLine();
+            if (line == null) {
+                return -1;
+            }
+            if (!line.isBlank()) {
+                buffer.setLength(0);
+                pos = 0;
+                appendRecord(line);
+            }
+        }
+        int n = Math.min(len, buffer.length() - pos);
+        buffer.getChars(pos, pos + n, cbuf, off);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    // --- Metodi Helper ---
+
+    private void appendRecord(String line) {
+        List<String> campi = new ArrayList<>(nCampi);
+        String errore = parse(line, campi);
+        if (errore == null && campi.size() != nCampi) {
+            errore = "attesi " + nCampi + " campi, trovati " + campi.size();
+        }
+        if (errore != null) {
+            buffer.append(",".repeat(posizioni.length));
+            appendQuoted("CSV non valido: " + errore);
+            buffer.append('\n');
+            return;
+        }
+        for (int posizione : posizioni) {
+            if (posizione >= 0 && !campi.get(posizione).isEmpty()) {
+                appendQuoted(campi.get(posizione));
+            }
+            buffer.append(',');
+        }
+        buffer.append('\n');
+    }
+
+    /**
+     * Divide la riga nei campi; restituisce il motivo se è malformata.
+     */
+    private static String parse(String line, List<String> campi) {
+        StringBuilder campo = new StringBuilder();
+        int i = 0;
+        while (true) {
+            campo.setLength(0);
+            if (i < line.length() && line.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i == line.length()) {
+                        return "virgolette non chiuse";
+                    }
+                    char c = line.charAt(i++);
+                    if (c == '"') {
+                        if (i < line.length() && line.charAt(i) == '"') {
+                            i++;
+                        } else {
+                            break;
+                        }
+                    }
+                    campo.append(c);
+                }
+                if (i < line.length() && line.charAt(i) != ',') {
+                    return "testo dopo le virgolette di chiusura";
+                }
+            } else {
+                while (i < line.length() && line.charAt(i) != ',') {
+                    char c = line.charAt(i++);
+                    if (c == '"') {
+                        return "virgolette dentro un campo senza virgolette";
+                    }
+                    campo.append(c);
+                }
+            }
+            if (campo.indexOf("\0") >= 0) {
+                return "carattere nullo";
+            }
+            campi.add(campo.toString());
+            if (i == line.length()) {
+                return null;
+            }
+            i++; // virgola
+        }
+    }
+
+    private void appendQuoted(String value) {
+        buffer.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                buffer.append('"');
+            }
+            buffer.append(c);
+        }
+        buffer.append('"');
+    }
+}
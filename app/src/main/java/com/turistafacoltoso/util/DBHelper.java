@@ -2,7 +2,10 @@ package com.turistafacoltoso.util;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.function.Consumer;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -13,17 +16,95 @@ public class DBHelper {
         void accept(PreparedStatement ps) throws SQLException;
     }
 
+    @FunctionalInterface
+    public interface StatementBinder<T> {
+        void bind(PreparedStatement ps, T row) throws SQLException;
+    }
+
+    @FunctionalInterface
+    public interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
     public static void executeUpdate(String sql, SQLConsumer consumer) {
         try (Connection conn = DataBaseConnection.getConnection();
              PreparedStatement ps = conn.prepareStatement(sql)) {
             
             consumer.accept(ps);
-            ps.executeUpdate();
-            log.info("sql");
+            int rows = ps.executeUpdate();
+            log.debug("executeUpdate: {} righe", rows);
             
         } catch (SQLException e) {
-            log.error("SQLException DBHelper: "+e);
-            e.printStackTrace();
+            log.error("SQLException DBHelper: ", e);
+        }
+    }
+
+    /**
+     * Esegue la query con un cursore lato server (autocommit disattivato e
+     * fetchSize da db.export.fetchSize) e passa ogni riga al consumer appena
+     * letta, senza accumularle: la memoria usata non dipende dal numero di righe.
+     *
+     * @return numero di righe lette
+     */
+    public static <T> long stream(String sql, RowMapper<T> mapper, Consumer<? super T> consumer)
+            throws SQLException {
+        int fetchSize = DataBaseConnection.getIntProperty("db.export.fetchSize", 1000);
+        long rows = 0;
+        try (Connection conn = DataBaseConnection.getReadConnection()) {
+            // il driver PostgreSQL usa il cursore solo dentro una transazione
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(fetchSize);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        consumer.accept(mapper.map(rs));
+                        rows++;
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Inserisce tutte le righe con un solo executeBatch in un'unica transazione
+     * (tutte o nessuna) e restituisce gli id generati, nello stesso ordine.
+     * Con reWriteBatchedInserts il driver invia INSERT multi-riga.
+     */
+    public static <T> int[] insertBatch(String sql, List<T> rows, StatementBinder<T> binder) throws SQLException {
+        int[] ids = new int[rows.size()];
+        try (Connection conn = DataBaseConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(sql, new String[] { "id" })) {
+                for (T row : rows) {
+                    binder.bind(ps, row);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    int i = 0;
+                    while (keys.next() && i < ids.length) {
+                        ids[i++] = keys.getInt(1);
+                    }
+                    if (i != ids.length) {
+                        throw new SQLException("Id generati " + i + " su " + ids.length + " righe inserite");
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
         }
+        return ids;
     }
 }
@@ -3,51 +3,274 @@ package com.turistafacoltoso.util;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import com.zaxxer.hikari.HikariPoolMXBean;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Punto di accesso unico al database: le connessioni arrivano da un pool
+ * HikariCP configurato tramite config.properties.
+ *
+ * Chiavi supportate (oltre a db.url, db.user, db.pwd):
+ * db.pool.maxSize, db.pool.minIdle, db.pool.connectionTimeoutMs,
+ * db.pool.idleTimeoutMs, db.pool.maxLifetimeMs, db.pool.leakDetectionMs,
+ * db.statementCache.prepareThreshold, db.statementCache.maxQueries,
+ * db.statementCache.maxSizeMiB, db.bulkhead.maxConcurrent, db.bulkhead.timeoutMs
+ *
+ * Repliche in lettura (opzionali): db.replica.urls (lista separata da virgole),
+ * db.replica.user, db.replica.pwd (default: quelli del primario),
+ * db.replica.strategy (round-robin | least-loaded), db.replica.readYourWritesMs
+ */
+@Slf4j
 public class DataBaseConnection {
-    private static String url;
-    private static String user;
-    private static String pwd;
+    private static final String POOL_NAME = "turista-facoltoso-pool";
+
+    private static Properties props;
+    private static HikariDataSource dataSource;
+    private static List<HikariDataSource> replicas = List.of();
+    private static final AtomicInteger nextReplica = new AtomicInteger();
+    private static boolean leastLoaded = false;
+    private static long readYourWritesMs = 0;
     private static boolean initialized = false;
 
     public DataBaseConnection() {
 
     }
 
-    public static void init(String properties) { 
-        Properties props = new Properties();
+    public static void init(String properties) {
+        Properties loaded = new Properties();
 
-        try (InputStream is = DataBaseConnection.class.getClassLoader().getResourceAsStream("config.properties")) {
+        try (InputStream is = DataBaseConnection.class.getClassLoader().getResourceAsStream(properties)) {
 
             if (is == null) {
-                throw new RuntimeException("Impossibile trovare config.properties nelle risorse!");
+                throw new RuntimeException("Impossibile trovare " + properties + " nelle risorse!");
             }
 
-            props.load(is);
-
-            url = props.getProperty("db.url");
-            user = props.getProperty("db.user");
-            pwd = props.getProperty("db.pwd");
-
+            loaded.load(is);
             Class.forName("org.postgresql.Driver");
-            initialized = true;
 
         } catch (IOException | ClassNotFoundException e) {
-            e.printStackTrace();
+            log.error("Errore durante la lettura di {}", properties, e);
             throw new RuntimeException("Errore durante l'inizializzazione del DB", e);
         }
+
+        init(loaded);
     }
 
+    public static synchronized void init(Properties properties) {
+        if (initialized) {
+            log.warn("DataBaseConnection già inizializzata, chiusura del pool precedente");
+            close();
+        }
+        props = properties;
+        dataSource = new HikariDataSource(buildPoolConfig(properties, POOL_NAME, properties.getProperty("db.url"),
+                properties.getProperty("db.user"), properties.getProperty("db.pwd"), false));
+        replicas = buildReplicas(properties);
+        leastLoaded = "least-loaded".equalsIgnoreCase(getProperty("db.replica.strategy", "round-robin").trim());
+        readYourWritesMs = getLongProperty("db.replica.readYourWritesMs", 5000);
+        DbBulkhead.configure(
+                getIntProperty("db.bulkhead.maxConcurrent", dataSource.getMaximumPoolSize()),
+                getLongProperty("db.bulkhead.timeoutMs", dataSource.getConnectionTimeout()));
+        initialized = true;
+        log.info("Pool {} avviato (maxSize: {}, repliche: {})", POOL_NAME, dataSource.getMaximumPoolSize(),
+                replicas.size());
+    }
+
+    /**
+     * Connessione sul primario: da usare per scritture e per letture che
+     * devono vedere dati appena scritti.
+     */
     public static Connection getConnection() throws SQLException {
 
         if (!initialized) {
             throw new RuntimeException("Execute init() first!");
         }
 
-        return DriverManager.getConnection(url, user, pwd);
+        RequestContext.markWrite();
+        return borrow(dataSource);
+
+    }
+
+    /**
+     * Connessione per i metodi di sola lettura: una replica scelta secondo
+     * db.replica.strategy, oppure il primario se non ci sono repliche o se la
+     * richiesta corrente ha scritto da meno di db.replica.readYourWritesMs.
+     */
+    public static Connection getReadConnection() throws SQLException {
+
+        if (!initialized) {
+            throw new RuntimeException("Execute init() first!");
+        }
+
+        if (replicas.isEmpty() || RequestContext.wroteWithin(readYourWritesMs)) {
+            return borrow(dataSource);
+        }
+
+        HikariDataSource replica = leastLoaded ? leastLoadedReplica() : nextRoundRobinReplica();
+        try {
+            return borrow(replica);
+        } catch (SQLException e) {
+            log.warn("Replica {} non disponibile, lettura sul primario", replica.getPoolName(), e);
+            return borrow(dataSource);
+        }
+    }
+
+    /**
+     * Legge una chiave di configurazione, con valore di default se assente.
+     */
+    public static String getProperty(String key, String defaultValue) {
+        if (props == null) {
+            return defaultValue;
+        }
+        return props.getProperty(key, defaultValue);
+    }
+
+    public static int getIntProperty(String key, int defaultValue) {
+        return Integer.parseInt(getProperty(key, String.valueOf(defaultValue)).trim());
+    }
+
+    public static long getLongProperty(String key, long defaultValue) {
+        return Long.parseLong(getProperty(key, String.valueOf(defaultValue)).trim());
+    }
+
+    /**
+     * Fotografia dello stato del pool (connessioni attive, inattive, in attesa).
+     */
+    public static PoolStats getPoolStats() {
+        if (!initialized) {
+            throw new RuntimeException("Execute init() first!");
+        }
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        return new PoolStats(
+                POOL_NAME,
+                pool.getActiveConnections(),
+                pool.getIdleConnections(),
+                pool.getTotalConnections(),
+                pool.getThreadsAwaitingConnection(),
+                dataSource.getMaximumPoolSize());
+    }
+
+    public static List<PoolStats> getReplicaPoolStats() {
+        List<PoolStats> stats = new ArrayList<>();
+        for (HikariDataSource replica : replicas) {
+            HikariPoolMXBean pool = replica.getHikariPoolMXBean();
+            stats.add(new PoolStats(
+                    replica.getPoolName(),
+                    pool.getActiveConnections(),
+                    pool.getIdleConnections(),
+                    pool.getTotalConnections(),
+                    pool.getThreadsAwaitingConnection(),
+                    replica.getMaximumPoolSize()));
+        }
+        return stats;
+    }
+
+    public static synchronized void close() {
+        for (HikariDataSource replica : replicas) {
+            if (!replica.isClosed()) {
+                replica.close();
+            }
+        }
+        replicas = List.of();
+        if (dataSource != null && !dataSource.isClosed()) {
+            dataSource.close();
+            log.info("Pool {} chiuso", POOL_NAME);
+        }
+        initialized = false;
+    }
+
+    private static Connection borrow(HikariDataSource source) throws SQLException {
+        long start = System.nanoTime();
+        Semaphore permit = DbBulkhead.acquire();
+        try {
+            Connection pooled = source.getConnection();
+            Metrics.recordConnectionAcquire(source.getPoolName(), System.nanoTime() - start);
+            return InstrumentedConnection.wrap(pooled, permit::release);
+        } catch (SQLException | RuntimeException e) {
+            permit.release();
+            throw e;
+        }
+    }
+
+    private static HikariDataSource nextRoundRobinReplica() {
+        int i = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        return replicas.get(i);
+    }
+
+    private static HikariDataSource leastLoadedReplica() {
+        HikariDataSource best = null;
+        int bestLoad = Integer.MAX_VALUE;
+        for (HikariDataSource replica : replicas) {
+            HikariPoolMXBean pool = replica.getHikariPoolMXBean();
+            int load = pool.getActiveConnections() + pool.getThreadsAwaitingConnection();
+            if (load < bestLoad) {
+                best = replica;
+                bestLoad = load;
+            }
+        }
+        return best;
+    }
+
+    private static List<HikariDataSource> buildReplicas(Properties p) {
+        String urls = p.getProperty("db.replica.urls", "").trim();
+        if (urls.isEmpty()) {
+            return List.of();
+        }
+        String user = p.getProperty("db.replica.user", p.getProperty("db.user"));
+        String pwd = p.getProperty("db.replica.pwd", p.getProperty("db.pwd"));
+        List<HikariDataSource> result = new ArrayList<>();
+        int n = 0;
+        for (String url : urls.split(",")) {
+            if (url.isBlank()) {
+                continue;
+            }
+            result.add(new HikariDataSource(buildPoolConfig(p, POOL_NAME + "-replica-" + n++, url.trim(), user, pwd, true)));
+        }
+        return List.copyOf(result);
+    }
+
+    private static HikariConfig buildPoolConfig(Properties p, String poolName, String jdbcUrl, String user,
+            String pwd, boolean readOnly) {
+        HikariConfig config = new HikariConfig();
+        config.setPoolName(poolName);
+        config.setJdbcUrl(jdbcUrl);
+        config.setUsername(user);
+        config.setPassword(pwd);
+        config.setReadOnly(readOnly);
+        config.setDriverClassName("org.postgresql.Driver");
+
+        config.setMaximumPoolSize(Integer.parseInt(p.getProperty("db.pool.maxSize", "10")));
+        config.setMinimumIdle(Integer.parseInt(p.getProperty("db.pool.minIdle", "2")));
+        config.setConnectionTimeout(Long.parseLong(p.getProperty("db.pool.connectionTimeoutMs", "5000")));
+        config.setIdleTimeout(Long.parseLong(p.getProperty("db.pool.idleTimeoutMs", "600000")));
+        config.setMaxLifetime(Long.parseLong(p.getProperty("db.pool.maxLifetimeMs", "1800000")));
+        // 0 = disabilitato; altrimenti logga un warning per connessioni non restituite entro la soglia
+        config.setLeakDetectionThreshold(Long.parseLong(p.getProperty("db.pool.leakDetectionMs", "0")));
+        config.setRegisterMbeans(true);
+        // metriche del pool (hikaricp_*) sullo stesso registro di /metrics
+        config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(Metrics.registry()));
 
+        // Cache degli statement nel driver: per ogni connessione fisica il testo SQL
+        // diventa uno statement preparato lato server, parse e plan vengono riusati
+        String prepareThreshold = p.getProperty("db.statementCache.prepareThreshold", "1");
+        String cacheQueries = p.getProperty("db.statementCache.maxQueries", "256");
+        config.addDataSourceProperty("prepareThreshold", prepareThreshold);
+        config.addDataSourceProperty("preparedStatementCacheQueries", cacheQueries);
+        config.addDataSourceProperty("preparedStatementCacheSizeMiB",
+                p.getProperty("db.statementCache.maxSizeMiB", "5"));
+        StatementCacheMirror.configure(Integer.parseInt(cacheQueries));
+        // executeBatch di INSERT inviato come INSERT multi-riga
+        config.addDataSourceProperty("reWriteBatchedInserts", p.getProperty("db.batch.rewriteInserts", "true"));
+        return config;
     }
 }
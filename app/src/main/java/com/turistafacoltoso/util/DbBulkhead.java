@@ -0,0 +1,65 @@
+package com.turistafacoltoso.util;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bulkhead a semaforo davanti al pool: limita le richieste che possono
+ * usare il database nello stesso momento. Con i virtual thread le richieste
+ * in eccesso restano parcheggiate qui (costo trascurabile) invece di
+ * accodarsi tutte sul pool.
+ */
+@Slf4j
+public class DbBulkhead {
+    private static volatile Semaphore permits = new Semaphore(Integer.MAX_VALUE, true);
+    private static volatile int maxConcurrent = Integer.MAX_VALUE;
+    private static volatile long timeoutMs = 0;
+
+    private DbBulkhead() {
+
+    }
+
+    public static void configure(int maxConcurrentCalls, long acquireTimeoutMs) {
+        if (maxConcurrentCalls <= 0) {
+            throw new IllegalArgumentException("db.bulkhead.maxConcurrent deve essere maggiore di 0");
+        }
+        permits = new Semaphore(maxConcurrentCalls, true);
+        maxConcurrent = maxConcurrentCalls;
+        timeoutMs = acquireTimeoutMs;
+        log.info("Bulkhead DB configurato: {} accessi concorrenti, timeout {} ms", maxConcurrentCalls, acquireTimeoutMs);
+    }
+
+    /**
+     * Ottiene un permesso; restituisce il semaforo da usare per il rilascio
+     * (così una riconfigurazione non sbilancia i permessi già concessi).
+     */
+    static Semaphore acquire() throws SQLException {
+        Semaphore current = permits;
+        try {
+            if (!current.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Bulkhead DB saturo: nessun permesso entro {} ms", timeoutMs);
+                throw new SQLTransientConnectionException("Bulkhead DB saturo, riprovare più tardi");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Attesa bulkhead DB interrotta", e);
+        }
+        return current;
+    }
+
+    public static int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    public static int queueLength() {
+        return permits.getQueueLength();
+    }
+
+    public static int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+}
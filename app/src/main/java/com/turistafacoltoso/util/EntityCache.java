@@ -0,0 +1,74 @@
+package com.turistafacoltoso.util;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.IntFunction;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cache per id davanti a un DAO (Caffeine: dimensione massima con eviction
+ * W-TinyLFU, scadenza opzionale dopo la scrittura).
+ *
+ * Tiene solo le entità trovate: un id inesistente va sempre al database.
+ * Le istanze in cache sono condivise tra le richieste e non vanno modificate.
+ */
+@Slf4j
+public class EntityCache<T> {
+    public static final long DEFAULT_MAX_SIZE = 10_000;
+    public static final long DEFAULT_TTL_SECONDS = 300;
+
+    private final String name;
+    private volatile Cache<Integer, T> cache;
+    private volatile long maxSize;
+
+    public EntityCache(String name) {
+        this.name = name;
+        configure(DEFAULT_MAX_SIZE, DEFAULT_TTL_SECONDS);
+    }
+
+    /**
+     * Ricrea la cache (vuota) con i limiti indicati; ttlSeconds = 0 disattiva la scadenza.
+     */
+    public void configure(long maxSize, long ttlSeconds) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats();
+        if (ttlSeconds > 0) {
+            builder.expireAfterWrite(Duration.ofSeconds(ttlSeconds));
+        }
+        this.cache = builder.build();
+        this.maxSize = maxSize;
+        log.info("Cache {} configurata: maxSize {}, ttl {} s", name, maxSize, ttlSeconds);
+    }
+
+    /**
+     * Entità con l'id indicato: dalla cache se presente, altrimenti dal loader.
+     * Letture concorrenti dello stesso id mancante fanno una sola query.
+     */
+    public Optional<T> get(int id, IntFunction<Optional<T>> loader) {
+        return Optional.ofNullable(cache.get(id, k -> loader.apply(k).orElse(null)));
+    }
+
+    public void invalidate(int id) {
+        cache.invalidate(id);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public EntityCacheStats getStats() {
+        CacheStats s = cache.stats();
+        return new EntityCacheStats(name, cache.estimatedSize(), maxSize, s.hitCount(), s.missCount(), s.hitRate(),
+                s.evictionCount());
+    }
+}
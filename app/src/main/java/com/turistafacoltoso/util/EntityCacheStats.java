@@ -0,0 +1,18 @@
+package com.turistafacoltoso.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class EntityCacheStats {
+    private String cacheName;
+    private long size;
+    private long maxSize;
+    private long hits;
+    private long misses;
+    private double hitRatio;
+    private long evictions;
+}
@@ -0,0 +1,48 @@
+package com.turistafacoltoso.util;
+
+import java.util.List;
+
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.Host;
+import com.turistafacoltoso.model.Utente;
+
+/**
+ * Cache condivise da tutte le istanze dei service (che vengono create con new
+ * in più punti). Chiavi di configurazione: cache.<nome>.maxSize e
+ * cache.<nome>.ttlSeconds.
+ */
+public class EntityCaches {
+    public static final EntityCache<Abitazione> ABITAZIONI = new EntityCache<>("abitazioni");
+    public static final EntityCache<Host> HOSTS = new EntityCache<>("hosts");
+    public static final EntityCache<Utente> UTENTI = new EntityCache<>("utenti");
+
+    private static final List<EntityCache<?>> ALL = List.of(ABITAZIONI, HOSTS, UTENTI);
+
+    private EntityCaches() {
+
+    }
+
+    /**
+     * Applica la configurazione letta da DataBaseConnection (da chiamare dopo init).
+     */
+    public static void configure() {
+        for (EntityCache<?> c : ALL) {
+            c.configure(
+                    DataBaseConnection.getLongProperty("cache." + c.getName() + ".maxSize", EntityCache.DEFAULT_MAX_SIZE),
+                    DataBaseConnection.getLongProperty("cache." + c.getName() + ".ttlSeconds",
+                            EntityCache.DEFAULT_TTL_SECONDS));
+        }
+    }
+
+    public static List<EntityCache<?>> all() {
+        return ALL;
+    }
+
+    public static void invalidateAll() {
+        ALL.forEach(EntityCache::invalidateAll);
+    }
+
+    public static List<EntityCacheStats> getStats() {
+        return ALL.stream().map(EntityCache::getStats).toList();
+    }
+}
@@ -0,0 +1,117 @@
+package com.turistafacoltoso.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.postgresql.PGConnection;
+
+/**
+ * Proxy sulla connessione del pool: intercetta prepareStatement per
+ * aggiornare i contatori della cache degli statement e close per eseguire
+ * l'azione di rilascio (es. permesso del bulkhead). Gli statement restituiti
+ * sono a loro volta avvolti per misurare la durata delle execute* (metriche
+ * db.query) e contare le query della richiesta HTTP corrente (RequestContext).
+ * Tutto il resto viene delegato alla connessione originale.
+ */
+public class InstrumentedConnection implements InvocationHandler {
+    private final Connection delegate;
+    private final Object physical;
+    private final Runnable onClose;
+    private boolean closed = false;
+
+    private InstrumentedConnection(Connection delegate, Object physical, Runnable onClose) {
+        this.delegate = delegate;
+        this.physical = physical;
+        this.onClose = onClose;
+    }
+
+    public static Connection wrap(Connection pooled, Runnable onClose) throws SQLException {
+        RequestContext.recordConnection();
+        Object physical = pooled.isWrapperFor(PGConnection.class) ? pooled.unwrap(PGConnection.class) : pooled;
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new InstrumentedConnection(pooled, physical, onClose));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if ("prepareStatement".equals(method.getName()) && args != null && args[0] instanceof String sql) {
+            StatementCacheMirror.record(physical, sql);
+        }
+        if ("close".equals(method.getName())) {
+            return close();
+        }
+        Object result;
+        try {
+            result = method.invoke(delegate, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+        if (result instanceof Statement statement && method.getReturnType().isInterface()) {
+            String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+            return Proxy.newProxyInstance(
+                    Connection.class.getClassLoader(),
+                    new Class<?>[] { method.getReturnType() },
+                    new TimedStatement(statement, sql));
+        }
+        return result;
+    }
+
+    /**
+     * Misura le execute* dello statement. Per i PreparedStatement la query è
+     * quella passata a prepareStatement, per gli Statement semplici quella
+     * passata a execute*.
+     */
+    private static final class TimedStatement implements InvocationHandler {
+        private final Statement delegate;
+        private final String preparedSql;
+
+        TimedStatement(Statement delegate, String preparedSql) {
+            this.delegate = delegate;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!method.getName().startsWith("execute")) {
+                try {
+                    return method.invoke(delegate, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+            String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : preparedSql;
+            RequestContext.recordQuery(sql);
+            Metrics.QueryMetrics metrics = Metrics.forQuery(sql != null ? sql : "batch");
+            long start = System.nanoTime();
+            try {
+                return method.invoke(delegate, args);
+            } catch (InvocationTargetException e) {
+                metrics.errors().increment();
+                throw e.getCause();
+            } finally {
+                metrics.timer().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private Object close() throws SQLException {
+        if (closed) {
+            return null;
+        }
+        closed = true;
+        try {
+            delegate.close();
+        } finally {
+            onClose.run();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,22 @@
+package com.turistafacoltoso.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+public class JacksonConfig {
+
+    private JacksonConfig() {
+
+    }
+
+    /**
+     * ObjectMapper usato da Javalin per tutte le risposte JSON.
+     */
+    public static ObjectMapper createObjectMapper() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS); // Per gestire conversioni json data/timestamp 
+        return objectMapper;
+    }
+}
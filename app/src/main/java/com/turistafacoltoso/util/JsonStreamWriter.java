@@ -0,0 +1,77 @@
+package com.turistafacoltoso.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.javalin.http.ContentType;
+import io.javalin.http.Context;
+import io.javalin.http.Header;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Scrive un array JSON direttamente sull'output stream della risposta,
+ * un elemento alla volta, invece di serializzare una lista già in memoria.
+ */
+@Slf4j
+public class JsonStreamWriter {
+    private static final ObjectMapper MAPPER = JacksonConfig.createObjectMapper();
+
+    private JsonStreamWriter() {
+
+    }
+
+    /**
+     * La sorgente riceve il consumer a cui passare le righe (es. un metodo
+     * streamAll del DAO). Se la sorgente fallisce a metà l'array non viene
+     * chiuso, così il client riceve un JSON troncato e non un elenco parziale
+     * apparentemente valido.
+     */
+    public static <T> void writeArray(Context ctx, Consumer<Consumer<T>> source) {
+        ctx.contentType(ContentType.APPLICATION_JSON);
+        declareDbTrailers(ctx);
+        long[] count = { 0 };
+        try (JsonGenerator gen = MAPPER.getFactory().createGenerator(ctx.outputStream())) {
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            gen.disable(JsonGenerator.Feature.AUTO_CLOSE_JSON_CONTENT);
+            gen.writeStartArray();
+            gen.flush();
+            source.accept(row -> {
+                try {
+                    gen.writeObject(row);
+                    count[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            gen.writeEndArray();
+            // tutto il contenuto va inviato prima della chiusura: Jetty non riesce
+            // a scrivere i trailer insieme all'ultimo chunk di dati e interrompe la risposta
+            gen.flush();
+            ctx.res().flushBuffer();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log.info("Export {} completato: {} righe", ctx.path(), count[0]);
+    }
+
+    /**
+     * Gli header con query e connessioni sono scritti nel filtro after, quando
+     * qui la risposta è già partita: li si invia come trailer HTTP della
+     * risposta chunked, letti dal contesto alla chiusura.
+     */
+    private static void declareDbTrailers(Context ctx) {
+        RequestContext rc = RequestContext.current();
+        if (rc == null) {
+            return;
+        }
+        ctx.header(Header.TRAILER, RequestContext.SQL_QUERIES_HEADER + ", " + RequestContext.DB_CONNECTIONS_HEADER);
+        ctx.res().setTrailerFields(() -> Map.of(
+                RequestContext.SQL_QUERIES_HEADER, String.valueOf(rc.getQueries()),
+                RequestContext.DB_CONNECTIONS_HEADER, String.valueOf(rc.getConnections())));
+    }
+}
@@ -0,0 +1,209 @@
+package com.turistafacoltoso.util;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import io.javalin.http.HandlerType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.jvm.ClassLoaderMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmGcMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmMemoryMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmThreadMetrics;
+import io.micrometer.core.instrument.binder.system.ProcessorMetrics;
+import io.micrometer.core.instrument.binder.system.UptimeMetrics;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+
+/**
+ * Registro delle metriche esposte su /metrics (formato Prometheus).
+ *
+ * Timer e contatori sono creati una sola volta per route / query / pool e poi
+ * riusati da una mappa, così la registrazione sul percorso caldo è solo un
+ * aggiornamento dei bucket (LongAdder, senza lock). Gli istogrammi usano
+ * bucket fissi per contenere il numero di serie.
+ */
+public class Metrics {
+    private static final Duration[] BUCKETS = {
+            Duration.ofMillis(1), Duration.ofMillis(5), Duration.ofMillis(10), Duration.ofMillis(25),
+            Duration.ofMillis(50), Duration.ofMillis(100), Duration.ofMillis(250), Duration.ofMillis(500),
+            Duration.ofSeconds(1), Duration.ofMillis(2500), Duration.ofSeconds(5), Duration.ofSeconds(10) };
+
+    private static final PrometheusMeterRegistry REGISTRY = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+    private static final Map<String, Map<Integer, Timer>> ROUTES = new ConcurrentHashMap<>();
+    private static final HandlerType[] METHODS = HandlerType.values();
+    private static final Map<String, QueryMetrics> QUERIES = new ConcurrentHashMap<>();
+    private static final Map<String, Timer> ACQUIRE = new ConcurrentHashMap<>();
+    private static final Map<String, RequestDbMetrics> ROUTE_DB = new ConcurrentHashMap<>();
+    private static final Map<String, Counter> BUDGET_EXCEEDED = new ConcurrentHashMap<>();
+    private static boolean bound = false;
+
+    /**
+     * Timer e contatore errori di una query, identificata dal metodo del DAO che la esegue.
+     */
+    record QueryMetrics(Timer timer, Counter errors) {
+    }
+
+    /**
+     * Query e connessioni per richiesta su una route.
+     */
+    private record RequestDbMetrics(DistributionSummary queries, DistributionSummary connections) {
+    }
+
+    private Metrics() {
+
+    }
+
+    public static MeterRegistry registry() {
+        return REGISTRY;
+    }
+
+    /**
+     * Registra le metriche della JVM e quelle delle strutture dell'applicazione
+     * (cache, bulkhead). Da chiamare una volta all'avvio.
+     */
+    public static synchronized void bindAll() {
+        if (bound) {
+            return;
+        }
+        bound = true;
+        new JvmGcMetrics().bindTo(REGISTRY);
+        new JvmMemoryMetrics().bindTo(REGISTRY);
+        new JvmThreadMetrics().bindTo(REGISTRY);
+        new ClassLoaderMetrics().bindTo(REGISTRY);
+        new ProcessorMetrics().bindTo(REGISTRY);
+        new UptimeMetrics().bindTo(REGISTRY);
+
+        Gauge.builder("db.bulkhead.available", DbBulkhead::availablePermits).register(REGISTRY);
+        Gauge.builder("db.bulkhead.queued", DbBulkhead::queueLength).register(REGISTRY);
+        // stime dallo specchio lato applicazione: il driver non espone i suoi contatori
+        FunctionCounter.builder("db.statement.cache.mirror.hits", StatementCacheMirror.class,
+                c -> StatementCacheMirror.getStats().getEstimatedHits())
+                .description("Stima degli statement già preparati sulla connessione fisica")
+                .register(REGISTRY);
+        FunctionCounter.builder("db.statement.cache.mirror.misses", StatementCacheMirror.class,
+                c -> StatementCacheMirror.getStats().getEstimatedMisses())
+                .description("Stima degli statement nuovi per la connessione fisica")
+                .register(REGISTRY);
+        for (EntityCache<?> cache : EntityCaches.all()) {
+            String name = cache.getName();
+            Gauge.builder("cache.entity.size", cache, c -> c.getStats().getSize()).tag("cache", name)
+                    .register(REGISTRY);
+            FunctionCounter.builder("cache.entity.hits", cache, c -> c.getStats().getHits()).tag("cache", name)
+                    .register(REGISTRY);
+            FunctionCounter.builder("cache.entity.misses", cache, c -> c.getStats().getMisses()).tag("cache", name)
+                    .register(REGISTRY);
+            FunctionCounter.builder("cache.entity.evictions", cache, c -> c.getStats().getEvictions())
+                    .tag("cache", name).register(REGISTRY);
+        }
+    }
+
+    public static String scrape() {
+        return REGISTRY.scrape();
+    }
+
+    /**
+     * Durata di una richiesta HTTP su una route registrata (path con i parametri, es. /api/v1/abitazioni/{id}).
+     */
+    public static void recordRequest(HandlerType method, String route, int status, long nanos) {
+        Map<Integer, Timer> byMethodStatus = ROUTES.get(route);
+        if (byMethodStatus == null) {
+            byMethodStatus = ROUTES.computeIfAbsent(route, k -> new ConcurrentHashMap<>());
+        }
+        // chiave unica per metodo + status, senza concatenare stringhe a ogni richiesta
+        int key = method.ordinal() * 1000 + status;
+        Timer timer = byMethodStatus.get(key);
+        if (timer == null) {
+            timer = byMethodStatus.computeIfAbsent(key, k -> Timer.builder("http.server.requests")
+                    .tag("method", METHODS[k / 1000].name())
+                    .tag("route", route)
+                    .tag("status", String.valueOf(k % 1000))
+                    .tag("outcome", outcome(k % 1000))
+                    .serviceLevelObjectives(BUCKETS)
+                    .register(REGISTRY));
+        }
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Query SQL eseguite e connessioni prese da una richiesta HTTP sulla route.
+     */
+    public static void recordRequestDb(String route, int queries, int connections) {
+        RequestDbMetrics metrics = ROUTE_DB.get(route);
+        if (metrics == null) {
+            metrics = ROUTE_DB.computeIfAbsent(route, r -> new RequestDbMetrics(
+                    DistributionSummary.builder("http.server.requests.db.queries").tag("route", r)
+                            .register(REGISTRY),
+                    DistributionSummary.builder("http.server.requests.db.connections").tag("route", r)
+                            .register(REGISTRY)));
+        }
+        metrics.queries().record(queries);
+        metrics.connections().record(connections);
+    }
+
+    /**
+     * Richiesta sulla route che ha superato il budget di query (vedi QueryBudget).
+     */
+    public static void recordQueryBudgetExceeded(String route) {
+        BUDGET_EXCEEDED.computeIfAbsent(route, r -> Counter.builder("http.server.requests.db.budget.exceeded")
+                .tag("route", r).register(REGISTRY)).increment();
+    }
+
+    /**
+     * Tempo per ottenere una connessione (attesa sul bulkhead + attesa sul pool).
+     */
+    static void recordConnectionAcquire(String pool, long nanos) {
+        Timer timer = ACQUIRE.get(pool);
+        if (timer == null) {
+            timer = ACQUIRE.computeIfAbsent(pool, p -> Timer.builder("db.connection.acquire")
+                    .tag("pool", p)
+                    .serviceLevelObjectives(BUCKETS)
+                    .register(REGISTRY));
+        }
+        timer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Metriche della query con il testo indicato. Il metodo del DAO che la esegue
+     * viene ricavato dallo stack solo la prima volta che la query viene vista.
+     */
+    static QueryMetrics forQuery(String sql) {
+        QueryMetrics metrics = QUERIES.get(sql);
+        if (metrics == null) {
+            metrics = QUERIES.computeIfAbsent(sql, k -> {
+                String method = callerDaoMethod();
+                return new QueryMetrics(
+                        Timer.builder("db.query").tag("method", method).serviceLevelObjectives(BUCKETS)
+                                .register(REGISTRY),
+                        Counter.builder("db.query.errors").tag("method", method).register(REGISTRY));
+            });
+        }
+        return metrics;
+    }
+
+    // --- Metodi Helper ---
+
+    private static String outcome(int status) {
+        if (status >= 500) {
+            return "SERVER_ERROR";
+        }
+        if (status >= 400) {
+            return "CLIENT_ERROR";
+        }
+        return "SUCCESS";
+    }
+
+    private static String callerDaoMethod() {
+        return StackWalker.getInstance().walk(frames -> frames
+                .filter(f -> f.getClassName().startsWith("com.turistafacoltoso.repository."))
+                .findFirst()
+                .map(f -> f.getClassName().substring(f.getClassName().lastIndexOf('.') + 1) + "." + f.getMethodName())
+                .orElse("altro"));
+    }
+}
@@ -0,0 +1,96 @@
+package com.turistafacoltoso.util;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Converte al volo un file NDJSON (un oggetto per riga) nel CSV letto da
+ * COPY ... FORMAT csv: per ogni oggetto una riga con i campi nell'ordine di
+ * colonne, più un'ultima colonna con l'errore di parsing (vuota se l'oggetto
+ * è valido). Tiene in memoria una sola riga alla volta.
+ *
+ * Campi assenti o null diventano NULL; le righe vuote sono ignorate.
+ */
+public class NdjsonCsvReader extends Reader {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final BufferedReader source;
+    private final List<String> colonne;
+    private final StringBuilder buffer = new StringBuilder();
+    private int pos;
+
+    public NdjsonCsvReader(Reader source, List<String> colonne) {
+        this.source = source instanceof BufferedReader b ? b : new BufferedReader(source);
+        this.colonne = colonne;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (pos == buffer.length()) {
+            String line = source.readLine();
+            if (line == null) {
+                return -1;
+            }
+            if (!line.isBlank()) {
+                buffer.setLength(0);
+                pos = 0;
+                appendRecord(line);
+            }
+        }
+        int n = Math.min(len, buffer.length() - pos);
+        buffer.getChars(pos, pos + n, cbuf, off);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    // --- Metodi Helper ---
+
+    private void appendRecord(String line) {
+        JsonNode node;
+        try {
+            node = MAPPER.readTree(line);
+        } catch (JsonProcessingException ex) {
+            node = null;
+        }
+        if (node == null || !node.isObject()) {
+            buffer.append(",".repeat(colonne.size()));
+            appendQuoted("JSON non valido: atteso un oggetto per riga");
+            buffer.append('\n');
+            return;
+        }
+        for (String colonna : colonne) {
+            JsonNode value = node.get(colonna);
+            if (value != null && !value.isNull()) {
+                appendQuoted(value.isValueNode() ? value.asText() : value.toString());
+            }
+            buffer.append(',');
+        }
+        buffer.append('\n');
+    }
+
+    private void appendQuoted(String value) {
+        buffer.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                buffer.append('"');
+            }
+            buffer.append(c);
+        }
+        buffer.append('"');
+    }
+}
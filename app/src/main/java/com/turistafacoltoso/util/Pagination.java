@@ -0,0 +1,34 @@
+package com.turistafacoltoso.util;
+
+import io.javalin.http.Context;
+
+/**
+ * Lettura dei parametri di paginazione keyset (?after=&limit=) dalle richieste.
+ */
+public class Pagination {
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    private Pagination() {
+
+    }
+
+    /**
+     * true se il client ha chiesto la risposta paginata.
+     */
+    public static boolean isRequested(Context ctx) {
+        return ctx.queryParam("after") != null || ctx.queryParam("limit") != null;
+    }
+
+    public static int after(Context ctx) {
+        return ctx.queryParamAsClass("after", Integer.class)
+                .check(a -> a >= 0, "after deve essere maggiore o uguale a 0")
+                .getOrDefault(0);
+    }
+
+    public static int limit(Context ctx) {
+        return ctx.queryParamAsClass("limit", Integer.class)
+                .check(l -> l > 0 && l <= MAX_LIMIT, "limit deve essere compreso tra 1 e " + MAX_LIMIT)
+                .getOrDefault(DEFAULT_LIMIT);
+    }
+}
@@ -0,0 +1,74 @@
+package com.turistafacoltoso.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Numero massimo di query SQL per richiesta, per route (path con i
+ * parametri) o come default. Fuori dai test il superamento è solo un warning;
+ * in modalità enforce la richiesta fallisce, così una regressione N+1 rompe
+ * i test invece di passare inosservata.
+ */
+@Slf4j
+public class QueryBudget {
+    private static final Map<String, Integer> BUDGETS = new ConcurrentHashMap<>();
+    private static volatile int defaultBudget = 0;
+    private static volatile boolean enforce = false;
+
+    private QueryBudget() {
+
+    }
+
+    /**
+     * @param defaultMax    budget delle route senza un valore proprio (0 = nessun limite)
+     * @param enforceBudget true per lanciare un'eccezione invece del solo warning
+     */
+    public static void configure(int defaultMax, boolean enforceBudget) {
+        if (defaultMax < 0) {
+            throw new IllegalArgumentException("db.queryBudget.default non può essere negativo");
+        }
+        defaultBudget = defaultMax;
+        enforce = enforceBudget;
+    }
+
+    public static void set(String route, int max) {
+        BUDGETS.put(route, max);
+    }
+
+    public static void reset() {
+        BUDGETS.clear();
+        defaultBudget = 0;
+        enforce = false;
+    }
+
+    public static boolean isEnforced() {
+        return enforce;
+    }
+
+    /**
+     * true se le query eseguite superano il budget della route.
+     */
+    public static boolean exceeded(String route, int queries) {
+        int max = BUDGETS.getOrDefault(route, defaultBudget);
+        return max > 0 && queries > max;
+    }
+
+    /**
+     * Confronta le query eseguite con il budget della route.
+     *
+     * @throws IllegalStateException se il budget è superato in modalità enforce
+     */
+    public static void check(String route, int queries) {
+        if (!exceeded(route, queries)) {
+            return;
+        }
+        int max = BUDGETS.getOrDefault(route, defaultBudget);
+        if (enforce) {
+            throw new IllegalStateException(
+                    "Budget di query superato su " + route + ": " + queries + " query (massimo " + max + ")");
+        }
+        log.warn("Budget di query superato su {}: {} query (massimo {})", route, queries, max);
+    }
+}
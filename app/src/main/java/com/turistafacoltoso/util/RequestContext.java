@@ -0,0 +1,117 @@
+package com.turistafacoltoso.util;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stato legato alla richiesta HTTP in corso (un thread per richiesta).
+ * Aperto e chiuso dai filtri before/after registrati in App.
+ *
+ * Conta anche le connessioni prese e gli statement SQL eseguiti durante la
+ * richiesta, raggruppati per testo: la stessa query ripetuta più volte è il
+ * segnale tipico di un N+1.
+ */
+public class RequestContext {
+    public static final String SQL_QUERIES_HEADER = "X-SQL-Queries";
+    public static final String DB_CONNECTIONS_HEADER = "X-DB-Connections";
+
+    private static final ThreadLocal<RequestContext> CURRENT = new ThreadLocal<>();
+
+    private final long startNanos = System.nanoTime();
+    private long lastWriteNanos = -1;
+    private int queries;
+    private int connections;
+    private Map<String, Integer> perQuery;
+
+    private RequestContext() {
+
+    }
+
+    public static void begin() {
+        CURRENT.set(new RequestContext());
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Contesto della richiesta corrente, null se fuori da una richiesta HTTP
+     * (es. caricamenti all'avvio).
+     */
+    public static RequestContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Nanosecondi trascorsi dall'inizio della richiesta.
+     */
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    public int getQueries() {
+        return queries;
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    /**
+     * Query eseguite più di una volta nella richiesta, con il numero di
+     * esecuzioni.
+     */
+    public Map<String, Integer> repeatedQueries() {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        if (perQuery != null) {
+            perQuery.forEach((sql, n) -> {
+                if (n > 1) {
+                    result.put(sql, n);
+                }
+            });
+        }
+        return result;
+    }
+
+    static void recordConnection() {
+        RequestContext ctx = CURRENT.get();
+        if (ctx != null) {
+            ctx.connections++;
+        }
+    }
+
+    static void recordQuery(String sql) {
+        RequestContext ctx = CURRENT.get();
+        if (ctx == null) {
+            return;
+        }
+        ctx.queries++;
+        if (sql != null) {
+            if (ctx.perQuery == null) {
+                ctx.perQuery = new HashMap<>();
+            }
+            ctx.perQuery.merge(sql, 1, Integer::sum);
+        }
+    }
+
+    static void markWrite() {
+        RequestContext ctx = CURRENT.get();
+        if (ctx != null) {
+            ctx.lastWriteNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * true se la richiesta corrente ha usato il primario negli ultimi windowMs
+     * millisecondi: le letture successive devono vedere le proprie scritture.
+     */
+    static boolean wroteWithin(long windowMs) {
+        RequestContext ctx = CURRENT.get();
+        if (ctx == null || ctx.lastWriteNanos < 0) {
+            return false;
+        }
+        return System.nanoTime() - ctx.lastWriteNanos <= windowMs * 1_000_000L;
+    }
+}
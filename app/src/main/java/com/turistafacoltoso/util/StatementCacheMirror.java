@@ -0,0 +1,72 @@
+package com.turistafacoltoso.util;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stima degli hit/miss della cache degli statement preparati.
+ *
+ * La cache vera e propria vive nel driver PostgreSQL (una per connessione
+ * fisica, chiave = testo SQL, piano preparato lato server) e non espone
+ * contatori. Qui ne teniamo uno specchio LRU con lo stesso numero massimo di
+ * query: i valori sono approssimati, perché lo specchio non vede il limite in
+ * MiB del driver, le invalidazioni (errori, DDL, DISCARD) né la soglia
+ * prepareThreshold, sotto la quale una query in cache non è ancora preparata
+ * lato server.
+ */
+public class StatementCacheMirror {
+    private static final Map<Object, Map<String, Boolean>> perConnection = Collections
+            .synchronizedMap(new WeakHashMap<>());
+    private static final LongAdder hits = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+    private static volatile int capacity = 256;
+
+    private StatementCacheMirror() {
+
+    }
+
+    static void configure(int cacheCapacity) {
+        capacity = cacheCapacity;
+    }
+
+    /**
+     * Registra la preparazione di uno statement sulla connessione fisica indicata.
+     */
+    static void record(Object physicalConnection, String sql) {
+        Map<String, Boolean> statements = perConnection.computeIfAbsent(physicalConnection, k -> newLruMap());
+        // una connessione del pool è usata da un solo thread alla volta, il lock è quasi sempre libero
+        synchronized (statements) {
+            if (statements.put(sql, Boolean.TRUE) != null) {
+                hits.increment();
+            } else {
+                misses.increment();
+            }
+        }
+    }
+
+    public static StatementCacheMirrorStats getStats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        double ratio = (h + m) == 0 ? 0.0 : (double) h / (h + m);
+        return new StatementCacheMirrorStats(h, m, ratio, perConnection.size(), capacity);
+    }
+
+    public static void reset() {
+        hits.reset();
+        misses.reset();
+        perConnection.clear();
+    }
+
+    private static Map<String, Boolean> newLruMap() {
+        final int max = capacity;
+        return new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > max;
+            }
+        };
+    }
+}
@@ -0,0 +1,19 @@
+package com.turistafacoltoso.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Contatori stimati da StatementCacheMirror, non letti dal driver.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StatementCacheMirrorStats {
+    private long estimatedHits;
+    private long estimatedMisses;
+    private double estimatedHitRatio;
+    private int trackedConnections;
+    private int capacityPerConnection;
+}
@@ -0,0 +1,61 @@
+package com.turistafacoltoso.util;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+import io.javalin.http.BadRequestResponse;
+import io.javalin.http.Context;
+
+/**
+ * Lettura dell'intervallo delle statistiche (?from=&to=&limit=, date
+ * yyyy-MM-dd incluse). Senza from/to le statistiche usano l'ultimo mese.
+ */
+public class StatsRange {
+    public static final int MAX_LIMIT = 500;
+
+    private static final LocalDate MIN_DATE = LocalDate.of(1970, 1, 1);
+    private static final LocalDate MAX_DATE = LocalDate.of(9999, 12, 31);
+
+    private StatsRange() {
+
+    }
+
+    /**
+     * true se il client ha indicato un intervallo esplicito.
+     */
+    public static boolean isRequested(Context ctx) {
+        return ctx.queryParam("from") != null || ctx.queryParam("to") != null;
+    }
+
+    public static LocalDate from(Context ctx) {
+        LocalDate from = date(ctx, "from", MIN_DATE);
+        if (from.isAfter(date(ctx, "to", MAX_DATE))) {
+            throw new BadRequestResponse("from deve essere precedente o uguale a to");
+        }
+        return from;
+    }
+
+    public static LocalDate to(Context ctx) {
+        return date(ctx, "to", MAX_DATE);
+    }
+
+    public static int limit(Context ctx, int defaultLimit) {
+        return ctx.queryParamAsClass("limit", Integer.class)
+                .check(l -> l > 0 && l <= MAX_LIMIT, "limit deve essere compreso tra 1 e " + MAX_LIMIT)
+                .getOrDefault(defaultLimit);
+    }
+
+    // --- Metodi Helper ---
+
+    private static LocalDate date(Context ctx, String name, LocalDate defaultValue) {
+        String value = ctx.queryParam(name);
+        if (value == null || value.isBlank()) {
+            return defaultValue;
+        }
+        try {
+            return LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new BadRequestResponse(name + " deve essere una data nel formato yyyy-MM-dd");
+        }
+    }
+}
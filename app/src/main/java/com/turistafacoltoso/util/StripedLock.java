@@ -0,0 +1,83 @@
+package com.turistafacoltoso.util;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Insieme fisso di lock indicizzati per chiave (es. id abitazione): chiavi
+ * diverse finiscono quasi sempre su lock diversi e procedono in parallelo,
+ * la stessa chiave è serializzata. Usa ReentrantLock e non synchronized per
+ * non bloccare il carrier dei virtual thread durante l'attesa.
+ */
+public class StripedLock {
+    private final ReentrantLock[] stripes;
+
+    public StripedLock(int nStripes) {
+        if (nStripes <= 0 || Integer.bitCount(nStripes) != 1) {
+            throw new IllegalArgumentException("nStripes deve essere una potenza di 2");
+        }
+        stripes = new ReentrantLock[nStripes];
+        for (int i = 0; i < nStripes; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public <T> T withLock(int key, Supplier<T> action) {
+        ReentrantLock lock = stripes[stripe(key)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Esegue action tenendo i lock di tutte le chiavi, presi in ordine di
+     * indice per evitare deadlock tra chiamate con chiavi sovrapposte.
+     */
+    public <T> T withLocks(Collection<Integer> keys, Supplier<T> action) {
+        TreeSet<Integer> indici = new TreeSet<>();
+        for (int key : keys) {
+            indici.add(stripe(key));
+        }
+        return withStripes(indici, action);
+    }
+
+    /**
+     * Esegue action bloccando tutte le chiavi (es. import massivo).
+     */
+    public <T> T withAll(Supplier<T> action) {
+        TreeSet<Integer> indici = new TreeSet<>();
+        for (int i = 0; i < stripes.length; i++) {
+            indici.add(i);
+        }
+        return withStripes(indici, action);
+    }
+
+    private <T> T withStripes(TreeSet<Integer> indici, Supplier<T> action) {
+        int presi = 0;
+        try {
+            for (int i : indici) {
+                stripes[i].lock();
+                presi++;
+            }
+            return action.get();
+        } finally {
+            for (int i : indici) {
+                if (presi-- == 0) {
+                    break;
+                }
+                stripes[i].unlock();
+            }
+        }
+    }
+
+    private int stripe(int key) {
+        // mescola i bit così che id consecutivi non dipendano solo dai bit bassi
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+}
@@ -0,0 +1,107 @@
+package com.turistafacoltoso.index;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.Prenotazione;
+
+public class AbitazionePriceIndexTest {
+    private static final LocalDate BASE = LocalDate.of(2025, 1, 1);
+
+    private final AbitazionePriceIndex index = AbitazionePriceIndex.getInstance();
+    private final PrenotazioneIndex prenotazioni = PrenotazioneIndex.getInstance();
+    private final List<Abitazione> abitazioni = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        Random random = new Random(11);
+        for (int i = 1; i <= 20_000; i++) {
+            LocalDate inizio = BASE.plusDays(random.nextInt(200));
+            abitazioni.add(abitazione(i, BigDecimal.valueOf(2000 + random.nextInt(50_000), 2), inizio,
+                    inizio.plusDays(30 + random.nextInt(300))));
+        }
+        index.setLoader(c -> abitazioni.forEach(c));
+        index.reload();
+        prenotazioni.clear();
+    }
+
+    @After
+    public void tearDown() {
+        index.setLoader(c -> {
+        });
+        index.reload();
+        prenotazioni.clear();
+    }
+
+    @Test
+    public void cheapestAvailableMatchesAFullSort() {
+        LocalDate inizio = BASE.plusDays(180);
+        LocalDate fine = BASE.plusDays(185);
+        // prenota alcune delle più economiche per verificare che vengano saltate
+        abitazioni.stream().sorted(perPrezzo()).limit(30).filter(a -> a.getId() % 2 == 0)
+                .forEach(a -> prenotazioni.add(prenotazione(a.getId(), inizio.plusDays(1), fine.plusDays(3))));
+
+        Predicate<Abitazione> libera = a -> !a.getDisponibilitaInizio().isAfter(inizio)
+                && !a.getDisponibilitaFine().isBefore(fine) && prenotazioni.isFree(a.getId(), inizio, fine);
+        List<Integer> crescenti = abitazioni.stream().filter(libera).sorted(perPrezzo()).limit(25)
+                .map(Abitazione::getId).toList();
+        List<Integer> decrescenti = abitazioni.stream().filter(libera).sorted(perPrezzo().reversed()).limit(25)
+                .map(Abitazione::getId).toList();
+
+        assertEquals(crescenti, ids(index.findDisponibili(inizio, fine, false, 25)));
+        assertEquals(decrescenti, ids(index.findDisponibili(inizio, fine, true, 25)));
+    }
+
+    @Test
+    public void updatesAndDeletesKeepPriceOrder() {
+        Abitazione vecchia = abitazioni.get(0);
+        Abitazione nuova = abitazione(vecchia.getId(), new BigDecimal("0.50"), BASE, BASE.plusDays(400));
+        index.onDeleted(vecchia);
+        index.onCreated(nuova);
+        assertEquals(List.of(nuova.getId()), ids(index.findDisponibili(BASE, BASE.plusDays(1), false, 1)));
+        assertEquals(abitazioni.size(), index.size());
+
+        // cancellazione con un prezzo non più allineato all'indice
+        index.onDeleted(abitazione(nuova.getId(), new BigDecimal("99.99"), BASE, BASE.plusDays(400)));
+        assertEquals(abitazioni.size() - 1, index.size());
+
+        for (int i = 0; i < 2000; i++) {
+            index.onCreated(abitazione(100_000 + i, new BigDecimal("1.00"), BASE, BASE.plusDays(400)));
+        }
+        assertEquals(List.of(100_000, 100_001, 100_002),
+                ids(index.findDisponibili(BASE, BASE.plusDays(1), false, 3)));
+        assertEquals(abitazioni.size() + 1999, index.size());
+    }
+
+    private static Comparator<Abitazione> perPrezzo() {
+        return Comparator.comparing(Abitazione::getPrezzoPerNotte).thenComparingInt(Abitazione::getId);
+    }
+
+    private static List<Integer> ids(List<Abitazione> list) {
+        return list.stream().map(Abitazione::getId).toList();
+    }
+
+    private static Prenotazione prenotazione(int idAbitazione, LocalDate inizio, LocalDate fine) {
+        Prenotazione p = new Prenotazione(inizio, fine, 1, idAbitazione, null);
+        p.setId(idAbitazione);
+        return p;
+    }
+
+    private static Abitazione abitazione(int id, BigDecimal prezzo, LocalDate inizio, LocalDate fine) {
+        Abitazione a = new Abitazione("Casa " + id, "Via " + id, 2, 2, prezzo, inizio, fine, 1);
+        a.setId(id);
+        return a;
+    }
+}
@@ -0,0 +1,92 @@
+package com.turistafacoltoso.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.AbitazioneFilter;
+import com.turistafacoltoso.model.AbitazioneSearchResult;
+
+public class AbitazioneSearchEngineTest {
+    private static final LocalDate BASE = LocalDate.of(2025, 1, 1);
+
+    private final AbitazioneSearchEngine engine = AbitazioneSearchEngine.getInstance();
+    private final List<Abitazione> abitazioni = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        Random random = new Random(7);
+        // abbastanza righe da usare sia blocchi ad array sia blocchi a bitmap
+        for (int i = 1; i <= 150_000; i++) {
+            LocalDate inizio = BASE.plusDays(random.nextInt(200));
+            abitazioni.add(abitazione(i, 1 + random.nextInt(6), 1 + random.nextInt(8), 1 + random.nextInt(5000),
+                    BigDecimal.valueOf(20 + random.nextInt(120_000), 2), inizio, inizio.plusDays(30 + random.nextInt(300))));
+        }
+        engine.setLoader(c -> abitazioni.forEach(c));
+        engine.reload();
+    }
+
+    @After
+    public void tearDown() {
+        engine.setLoader(c -> {
+        });
+        engine.reload();
+    }
+
+    @Test
+    public void combinedFiltersMatchALinearScan() {
+        AbitazioneFilter filter = new AbitazioneFilter(3, 4, new BigDecimal("75.50"), new BigDecimal("420"), null,
+                BASE.plusDays(150), BASE.plusDays(160));
+        Predicate<Abitazione> expected = a -> a.getNLocali() == 3 && a.getNPostiLetto() >= 4
+                && a.getPrezzoPerNotte().compareTo(new BigDecimal("75.50")) >= 0
+                && a.getPrezzoPerNotte().compareTo(new BigDecimal("420")) <= 0
+                && !a.getDisponibilitaInizio().isAfter(BASE.plusDays(150))
+                && !a.getDisponibilitaFine().isBefore(BASE.plusDays(160));
+        List<Integer> attesi = abitazioni.stream().filter(expected).map(Abitazione::getId).toList();
+
+        AbitazioneSearchResult result = engine.search(filter, 0, 100_000);
+        assertEquals(attesi.size(), result.getTotale());
+        assertEquals(attesi, result.getItems().stream().map(Abitazione::getId).toList());
+        assertNull(result.getNextCursor());
+        assertEquals(Integer.valueOf(attesi.size()), result.getFacets().get("nLocali").get("3"));
+        int perPostiLetto = result.getFacets().get("nPostiLetto").values().stream().mapToInt(Integer::intValue).sum();
+        assertEquals(attesi.size(), perPostiLetto);
+    }
+
+    @Test
+    public void paginationAndUpdatesKeepIdOrder() {
+        AbitazioneFilter host = new AbitazioneFilter(null, null, null, null, 42, null, null);
+        List<Integer> attesi = abitazioni.stream().filter(a -> a.getIdHost() == 42).map(Abitazione::getId).toList();
+        AbitazioneSearchResult prima = engine.search(host, 0, 5);
+        assertEquals(attesi.subList(0, 5), prima.getItems().stream().map(Abitazione::getId).toList());
+        AbitazioneSearchResult seconda = engine.search(host, prima.getNextCursor(), 5);
+        assertEquals(attesi.get(5), Integer.valueOf(seconda.getItems().get(0).getId()));
+
+        Abitazione vecchia = abitazioni.get(attesi.get(0) - 1);
+        Abitazione nuova = abitazione(vecchia.getId(), vecchia.getNLocali(), vecchia.getNPostiLetto(), 43,
+                vecchia.getPrezzoPerNotte(), vecchia.getDisponibilitaInizio(), vecchia.getDisponibilitaFine());
+        engine.onDeleted(vecchia);
+        engine.onCreated(nuova);
+        assertEquals(attesi.size() - 1, engine.search(host, 0, 5).getTotale());
+        engine.onDeleted(nuova);
+        assertEquals(149_999, engine.search(new AbitazioneFilter(), 0, 1).getTotale());
+    }
+
+    private static Abitazione abitazione(int id, int nLocali, int nPostiLetto, int idHost, BigDecimal prezzo,
+            LocalDate inizio, LocalDate fine) {
+        Abitazione a = new Abitazione("Casa " + id, "Via " + id, nLocali, nPostiLetto, prezzo, inizio, fine, idHost);
+        a.setId(id);
+        return a;
+    }
+}
@@ -0,0 +1,69 @@
+package com.turistafacoltoso.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.AbitazioneSuggestion;
+
+public class AbitazioneSuggestIndexTest {
+    private final AbitazioneSuggestIndex index = AbitazioneSuggestIndex.getInstance();
+    private final List<Abitazione> abitazioni = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        abitazioni.add(abitazione(1, "Attico Colosseo", "Via Labicana 12"));
+        abitazioni.add(abitazione(2, "Casa Città Alta", "Via Gombito 3"));
+        abitazioni.add(abitazione(3, "Colonna Suite", "Piazza Colonna 1"));
+        abitazioni.add(abitazione(4, "Loft Navigli", "Via Colombo 40"));
+        index.setLoader(c -> abitazioni.forEach(c));
+        index.reload();
+    }
+
+    @After
+    public void tearDown() {
+        index.setLoader(c -> {
+        });
+        index.reload();
+    }
+
+    @Test
+    public void prefixAccentsAndTypos() {
+        // a parità di punti prima il nome più corto
+        assertEquals(List.of(4, 3, 1), ids(index.suggest("colo", 10)));
+        assertEquals(List.of(2), ids(index.suggest("citta", 10)));
+        // lettera doppia spostata e trasposizione
+        assertEquals(List.of(1), ids(index.suggest("colloseo", 10)));
+        assertEquals(List.of(1), ids(index.suggest("attcio col", 10)));
+        assertTrue(index.suggest("zzzz", 10).isEmpty());
+    }
+
+    @Test
+    public void updatesReplaceTheOldWords() {
+        index.onDeleted(abitazioni.get(3));
+        index.onCreated(abitazione(4, "Loft Brera", "Via Solferino 8"));
+        assertEquals(List.of(3, 1), ids(index.suggest("colo", 10)));
+        assertEquals(List.of(4), ids(index.suggest("solfe", 10)));
+        assertTrue(index.suggest("navigli", 10).isEmpty());
+        assertEquals(1, AbitazioneSuggestIndex.distanza("attcio", "attico", 2));
+    }
+
+    private static List<Integer> ids(List<AbitazioneSuggestion> suggestions) {
+        return suggestions.stream().map(AbitazioneSuggestion::getId).toList();
+    }
+
+    private static Abitazione abitazione(int id, String nome, String indirizzo) {
+        Abitazione a = new Abitazione();
+        a.setId(id);
+        a.setNomeAbitazione(nome);
+        a.setIndirizzoAbitazione(indirizzo);
+        return a;
+    }
+}
@@ -0,0 +1,70 @@
+package com.turistafacoltoso.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.turistafacoltoso.model.Feedback;
+
+public class FeedbackSearchIndexTest {
+    private final FeedbackSearchIndex index = FeedbackSearchIndex.getInstance();
+    private final List<Feedback> feedbacks = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        feedbacks.add(feedback(1, "Bagno sporco", "Il bagno era sporchissimo e c'era rumore."));
+        feedbacks.add(feedback(2, "Ottimo soggiorno", "Casa pulita, un po' di rumore dalla strada."));
+        feedbacks.add(feedback(3, "Città bellissima", "Niente da dire, tornerò."));
+        feedbacks.add(feedback(4, "Stanze sporche", "Lenzuola sporche e cucina sporca."));
+        for (int i = 5; i <= 20; i++) {
+            feedbacks.add(feedback(i, "Tutto bene", "Soggiorno tranquillo numero " + i));
+        }
+        index.setLoader(c -> feedbacks.forEach(c));
+        index.reload();
+    }
+
+    @After
+    public void tearDown() {
+        index.setLoader(c -> {
+        });
+        index.reload();
+    }
+
+    @Test
+    public void rankingFoldsAccentsAndInflections() {
+        List<FeedbackSearchIndex.Hit> hits = index.search("SPORCO", 0, 10);
+        assertEquals(2, hits.size());
+        // tre occorrenze (una nel titolo) battono l'unica del feedback 1
+        assertEquals(4, hits.get(0).idFeedback());
+        assertEquals(1, hits.get(1).idFeedback());
+
+        assertEquals(3, index.search("citta", 0, 10).get(0).idFeedback());
+        assertEquals(List.of(), index.search("della", 0, 10));
+    }
+
+    @Test
+    public void paginationAndDeletes() {
+        List<FeedbackSearchIndex.Hit> prima = index.search("soggiorno", 0, 5);
+        // limit + 1 risultati: esiste una pagina successiva
+        assertEquals(6, prima.size());
+        List<FeedbackSearchIndex.Hit> seconda = index.search("soggiorno", 5, 5);
+        assertTrue(prima.get(4).rilevanza() >= seconda.get(0).rilevanza());
+        assertEquals(17, prima.size() - 1 + index.search("soggiorno", 5, 100).size());
+
+        index.onDeleted(feedbacks.get(0));
+        assertEquals(List.of(2), index.search("rumori", 0, 10).stream().map(FeedbackSearchIndex.Hit::idFeedback).toList());
+        assertEquals(19, index.size());
+    }
+
+    private static Feedback feedback(int id, String titolo, String testo) {
+        Feedback f = new Feedback(titolo, testo, 3, id, 100 + id, 1);
+        f.setId(id);
+        return f;
+    }
+}
@@ -0,0 +1,62 @@
+package com.turistafacoltoso.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class IntervalTreeTest {
+
+    @Test
+    public void checkOutDayIsFreeForNextCheckIn() {
+        IntervalTree tree = new IntervalTree();
+        tree.insert(1, 10, 15);
+
+        assertFalse(tree.overlaps(15, 20));
+        assertFalse(tree.overlaps(5, 10));
+        assertTrue(tree.overlaps(14, 16));
+        assertTrue(tree.overlaps(5, 11));
+    }
+
+    @Test
+    public void excludedIntervalIsIgnored() {
+        IntervalTree tree = new IntervalTree();
+        tree.insert(1, 10, 15);
+        tree.insert(2, 20, 25);
+
+        assertEquals(-1, tree.findOverlap(12, 18, 1));
+        assertEquals(2, tree.findOverlap(12, 22, 1));
+    }
+
+    @Test
+    public void matchesBruteForceAfterRandomInsertsAndRemoves() {
+        Random random = new Random(42);
+        IntervalTree tree = new IntervalTree();
+        List<int[]> live = new ArrayList<>();
+
+        for (int id = 0; id < 2000; id++) {
+            int start = random.nextInt(1000);
+            int end = start + 1 + random.nextInt(30);
+            tree.insert(id, start, end);
+            live.add(new int[] { id, start, end });
+
+            if (random.nextInt(3) == 0) {
+                int[] victim = live.remove(random.nextInt(live.size()));
+                assertTrue(tree.remove(victim[0], victim[1]));
+            }
+        }
+        assertEquals(live.size(), tree.size());
+
+        for (int q = 0; q < 2000; q++) {
+            int start = random.nextInt(1050);
+            int end = start + 1 + random.nextInt(20);
+            boolean expected = live.stream().anyMatch(i -> i[1] < end && start < i[2]);
+            assertEquals(expected, tree.overlaps(start, end));
+        }
+    }
+}
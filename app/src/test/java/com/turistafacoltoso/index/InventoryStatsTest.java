@@ -0,0 +1,98 @@
+package com.turistafacoltoso.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.InventorySummary;
+
+public class InventoryStatsTest {
+    private final InventoryStats stats = InventoryStats.getInstance();
+    private final List<Abitazione> db = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        // prezzi 1.00, 2.00, ... 1000.00
+        for (int i = 1; i <= 1000; i++) {
+            db.add(abitazione(i, 1 + i % 3, 1 + i % 4, BigDecimal.valueOf(i)));
+        }
+        stats.setLoader(c -> db.forEach(c));
+        stats.reload();
+    }
+
+    @After
+    public void tearDown() {
+        stats.setLoader(c -> {
+        });
+        stats.reload();
+    }
+
+    @Test
+    public void summaryAndPercentilesMatchTheData() {
+        InventorySummary summary = stats.getSummary();
+        assertEquals(1000, summary.getTotaleAbitazioni());
+        assertEquals(new BigDecimal("500.50"), summary.getMediaPrezzoPerNotte());
+        assertEquals(new BigDecimal("2.50"), stats.getMediaPostiLetto());
+
+        Map<String, BigDecimal> p = stats.getPercentiliPrezzo(List.of(50, 99));
+        assertWithin(500, p.get("p50"));
+        assertWithin(990, p.get("p99"));
+
+        assertEquals(Integer.valueOf(250), stats.getDistribuzionePostiLetto().get(4));
+        assertEquals(333, stats.getHost(1).get().getAbitazioni());
+    }
+
+    @Test
+    public void deleteRemovesTheAbitazioneFromEverySummary() {
+        Abitazione a = abitazione(2000, 9, 9, new BigDecimal("50000.00"));
+        stats.onCreated(a);
+        assertEquals(Integer.valueOf(1), stats.getDistribuzioneLocali().get(9));
+        assertTrue(stats.getHost(9).isPresent());
+
+        stats.onDeleted(a);
+        assertFalse(stats.getDistribuzioneLocali().containsKey(9));
+        assertFalse(stats.getHost(9).isPresent());
+        assertEquals(new BigDecimal("500.50"), stats.getSummary().getMediaPrezzoPerNotte());
+        assertWithin(1000, stats.getPercentiliPrezzo(List.of(100)).get("p100"));
+    }
+
+    @Test
+    public void notificationsAlreadySeenByTheReloadAreNotCountedTwice() {
+        // create letta dal reload e notificata dopo, delete già assente dal reload
+        Abitazione nuova = abitazione(2000, 9, 9, new BigDecimal("50000.00"));
+        db.add(nuova);
+        Abitazione cancellata = db.remove(0);
+        stats.reload();
+        stats.onCreated(nuova);
+        stats.onDeleted(cancellata);
+
+        assertEquals(1000, stats.getSummary().getTotaleAbitazioni());
+        assertEquals(Integer.valueOf(1), stats.getDistribuzioneLocali().get(9));
+        assertEquals(1, stats.getHost(9).get().getAbitazioni());
+        assertWithin(50000, stats.getPercentiliPrezzo(List.of(100)).get("p100"));
+        assertWithin(500, stats.getPercentiliPrezzo(List.of(50)).get("p50"));
+    }
+
+    private static void assertWithin(double expected, BigDecimal actual) {
+        double err = Math.abs(actual.doubleValue() - expected) / expected;
+        assertTrue("errore relativo " + err + " su " + actual, err <= 0.01);
+    }
+
+    private static Abitazione abitazione(int id, int idHost, int nPostiLetto, BigDecimal prezzo) {
+        Abitazione a = new Abitazione("Casa " + id, "Via " + id, nPostiLetto, nPostiLetto, prezzo,
+                LocalDate.of(2025, 1, 1), LocalDate.of(2025, 12, 31), idHost);
+        a.setId(id);
+        return a;
+    }
+}
@@ -0,0 +1,94 @@
+package com.turistafacoltoso.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.Prenotazione;
+
+public class LastMonthCountersTest {
+    private static final LocalDate OGGI = LocalDate.of(2025, 3, 31);
+
+    private final LastMonthCounters counters = LastMonthCounters.getInstance();
+    private final List<Prenotazione> prenotazioni = new ArrayList<>();
+    private final List<Abitazione> abitazioni = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        abitazioni.add(abitazione(1, 10));
+        abitazioni.add(abitazione(2, 20));
+        // 28 febbraio = 31 marzo - 1 mese: dentro la finestra
+        prenotazioni.add(prenotazione(1, 100, OGGI.minusMonths(1), 3));
+        // 27 febbraio: fuori dalla finestra
+        prenotazioni.add(prenotazione(2, 101, OGGI.minusMonths(1).minusDays(1), 7));
+        prenotazioni.add(prenotazione(2, 101, OGGI.plusDays(10), 2));
+        prenotazioni.add(prenotazione(2, 102, OGGI.plusDays(20), 4));
+        counters.setClock(clockAt(OGGI));
+        counters.setLoader(() -> prenotazioni, c -> abitazioni.forEach(c));
+        counters.reload();
+    }
+
+    @After
+    public void tearDown() {
+        counters.setLoader(List::of, c -> {
+        });
+        counters.setClock(Clock.systemDefaultZone());
+        counters.reload();
+    }
+
+    @Test
+    public void countsOnlyBookingsStartingInsideTheWindow() {
+        assertEquals(LocalDate.of(2025, 2, 28), counters.getInizioFinestra());
+        assertEquals(Optional.of(2), counters.getAbitazionePiuPrenotata());
+        assertEquals(Map.of(20, 2, 10, 1), counters.getClassificaHosts());
+        assertEquals(List.of(102, 100, 101), List.copyOf(counters.getTopUtentiPerGiorni(5).keySet()));
+        assertEquals(Integer.valueOf(2), counters.getTopUtentiPerGiorni(5).get(101));
+    }
+
+    @Test
+    public void bucketsLeaveTheWindowWhenTheDayChanges() {
+        counters.onCreated(prenotazione(1, 103, OGGI, 5), abitazione(1, 10));
+        assertEquals(Map.of(10, 2, 20, 2), counters.getClassificaHosts());
+
+        counters.setClock(clockAt(OGGI.plusDays(1)));
+        assertEquals(Map.of(20, 2, 10, 1), counters.getClassificaHosts());
+        assertEquals(Optional.of(2), counters.getAbitazionePiuPrenotata());
+        assertFalse(counters.getTopUtentiPerGiorni(5).containsKey(100));
+    }
+
+    @Test
+    public void deleteRemovesTheContribution() {
+        Prenotazione p = prenotazioni.get(3);
+        counters.onDeleted(p, abitazione(2, 20));
+        assertEquals(Map.of(20, 1, 10, 1), counters.getClassificaHosts());
+        assertFalse(counters.getTopUtentiPerGiorni(5).containsKey(102));
+    }
+
+    private static Clock clockAt(LocalDate day) {
+        return Clock.fixed(day.atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneId.of("UTC"));
+    }
+
+    private static Abitazione abitazione(int id, int idHost) {
+        Abitazione a = new Abitazione();
+        a.setId(id);
+        a.setIdHost(idHost);
+        return a;
+    }
+
+    private static Prenotazione prenotazione(int idAbitazione, int idUtente, LocalDate inizio, int notti) {
+        return new Prenotazione(inizio, inizio.plusDays(notti), idUtente, idAbitazione, null);
+    }
+}
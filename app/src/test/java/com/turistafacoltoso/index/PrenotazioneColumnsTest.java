@@ -0,0 +1,108 @@
+package com.turistafacoltoso.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.AnalyticsRow;
+import com.turistafacoltoso.model.Prenotazione;
+
+public class PrenotazioneColumnsTest {
+    private static final LocalDate BASE = LocalDate.of(2024, 1, 1);
+
+    private final PrenotazioneColumns columns = PrenotazioneColumns.getInstance();
+    private final List<Prenotazione> prenotazioni = new ArrayList<>();
+    private final List<Abitazione> abitazioni = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        for (int i = 1; i <= 50; i++) {
+            abitazioni.add(abitazione(i, 1 + i % 7));
+        }
+        Random random = new Random(42);
+        // abbastanza righe da dividere il lavoro tra più task
+        for (int i = 1; i <= 100_000; i++) {
+            LocalDate inizio = BASE.plusDays(random.nextInt(365));
+            Prenotazione p = new Prenotazione(inizio, inizio.plusDays(1 + random.nextInt(10)), 1 + random.nextInt(300),
+                    1 + random.nextInt(50), null);
+            p.setId(i);
+            prenotazioni.add(p);
+        }
+        columns.setLoader(c -> prenotazioni.forEach(c), c -> abitazioni.forEach(c));
+        columns.reload();
+    }
+
+    @After
+    public void tearDown() {
+        columns.setLoader(c -> {
+        }, c -> {
+        });
+        columns.reload();
+    }
+
+    @Test
+    public void parallelAggregationMatchesSequentialScan() {
+        LocalDate from = BASE.plusDays(30);
+        LocalDate to = BASE.plusDays(120);
+
+        List<AnalyticsRow> rows = columns.aggregate(PrenotazioneColumns.GroupBy.HOST, from, to, 100);
+
+        long[] prenotazioniPerHost = new long[8];
+        long[] nottiPerHost = new long[8];
+        for (Prenotazione p : prenotazioni) {
+            if (!p.getDataInizio().isBefore(from) && !p.getDataInizio().isAfter(to)) {
+                int host = 1 + p.getAbitazioneId() % 7;
+                prenotazioniPerHost[host]++;
+                nottiPerHost[host] += p.getDataFine().toEpochDay() - p.getDataInizio().toEpochDay();
+            }
+        }
+        assertEquals(7, rows.size());
+        for (AnalyticsRow row : rows) {
+            assertEquals(prenotazioniPerHost[row.getChiave()], row.getPrenotazioni());
+            assertEquals(nottiPerHost[row.getChiave()], row.getNotti());
+        }
+        for (int i = 1; i < rows.size(); i++) {
+            assertTrue(rows.get(i - 1).getPrenotazioni() >= rows.get(i).getPrenotazioni());
+        }
+    }
+
+    @Test
+    public void deletesAndUpdatesAreReflected() {
+        Prenotazione p = new Prenotazione(BASE.minusDays(10), BASE.minusDays(7), 999, 3, null);
+        p.setId(200_000);
+        columns.onCreated(p, abitazione(3, 4));
+        assertEquals(List.of(new AnalyticsRow(999, 1, 3)),
+                columns.aggregate(PrenotazioneColumns.GroupBy.UTENTE, BASE.minusDays(10), BASE.minusDays(1), 10));
+
+        Prenotazione updated = new Prenotazione(BASE.minusDays(5), BASE.minusDays(4), 999, 3, null);
+        updated.setId(200_000);
+        columns.onDeleted(p, abitazione(3, 4));
+        columns.onCreated(updated, abitazione(3, 4));
+        assertEquals(List.of(new AnalyticsRow(999, 1, 1)),
+                columns.aggregate(PrenotazioneColumns.GroupBy.UTENTE, BASE.minusDays(10), BASE.minusDays(1), 10));
+
+        for (int i = 1; i <= 30_000; i++) {
+            columns.onDeleted(prenotazioni.get(i - 1), null);
+        }
+        assertEquals(70_001, columns.size());
+        long totale = columns.aggregate(PrenotazioneColumns.GroupBy.ABITAZIONE, BASE.minusDays(10), BASE.plusDays(400), 100)
+                .stream().mapToLong(AnalyticsRow::getPrenotazioni).sum();
+        assertEquals(70_001, totale);
+    }
+
+    private static Abitazione abitazione(int id, int idHost) {
+        Abitazione a = new Abitazione();
+        a.setId(id);
+        a.setIdHost(idHost);
+        return a;
+    }
+}
@@ -0,0 +1,114 @@
+package com.turistafacoltoso.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.Feedback;
+import com.turistafacoltoso.model.RatingStats;
+
+public class RatingAggregatesTest {
+    private final RatingAggregates ratings = RatingAggregates.getInstance();
+    private final List<Feedback> feedbacks = new ArrayList<>();
+    private final List<Abitazione> abitazioni = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        // abitazione 1 (host 10): diciannove 5 e un 4; abitazione 2 (host 20): un solo 5;
+        // abitazione 3 (host 30): quaranta 2, che abbassano la media globale
+        abitazioni.add(abitazione(1, 10));
+        abitazioni.add(abitazione(2, 20));
+        abitazioni.add(abitazione(3, 30));
+        for (int i = 1; i <= 19; i++) {
+            feedbacks.add(feedback(i, 1, 5));
+        }
+        feedbacks.add(feedback(20, 1, 4));
+        feedbacks.add(feedback(21, 2, 5));
+        for (int i = 22; i <= 61; i++) {
+            feedbacks.add(feedback(i, 3, 2));
+        }
+        ratings.setLoader(c -> feedbacks.forEach(c), c -> abitazioni.forEach(c));
+        ratings.reload();
+    }
+
+    @After
+    public void tearDown() {
+        ratings.setLoader(c -> {
+        }, c -> {
+        });
+        ratings.reload();
+    }
+
+    @Test
+    public void bayesianAverageRanksManyGoodScoresAboveASinglePerfectOne() {
+        RatingStats unico = ratings.getAbitazione(2).get();
+        assertEquals(new BigDecimal("5.00"), unico.getMedia());
+        // (10 * 184/61 + 5) / 11
+        assertEquals(new BigDecimal("3.20"), unico.getMediaBayesiana());
+
+        List<RatingStats> top = ratings.getClassifica(RatingAggregates.GroupBy.ABITAZIONE, 10);
+        assertEquals(1, top.get(0).getId());
+        assertEquals(2, top.get(1).getId());
+        assertEquals(3, top.get(2).getId());
+        assertEquals(Long.valueOf(19), top.get(0).getDistribuzione().get(5));
+    }
+
+    @Test
+    public void updatesAndHostChangesMoveTheScores() {
+        Feedback old = feedbacks.get(0);
+        Feedback updated = feedback(1, 2, 1);
+        ratings.onDeleted(old);
+        ratings.onCreated(updated);
+        assertEquals(19, ratings.getAbitazione(1).get().getFeedback());
+        assertEquals(new BigDecimal("3.00"), ratings.getHost(20).get().getMedia());
+
+        // l'abitazione 2 passa all'host 10
+        ratings.abitazioni().onDeleted(abitazione(2, 20));
+        ratings.abitazioni().onCreated(abitazione(2, 10));
+        assertFalse(ratings.getHost(20).isPresent());
+        assertEquals(21, ratings.getHost(10).get().getFeedback());
+
+        ratings.onDeleted(updated);
+        ratings.onDeleted(feedbacks.get(20));
+        assertFalse(ratings.getAbitazione(2).isPresent());
+        assertEquals(19, ratings.getHost(10).get().getFeedback());
+    }
+
+    @Test
+    public void notificationsAlreadySeenByTheReloadAreNotCountedTwice() {
+        // create letta dal reload e notificata dopo, delete già assente dal reload
+        Feedback nuovo = feedback(62, 2, 1);
+        feedbacks.add(nuovo);
+        Feedback cancellato = feedbacks.remove(20);
+        ratings.reload();
+        ratings.onCreated(nuovo);
+        ratings.onDeleted(cancellato);
+
+        RatingStats stats = ratings.getAbitazione(2).get();
+        assertEquals(1, stats.getFeedback());
+        assertEquals(new BigDecimal("1.00"), stats.getMedia());
+        assertEquals(61, ratings.getClassifica(RatingAggregates.GroupBy.HOST, 10).stream()
+                .mapToLong(RatingStats::getFeedback).sum());
+    }
+
+    private static Feedback feedback(int id, int idAbitazione, int punteggio) {
+        Feedback f = new Feedback("Titolo " + id, "Testo", punteggio, id, 100 + id, idAbitazione);
+        f.setId(id);
+        return f;
+    }
+
+    private static Abitazione abitazione(int id, int idHost) {
+        Abitazione a = new Abitazione();
+        a.setId(id);
+        a.setIdHost(idHost);
+        return a;
+    }
+}
@@ -0,0 +1,73 @@
+package com.turistafacoltoso.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.HostStats;
+import com.turistafacoltoso.model.Prenotazione;
+import com.turistafacoltoso.model.ReconcileReport;
+
+public class SuperHostRegistryTest {
+    private final SuperHostRegistry registry = SuperHostRegistry.getInstance();
+    private final List<HostStats> db = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        db.add(new HostStats(1, "Mario", "Rossi", 2));
+        db.add(new HostStats(2, "Anna", "Bianchi", 0));
+        registry.setSoglia(3);
+        registry.setLoader(() -> db);
+        registry.reload();
+    }
+
+    @After
+    public void tearDown() {
+        registry.setSoglia(SuperHostRegistry.DEFAULT_SOGLIA);
+        registry.setLoader(List::of);
+        registry.reload();
+    }
+
+    @Test
+    public void hostBecomesSuperHostAtThresholdAndLeavesBelowIt() {
+        Abitazione a = abitazione(1);
+        Prenotazione p = new Prenotazione(LocalDate.now(), LocalDate.now().plusDays(2), 5, 10, null);
+
+        assertFalse(registry.isSuperHost(1));
+        registry.onCreated(p, a);
+        assertTrue(registry.isSuperHost(1));
+        assertEquals(Integer.valueOf(3), registry.getSuperHosts().get("Mario Rossi"));
+
+        registry.onDeleted(p, a);
+        assertFalse(registry.isSuperHost(1));
+        assertTrue(registry.getSuperHosts().isEmpty());
+    }
+
+    @Test
+    public void verifyReportsDriftAndReloadFixesIt() {
+        registry.onCreated(new Prenotazione(), abitazione(2));
+
+        ReconcileReport report = registry.verify();
+        assertFalse(report.isAllineato());
+        assertEquals(List.of(2), report.getIdDisallineati());
+
+        registry.reload();
+        assertTrue(registry.verify().isAllineato());
+        assertEquals(0, registry.getConteggio(2));
+    }
+
+    private static Abitazione abitazione(int idHost) {
+        Abitazione a = new Abitazione();
+        a.setIdHost(idHost);
+        return a;
+    }
+}
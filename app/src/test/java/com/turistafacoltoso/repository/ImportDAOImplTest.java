@@ -0,0 +1,115 @@
+package com.turistafacoltoso.repository;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.turistafacoltoso.model.ImportJob;
+import com.turistafacoltoso.model.ImportScarto;
+import com.turistafacoltoso.model.ImportTipo;
+import com.turistafacoltoso.util.CsvParsingReader;
+
+/**
+ * Richiede PostgreSQL: vedi TestDatabase.
+ */
+public class ImportDAOImplTest {
+    private static final List<String> COLONNE = ImportTipo.PRENOTAZIONI.getColonne();
+
+    private final ImportDAOImpl dao = new ImportDAOImpl();
+
+    @Before
+    public void setUp() {
+        TestDatabase.reset();
+        TestDatabase.execute("INSERT INTO utente(id, nome_user, cognome, email, indirizzo_user) VALUES "
+                + "(1, 'Anna', 'Rossi', 'anna@example.it', 'Via Po 1'), "
+                + "(2, 'Luca', 'Bianchi', 'luca@example.it', 'Via Po 2'); "
+                + "INSERT INTO host(id, id_utente) VALUES (1, 1); "
+                + "INSERT INTO abitazione(id, nome_abitazione, indirizzo_abitazione, n_locali, n_posti_letto, "
+                + "prezzo_per_notte, disponibilita_inizio, disponibilita_fine, id_host) VALUES "
+                + "(10, 'Casa Po', 'Via Po 3', 2, 2, 80, '2025-01-01', '2026-01-01', 1), "
+                + "(11, 'Casa Dora', 'Via Dora 4', 2, 2, 90, '2025-01-01', '2026-01-01', 1); "
+                + "INSERT INTO prenotazione(utente_id, data_inizio, data_fine, abitazione_id) VALUES "
+                + "(2, '2025-07-01', '2025-07-05', 10)");
+    }
+
+    @Test
+    public void chainedConflictsAreResolvedInRowOrder() {
+        // A-B-C a catena: B perde con A, C si sovrappone solo a B e resta valida
+        ImportJob job = importa(Runnable::run,
+                "2,10,2025-06-01,2025-06-05",
+                "2,10,2025-06-04,2025-06-08",
+                "2,10,2025-06-07,2025-06-10",
+                // D perde con la prenotazione esistente, E si sovrappone solo a D
+                "2,10,2025-07-03,2025-07-06",
+                "2,10,2025-07-05,2025-07-08",
+                // stesso periodo di A ma su un'altra abitazione
+                "2,11,2025-06-01,2025-06-05");
+
+        assertEquals(List.of(
+                new ImportScarto(2, "periodo in conflitto con la riga 1 del file"),
+                new ImportScarto(4, "periodo già prenotato")), job.getScarti());
+        assertEquals(4, job.getRigheImportate());
+        assertEquals(5, TestDatabase.queryInt("SELECT COUNT(*) FROM prenotazione"));
+        assertEquals(1, TestDatabase.queryInt("SELECT COUNT(*) FROM prenotazione "
+                + "WHERE abitazione_id = 10 AND data_inizio = '2025-06-07'"));
+        assertEquals(1, TestDatabase.queryInt("SELECT COUNT(*) FROM prenotazione "
+                + "WHERE abitazione_id = 10 AND data_inizio = '2025-07-05'"));
+    }
+
+    @Test
+    public void conflictIsReportedAgainstTheFirstAcceptedRow() {
+        ImportJob job = importa(Runnable::run,
+                "2,10,2025-06-01,2025-06-03",
+                "2,10,2025-06-05,2025-06-08",
+                "2,10,2025-06-02,2025-06-06",
+                "2,10,2025-06-02,2025-06-04");
+
+        assertEquals(List.of(
+                new ImportScarto(3, "periodo in conflitto con la riga 1 del file"),
+                new ImportScarto(4, "periodo in conflitto con la riga 1 del file")), job.getScarti());
+        assertEquals(2, job.getRigheImportate());
+    }
+
+    @Test
+    public void malformedCsvRowIsRejectedWithoutAbortingTheCopy() {
+        ImportJob job = importa(Runnable::run,
+                "2,10,2025-06-01,2025-06-05",
+                "2,\"10,2025-06-10,2025-06-12",
+                "2,10,2025-06-20",
+                "2,11,\"2025-06-01\",2025-06-05");
+
+        assertEquals(List.of(
+                new ImportScarto(2, "CSV non valido: virgolette non chiuse"),
+                new ImportScarto(3, "CSV non valido: attesi 4 campi, trovati 3")), job.getScarti());
+        assertEquals(4, job.getRigheLette());
+        assertEquals(2, job.getRigheImportate());
+        assertEquals(2, job.getRigheScartate());
+    }
+
+    @Test
+    public void rowsDeletedBeforeTheGuardAreRejected() {
+        // cancellazione arrivata tra i controlli iniziali e il lock
+        ImportJob job = importa(merge -> {
+            TestDatabase.execute("DELETE FROM abitazione WHERE id = 11");
+            merge.run();
+        },
+                "2,10,2025-06-01,2025-06-05",
+                "2,11,2025-06-01,2025-06-05");
+
+        assertEquals(List.of(new ImportScarto(2, "abitazione inesistente")), job.getScarti());
+        assertEquals(1, job.getRigheImportate());
+    }
+
+    private ImportJob importa(Consumer<Runnable> guard, String... righe) {
+        ImportJob job = new ImportJob();
+        job.setId("test");
+        String csv = String.join("\n", righe) + "\n";
+        dao.importa(ImportTipo.PRENOTAZIONI, new CsvParsingReader(new StringReader(csv), COLONNE, COLONNE), job, guard);
+        return job;
+    }
+}
@@ -0,0 +1,62 @@
+package com.turistafacoltoso.repository;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.turistafacoltoso.model.RollupDelta;
+
+/**
+ * Richiede PostgreSQL: vedi TestDatabase.
+ */
+public class RollupDAOImplTest {
+    private static final LocalDate GIORNO = LocalDate.of(2025, 6, 1);
+
+    private final RollupDAOImpl dao = new RollupDAOImpl();
+
+    @Before
+    public void setUp() {
+        TestDatabase.reset();
+        TestDatabase.execute("INSERT INTO utente(id, nome_user, cognome, email, indirizzo_user) VALUES "
+                + "(1, 'Anna', 'Rossi', 'anna@example.it', 'Via Po 1'), "
+                + "(2, 'Luca', 'Bianchi', 'luca@example.it', 'Via Po 2'); "
+                + "INSERT INTO host(id, id_utente) VALUES (1, 1); "
+                + "INSERT INTO abitazione(id, nome_abitazione, indirizzo_abitazione, n_locali, n_posti_letto, "
+                + "prezzo_per_notte, disponibilita_inizio, disponibilita_fine, id_host) VALUES "
+                + "(10, 'Casa Po', 'Via Po 3', 2, 2, 80, '2025-01-01', '2026-01-01', 1), "
+                + "(11, 'Casa Dora', 'Via Dora 4', 2, 2, 90, '2025-01-01', '2026-01-01', 1); "
+                + "INSERT INTO prenotazione(utente_id, data_inizio, data_fine, abitazione_id) VALUES "
+                + "(2, '2025-06-01', '2025-06-04', 10), (2, '2025-06-01', '2025-06-03', 11)");
+    }
+
+    @Test
+    public void rebuildAndDeltasAddUpPerRow() {
+        assertEquals(2, dao.rebuild());
+
+        dao.addAll(List.of(
+                new RollupDelta(GIORNO, 10, 1, 2, 1, 5),
+                new RollupDelta(GIORNO, 11, 1, 2, -1, -2),
+                new RollupDelta(GIORNO.plusDays(1), 10, 1, 2, 1, 1)));
+
+        assertEquals(Map.of(10, 3), dao.sumPrenotazioniPerAbitazione(GIORNO, GIORNO.plusDays(1), 10));
+        assertEquals(Map.of(1, 3), dao.sumPrenotazioniPerHost(GIORNO, GIORNO.plusDays(1), 10));
+        assertEquals(Map.of(2, 9), dao.sumNottiPerUtente(GIORNO, GIORNO.plusDays(1), 10));
+    }
+
+    @Test
+    public void deltasOfDeletedAbitazioniAreSkipped() {
+        dao.rebuild();
+        TestDatabase.execute("DELETE FROM abitazione WHERE id = 11");
+
+        // arriva dopo la cascata: non deve fallire sulla foreign key né ricreare la riga
+        dao.addAll(List.of(new RollupDelta(GIORNO, 11, 1, 2, -1, -2), new RollupDelta(GIORNO, 10, 1, 2, 1, 1)));
+
+        assertEquals(1, TestDatabase.queryInt("SELECT COUNT(*) FROM prenotazione_rollup"));
+        assertEquals(Map.of(10, 2), dao.sumPrenotazioniPerAbitazione(GIORNO, GIORNO, 10));
+    }
+}
@@ -0,0 +1,71 @@
+package com.turistafacoltoso.repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.Prenotazione;
+
+/**
+ * Costo dei mapper ResultSet -> model dei DAO.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMappingBenchmark {
+    private ResultSet abitazioneRow;
+    private ResultSet prenotazioneRow;
+
+    @Setup
+    public void setup() {
+        abitazioneRow = StubResultSet.of(Map.of(
+                "id", 1,
+                "nome_abitazione", "Casa Centro",
+                "indirizzo_abitazione", "Via Roma 12",
+                "n_locali", 3,
+                "n_posti_letto", 4,
+                "prezzo_per_notte", new BigDecimal("85.50"),
+                "disponibilita_inizio", Date.valueOf(LocalDate.of(2025, 1, 1)),
+                "disponibilita_fine", Date.valueOf(LocalDate.of(2025, 12, 31)),
+                "id_host", 1));
+
+        prenotazioneRow = StubResultSet.of(Map.of(
+                "id", 1,
+                "utente_id", 2,
+                "data_inizio", Date.valueOf(LocalDate.of(2025, 4, 10)),
+                "data_fine", Date.valueOf(LocalDate.of(2025, 4, 15)),
+                "abitazione_id", 1,
+                "created_at", Timestamp.valueOf(LocalDateTime.of(2025, 3, 1, 10, 30))));
+    }
+
+    @Benchmark
+    public Abitazione mapAbitazione() throws SQLException {
+        return AbitazioneDAOImpl.mapResultSetToAbitazione(abitazioneRow);
+    }
+
+    @Benchmark
+    public Prenotazione mapPrenotazione() throws SQLException {
+        return PrenotazioneDAOImpl.mapResultSetToPrenotazione(prenotazioneRow);
+    }
+}
@@ -0,0 +1,36 @@
+package com.turistafacoltoso.repository;
+
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.util.Map;
+
+/**
+ * ResultSet finto su una singola riga (colonna -> valore), per misurare i
+ * mapper dei DAO senza database.
+ */
+public class StubResultSet {
+
+    private StubResultSet() {
+
+    }
+
+    public static ResultSet of(Map<String, Object> row) {
+        return (ResultSet) Proxy.newProxyInstance(
+                ResultSet.class.getClassLoader(),
+                new Class<?>[] { ResultSet.class },
+                (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.startsWith("get") && args != null && args.length == 1 && args[0] instanceof String column) {
+                        Object value = row.get(column);
+                        if (value == null && method.getReturnType().isPrimitive()) {
+                            return 0;
+                        }
+                        return value;
+                    }
+                    if ("wasNull".equals(name)) {
+                        return false;
+                    }
+                    throw new UnsupportedOperationException(name);
+                });
+    }
+}
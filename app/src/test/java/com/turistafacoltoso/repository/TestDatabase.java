@@ -0,0 +1,76 @@
+package com.turistafacoltoso.repository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import org.junit.Assume;
+
+import com.turistafacoltoso.util.DataBaseConnection;
+
+/**
+ * Database PostgreSQL per i test dei DAO. Si attiva con
+ * -Ddb.it.url=jdbc:postgresql://host:porta/db (ed eventualmente db.it.user,
+ * db.it.pwd) su un database di prova: lo schema public viene cancellato e
+ * ricreato da DOCS/setup/sql/00_DDL.sql. Senza la proprietà i test che lo
+ * usano vengono saltati.
+ */
+public final class TestDatabase {
+    private static final Path DDL = Path.of("..", "DOCS", "setup", "sql", "00_DDL.sql");
+
+    private static boolean initialized;
+
+    private TestDatabase() {
+
+    }
+
+    /**
+     * Inizializza il pool al primo uso e riporta il database allo schema vuoto.
+     */
+    public static synchronized void reset() {
+        String url = System.getProperty("db.it.url");
+        Assume.assumeTrue("db.it.url non impostata: test su PostgreSQL saltato", url != null && !url.isBlank());
+        if (!initialized) {
+            Properties p = new Properties();
+            p.setProperty("db.url", url);
+            p.setProperty("db.user", System.getProperty("db.it.user", "postgres"));
+            p.setProperty("db.pwd", System.getProperty("db.it.pwd", ""));
+            p.setProperty("db.pool.maxSize", "4");
+            p.setProperty("db.pool.minIdle", "0");
+            DataBaseConnection.init(p);
+            initialized = true;
+        }
+        try {
+            execute("DROP SCHEMA public CASCADE; CREATE SCHEMA public; " + Files.readString(DDL));
+        } catch (IOException e) {
+            throw new IllegalStateException("Impossibile leggere " + DDL.toAbsolutePath(), e);
+        }
+    }
+
+    public static void execute(String sql) {
+        try (Connection conn = DataBaseConnection.getConnection();
+                Statement st = conn.createStatement()) {
+            st.execute(sql);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Primo valore della prima riga (0 se la query non restituisce righe).
+     */
+    public static int queryInt(String sql) {
+        try (Connection conn = DataBaseConnection.getConnection();
+                Statement st = conn.createStatement();
+                ResultSet rs = st.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
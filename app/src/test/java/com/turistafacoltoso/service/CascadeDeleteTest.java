@@ -0,0 +1,187 @@
+package com.turistafacoltoso.service;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.turistafacoltoso.index.AbitazioneEvents;
+import com.turistafacoltoso.index.AbitazioneListener;
+import com.turistafacoltoso.index.FeedbackEvents;
+import com.turistafacoltoso.index.FeedbackListener;
+import com.turistafacoltoso.index.PrenotazioneEvents;
+import com.turistafacoltoso.index.PrenotazioneIndex;
+import com.turistafacoltoso.index.PrenotazioneListener;
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.Feedback;
+import com.turistafacoltoso.model.Host;
+import com.turistafacoltoso.model.Prenotazione;
+import com.turistafacoltoso.model.Utente;
+import com.turistafacoltoso.util.EntityCaches;
+
+public class CascadeDeleteTest {
+    private final Registro registro = new Registro();
+    private InMemoryPrenotazioneDAO prenotazioneDAO;
+    private HostDAOService hostService;
+    private UtenteDAOService utenteService;
+    private AbitazioneDAOService abitazioneService;
+    private PrenotazioneDAOService prenotazioneService;
+
+    private int proprietario;
+    private int viaggiatore;
+    private int hostProprietario;
+    private int casa1;
+    private int casa2;
+    private int casaAltrui;
+
+    @Before
+    public void setUp() {
+        EntityCaches.invalidateAll();
+        InMemoryFeedbackDAO feedbackDAO = new InMemoryFeedbackDAO();
+        prenotazioneDAO = new InMemoryPrenotazioneDAO(feedbackDAO);
+        InMemoryAbitazioneDAO abitazioneDAO = new InMemoryAbitazioneDAO(prenotazioneDAO);
+        InMemoryHostDAO hostDAO = new InMemoryHostDAO(abitazioneDAO);
+        InMemoryUtenteDAO utenteDAO = new InMemoryUtenteDAO(hostDAO, prenotazioneDAO);
+        utenteService = new UtenteDAOService(utenteDAO, hostDAO, abitazioneDAO, feedbackDAO);
+        hostService = new HostDAOService(hostDAO, utenteService, abitazioneDAO, feedbackDAO);
+        abitazioneService = new AbitazioneDAOService(abitazioneDAO, hostService, feedbackDAO);
+        prenotazioneService = new PrenotazioneDAOService(prenotazioneDAO, abitazioneService, feedbackDAO);
+        PrenotazioneIndex.getInstance().setLoader(prenotazioneDAO::findAll);
+        PrenotazioneIndex.getInstance().reload();
+
+        proprietario = utenteDAO.create(new Utente("Anna", "Rossi", "anna@example.com", "Via Po 1")).getId();
+        viaggiatore = utenteDAO.create(new Utente("Luca", "Bianchi", "luca@example.com", "Via Dora 2")).getId();
+        int altroProprietario = utenteDAO.create(new Utente("Sara", "Verdi", "sara@example.com", "Via Roma 3")).getId();
+        hostProprietario = hostDAO.create(host(proprietario)).getId();
+        int altroHost = hostDAO.create(host(altroProprietario)).getId();
+        casa1 = abitazioneDAO.create(abitazione("Casa 1", hostProprietario)).getId();
+        casa2 = abitazioneDAO.create(abitazione("Casa 2", hostProprietario)).getId();
+        casaAltrui = abitazioneDAO.create(abitazione("Casa 3", altroHost)).getId();
+
+        LocalDate inizio = LocalDate.now().plusDays(5);
+        Prenotazione p = prenotazioneService.insertPrenotazione(viaggiatore, casa1, inizio, inizio.plusDays(3));
+        feedbackDAO.create(new Feedback(0, "Ottimo", "Tutto bene", 5, p.getId(), viaggiatore, casa1));
+        prenotazioneService.insertPrenotazione(altroProprietario, casa2, inizio, inizio.plusDays(2));
+        prenotazioneService.insertPrenotazione(viaggiatore, casaAltrui, inizio, inizio.plusDays(4));
+
+        PrenotazioneEvents.register(registro);
+        AbitazioneEvents.register(registro);
+        FeedbackEvents.register(registro);
+    }
+
+    @After
+    public void tearDown() {
+        PrenotazioneEvents.unregister(registro);
+        AbitazioneEvents.unregister(registro);
+        FeedbackEvents.unregister(registro);
+        PrenotazioneIndex.getInstance().setLoader(List::of);
+        PrenotazioneIndex.getInstance().clear();
+    }
+
+    @Test
+    public void hostDeleteNotifiesCascadedRowsWithoutReload() {
+        hostService.deleteHostById(hostProprietario);
+
+        assertEquals(List.of(casa1, casa2), registro.prenotazioniCancellate.stream().sorted().toList());
+        assertEquals(List.of(casa1, casa2), registro.abitazioniCancellate.stream().sorted().toList());
+        assertEquals(1, registro.feedbackCancellati);
+        assertEquals(0, registro.reload);
+        assertIndiceAllineato();
+    }
+
+    @Test
+    public void utenteDeleteNotifiesOwnBookingsAndHostCascade() {
+        utenteService.deleteById(viaggiatore);
+
+        assertEquals(List.of(casa1, casaAltrui), registro.prenotazioniCancellate.stream().sorted().toList());
+        assertEquals(List.of(), registro.abitazioniCancellate);
+        assertEquals(1, registro.feedbackCancellati);
+        assertIndiceAllineato();
+
+        // il proprietario è anche host: spariscono le sue abitazioni e le prenotazioni su di esse
+        registro.prenotazioniCancellate.clear();
+        utenteService.deleteById(proprietario);
+
+        assertEquals(List.of(casa2), registro.prenotazioniCancellate);
+        assertEquals(List.of(casa1, casa2), registro.abitazioniCancellate.stream().sorted().toList());
+        assertEquals(0, registro.reload);
+        assertIndiceAllineato();
+    }
+
+    @Test
+    public void abitazioneDeleteNotifiesItsBookings() {
+        abitazioneService.deleteAbitazione(casa1);
+
+        assertEquals(List.of(casa1), registro.prenotazioniCancellate);
+        assertEquals(List.of(casa1), registro.abitazioniCancellate);
+        assertEquals(1, registro.feedbackCancellati);
+        assertEquals(0, registro.reload);
+        assertIndiceAllineato();
+    }
+
+    private void assertIndiceAllineato() {
+        PrenotazioneIndex index = PrenotazioneIndex.getInstance();
+        assertEquals(prenotazioneDAO.size(), index.size());
+        prenotazioneDAO.findAll().forEach(p -> assertEquals(p.getId(), index.get(p.getId()).get().getId()));
+    }
+
+    private static Host host(int idUtente) {
+        return new Host(0, idUtente, "Host", "Test", "host" + idUtente + "@example.com", "Via Test",
+                LocalDateTime.now());
+    }
+
+    private static Abitazione abitazione(String nome, int idHost) {
+        LocalDate oggi = LocalDate.now();
+        return new Abitazione(nome, "Via " + nome, 2, 2, new BigDecimal("70.00"), oggi, oggi.plusYears(1), idHost);
+    }
+
+    /**
+     * Listener che registra le notifiche ricevute (id abitazione delle prenotazioni cancellate).
+     */
+    private static class Registro implements PrenotazioneListener, AbitazioneListener, FeedbackListener {
+        final List<Integer> prenotazioniCancellate = new ArrayList<>();
+        final List<Integer> abitazioniCancellate = new ArrayList<>();
+        int feedbackCancellati;
+        int reload;
+
+        @Override
+        public void onCreated(Prenotazione p, Abitazione a) {
+        }
+
+        @Override
+        public void onDeleted(Prenotazione p, Abitazione a) {
+            assertEquals(p.getAbitazioneId(), a.getId());
+            prenotazioniCancellate.add(a.getId());
+        }
+
+        @Override
+        public void onCreated(Abitazione a) {
+        }
+
+        @Override
+        public void onDeleted(Abitazione a) {
+            abitazioniCancellate.add(a.getId());
+        }
+
+        @Override
+        public void onCreated(Feedback f) {
+        }
+
+        @Override
+        public void onDeleted(Feedback f) {
+            feedbackCancellati++;
+        }
+
+        @Override
+        public void reload() {
+            reload++;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.turistafacoltoso.service;
+
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.turistafacoltoso.index.LastMonthCounters;
+import com.turistafacoltoso.index.PrenotazioneColumns;
+import com.turistafacoltoso.index.PrenotazioneEvents;
+import com.turistafacoltoso.index.PrenotazioneIndex;
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.util.EntityCaches;
+
+/**
+ * Caricamento all'avvio e reload dei listener con la tabella delle
+ * abitazioni vuota (database nuovo o ultima abitazione cancellata).
+ */
+public class EmptyDatabaseLoadTest {
+    private InMemoryAbitazioneDAO abitazioneDAO;
+    private PrenotazioneDAOService service;
+
+    @Before
+    public void setUp() {
+        EntityCaches.invalidateAll();
+        InMemoryFeedbackDAO feedbackDAO = new InMemoryFeedbackDAO();
+        InMemoryPrenotazioneDAO prenotazioneDAO = new InMemoryPrenotazioneDAO(feedbackDAO);
+        abitazioneDAO = new InMemoryAbitazioneDAO(prenotazioneDAO);
+        service = new PrenotazioneDAOService(prenotazioneDAO,
+                new AbitazioneDAOService(abitazioneDAO, new HostDAOService(), feedbackDAO), feedbackDAO);
+        service.loadPrenotazioneIndex();
+    }
+
+    @After
+    public void tearDown() {
+        LastMonthCounters counters = LastMonthCounters.getInstance();
+        PrenotazioneEvents.unregister(counters);
+        counters.setLoader(List::of, c -> {
+        });
+        counters.reload();
+        PrenotazioneColumns columns = PrenotazioneColumns.getInstance();
+        PrenotazioneEvents.unregister(columns);
+        columns.setLoader(c -> {
+        }, c -> {
+        });
+        columns.reload();
+        PrenotazioneIndex.getInstance().setLoader(List::of);
+        PrenotazioneIndex.getInstance().clear();
+    }
+
+    @Test
+    public void lastMonthCountersLoadAndReloadWithoutAbitazioni() {
+        LastMonthCounters counters = LastMonthCounters.getInstance();
+        service.loadLastMonthCounters();
+        assertEquals(Map.of(), counters.getClassificaHosts());
+
+        LocalDate oggi = LocalDate.now();
+        int casa = abitazioneDAO.create(new Abitazione("Casa", "Via Po 1", 2, 2, new BigDecimal("70.00"), oggi,
+                oggi.plusYears(1), 7)).getId();
+        service.insertPrenotazione(2, casa, oggi.plusDays(1), oggi.plusDays(3));
+        assertEquals(Map.of(7, 1), counters.getClassificaHosts());
+
+        // cancellata senza notifiche: solo il reload può riallineare i contatori
+        abitazioneDAO.deleteById(casa);
+        PrenotazioneEvents.reload();
+        assertEquals(Map.of(), counters.getClassificaHosts());
+    }
+
+    @Test
+    public void prenotazioneColumnsLoadAndReloadWithoutAbitazioni() {
+        PrenotazioneColumns columns = PrenotazioneColumns.getInstance();
+        LocalDate oggi = LocalDate.now();
+        service.loadPrenotazioneColumns();
+        assertEquals(List.of(), columns.aggregate(PrenotazioneColumns.GroupBy.HOST, oggi, oggi.plusYears(1), 10));
+
+        int casa = abitazioneDAO.create(new Abitazione("Casa", "Via Po 1", 2, 2, new BigDecimal("70.00"), oggi,
+                oggi.plusYears(1), 7)).getId();
+        service.insertPrenotazione(2, casa, oggi.plusDays(1), oggi.plusDays(3));
+        assertEquals(1, columns.aggregate(PrenotazioneColumns.GroupBy.HOST, oggi, oggi.plusYears(1), 10).size());
+
+        abitazioneDAO.deleteById(casa);
+        PrenotazioneEvents.reload();
+        assertEquals(List.of(), columns.aggregate(PrenotazioneColumns.GroupBy.HOST, oggi, oggi.plusYears(1), 10));
+    }
+}
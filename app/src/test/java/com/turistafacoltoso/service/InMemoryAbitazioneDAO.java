@@ -0,0 +1,131 @@
+package com.turistafacoltoso.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.repository.dao.AbitazioneDAO;
+
+/**
+ * AbitazioneDAO in memoria per test e benchmark (nessun database). Se
+ * costruito con un InMemoryPrenotazioneDAO simula la cancellazione a cascata
+ * delle prenotazioni.
+ */
+public class InMemoryAbitazioneDAO implements AbitazioneDAO {
+    private final Map<Integer, Abitazione> rows = new ConcurrentHashMap<>();
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final InMemoryPrenotazioneDAO prenotazioneDAO;
+
+    public InMemoryAbitazioneDAO() {
+        this(null);
+    }
+
+    public InMemoryAbitazioneDAO(InMemoryPrenotazioneDAO prenotazioneDAO) {
+        this.prenotazioneDAO = prenotazioneDAO;
+    }
+
+    @Override
+    public Abitazione create(Abitazione a) {
+        a.setId(sequence.incrementAndGet());
+        rows.put(a.getId(), a);
+        return a;
+    }
+
+    @Override
+    public List<Abitazione> createBatch(List<Abitazione> batch) {
+        batch.forEach(this::create);
+        return batch;
+    }
+
+    @Override
+    public List<Abitazione> findAll() {
+        return new ArrayList<>(rows.values());
+    }
+
+    @Override
+    public List<Abitazione> findPage(int afterId, int limit) {
+        return rows.values().stream()
+                .filter(x -> x.getId() > afterId)
+                .sorted(Comparator.comparingInt(Abitazione::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public void streamAll(Consumer<Abitazione> consumer) {
+        rows.values().forEach(consumer);
+    }
+
+    @Override
+    public Optional<Abitazione> findById(Integer id) {
+        return Optional.ofNullable(rows.get(id));
+    }
+
+    @Override
+    public List<Abitazione> findByNLocali(Integer number) {
+        return rows.values().stream().filter(a -> a.getNLocali() == number).toList();
+    }
+
+    @Override
+    public List<Abitazione> findByNomeAbitazione(String name) {
+        return rows.values().stream().filter(a -> a.getNomeAbitazione().equals(name)).toList();
+    }
+
+    @Override
+    public List<Abitazione> findByDataDisponibilita(LocalDate dataInizio, LocalDate dataFine) {
+        return rows.values().stream()
+                .filter(a -> !a.getDisponibilitaInizio().isAfter(dataInizio) && !a.getDisponibilitaFine().isBefore(dataFine))
+                .toList();
+    }
+
+    @Override
+    public List<Abitazione> findByHostId(int idHost) {
+        return rows.values().stream().filter(a -> a.getIdHost() == idHost).toList();
+    }
+
+    @Override
+    public Optional<Abitazione> findMostPopularLastMonth() {
+        return Optional.empty();
+    }
+
+    @Override
+    public BigDecimal getMediaPostiLetto() {
+        return BigDecimal.ZERO;
+    }
+
+    @Override
+    public Optional<Abitazione> update(Abitazione a) {
+        return rows.replace(a.getId(), a) != null ? Optional.of(a) : Optional.empty();
+    }
+
+    @Override
+    public int deleteAll() {
+        int size = rows.size();
+        rows.clear();
+        return size;
+    }
+
+    @Override
+    public boolean deleteById(Integer id) {
+        if (rows.remove(id) == null) {
+            return false;
+        }
+        if (prenotazioneDAO != null) {
+            prenotazioneDAO.deleteWhere(p -> p.getAbitazioneId() == id);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean deleteByName(String name) {
+        return rows.values().removeIf(a -> a.getNomeAbitazione().equals(name));
+    }
+}
@@ -0,0 +1,100 @@
+package com.turistafacoltoso.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.turistafacoltoso.model.Feedback;
+import com.turistafacoltoso.repository.dao.FeedbackDAO;
+
+/**
+ * FeedbackDAO in memoria per test e benchmark (nessun database).
+ */
+public class InMemoryFeedbackDAO implements FeedbackDAO {
+    private final Map<Integer, Feedback> rows = new ConcurrentHashMap<>();
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    @Override
+    public Feedback create(Feedback f) {
+        f.setId(sequence.incrementAndGet());
+        rows.put(f.getId(), f);
+        return f;
+    }
+
+    @Override
+    public List<Feedback> findAll() {
+        return new ArrayList<>(rows.values());
+    }
+
+    @Override
+    public List<Feedback> findPage(int afterId, int limit) {
+        return rows.values().stream()
+                .filter(x -> x.getId() > afterId)
+                .sorted(Comparator.comparingInt(Feedback::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public void streamAll(Consumer<Feedback> consumer) {
+        rows.values().forEach(consumer);
+    }
+
+    @Override
+    public Optional<Feedback> findById(Integer id) {
+        return Optional.ofNullable(rows.get(id));
+    }
+
+    @Override
+    public List<Feedback> findByIds(List<Integer> ids) {
+        return ids.stream().map(rows::get).filter(f -> f != null).toList();
+    }
+
+    @Override
+    public List<Feedback> findByIdHost(Integer idHost) {
+        // il feedback non conosce l'host: servirebbe la join con abitazione
+        throw new UnsupportedOperationException("findByIdHost non disponibile in memoria");
+    }
+
+    @Override
+    public List<Feedback> findByPunteggio(Integer number) {
+        return rows.values().stream().filter(f -> f.getPunteggio() == number).toList();
+    }
+
+    @Override
+    public List<Feedback> findByPrenotazione(Integer prenotazioneId) {
+        return rows.values().stream().filter(f -> f.getPrenotazioneId() == prenotazioneId).toList();
+    }
+
+    @Override
+    public List<Feedback> findByPrenotazioni(List<Integer> prenotazioneIds) {
+        return rows.values().stream().filter(f -> prenotazioneIds.contains(f.getPrenotazioneId())).toList();
+    }
+
+    @Override
+    public Optional<Feedback> update(Feedback f) {
+        return rows.replace(f.getId(), f) != null ? Optional.of(f) : Optional.empty();
+    }
+
+    @Override
+    public int deleteAll() {
+        int size = rows.size();
+        rows.clear();
+        return size;
+    }
+
+    @Override
+    public boolean deleteById(Integer id) {
+        return rows.remove(id) != null;
+    }
+
+    @Override
+    public Optional<Feedback> deleteReturning(Integer id) {
+        return Optional.ofNullable(rows.remove(id));
+    }
+}
@@ -0,0 +1,96 @@
+package com.turistafacoltoso.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.Host;
+import com.turistafacoltoso.model.HostStats;
+import com.turistafacoltoso.repository.dao.HostDAO;
+
+/**
+ * HostDAO in memoria per test (nessun database): la delete cancella a
+ * cascata le abitazioni dell'host, come il DDL.
+ */
+public class InMemoryHostDAO implements HostDAO {
+    private final Map<Integer, Host> rows = new ConcurrentHashMap<>();
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final InMemoryAbitazioneDAO abitazioneDAO;
+
+    public InMemoryHostDAO(InMemoryAbitazioneDAO abitazioneDAO) {
+        this.abitazioneDAO = abitazioneDAO;
+    }
+
+    @Override
+    public Host create(Host h) {
+        h.setId(sequence.incrementAndGet());
+        rows.put(h.getId(), h);
+        return h;
+    }
+
+    @Override
+    public List<Host> findAll() {
+        return new ArrayList<>(rows.values());
+    }
+
+    @Override
+    public List<Host> findPage(int afterId, int limit) {
+        return rows.values().stream()
+                .filter(x -> x.getId() > afterId)
+                .sorted(Comparator.comparingInt(Host::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public void streamAll(Consumer<Host> consumer) {
+        rows.values().forEach(consumer);
+    }
+
+    @Override
+    public Optional<Host> findById(Integer id) {
+        return Optional.ofNullable(rows.get(id));
+    }
+
+    @Override
+    public Optional<Host> findByIdUtente(int idUtente) {
+        return rows.values().stream().filter(h -> h.getIdUtente() == idUtente).findFirst();
+    }
+
+    @Override
+    public Map<String, Integer> findTopHostsLastMonth() {
+        throw new UnsupportedOperationException("findTopHostsLastMonth non disponibile in memoria");
+    }
+
+    @Override
+    public List<HostStats> countPrenotazioniPerHost() {
+        throw new UnsupportedOperationException("countPrenotazioniPerHost non disponibile in memoria");
+    }
+
+    @Override
+    public Optional<Host> update(Host h) {
+        return rows.replace(h.getId(), h) != null ? Optional.of(h) : Optional.empty();
+    }
+
+    @Override
+    public int deleteAll() {
+        int size = rows.size();
+        new ArrayList<>(rows.keySet()).forEach(this::deleteById);
+        return size;
+    }
+
+    @Override
+    public boolean deleteById(Integer id) {
+        if (rows.remove(id) == null) {
+            return false;
+        }
+        abitazioneDAO.findByHostId(id).stream().map(Abitazione::getId).forEach(abitazioneDAO::deleteById);
+        return true;
+    }
+}
@@ -0,0 +1,122 @@
+package com.turistafacoltoso.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import com.turistafacoltoso.model.Prenotazione;
+import com.turistafacoltoso.repository.dao.PrenotazioneDAO;
+
+/**
+ * PrenotazioneDAO in memoria per test e benchmark (nessun database). Se
+ * costruito con un InMemoryFeedbackDAO simula la cancellazione a cascata dei
+ * feedback.
+ */
+public class InMemoryPrenotazioneDAO implements PrenotazioneDAO {
+    private final Map<Integer, Prenotazione> rows = new ConcurrentHashMap<>();
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final InMemoryFeedbackDAO feedbackDAO;
+
+    public InMemoryPrenotazioneDAO() {
+        this(null);
+    }
+
+    public InMemoryPrenotazioneDAO(InMemoryFeedbackDAO feedbackDAO) {
+        this.feedbackDAO = feedbackDAO;
+    }
+
+    @Override
+    public Prenotazione create(Prenotazione p) {
+        p.setId(sequence.incrementAndGet());
+        rows.put(p.getId(), p);
+        return p;
+    }
+
+    @Override
+    public List<Prenotazione> createBatch(List<Prenotazione> batch) {
+        batch.forEach(this::create);
+        return batch;
+    }
+
+    @Override
+    public List<Prenotazione> findAll() {
+        return new ArrayList<>(rows.values());
+    }
+
+    @Override
+    public List<Prenotazione> findPage(int afterId, int limit) {
+        return rows.values().stream()
+                .filter(x -> x.getId() > afterId)
+                .sorted(Comparator.comparingInt(Prenotazione::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public void streamAll(Consumer<Prenotazione> consumer) {
+        rows.values().forEach(consumer);
+    }
+
+    @Override
+    public Optional<Prenotazione> findById(Integer id) {
+        return Optional.ofNullable(rows.get(id));
+    }
+
+    @Override
+    public Optional<Prenotazione> findByDataCreazione(LocalDateTime localDateTime) {
+        return rows.values().stream().filter(p -> p.getCreatedAt().equals(localDateTime)).findFirst();
+    }
+
+    @Override
+    public List<Prenotazione> findByUtenteId(Integer idUtente) {
+        return rows.values().stream().filter(p -> p.getUtenteId() == idUtente).toList();
+    }
+
+    @Override
+    public Optional<Prenotazione> findLatestByUtenteId(int utenteId) {
+        return rows.values().stream()
+                .filter(p -> p.getUtenteId() == utenteId)
+                .max(Comparator.comparing(Prenotazione::getCreatedAt));
+    }
+
+    @Override
+    public Optional<Prenotazione> update(Prenotazione p) {
+        return rows.replace(p.getId(), p) != null ? Optional.of(p) : Optional.empty();
+    }
+
+    @Override
+    public int deleteAll() {
+        int size = rows.size();
+        rows.clear();
+        return size;
+    }
+
+    @Override
+    public boolean deleteById(Integer id) {
+        if (rows.remove(id) == null) {
+            return false;
+        }
+        if (feedbackDAO != null) {
+            feedbackDAO.findByPrenotazione(id).forEach(f -> feedbackDAO.deleteById(f.getId()));
+        }
+        return true;
+    }
+
+    /**
+     * Cancellazione a cascata da abitazione o utente.
+     */
+    public void deleteWhere(Predicate<Prenotazione> filtro) {
+        rows.values().stream().filter(filtro).map(Prenotazione::getId).toList().forEach(this::deleteById);
+    }
+
+    public int size() {
+        return rows.size();
+    }
+}
@@ -0,0 +1,111 @@
+package com.turistafacoltoso.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import com.turistafacoltoso.model.Utente;
+import com.turistafacoltoso.repository.dao.UtenteDAO;
+
+/**
+ * UtenteDAO in memoria per test (nessun database): la delete cancella a
+ * cascata l'host dell'utente e le sue prenotazioni, come il DDL.
+ */
+public class InMemoryUtenteDAO implements UtenteDAO {
+    private final Map<Integer, Utente> rows = new ConcurrentHashMap<>();
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final InMemoryHostDAO hostDAO;
+    private final InMemoryPrenotazioneDAO prenotazioneDAO;
+
+    public InMemoryUtenteDAO(InMemoryHostDAO hostDAO, InMemoryPrenotazioneDAO prenotazioneDAO) {
+        this.hostDAO = hostDAO;
+        this.prenotazioneDAO = prenotazioneDAO;
+    }
+
+    @Override
+    public Utente create(Utente u) {
+        u.setId(sequence.incrementAndGet());
+        rows.put(u.getId(), u);
+        return u;
+    }
+
+    @Override
+    public List<Utente> findAll() {
+        return new ArrayList<>(rows.values());
+    }
+
+    @Override
+    public List<Utente> findPage(int afterId, int limit) {
+        return rows.values().stream()
+                .filter(x -> x.getId() > afterId)
+                .sorted(Comparator.comparingInt(Utente::getId))
+                .limit(limit)
+                .toList();
+    }
+
+    @Override
+    public void streamAll(Consumer<Utente> consumer) {
+        rows.values().forEach(consumer);
+    }
+
+    @Override
+    public Optional<Utente> findById(Integer id) {
+        return Optional.ofNullable(rows.get(id));
+    }
+
+    @Override
+    public Optional<Utente> findByEmail(String email) {
+        return rows.values().stream().filter(u -> u.getEmail().equals(email)).findFirst();
+    }
+
+    @Override
+    public Optional<Utente> findByUsername(String name) {
+        return rows.values().stream().filter(u -> u.getNomeUser().equals(name)).findFirst();
+    }
+
+    @Override
+    public List<Utente> findAllByUsername(String name) {
+        return rows.values().stream().filter(u -> u.getNomeUser().equals(name)).toList();
+    }
+
+    @Override
+    public Map<String, Integer> findTopUsersByDaysLastMonth() {
+        throw new UnsupportedOperationException("findTopUsersByDaysLastMonth non disponibile in memoria");
+    }
+
+    @Override
+    public Optional<Utente> update(Utente u) {
+        return rows.replace(u.getId(), u) != null ? Optional.of(u) : Optional.empty();
+    }
+
+    @Override
+    public int deleteAll() {
+        int size = rows.size();
+        new ArrayList<>(rows.keySet()).forEach(this::deleteById);
+        return size;
+    }
+
+    @Override
+    public boolean deleteById(Integer id) {
+        if (rows.remove(id) == null) {
+            return false;
+        }
+        hostDAO.findByIdUtente(id).ifPresent(h -> hostDAO.deleteById(h.getId()));
+        prenotazioneDAO.deleteWhere(p -> p.getUtenteId() == id);
+        return true;
+    }
+
+    @Override
+    public boolean deleteByUsername(String name) {
+        boolean deleted = false;
+        for (Utente u : findAllByUsername(name)) {
+            deleted |= deleteById(u.getId());
+        }
+        return deleted;
+    }
+}
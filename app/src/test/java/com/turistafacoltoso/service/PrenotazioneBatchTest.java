@@ -0,0 +1,63 @@
+package com.turistafacoltoso.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.turistafacoltoso.index.PrenotazioneIndex;
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.BatchResult;
+import com.turistafacoltoso.model.Prenotazione;
+import com.turistafacoltoso.util.EntityCaches;
+
+public class PrenotazioneBatchTest {
+    private InMemoryPrenotazioneDAO prenotazioneDAO;
+    private PrenotazioneDAOService service;
+    private int idAbitazione;
+    private LocalDate oggi;
+
+    @Before
+    public void setUp() {
+        EntityCaches.invalidateAll();
+        PrenotazioneIndex.getInstance().clear();
+        oggi = LocalDate.now();
+        InMemoryAbitazioneDAO abitazioneDAO = new InMemoryAbitazioneDAO();
+        idAbitazione = abitazioneDAO.create(new Abitazione("Casa Centro", "Via Roma 12", 3, 4,
+                new BigDecimal("85.50"), oggi, oggi.plusYears(1), 1)).getId();
+        prenotazioneDAO = new InMemoryPrenotazioneDAO();
+        InMemoryFeedbackDAO feedbackDAO = new InMemoryFeedbackDAO();
+        service = new PrenotazioneDAOService(prenotazioneDAO,
+                new AbitazioneDAOService(abitazioneDAO, new HostDAOService(), feedbackDAO), feedbackDAO);
+    }
+
+    @Test
+    public void batchReportsEachItemAndRejectsOverlapsInsideTheBatch() {
+        List<Prenotazione> items = List.of(
+                prenotazione(oggi.plusDays(10), oggi.plusDays(15)),
+                prenotazione(oggi.plusDays(12), oggi.plusDays(14)),
+                prenotazione(oggi.plusDays(15), oggi.plusDays(20)),
+                prenotazione(oggi.plusDays(30), oggi.plusDays(25)));
+
+        BatchResult result = service.insertPrenotazioniBatch(items);
+
+        assertEquals(4, result.getTotale());
+        assertEquals(2, result.getInseriti());
+        assertTrue(result.getRisultati().get(0).isSuccess());
+        assertFalse(result.getRisultati().get(1).isSuccess());
+        assertTrue(result.getRisultati().get(2).isSuccess());
+        assertFalse(result.getRisultati().get(3).isSuccess());
+        assertEquals(2, prenotazioneDAO.size());
+        assertFalse(PrenotazioneIndex.getInstance().isFree(idAbitazione, oggi.plusDays(11), oggi.plusDays(12)));
+    }
+
+    private Prenotazione prenotazione(LocalDate inizio, LocalDate fine) {
+        return new Prenotazione(inizio, fine, 2, idAbitazione, null);
+    }
+}
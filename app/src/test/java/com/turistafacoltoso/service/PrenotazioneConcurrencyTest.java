@@ -0,0 +1,308 @@
+package com.turistafacoltoso.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.turistafacoltoso.exception.DuplicatePrenotazioneException;
+import com.turistafacoltoso.index.LastMonthCounters;
+import com.turistafacoltoso.index.PrenotazioneEvents;
+import com.turistafacoltoso.index.PrenotazioneIndex;
+import com.turistafacoltoso.index.SuperHostRegistry;
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.Host;
+import com.turistafacoltoso.model.HostStats;
+import com.turistafacoltoso.model.Prenotazione;
+import com.turistafacoltoso.model.Utente;
+import com.turistafacoltoso.util.EntityCaches;
+
+public class PrenotazioneConcurrencyTest {
+    private static final int ABITAZIONI = 8;
+    private static final int RICHIESTE = 4000;
+
+    private InMemoryAbitazioneDAO abitazioneDAO;
+    private InMemoryPrenotazioneDAO prenotazioneDAO;
+    private PrenotazioneDAOService service;
+    private final List<Integer> ids = new ArrayList<>();
+    private LocalDate oggi;
+    private int viaggiatore = 2;
+
+    @Before
+    public void setUp() {
+        EntityCaches.invalidateAll();
+        PrenotazioneIndex.getInstance().clear();
+        oggi = LocalDate.now();
+        abitazioneDAO = new InMemoryAbitazioneDAO();
+        for (int i = 0; i < ABITAZIONI; i++) {
+            ids.add(abitazioneDAO.create(new Abitazione("Casa " + i, "Via " + i, 2, 2, new BigDecimal("70.00"),
+                    oggi, oggi.plusYears(1), 1)).getId());
+        }
+        // lo yield nella create allarga la finestra tra controllo e insert
+        prenotazioneDAO = new InMemoryPrenotazioneDAO() {
+            @Override
+            public Prenotazione create(Prenotazione p) {
+                Thread.yield();
+                return super.create(p);
+            }
+        };
+        InMemoryFeedbackDAO feedbackDAO = new InMemoryFeedbackDAO();
+        service = new PrenotazioneDAOService(prenotazioneDAO,
+                new AbitazioneDAOService(abitazioneDAO, new HostDAOService(), feedbackDAO), feedbackDAO);
+    }
+
+    @After
+    public void tearDown() {
+        PrenotazioneIndex.getInstance().setLoader(List::of);
+        PrenotazioneIndex.getInstance().clear();
+    }
+
+    @Test
+    public void concurrentBookingsNeverOverlap() throws Exception {
+        AtomicInteger rifiutate = prenota(RICHIESTE, Thread::yield);
+
+        List<Prenotazione> tutte = prenotazioneDAO.findAll();
+        assertEquals(RICHIESTE, tutte.size() + rifiutate.get());
+        assertTrue(rifiutate.get() > 0);
+        assertNoOverlap(tutte);
+    }
+
+    @Test
+    public void reloadDuringBookingsKeepsIndexAligned() throws Exception {
+        PrenotazioneIndex index = PrenotazioneIndex.getInstance();
+        // la pausa simula la query: le insert che cadono tra lettura e
+        // sostituzione dell'indice andrebbero perse senza i lock
+        index.setLoader(() -> {
+            List<Prenotazione> tutte = prenotazioneDAO.findAll();
+            LockSupport.parkNanos(200_000);
+            return tutte;
+        });
+        // ricarica di continuo, come dopo le cancellazioni a cascata
+        AtomicInteger rifiutate = prenota(RICHIESTE,
+                () -> PrenotazioneDAOService.withAllBookingLocks(index::reload));
+
+        List<Prenotazione> tutte = prenotazioneDAO.findAll();
+        assertEquals(RICHIESTE, tutte.size() + rifiutate.get());
+        assertEquals(tutte.size(), index.size());
+        for (Prenotazione p : tutte) {
+            assertTrue("Prenotazione " + p.getId() + " assente dall'indice", index.get(p.getId()).isPresent());
+        }
+        assertNoOverlap(tutte);
+    }
+
+    @Test
+    public void cascadeDeletesDuringBookingsKeepIndexAndListenersAligned() throws Exception {
+        // ogni abitazione ha il suo host; i DAO simulano le cascate del DDL
+        InMemoryFeedbackDAO feedbackDAO = new InMemoryFeedbackDAO();
+        prenotazioneDAO = new InMemoryPrenotazioneDAO(feedbackDAO) {
+            @Override
+            public Prenotazione create(Prenotazione p) {
+                Thread.yield();
+                return super.create(p);
+            }
+        };
+        abitazioneDAO = new InMemoryAbitazioneDAO(prenotazioneDAO);
+        InMemoryHostDAO hostDAO = new InMemoryHostDAO(abitazioneDAO);
+        InMemoryUtenteDAO utenteDAO = new InMemoryUtenteDAO(hostDAO, prenotazioneDAO);
+        UtenteDAOService utenteService = new UtenteDAOService(utenteDAO, hostDAO, abitazioneDAO, feedbackDAO);
+        HostDAOService hostService = new HostDAOService(hostDAO, utenteService, abitazioneDAO, feedbackDAO);
+        service = new PrenotazioneDAOService(prenotazioneDAO,
+                new AbitazioneDAOService(abitazioneDAO, hostService, feedbackDAO), feedbackDAO);
+        viaggiatore = utenteDAO.create(new Utente("Luca", "Bianchi", "luca@example.com", "Via Dora 2")).getId();
+        List<Host> hosts = new ArrayList<>();
+        ids.clear();
+        for (int i = 0; i < ABITAZIONI; i++) {
+            int idUtente = utenteDAO.create(new Utente("Host" + i, "Test", "host" + i + "@example.com", "Via " + i))
+                    .getId();
+            Host h = hostDAO.create(new Host(0, idUtente, "Host" + i, "Test", "host" + i + "@example.com", "Via " + i,
+                    LocalDateTime.now()));
+            hosts.add(h);
+            ids.add(abitazioneDAO.create(new Abitazione("Casa " + i, "Via " + i, 2, 2, new BigDecimal("70.00"),
+                    oggi, oggi.plusYears(1), h.getId())).getId());
+        }
+        PrenotazioneIndex index = PrenotazioneIndex.getInstance();
+        index.setLoader(prenotazioneDAO::findAll);
+        LastMonthCounters counters = LastMonthCounters.getInstance();
+        counters.setLoader(prenotazioneDAO::findAll, abitazioneDAO::streamAll);
+        counters.reload();
+        PrenotazioneEvents.register(counters);
+        try {
+            // a intervalli cancella metà degli host, alternando host e utente proprietario
+            AtomicInteger cancellati = new AtomicInteger();
+            prenota(RICHIESTE, () -> {
+                int k = cancellati.get();
+                if (k < ABITAZIONI / 2 && prenotazioneDAO.size() > (k + 1) * 40) {
+                    Host h = hosts.get(k);
+                    if (k % 2 == 0) {
+                        hostService.deleteHostById(h.getId());
+                    } else {
+                        utenteService.deleteById(h.getIdUtente());
+                    }
+                    cancellati.incrementAndGet();
+                } else {
+                    Thread.yield();
+                }
+            });
+            assertEquals(ABITAZIONI / 2, cancellati.get());
+        } finally {
+            PrenotazioneEvents.unregister(counters);
+        }
+
+        List<Prenotazione> tutte = prenotazioneDAO.findAll();
+        assertEquals(tutte.size(), index.size());
+        for (Prenotazione p : tutte) {
+            assertTrue("Prenotazione " + p.getId() + " assente dall'indice", index.get(p.getId()).isPresent());
+            assertTrue(abitazioneDAO.findById(p.getAbitazioneId()).isPresent());
+        }
+        assertNoOverlap(tutte);
+        Map<Integer, Integer> perHost = tutte.stream().collect(Collectors.groupingBy(
+                p -> abitazioneDAO.findById(p.getAbitazioneId()).get().getIdHost(), Collectors.summingInt(p -> 1)));
+        Map<Integer, Integer> contatori = counters.getClassificaHosts().entrySet().stream()
+                .filter(e -> e.getValue() > 0).collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+        assertEquals(perHost, contatori);
+        counters.setLoader(List::of, c -> {
+        });
+        counters.reload();
+    }
+
+    @Test
+    public void listenerReloadDuringBookingsCountsEachBookingOnce() throws Exception {
+        LastMonthCounters counters = LastMonthCounters.getInstance();
+        // le insert che finiscono durante la pausa sono lette dal reload e
+        // poi notificate di nuovo: senza i lock verrebbero contate due volte
+        counters.setLoader(() -> {
+            LockSupport.parkNanos(200_000);
+            return prenotazioneDAO.findAll();
+        }, abitazioneDAO::streamAll);
+        counters.reload();
+        PrenotazioneEvents.register(counters);
+        try {
+            // reload solo nella prima parte: un conteggio doppio resta fino al reload successivo
+            prenota(RICHIESTE, () -> {
+                if (prenotazioneDAO.size() < 100) {
+                    PrenotazioneDAOService.withAllBookingLocks(PrenotazioneEvents::reload);
+                } else {
+                    Thread.yield();
+                }
+            });
+        } finally {
+            PrenotazioneEvents.unregister(counters);
+        }
+
+        // tutte le abitazioni sono dell'host 1
+        assertEquals(Map.of(1, prenotazioneDAO.size()), counters.getClassificaHosts());
+        counters.setLoader(List::of, c -> {
+        });
+        counters.reload();
+    }
+
+    @Test
+    public void superHostRebuildDuringBookingsCountsEachBookingOnce() throws Exception {
+        SuperHostRegistry registry = SuperHostRegistry.getInstance();
+        // come POST /superHosts/rebuild: tutte le abitazioni sono dell'host 1
+        registry.setLoader(() -> {
+            LockSupport.parkNanos(200_000);
+            return List.of(new HostStats(1, "Mario", "Rossi", prenotazioneDAO.size()));
+        });
+        registry.reload();
+        PrenotazioneEvents.register(registry);
+        HostDAOService hostService = new HostDAOService();
+        try {
+            prenota(RICHIESTE, () -> {
+                if (prenotazioneDAO.size() < 100) {
+                    hostService.rebuildSuperHosts();
+                } else {
+                    Thread.yield();
+                }
+            });
+        } finally {
+            PrenotazioneEvents.unregister(registry);
+        }
+
+        assertEquals(prenotazioneDAO.size(), registry.getConteggio(1));
+        registry.setLoader(List::of);
+        registry.reload();
+    }
+
+    /**
+     * Invia n richieste di prenotazione da 32 thread mentre un altro thread
+     * esegue ripetutamente disturbo; restituisce il numero di rifiuti,
+     * comprese le richieste su abitazioni già cancellate.
+     */
+    private AtomicInteger prenota(int n, Runnable disturbo) throws InterruptedException {
+        AtomicInteger rifiutate = new AtomicInteger();
+        List<RuntimeException> errori = new CopyOnWriteArrayList<>();
+        CountDownLatch via = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        Random random = new Random(3);
+        for (int i = 0; i < n; i++) {
+            int idAbitazione = ids.get(random.nextInt(ABITAZIONI));
+            LocalDate inizio = oggi.plusDays(1 + random.nextInt(120));
+            LocalDate fine = inizio.plusDays(1 + random.nextInt(6));
+            executor.execute(() -> {
+                try {
+                    via.await();
+                    service.insertPrenotazione(viaggiatore, idAbitazione, inizio, fine);
+                } catch (DuplicatePrenotazioneException e) {
+                    rifiutate.incrementAndGet();
+                } catch (RuntimeException e) {
+                    if (abitazioneDAO.findById(idAbitazione).isPresent()) {
+                        errori.add(e);
+                    }
+                    rifiutate.incrementAndGet();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        AtomicBoolean finito = new AtomicBoolean();
+        Thread t = new Thread(() -> {
+            while (!finito.get()) {
+                disturbo.run();
+            }
+        });
+        t.start();
+        via.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        finito.set(true);
+        t.join();
+        assertEquals(List.of(), errori);
+        return rifiutate;
+    }
+
+    private static void assertNoOverlap(List<Prenotazione> tutte) {
+        Map<Integer, List<Prenotazione>> perAbitazione = tutte.stream()
+                .collect(Collectors.groupingBy(Prenotazione::getAbitazioneId));
+        for (List<Prenotazione> lista : perAbitazione.values()) {
+            for (int i = 0; i < lista.size(); i++) {
+                for (int j = i + 1; j < lista.size(); j++) {
+                    Prenotazione a = lista.get(i);
+                    Prenotazione b = lista.get(j);
+                    assertFalse("Prenotazioni " + a.getId() + " e " + b.getId() + " sovrapposte",
+                            a.getDataInizio().isBefore(b.getDataFine()) && b.getDataInizio().isBefore(a.getDataFine()));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.turistafacoltoso.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.turistafacoltoso.index.PrenotazioneIndex;
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.Prenotazione;
+import com.turistafacoltoso.repository.dao.PrenotazioneDAO;
+
+/**
+ * Logica di PrenotazioneDAOService.insertPrenotazione (validazione date,
+ * disponibilità e controllo sovrapposizioni) con DAO in memoria: misura solo
+ * il costo del service.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrenotazioneServiceBenchmark {
+    private PrenotazioneDAOService service;
+    private int idAbitazione;
+    private LocalDate inizio;
+    private LocalDate fine;
+    private int slot;
+
+    @Setup
+    public void setup() {
+        InMemoryAbitazioneDAO abitazioneDAO = new InMemoryAbitazioneDAO();
+        LocalDate oggi = LocalDate.now();
+        Abitazione a = abitazioneDAO.create(new Abitazione("Casa Centro", "Via Roma 12", 3, 4,
+                new BigDecimal("85.50"), oggi, oggi.plusYears(1), 1));
+        idAbitazione = a.getId();
+        inizio = oggi.plusDays(10);
+        fine = oggi.plusDays(15);
+        PrenotazioneIndex.getInstance().clear();
+
+        InMemoryFeedbackDAO feedbackDAO = new InMemoryFeedbackDAO();
+        AbitazioneDAOService abitazioneService = new AbitazioneDAOService(abitazioneDAO, new HostDAOService(), feedbackDAO);
+        // il DAO non conserva le righe e restituisce sempre lo stesso id: nell'indice resta
+        // una sola prenotazione, la memoria è costante per tutta la misura
+        PrenotazioneDAO prenotazioneDAO = new InMemoryPrenotazioneDAO() {
+            @Override
+            public Prenotazione create(Prenotazione p) {
+                p.setId(1);
+                return p;
+            }
+        };
+        service = new PrenotazioneDAOService(prenotazioneDAO, abitazioneService, feedbackDAO);
+    }
+
+    @Benchmark
+    public Prenotazione insertPrenotazione() {
+        // periodo sempre diverso dal precedente, quindi mai in conflitto
+        slot = (slot + 1) % 50;
+        LocalDate start = inizio.plusDays(slot * 6L);
+        return service.insertPrenotazione(2, idAbitazione, start, start.plusDays(5));
+    }
+
+    @Benchmark
+    public Object insertPrenotazioneDateNonValide() {
+        try {
+            return service.insertPrenotazione(2, idAbitazione, fine, inizio);
+        } catch (IllegalArgumentException e) {
+            return e;
+        }
+    }
+}
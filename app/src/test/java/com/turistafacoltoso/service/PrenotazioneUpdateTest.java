@@ -0,0 +1,81 @@
+package com.turistafacoltoso.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.turistafacoltoso.exception.DuplicatePrenotazioneException;
+import com.turistafacoltoso.index.PrenotazioneIndex;
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.Prenotazione;
+import com.turistafacoltoso.util.EntityCaches;
+
+public class PrenotazioneUpdateTest {
+    private InMemoryPrenotazioneDAO prenotazioneDAO;
+    private PrenotazioneDAOService service;
+    private int idAbitazione;
+    private LocalDate oggi;
+    private Prenotazione esistente;
+
+    @Before
+    public void setUp() {
+        EntityCaches.invalidateAll();
+        PrenotazioneIndex.getInstance().clear();
+        oggi = LocalDate.now();
+        InMemoryAbitazioneDAO abitazioneDAO = new InMemoryAbitazioneDAO();
+        idAbitazione = abitazioneDAO.create(new Abitazione("Casa Centro", "Via Roma 12", 3, 4,
+                new BigDecimal("85.50"), oggi, oggi.plusMonths(2), 1)).getId();
+        prenotazioneDAO = new InMemoryPrenotazioneDAO();
+        InMemoryFeedbackDAO feedbackDAO = new InMemoryFeedbackDAO();
+        service = new PrenotazioneDAOService(prenotazioneDAO,
+                new AbitazioneDAOService(abitazioneDAO, new HostDAOService(), feedbackDAO), feedbackDAO);
+        esistente = service.insertPrenotazione(2, idAbitazione, oggi.plusDays(10), oggi.plusDays(15));
+        service.insertPrenotazione(2, idAbitazione, oggi.plusDays(20), oggi.plusDays(25));
+    }
+
+    @Test
+    public void invalidUpdatesAreRejectedBeforeWriting() {
+        rifiutato(modifica(null, null), IllegalArgumentException.class);
+        rifiutato(modifica(oggi.plusDays(15), oggi.plusDays(10)), IllegalArgumentException.class);
+        // fuori dalla finestra di disponibilità dell'abitazione
+        rifiutato(modifica(oggi.plusMonths(2), oggi.plusMonths(2).plusDays(3)), IllegalArgumentException.class);
+        rifiutato(modifica(oggi.minusDays(3), oggi.plusDays(2)), IllegalArgumentException.class);
+        rifiutato(modifica(oggi.plusDays(18), oggi.plusDays(22)), DuplicatePrenotazioneException.class);
+
+        Prenotazione salvata = prenotazioneDAO.findById(esistente.getId()).get();
+        assertEquals(oggi.plusDays(10), salvata.getDataInizio());
+        assertEquals(oggi.plusDays(15), salvata.getDataFine());
+        assertFalse(PrenotazioneIndex.getInstance().isFree(idAbitazione, oggi.plusDays(10), oggi.plusDays(11)));
+    }
+
+    @Test
+    public void updateMayOverlapItsOwnPreviousPeriod() {
+        assertTrue(service.updatePrenotazione(modifica(oggi.plusDays(12), oggi.plusDays(18))).isPresent());
+
+        PrenotazioneIndex index = PrenotazioneIndex.getInstance();
+        assertTrue(index.isFree(idAbitazione, oggi.plusDays(10), oggi.plusDays(12)));
+        assertFalse(index.isFree(idAbitazione, oggi.plusDays(17), oggi.plusDays(18)));
+    }
+
+    private Prenotazione modifica(LocalDate inizio, LocalDate fine) {
+        Prenotazione p = new Prenotazione(inizio, fine, 2, idAbitazione, null);
+        p.setId(esistente.getId());
+        return p;
+    }
+
+    private void rifiutato(Prenotazione p, Class<? extends RuntimeException> atteso) {
+        try {
+            service.updatePrenotazione(p);
+            fail("update accettato: " + p.getDataInizio() + " / " + p.getDataFine());
+        } catch (RuntimeException e) {
+            assertEquals(atteso, e.getClass());
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.turistafacoltoso.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.Prenotazione;
+import com.turistafacoltoso.model.RollupDelta;
+import com.turistafacoltoso.repository.dao.RollupDAO;
+
+public class RollupServiceTest {
+    private static final LocalDate GIORNO = LocalDate.of(2025, 6, 1);
+
+    private final List<List<RollupDelta>> scritture = new ArrayList<>();
+    private final List<Runnable> coda = new ArrayList<>();
+    private final Abitazione abitazione = new Abitazione("Casa Po", "Via Po 3", 2, 2, new BigDecimal("80.00"),
+            GIORNO, GIORNO.plusYears(1), 7);
+    private RollupService service;
+    private int rebuild;
+    private boolean prenotazioniBloccate;
+
+    @Before
+    public void setUp() {
+        abitazione.setId(10);
+        service = new RollupService(new RollupDAO() {
+            @Override
+            public int rebuild() {
+                rebuild++;
+                prenotazioniBloccate = !prenotazioneLiberaDaAltroThread();
+                return 0;
+            }
+
+            @Override
+            public void addAll(List<RollupDelta> deltas) {
+                scritture.add(List.copyOf(deltas));
+            }
+
+            @Override
+            public Map<Integer, Integer> sumPrenotazioniPerAbitazione(LocalDate from, LocalDate to, int limit) {
+                return Map.of();
+            }
+
+            @Override
+            public Map<Integer, Integer> sumPrenotazioniPerHost(LocalDate from, LocalDate to, int limit) {
+                return Map.of();
+            }
+
+            @Override
+            public Map<Integer, Integer> sumNottiPerUtente(LocalDate from, LocalDate to, int limit) {
+                return Map.of();
+            }
+        }, coda::add);
+    }
+
+    @Test
+    public void deltasAreMergedAndWrittenOnceByTheExecutor() {
+        for (int utente = 1; utente <= 3; utente++) {
+            service.onCreated(prenotazione(utente, GIORNO, 3), abitazione);
+        }
+        service.onCreated(prenotazione(1, GIORNO, 2), abitazione);
+        // update delle date: delete e create sulla stessa riga si annullano
+        service.onDeleted(prenotazione(3, GIORNO, 3), abitazione);
+        service.onCreated(prenotazione(3, GIORNO, 3), abitazione);
+        service.onDeleted(prenotazione(2, GIORNO, 3), abitazione);
+
+        // nessuna scrittura nel thread della richiesta, un solo flush in coda
+        assertTrue(scritture.isEmpty());
+        assertEquals(1, coda.size());
+        coda.remove(0).run();
+
+        assertEquals(List.of(List.of(new RollupDelta(GIORNO, 10, 7, 1, 2, 5), new RollupDelta(GIORNO, 10, 7, 3, 1, 3))),
+                scritture);
+    }
+
+    @Test
+    public void rebuildDropsQueuedDeltas() {
+        service.onCreated(prenotazione(1, GIORNO, 3), abitazione);
+        service.reload();
+        assertEquals(2, coda.size());
+
+        coda.remove(1).run();
+        coda.remove(0).run();
+
+        assertEquals(1, rebuild);
+        assertEquals(List.of(List.of()), scritture);
+
+        // dopo il ricalcolo i nuovi delta ripartono normalmente
+        service.onCreated(prenotazione(2, GIORNO, 1), abitazione);
+        coda.remove(0).run();
+        assertEquals(List.of(new RollupDelta(GIORNO, 10, 7, 2, 1, 1)), scritture.get(1));
+    }
+
+    @Test
+    public void rebuildRunsWhileBookingsAreBlocked() {
+        service.rebuild();
+
+        // una prenotazione scritta prima della lettura e notificata dopo il clear verrebbe contata due volte
+        assertTrue(prenotazioniBloccate);
+        assertTrue(prenotazioneLiberaDaAltroThread());
+    }
+
+    /**
+     * true se un altro thread riesce a prendere il lock delle prenotazioni
+     * dell'abitazione entro 100 ms.
+     */
+    private boolean prenotazioneLiberaDaAltroThread() {
+        CountDownLatch preso = new CountDownLatch(1);
+        Thread t = new Thread(() -> PrenotazioneDAOService.withBookingLock(10, () -> {
+            preso.countDown();
+            return null;
+        }));
+        t.start();
+        try {
+            boolean libero = preso.await(100, TimeUnit.MILLISECONDS);
+            if (libero) {
+                t.join();
+            }
+            return libero;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static Prenotazione prenotazione(int utente, LocalDate inizio, int notti) {
+        return new Prenotazione(inizio, inizio.plusDays(notti), utente, 10, null);
+    }
+}
@@ -0,0 +1,65 @@
+package com.turistafacoltoso.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.Test;
+
+public class CsvParsingReaderTest {
+    private static final List<String> COLONNE = List.of("utente_id", "abitazione_id", "data_inizio", "data_fine");
+
+    @Test
+    public void rewritesRecordsWithEmptyParsingError() throws IOException {
+        String csv = "3,7,2025-06-01,2025-06-05\r\n"
+                + "\n"
+                + ",\"8\",,\"a \"\"b\"\", c\"\n"
+                + "\\.,x,\" \",y\n";
+
+        assertEquals("\"3\",\"7\",\"2025-06-01\",\"2025-06-05\",\n"
+                + ",\"8\",,\"a \"\"b\"\", c\",\n"
+                + "\"\\.\",\"x\",\" \",\"y\",\n",
+                readAll(new CsvParsingReader(new StringReader(csv), COLONNE, COLONNE), 5));
+    }
+
+    @Test
+    public void malformedRecordsCarryTheParsingError() throws IOException {
+        String csv = "1,2,3\n"
+                + "1,\"2,3,4\n"
+                + "1,\"2\"x,3,4\n"
+                + "1,2\"x,3,4\n"
+                + "1,2,3,4,5\n"
+                + "1,2,3,4\n";
+
+        assertEquals(",,,,\"CSV non valido: attesi 4 campi, trovati 3\"\n"
+                + ",,,,\"CSV non valido: virgolette non chiuse\"\n"
+                + ",,,,\"CSV non valido: testo dopo le virgolette di chiusura\"\n"
+                + ",,,,\"CSV non valido: virgolette dentro un campo senza virgolette\"\n"
+                + ",,,,\"CSV non valido: attesi 4 campi, trovati 5\"\n"
+                + "\"1\",\"2\",\"3\",\"4\",\n",
+                readAll(new CsvParsingReader(new StringReader(csv), COLONNE, COLONNE), 4096));
+    }
+
+    @Test
+    public void fieldsFollowTheTargetColumnsWhateverTheHeaderOrder() throws IOException {
+        String csv = "2025-06-05,7,2025-06-01\n1,2\n";
+
+        assertEquals("\"7\",,\"2025-06-01\",\"2025-06-05\",\n"
+                + ",,,,\"CSV non valido: attesi 3 campi, trovati 2\"\n",
+                readAll(new CsvParsingReader(new StringReader(csv), List.of("data_fine", "utente_id", "data_inizio"),
+                        COLONNE), 4096));
+    }
+
+    private static String readAll(Reader reader, int chunk) throws IOException {
+        StringBuilder out = new StringBuilder();
+        char[] buf = new char[chunk];
+        int n;
+        while ((n = reader.read(buf, 0, buf.length)) != -1) {
+            out.append(buf, 0, n);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,76 @@
+package com.turistafacoltoso.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.turistafacoltoso.model.Abitazione;
+import com.turistafacoltoso.model.Prenotazione;
+
+/**
+ * Serializzazione JSON delle liste restituite dagli endpoint, con lo stesso
+ * ObjectMapper configurato in App. L'output va su uno stream nullo per
+ * misurare solo la codifica.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({ "1000", "100000" })
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private List<Abitazione> abitazioni;
+    private List<Prenotazione> prenotazioni;
+
+    @Setup
+    public void setup() {
+        objectMapper = JacksonConfig.createObjectMapper();
+        abitazioni = new ArrayList<>(size);
+        prenotazioni = new ArrayList<>(size);
+        LocalDate base = LocalDate.of(2025, 1, 1);
+        for (int i = 1; i <= size; i++) {
+            Abitazione a = new Abitazione("Casa " + i, "Via Roma " + i, 1 + i % 5, 2 + i % 6,
+                    BigDecimal.valueOf(5000 + i % 20000, 2), base, base.plusDays(365), 1 + i % 100);
+            a.setId(i);
+            abitazioni.add(a);
+
+            Prenotazione p = new Prenotazione(base.plusDays(i % 300), base.plusDays(i % 300 + 5), 1 + i % 1000,
+                    1 + i % size, LocalDateTime.of(2024, 12, 1, 10, 0).plusMinutes(i));
+            p.setId(i);
+            prenotazioni.add(p);
+        }
+    }
+
+    @Benchmark
+    public void encodeAbitazioni() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), abitazioni);
+    }
+
+    @Benchmark
+    public void encodePrenotazioni() throws IOException {
+        objectMapper.writeValue(OutputStream.nullOutputStream(), prenotazioni);
+    }
+}
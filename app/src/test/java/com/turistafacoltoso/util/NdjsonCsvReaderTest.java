@@ -0,0 +1,42 @@
+package com.turistafacoltoso.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.Test;
+
+public class NdjsonCsvReaderTest {
+    private static final List<String> COLONNE = List.of("utente_id", "abitazione_id", "data_inizio", "data_fine");
+
+    @Test
+    public void convertsObjectsToCsvRows() throws IOException {
+        String ndjson = "{\"utente_id\": 3, \"abitazione_id\": \"7\", \"data_inizio\": \"2025-06-01\", \"data_fine\": \"2025-06-05\"}\n"
+                + "\n"
+                + "{\"abitazione_id\": 8, \"data_inizio\": null, \"extra\": true, \"data_fine\": \"a \\\"b\\\", c\"}\n";
+
+        assertEquals("\"3\",\"7\",\"2025-06-01\",\"2025-06-05\",\n"
+                + ",\"8\",,\"a \"\"b\"\", c\",\n", readAll(new NdjsonCsvReader(new StringReader(ndjson), COLONNE), 5));
+    }
+
+    @Test
+    public void malformedLinesCarryTheParsingError() throws IOException {
+        String ndjson = "{\"utente_id\": 1\n[1, 2]\n";
+
+        String riga = ",,,,\"JSON non valido: atteso un oggetto per riga\"\n";
+        assertEquals(riga + riga, readAll(new NdjsonCsvReader(new StringReader(ndjson), COLONNE), 4096));
+    }
+
+    private static String readAll(Reader reader, int chunk) throws IOException {
+        StringBuilder out = new StringBuilder();
+        char[] buf = new char[chunk];
+        int n;
+        while ((n = reader.read(buf, 0, buf.length)) != -1) {
+            out.append(buf, 0, n);
+        }
+        return out.toString();
+    }
+}
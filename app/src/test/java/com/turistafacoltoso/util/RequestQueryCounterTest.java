@@ -0,0 +1,107 @@
+package com.turistafacoltoso.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RequestQueryCounterTest {
+    private static final String FIND_BY_ID = "SELECT * FROM abitazione WHERE id = ?";
+    private static final String FIND_ALL = "SELECT * FROM abitazione";
+
+    @Before
+    public void setUp() {
+        RequestContext.begin();
+    }
+
+    @After
+    public void tearDown() {
+        RequestContext.end();
+        QueryBudget.reset();
+    }
+
+    @Test
+    public void countsQueriesConnectionsAndRepeatedStatements() throws SQLException {
+        // N+1: una query per elenco e poi una per ogni riga
+        try (Connection conn = InstrumentedConnection.wrap(fakeConnection(), () -> {
+        })) {
+            execute(conn, FIND_ALL);
+            for (int i = 0; i < 3; i++) {
+                execute(conn, FIND_BY_ID);
+            }
+        }
+        try (Connection conn = InstrumentedConnection.wrap(fakeConnection(), () -> {
+        })) {
+            execute(conn, FIND_BY_ID);
+        }
+
+        RequestContext rc = RequestContext.current();
+        assertEquals(5, rc.getQueries());
+        assertEquals(2, rc.getConnections());
+        assertEquals(Map.of(FIND_BY_ID, 4), rc.repeatedQueries());
+    }
+
+    @Test
+    public void budgetFailsOnlyWhenEnforced() {
+        QueryBudget.set("/api/v1/abitazioni", 1);
+        QueryBudget.check("/api/v1/abitazioni", 2);
+        QueryBudget.check("/api/v1/altro", 100);
+
+        QueryBudget.configure(0, true);
+        QueryBudget.check("/api/v1/abitazioni", 1);
+        try {
+            QueryBudget.check("/api/v1/abitazioni", 2);
+            fail("budget superato senza eccezione");
+        } catch (IllegalStateException expected) {
+            // atteso
+        }
+    }
+
+    private static void execute(Connection conn, String sql) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.executeQuery();
+        }
+    }
+
+    /**
+     * Connessione finta: ogni statement risponde con valori di default.
+     */
+    private static Connection fakeConnection() {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "prepareStatement":
+                            return Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                                    new Class<?>[] { PreparedStatement.class },
+                                    (p, m, a) -> defaultValue(m.getReturnType()));
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return defaultValue(method.getReturnType());
+                    }
+                });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,131 @@
+package com.turistafacoltoso.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.turistafacoltoso.controller.MetricsController;
+
+import io.javalin.Javalin;
+
+public class StreamedResponseMetricsTest {
+    // abbastanza righe da superare il buffer della risposta, che parte prima del filtro after
+    private static final int RIGHE = 200_000;
+
+    private Javalin app;
+
+    @Before
+    public void setUp() {
+        // stessi filtri di App
+        app = Javalin.create().start(0);
+        app.before(ctx -> RequestContext.begin());
+        app.after(ctx -> {
+            try {
+                MetricsController.recordRequest(ctx);
+            } finally {
+                RequestContext.end();
+            }
+        });
+        app.get("/export", ctx -> JsonStreamWriter.<Integer>writeArray(ctx, c -> {
+            for (int i = 0; i < RIGHE; i++) {
+                if (i < 3) {
+                    RequestContext.recordConnection();
+                    RequestContext.recordQuery("SELECT " + i);
+                }
+                c.accept(i);
+            }
+        }));
+        app.get("/lista", ctx -> {
+            RequestContext.recordQuery("SELECT 1");
+            RequestContext.recordQuery("SELECT 2");
+            ctx.result("[]");
+        });
+    }
+
+    @After
+    public void tearDown() {
+        app.stop();
+        QueryBudget.reset();
+    }
+
+    @Test
+    public void streamedResponsesCarryCountsAsTrailers() throws IOException {
+        String lista = get("/lista");
+        assertTrue(lista, lista.contains("X-SQL-Queries: 2\r\n"));
+
+        String export = get("/export");
+        String headers = export.substring(0, export.indexOf("\r\n\r\n"));
+        assertTrue(headers, headers.startsWith("HTTP/1.1 200"));
+        assertTrue(headers, !headers.contains("X-SQL-Queries:"));
+        // trailer dopo l'ultimo chunk (in ordine qualsiasi): le query della sorgente sono tutte contate
+        String trailer = export.substring(export.lastIndexOf((RIGHE - 1) + "]\r\n0\r\n"));
+        assertTrue(trailer, trailer.endsWith("\r\n\r\n"));
+        assertTrue(trailer, trailer.contains("\r\nX-SQL-Queries: 3\r\n"));
+        assertTrue(trailer, trailer.contains("\r\nX-DB-Connections: 3\r\n"));
+    }
+
+    @Test
+    public void enforcedBudgetFailsOrIsRecordedOnceCommitted() throws IOException {
+        QueryBudget.configure(1, true);
+
+        assertTrue(get("/lista").startsWith("HTTP/1.1 500"));
+
+        // lo stream è già partito: la risposta resta 200, il superamento va nella metrica
+        String export = get("/export");
+        assertTrue(export.startsWith("HTTP/1.1 200"));
+        assertTrue(export.contains((RIGHE - 1) + "]"));
+        assertEquals(1.0, Metrics.registry().get("http.server.requests.db.budget.exceeded")
+                .tag("route", "/export").counter().count(), 0.0);
+        assertEquals(List.of("/export", "/lista"), Metrics.registry().find("http.server.requests.db.budget.exceeded")
+                .counters().stream().map(c -> c.getId().getTag("route")).sorted().toList());
+    }
+
+    /**
+     * GET HTTP/1.1 su socket, per leggere anche i trailer della risposta
+     * chunked. La connessione resta keep-alive (con Connection: close Jetty
+     * non userebbe il chunked): la lettura si ferma a fine risposta.
+     */
+    private String get(String path) throws IOException {
+        try (Socket socket = new Socket("localhost", app.port())) {
+            socket.setSoTimeout(10_000);
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET " + path + " HTTP/1.1\r\nHost: localhost\r\nTE: trailers\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            StringBuilder risposta = new StringBuilder();
+            byte[] buffer = new byte[8192];
+            int n;
+            while (!completa(risposta) && (n = in.read(buffer)) != -1) {
+                risposta.append(new String(buffer, 0, n, StandardCharsets.ISO_8859_1));
+            }
+            return risposta.toString();
+        }
+    }
+
+    private static boolean completa(StringBuilder risposta) {
+        int fineHeader = risposta.indexOf("\r\n\r\n");
+        if (fineHeader < 0) {
+            return false;
+        }
+        String headers = risposta.substring(0, fineHeader);
+        if (!headers.contains("Transfer-Encoding: chunked")) {
+            int i = headers.indexOf("Content-Length: ");
+            int length = Integer.parseInt(headers.substring(i + 16).split("\r\n")[0].trim());
+            return risposta.length() >= fineHeader + 4 + length;
+        }
+        // ultimo chunk vuoto, eventuali trailer e riga vuota finale
+        int ultimo = risposta.indexOf("\r\n0\r\n", fineHeader);
+        return ultimo >= 0 && risposta.indexOf("\r\n\r\n", ultimo + 2) >= 0;
+    }
+}